@@ -0,0 +1,345 @@
+package Matrices;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the Java Vector API, at the widest vector shape the CPU supports.
+ * Every loop runs whole vectors up to the last multiple of the lane count and finishes the tail with scalar code.
+ * Kept in its own source root so that the rest of the tree builds without the incubator module, and only loaded,
+ * by name, when the module is present; see {@link Backends}.
+ */
+final class VectorKernels implements Kernels {
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public String getName() {
+		return "vector" + DOUBLES.vectorBitSize();
+	}
+
+	@Override
+	public void add(double[] a, int aOffset, double[] b, int bOffset, double[] r, int rOffset, int n) {
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector va = DoubleVector.fromArray(DOUBLES, a, aOffset + i);
+			va.add(DoubleVector.fromArray(DOUBLES, b, bOffset + i)).intoArray(r, rOffset + i);
+		}
+
+		for (; i < n; i++) {
+			r[rOffset + i] = a[aOffset + i] + b[bOffset + i];
+		}
+	}
+
+	@Override
+	public void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] r, int rOffset, int n) {
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector va = DoubleVector.fromArray(DOUBLES, a, aOffset + i);
+			va.mul(DoubleVector.fromArray(DOUBLES, b, bOffset + i)).intoArray(r, rOffset + i);
+		}
+
+		for (; i < n; i++) {
+			r[rOffset + i] = a[aOffset + i] * b[bOffset + i];
+		}
+	}
+
+	@Override
+	public void scale(double c, double[] a, int aOffset, double[] r, int rOffset, int n) {
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector.fromArray(DOUBLES, a, aOffset + i).mul(c).intoArray(r, rOffset + i);
+		}
+
+		for (; i < n; i++) {
+			r[rOffset + i] = a[aOffset + i] * c;
+		}
+	}
+
+	@Override
+	public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int n) {
+		DoubleVector va = DoubleVector.broadcast(DOUBLES, alpha);
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector vx = DoubleVector.fromArray(DOUBLES, x, xOffset + i);
+			vx.fma(va, DoubleVector.fromArray(DOUBLES, y, yOffset + i)).intoArray(y, yOffset + i);
+		}
+
+		for (; i < n; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	public void axpy4(double a0, double a1, double a2, double a3, double[] x, int xOffset,
+			double[] y, int y0, int y1, int y2, int y3, int n) {
+
+		DoubleVector v0 = DoubleVector.broadcast(DOUBLES, a0);
+		DoubleVector v1 = DoubleVector.broadcast(DOUBLES, a1);
+		DoubleVector v2 = DoubleVector.broadcast(DOUBLES, a2);
+		DoubleVector v3 = DoubleVector.broadcast(DOUBLES, a3);
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector vx = DoubleVector.fromArray(DOUBLES, x, xOffset + i);
+			vx.fma(v0, DoubleVector.fromArray(DOUBLES, y, y0 + i)).intoArray(y, y0 + i);
+			vx.fma(v1, DoubleVector.fromArray(DOUBLES, y, y1 + i)).intoArray(y, y1 + i);
+			vx.fma(v2, DoubleVector.fromArray(DOUBLES, y, y2 + i)).intoArray(y, y2 + i);
+			vx.fma(v3, DoubleVector.fromArray(DOUBLES, y, y3 + i)).intoArray(y, y3 + i);
+		}
+
+		for (; i < n; i++) {
+			double xi = x[xOffset + i];
+			y[y0 + i] += a0 * xi;
+			y[y1 + i] += a1 * xi;
+			y[y2 + i] += a2 * xi;
+			y[y3 + i] += a3 * xi;
+		}
+	}
+
+	@Override
+	public double dot(double[] x, int xOffset, double[] y, int yOffset, int n) {
+		DoubleVector sum = DoubleVector.zero(DOUBLES);
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector vx = DoubleVector.fromArray(DOUBLES, x, xOffset + i);
+			sum = vx.fma(DoubleVector.fromArray(DOUBLES, y, yOffset + i), sum);
+		}
+
+		double s = sum.reduceLanes(VectorOperators.ADD);
+
+		for (; i < n; i++) {
+			s += x[xOffset + i] * y[yOffset + i];
+		}
+
+		return s;
+	}
+
+	@Override
+	public void dot4(double alpha, double[] x, int xOffset, double[] y, int y0, int y1, int y2, int y3, int n, double[] dst, int dstOffset) {
+		DoubleVector sum0 = DoubleVector.zero(DOUBLES);
+		DoubleVector sum1 = sum0;
+		DoubleVector sum2 = sum0;
+		DoubleVector sum3 = sum0;
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector vx = DoubleVector.fromArray(DOUBLES, x, xOffset + i);
+			sum0 = vx.fma(DoubleVector.fromArray(DOUBLES, y, y0 + i), sum0);
+			sum1 = vx.fma(DoubleVector.fromArray(DOUBLES, y, y1 + i), sum1);
+			sum2 = vx.fma(DoubleVector.fromArray(DOUBLES, y, y2 + i), sum2);
+			sum3 = vx.fma(DoubleVector.fromArray(DOUBLES, y, y3 + i), sum3);
+		}
+
+		double s0 = sum0.reduceLanes(VectorOperators.ADD);
+		double s1 = sum1.reduceLanes(VectorOperators.ADD);
+		double s2 = sum2.reduceLanes(VectorOperators.ADD);
+		double s3 = sum3.reduceLanes(VectorOperators.ADD);
+
+		for (; i < n; i++) {
+			double xi = x[xOffset + i];
+			s0 += xi * y[y0 + i];
+			s1 += xi * y[y1 + i];
+			s2 += xi * y[y2 + i];
+			s3 += xi * y[y3 + i];
+		}
+
+		dst[dstOffset] += alpha * s0;
+		dst[dstOffset + 1] += alpha * s1;
+		dst[dstOffset + 2] += alpha * s2;
+		dst[dstOffset + 3] += alpha * s3;
+	}
+
+	@Override
+	public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int n) {
+		FloatVector va = FloatVector.broadcast(FLOATS, alpha);
+		int i = 0;
+
+		for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+			FloatVector vx = FloatVector.fromArray(FLOATS, x, xOffset + i);
+			vx.fma(va, FloatVector.fromArray(FLOATS, y, yOffset + i)).intoArray(y, yOffset + i);
+		}
+
+		for (; i < n; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	public void axpy4(float a0, float a1, float a2, float a3, float[] x, int xOffset,
+			float[] y, int y0, int y1, int y2, int y3, int n) {
+
+		FloatVector v0 = FloatVector.broadcast(FLOATS, a0);
+		FloatVector v1 = FloatVector.broadcast(FLOATS, a1);
+		FloatVector v2 = FloatVector.broadcast(FLOATS, a2);
+		FloatVector v3 = FloatVector.broadcast(FLOATS, a3);
+		int i = 0;
+
+		for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+			FloatVector vx = FloatVector.fromArray(FLOATS, x, xOffset + i);
+			vx.fma(v0, FloatVector.fromArray(FLOATS, y, y0 + i)).intoArray(y, y0 + i);
+			vx.fma(v1, FloatVector.fromArray(FLOATS, y, y1 + i)).intoArray(y, y1 + i);
+			vx.fma(v2, FloatVector.fromArray(FLOATS, y, y2 + i)).intoArray(y, y2 + i);
+			vx.fma(v3, FloatVector.fromArray(FLOATS, y, y3 + i)).intoArray(y, y3 + i);
+		}
+
+		for (; i < n; i++) {
+			float xi = x[xOffset + i];
+			y[y0 + i] += a0 * xi;
+			y[y1 + i] += a1 * xi;
+			y[y2 + i] += a2 * xi;
+			y[y3 + i] += a3 * xi;
+		}
+	}
+
+	@Override
+	public float dot(float[] x, int xOffset, float[] y, int yOffset, int n) {
+		FloatVector sum = FloatVector.zero(FLOATS);
+		int i = 0;
+
+		for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+			FloatVector vx = FloatVector.fromArray(FLOATS, x, xOffset + i);
+			sum = vx.fma(FloatVector.fromArray(FLOATS, y, yOffset + i), sum);
+		}
+
+		float s = sum.reduceLanes(VectorOperators.ADD);
+
+		for (; i < n; i++) {
+			s += x[xOffset + i] * y[yOffset + i];
+		}
+
+		return s;
+	}
+
+	@Override
+	public void dot4(float alpha, float[] x, int xOffset, float[] y, int y0, int y1, int y2, int y3, int n, float[] dst, int dstOffset) {
+		FloatVector sum0 = FloatVector.zero(FLOATS);
+		FloatVector sum1 = sum0;
+		FloatVector sum2 = sum0;
+		FloatVector sum3 = sum0;
+		int i = 0;
+
+		for (int bound = FLOATS.loopBound(n); i < bound; i += FLOATS.length()) {
+			FloatVector vx = FloatVector.fromArray(FLOATS, x, xOffset + i);
+			sum0 = vx.fma(FloatVector.fromArray(FLOATS, y, y0 + i), sum0);
+			sum1 = vx.fma(FloatVector.fromArray(FLOATS, y, y1 + i), sum1);
+			sum2 = vx.fma(FloatVector.fromArray(FLOATS, y, y2 + i), sum2);
+			sum3 = vx.fma(FloatVector.fromArray(FLOATS, y, y3 + i), sum3);
+		}
+
+		float s0 = sum0.reduceLanes(VectorOperators.ADD);
+		float s1 = sum1.reduceLanes(VectorOperators.ADD);
+		float s2 = sum2.reduceLanes(VectorOperators.ADD);
+		float s3 = sum3.reduceLanes(VectorOperators.ADD);
+
+		for (; i < n; i++) {
+			float xi = x[xOffset + i];
+			s0 += xi * y[y0 + i];
+			s1 += xi * y[y1 + i];
+			s2 += xi * y[y2 + i];
+			s3 += xi * y[y3 + i];
+		}
+
+		dst[dstOffset] += alpha * s0;
+		dst[dstOffset + 1] += alpha * s1;
+		dst[dstOffset + 2] += alpha * s2;
+		dst[dstOffset + 3] += alpha * s3;
+	}
+
+	@Override
+	public void sigmoid(double[] z, int zOffset, double[] a, int aOffset, int n) {
+		DoubleVector one = DoubleVector.broadcast(DOUBLES, 1);
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector e = DoubleVector.fromArray(DOUBLES, z, zOffset + i).neg().lanewise(VectorOperators.EXP);
+			one.div(one.add(e)).intoArray(a, aOffset + i);
+		}
+
+		for (; i < n; i++) {
+			a[aOffset + i] = 1 / (1 + Math.exp(-z[zOffset + i]));
+		}
+	}
+
+	@Override
+	public void sigmoidBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n) {
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector va = DoubleVector.fromArray(DOUBLES, a, aOffset + i);
+			DoubleVector g = DoubleVector.fromArray(DOUBLES, gradient, gradientOffset + i);
+			g.mul(va.mul(va.neg().add(1))).intoArray(gradient, gradientOffset + i);
+		}
+
+		for (; i < n; i++) {
+			double ai = a[aOffset + i];
+			gradient[gradientOffset + i] *= ai * (1 - ai);
+		}
+	}
+
+	@Override
+	public void tanh(double[] z, int zOffset, double[] a, int aOffset, int n) {
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector.fromArray(DOUBLES, z, zOffset + i).lanewise(VectorOperators.TANH).intoArray(a, aOffset + i);
+		}
+
+		for (; i < n; i++) {
+			a[aOffset + i] = Math.tanh(z[zOffset + i]);
+		}
+	}
+
+	@Override
+	public void tanhBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n) {
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector va = DoubleVector.fromArray(DOUBLES, a, aOffset + i);
+			DoubleVector g = DoubleVector.fromArray(DOUBLES, gradient, gradientOffset + i);
+			g.mul(va.mul(va).neg().add(1)).intoArray(gradient, gradientOffset + i);
+		}
+
+		for (; i < n; i++) {
+			double ai = a[aOffset + i];
+			gradient[gradientOffset + i] *= 1 - ai * ai;
+		}
+	}
+
+	@Override
+	public void relu(double[] z, int zOffset, double[] a, int aOffset, int n) {
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector.fromArray(DOUBLES, z, zOffset + i).max(0).intoArray(a, aOffset + i);
+		}
+
+		for (; i < n; i++) {
+			a[aOffset + i] = Math.max(0, z[zOffset + i]);
+		}
+	}
+
+	@Override
+	public void reluBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n) {
+		DoubleVector zero = DoubleVector.zero(DOUBLES);
+		int i = 0;
+
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			VectorMask<Double> active = DoubleVector.fromArray(DOUBLES, a, aOffset + i).compare(VectorOperators.GT, 0);
+			zero.blend(DoubleVector.fromArray(DOUBLES, gradient, gradientOffset + i), active).intoArray(gradient, gradientOffset + i);
+		}
+
+		for (; i < n; i++) {
+			gradient[gradientOffset + i] = a[aOffset + i] > 0 ? gradient[gradientOffset + i] : 0;
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package Benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which adds the allocation rate (gc.alloc.rate.norm, bytes per operation)
+ * next to every score. An optional argument restricts the run to benchmarks matching a regular expression,
+ * e.g. "MatrixBenchmark.matrixMultiply".
+ */
+public class BenchmarkRunner {
+	public static void main(String args[]) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(args.length > 0 ? args[0] : "Benchmarks\\..*")
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(options).run();
+	}
+}
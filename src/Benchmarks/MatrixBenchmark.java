@@ -0,0 +1,110 @@
+package Benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import Matrices.*;
+import Network.Sigmoid;
+
+/**
+ * Throughput of the Matrix kernels on the shapes of an MNIST network: a layer of in x out weights applied to a
+ * batch of inputs stored one per column, on both the scalar and the Vector API backend
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class MatrixBenchmark {
+
+	/**
+	 * Layer shape as inputs x outputs
+	 */
+	@Param({ "784x30", "30x10" })
+	public String shape;
+
+	@Param({ "1", "16", "64", "256" })
+	public int batchSize;
+
+	@Param({ "scalar", "vector" })
+	public String kernels;
+
+	private Matrix weights;
+	private Matrix inputs;
+	private Matrix z;
+	private Matrix other;
+	private Matrix activations;
+	private Sigmoid sigmoid;
+
+	// The same function entry by entry through the generic MatrixFunction path, for comparison with the kernel
+	private static final MatrixFunction SIGMOID_FUNCTION = new MatrixFunction() {
+		@Override
+		public double apply(int entryRow, int entryCol, int matrixRows, int matrixCols, double currentVal) {
+			return 1 / (1 + Math.exp(-currentVal));
+		}
+	};
+
+	@Setup
+	public void setup() {
+		if (this.kernels.equals("vector") && !Backends.isVectorAvailable()) {
+			throw new IllegalStateException("jdk.incubator.vector not present");
+		}
+
+		Backends.set(this.kernels.equals("vector") ? Backends.vector() : Backends.scalar());
+
+		int in = Integer.parseInt(this.shape.split("x")[0]);
+		int out = Integer.parseInt(this.shape.split("x")[1]);
+		Random random = new Random(42);
+
+		this.weights = random(random, out, in);
+		this.inputs = random(random, in, this.batchSize);
+		this.z = random(random, out, this.batchSize);
+		this.other = random(random, out, this.batchSize);
+		this.activations = new Matrix(out, this.batchSize);
+		this.sigmoid = new Sigmoid();
+	}
+
+	private static Matrix random(Random random, int rows, int cols) {
+		double[] data = new double[rows * cols];
+
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextGaussian();
+		}
+
+		return new Matrix(rows, cols, data);
+	}
+
+	@Benchmark
+	public Matrix matrixMultiply() throws MatrixMultiplicationException {
+		return Matrix.matrixMultiply(this.weights, this.inputs);
+	}
+
+	@Benchmark
+	public Matrix matrixAdd() throws MatrixAdditionException {
+		return Matrix.matrixAdd(this.z, this.other);
+	}
+
+	@Benchmark
+	public Matrix hadamardProduct() throws HadamardException {
+		return Matrix.hadamardProduct(this.z, this.other);
+	}
+
+	@Benchmark
+	public Matrix transpose() {
+		return Matrix.transpose(this.weights);
+	}
+
+	@Benchmark
+	public Matrix applyFunction() {
+		return Matrix.applyFunction(SIGMOID_FUNCTION, this.z);
+	}
+
+	@Benchmark
+	public Matrix activation() throws MatrixDimensionException {
+		this.sigmoid.forward(this.z, this.activations);
+		return this.activations;
+	}
+}
@@ -0,0 +1,73 @@
+package Benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import Driver.MnistDataset;
+import Driver.MnistReader;
+import Matrices.Matrix;
+import Network.Pair;
+
+/**
+ * Time to load a synthetic MNIST-sized dataset, either fully onto the heap or streamed as batches from the mapped files
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MnistReaderBenchmark {
+
+	@Param({ "10000", "60000" })
+	public int count;
+
+	private File directory;
+	private String imageFile;
+	private String labelFile;
+
+	@Setup(Level.Trial)
+	public void writeFiles() throws IOException {
+		this.directory = Files.createTempDirectory("mnist-benchmark").toFile();
+		this.imageFile = new File(this.directory, "images.idx3-ubyte").getPath();
+		this.labelFile = new File(this.directory, "labels.idx1-ubyte").getPath();
+
+		SyntheticIdx.writeImages(this.imageFile, this.count, 28, 28, 1);
+		SyntheticIdx.writeLabels(this.labelFile, this.count, 10, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFiles() {
+		new File(this.imageFile).delete();
+		new File(this.labelFile).delete();
+		this.directory.delete();
+	}
+
+	@Benchmark
+	public ArrayList<Pair<double[], double[]>> getData() {
+		return MnistReader.getData(this.imageFile, this.labelFile);
+	}
+
+	@Benchmark
+	public Matrix packEpoch() throws IOException {
+		MnistDataset dataset = new MnistDataset(this.imageFile, this.labelFile);
+		int[] order = new int[dataset.size()];
+		Matrix inputs = new Matrix(dataset.getInputSize(), 64);
+		Matrix expectations = new Matrix(dataset.getClasses(), 64);
+
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		for (int start = 0; start + 64 <= order.length; start += 64) {
+			dataset.packBatch(order, start, inputs, expectations);
+		}
+
+		return inputs;
+	}
+}
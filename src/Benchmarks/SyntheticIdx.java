@@ -0,0 +1,58 @@
+package Benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import Driver.MnistReader;
+
+/**
+ * Writes MNIST-shaped IDX files filled with random data, so that loading can be benchmarked without the real dataset
+ */
+public class SyntheticIdx {
+
+	/**
+	 * Writes an image file of count rows x cols images, about a fifth of whose pixels are non-zero like MNIST
+	 * @param path Path of the image file
+	 * @param count Number of images
+	 * @param rows Rows in each image
+	 * @param cols Columns in each image
+	 * @param seed Seed of the pixel values
+	 */
+	public static void writeImages(String path, int count, int rows, int cols, long seed) throws IOException {
+		Random random = new Random(seed);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+			out.writeInt(MnistReader.IMAGE_FILE_MAGIC_NUMBER);
+			out.writeInt(count);
+			out.writeInt(rows);
+			out.writeInt(cols);
+
+			for (long i = 0; i < (long) count * rows * cols; i++) {
+				out.writeByte(random.nextInt(5) == 0 ? random.nextInt(256) : 0);
+			}
+		}
+	}
+
+	/**
+	 * Writes a label file of uniformly random labels
+	 * @param path Path of the label file
+	 * @param count Number of labels
+	 * @param classes Number of distinct labels
+	 * @param seed Seed of the labels
+	 */
+	public static void writeLabels(String path, int count, int classes, long seed) throws IOException {
+		Random random = new Random(seed);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+			out.writeInt(MnistReader.LABEL_FILE_MAGIC_NUMBER);
+			out.writeInt(count);
+
+			for (int i = 0; i < count; i++) {
+				out.writeByte(random.nextInt(classes));
+			}
+		}
+	}
+}
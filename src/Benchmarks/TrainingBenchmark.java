@@ -0,0 +1,50 @@
+package Benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import Matrices.Matrix;
+import Network.Network;
+
+/**
+ * Throughput of one batched gradient step of a 784-30-10 network
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrainingBenchmark {
+
+	@Param({ "1", "16", "64", "256" })
+	public int batchSize;
+
+	private Network network;
+	private Matrix inputs;
+	private Matrix expectations;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+
+		this.network = new Network(new int[] { 784, 30, 10 });
+		this.inputs = new Matrix(784, this.batchSize);
+		this.expectations = new Matrix(10, this.batchSize);
+
+		for (int col = 0; col < this.batchSize; col++) {
+			for (int row = 0; row < 784; row++) {
+				this.inputs.setEntry(row, col, random.nextInt(5) == 0 ? random.nextDouble() : 0);
+			}
+
+			this.expectations.setEntry(random.nextInt(10), col, 1);
+		}
+	}
+
+	@Benchmark
+	public void updateMiniBatch() throws Exception {
+		this.network.updateMiniBatch(this.inputs, this.expectations, 0.1);
+	}
+}
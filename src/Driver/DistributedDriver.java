@@ -0,0 +1,88 @@
+package Driver;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import Network.*;
+
+/**
+ * Trains an MNIST network across several processes. Run one coordinator and as many workers as it expects:
+ * <pre>
+ * DistributedDriver coordinator &lt;port&gt; &lt;workers&gt; [epochs] [miniBatchSize] [learningRate]
+ * DistributedDriver worker &lt;host&gt; &lt;port&gt; &lt;images&gt; &lt;labels&gt;
+ * </pre>
+ * or start a coordinator and its workers on this machine, each worker in its own JVM:
+ * <pre>
+ * DistributedDriver local &lt;workers&gt; &lt;images&gt; &lt;labels&gt; [epochs] [miniBatchSize] [learningRate]
+ * </pre>
+ */
+public class DistributedDriver {
+	public static void main(String args[]) throws Exception {
+		if (args.length >= 3 && args[0].equals("coordinator")) {
+			coordinate(Integer.parseInt(args[1]), Integer.parseInt(args[2]), args, 3, null);
+		} else if (args.length == 5 && args[0].equals("worker")) {
+			work(args[1], Integer.parseInt(args[2]), args[3], args[4]);
+		} else if (args.length >= 4 && args[0].equals("local")) {
+			coordinate(0, Integer.parseInt(args[1]), args, 4, new String[] { args[2], args[3] });
+		} else {
+			System.err.println("Usage: DistributedDriver coordinator <port> <workers> [epochs] [miniBatchSize] [learningRate]");
+			System.err.println("       DistributedDriver worker <host> <port> <images> <labels>");
+			System.err.println("       DistributedDriver local <workers> <images> <labels> [epochs] [miniBatchSize] [learningRate]");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs a coordinator, spawning its workers as child processes when given the files they train on
+	 */
+	private static void coordinate(int port, int workers, String[] args, int first, String[] files) throws Exception {
+		int epochs = args.length > first ? Integer.parseInt(args[first]) : 10;
+		int miniBatchSize = args.length > first + 1 ? Integer.parseInt(args[first + 1]) : 32;
+		double learningRate = args.length > first + 2 ? Double.parseDouble(args[first + 2]) : 0.1;
+		List<Process> processes = new ArrayList<>();
+
+		try (DistributedCoordinator coordinator = new DistributedCoordinator(port, workers)) {
+			System.out.println("Coordinator listening on port " + coordinator.getPort());
+
+			if (files != null) {
+				String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+				for (int i = 0; i < workers; i++) {
+					processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), DistributedDriver.class.getName(),
+							"worker", "localhost", Integer.toString(coordinator.getPort()), files[0], files[1]).inheritIO().start());
+				}
+			}
+
+			coordinator.run(epochs, miniBatchSize, learningRate, System.nanoTime());
+			System.out.println(String.format("%d workers trained at %.0f samples/s", workers, coordinator.getSamplesPerSecond()));
+		} finally {
+			for (Process process : processes) {
+				process.waitFor();
+			}
+		}
+	}
+
+	/**
+	 * Runs one worker, rank 0 reporting the accuracy of the trained network on the whole dataset
+	 */
+	private static void work(String host, int port, String imageFile, String labelFile) throws Exception {
+		ArrayList<Pair<double[], double[]>> data = MnistReader.getData(imageFile, labelFile);
+		Network network = Network.builder(784)
+				.add(new Dense(64)).add(new ReLU())
+				.add(new Dense(10)).add(new SoftmaxCrossEntropy())
+				.build(new He(), 0);
+
+		DistributedWorker worker = new DistributedWorker(network, host, port);
+		worker.train(data);
+
+		System.out.println(String.format("Worker %d of %d: %.0f samples/s, %.1f ms exchanging gradients", worker.getRank(),
+				worker.getWorkers(), worker.getSamplesPerSecond(), worker.getExchangeNanos() / 1e6));
+
+		if (worker.getRank() == 0) {
+			try (Evaluator evaluator = new Evaluator(network)) {
+				System.out.println(evaluator.evaluate(data));
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package Driver;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only, memory-mapped view of an unsigned byte IDX file such as the MNIST and EMNIST images and labels.
+ * Nothing is copied onto the heap when the file is opened: samples are read straight out of the mapped region,
+ * and only converted to doubles when a caller copies them out.
+ */
+public class IdxFile {
+	/**
+	 * IDX type code of unsigned bytes, the only element type used by MNIST-style datasets
+	 */
+	public static final int UNSIGNED_BYTE = 0x08;
+
+	private final MappedByteBuffer buffer;
+	private final int magicNumber;
+	private final int[] dimensions;
+	private final int count;
+	private final int sampleSize;
+	private final int dataOffset;
+
+	/**
+	 * Maps an IDX file and reads its header
+	 * @param infile Path of the file
+	 * @throws IOException If the file cannot be opened or mapped
+	 * @throws RuntimeException If the header is not that of an unsigned byte IDX file, or its sizes do not fit the file
+	 */
+	public IdxFile(String infile) throws IOException {
+		try (RandomAccessFile f = new RandomAccessFile(infile, "r"); FileChannel chan = f.getChannel()) {
+			if (chan.size() > Integer.MAX_VALUE) {
+				throw new IOException(format("%s is too large to map (%d bytes)", infile, chan.size()));
+			}
+
+			// The mapping stays valid after the channel is closed
+			this.buffer = chan.map(FileChannel.MapMode.READ_ONLY, 0, chan.size());
+		}
+
+		this.buffer.order(ByteOrder.BIG_ENDIAN);
+
+		if (this.buffer.capacity() < 4) {
+			throw new RuntimeException(format("%s is too short to be an IDX file (%d bytes)", infile, this.buffer.capacity()));
+		}
+
+		this.magicNumber = this.buffer.getInt(0);
+
+		int type = (this.magicNumber >> 8) & 0xFF;
+		int numDimensions = this.magicNumber & 0xFF;
+
+		if ((this.magicNumber >>> 16) != 0 || type != UNSIGNED_BYTE || numDimensions < 1) {
+			throw new RuntimeException(format("%s is not an unsigned byte IDX file (magic number %d)", infile, this.magicNumber));
+		}
+
+		this.dataOffset = 4 + 4 * numDimensions;
+
+		if (this.dataOffset > this.buffer.capacity()) {
+			throw new RuntimeException(format("%s is truncated within the sizes of its %d dimensions", infile, numDimensions));
+		}
+
+		this.dimensions = new int[numDimensions];
+		long size = 1;
+
+		// Sizes are checked as they are read, so neither a negative one nor their product can wrap an int offset
+		for (int i = 0; i < numDimensions; i++) {
+			this.dimensions[i] = this.buffer.getInt(4 + 4 * i);
+
+			if (this.dimensions[i] < 0) {
+				throw new RuntimeException(format("Dimension %d of %s has a negative size (%d)", i, infile, this.dimensions[i]));
+			}
+
+			if (i > 0) {
+				size *= this.dimensions[i];
+
+				if (size > Integer.MAX_VALUE) {
+					throw new RuntimeException(format("Samples of %s are too large to index (%d values)", infile, size));
+				}
+			}
+		}
+
+		this.count = this.dimensions[0];
+		this.sampleSize = (int) size;
+
+		if ((long) this.count * this.sampleSize + this.dataOffset > this.buffer.capacity()) {
+			throw new RuntimeException(format("%s is truncated: %d samples of %d values need %d bytes, but it has %d", infile,
+					this.count, this.sampleSize, (long) this.count * this.sampleSize + this.dataOffset, this.buffer.capacity()));
+		}
+	}
+
+	public int getMagicNumber() {
+		return this.magicNumber;
+	}
+
+	/**
+	 * Gets the size of every dimension, the first being the number of samples
+	 */
+	public int[] getDimensions() {
+		return this.dimensions.clone();
+	}
+
+	/**
+	 * Gets the number of samples in the file
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Gets the number of values in each sample, e.g. 784 for a 28x28 image or 1 for a label
+	 */
+	public int getSampleSize() {
+		return this.sampleSize;
+	}
+
+	/**
+	 * Gets the position of a sample's first value in the mapped file
+	 * @param sample Index of the sample
+	 */
+	public int sampleOffset(int sample) {
+		return this.dataOffset + sample * this.sampleSize;
+	}
+
+	/**
+	 * Reads one value of a sample
+	 * @param sample Index of the sample
+	 * @param index Index of the value within the sample
+	 * @return The value, between 0 and 255
+	 */
+	public int getUnsigned(int sample, int index) {
+		return this.buffer.get(this.sampleOffset(sample) + index) & 0xFF; // To unsigned
+	}
+
+	/**
+	 * Copies a sample out of the mapped file into a strided slice of an array, scaling each value.
+	 * Safe to call from several threads at once.
+	 * @param sample Index of the sample
+	 * @param scale Factor applied to every value, e.g. 1 / 255.0 to normalize pixels to [0, 1]
+	 * @param dst Array receiving the values
+	 * @param dstOffset Position of the first value in dst
+	 * @param dstStride Distance in dst between consecutive values
+	 */
+	public void copySample(int sample, double scale, double[] dst, int dstOffset, int dstStride) {
+		int src = this.sampleOffset(sample);
+
+		for (int i = 0; i < this.sampleSize; i++) {
+			dst[dstOffset + i * dstStride] = (this.buffer.get(src + i) & 0xFF) * scale;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package Driver;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import Network.Batch;
+import Network.BatchSource;
+
+/**
+ * Streams shuffled mini-batches out of a memory-mapped {@link MnistDataset}.
+ * A background thread shuffles each epoch and packs the next batches into a fixed set of reusable buffers while
+ * the caller trains on the current one, so reading and normalizing the data overlaps with computation and the
+ * next epoch is already under way when the current one ends.
+ */
+public class MnistBatchSource implements BatchSource {
+	/**
+	 * Marker placed in the queue after the last batch of an epoch
+	 */
+	private static final Batch END_OF_EPOCH = new Batch(0, 0, 0);
+
+	private final MnistDataset dataset;
+	private final int batchSize;
+	private final Random random;
+
+	// Buffers waiting to be filled, and filled buffers waiting to be trained on
+	private final BlockingQueue<Batch> free;
+	private final BlockingQueue<Batch> ready;
+
+	private final Thread producer;
+	private volatile RuntimeException failure;
+	private volatile boolean closed;
+
+	// Buffer handed to the caller, returned to the free queue on the following call
+	private Batch current;
+
+	/**
+	 * Double-buffered source: one batch is packed while the other is trained on
+	 * @param dataset Samples to draw batches from
+	 * @param batchSize Samples per batch
+	 * @param seed Seed of the shuffling
+	 */
+	public MnistBatchSource(MnistDataset dataset, int batchSize, long seed) {
+		this(dataset, batchSize, seed, 2);
+	}
+
+	/**
+	 * @param dataset Samples to draw batches from
+	 * @param batchSize Samples per batch
+	 * @param seed Seed of the shuffling
+	 * @param buffers Number of reusable batch buffers, at least 2
+	 */
+	public MnistBatchSource(MnistDataset dataset, int batchSize, long seed, int buffers) {
+		if (buffers < 2) {
+			throw new IllegalArgumentException("At least two buffers are needed to prefetch");
+		}
+
+		this.dataset = dataset;
+		this.batchSize = batchSize;
+		this.random = new Random(seed);
+		this.free = new ArrayBlockingQueue<>(buffers);
+		this.ready = new ArrayBlockingQueue<>(buffers + 1);
+
+		for (int i = 0; i < buffers; i++) {
+			this.free.add(new Batch(dataset.getInputSize(), dataset.getClasses(), batchSize));
+		}
+
+		this.producer = new Thread(this::produce, "MnistBatchSource prefetch");
+		this.producer.setDaemon(true);
+		this.producer.start();
+	}
+
+	@Override
+	public int getInputSize() {
+		return this.dataset.getInputSize();
+	}
+
+	@Override
+	public int getOutputSize() {
+		return this.dataset.getClasses();
+	}
+
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws RuntimeException If packing a batch failed, on this and every later call
+	 * @throws IllegalStateException If the source is closed
+	 */
+	@Override
+	public Batch next() throws InterruptedException {
+		// Once the producer has stopped nothing more arrives, so these are checked before waiting as well as after
+		this.checkRunning();
+
+		if (this.current != null) {
+			this.free.put(this.current);
+			this.current = null;
+		}
+
+		Batch batch = this.ready.take();
+		this.checkRunning();
+
+		if (batch == END_OF_EPOCH) {
+			return null;
+		}
+
+		this.current = batch;
+
+		return batch;
+	}
+
+	private void checkRunning() {
+		if (this.failure != null) {
+			throw this.failure;
+		} else if (this.closed) {
+			throw new IllegalStateException("Batch source is closed");
+		}
+	}
+
+	/**
+	 * Packs epoch after epoch until closed
+	 */
+	private void produce() {
+		int size = this.dataset.size();
+		int[] order = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				// Fisher-Yates shuffle of the sample order
+				for (int i = size - 1; i > 0; i--) {
+					int j = this.random.nextInt(i + 1);
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+				}
+
+				for (int start = 0; start < size; start += this.batchSize) {
+					Batch batch = this.free.take();
+
+					batch.resize(Math.min(this.batchSize, size - start));
+					this.dataset.packBatch(order, start, batch.getInputs(), batch.getExpectations());
+					this.ready.put(batch);
+				}
+
+				this.ready.put(END_OF_EPOCH);
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		} catch (RuntimeException e) {
+			this.failure = e;
+			this.ready.offer(END_OF_EPOCH);
+		}
+	}
+
+	@Override
+	public void close() {
+		this.closed = true;
+		this.producer.interrupt();
+
+		// Wakes a caller waiting in next(), which then sees the source is closed
+		this.ready.offer(END_OF_EPOCH);
+	}
+}
@@ -0,0 +1,110 @@
+package Driver;
+
+import java.io.IOException;
+
+import Matrices.Matrix;
+import Network.Dataset;
+
+/**
+ * MNIST-style dataset backed by memory-mapped image and label files.
+ * Samples stay as raw bytes in the mapped files and are normalized to [0, 1] only when packed into a batch.
+ */
+public class MnistDataset implements Dataset {
+	private final IdxFile images;
+	private final IdxFile labels;
+	private final int classes;
+
+	/**
+	 * Maps a pair of MNIST image and label files with ten classes
+	 * @param imageFile Path of the image file
+	 * @param labelFile Path of the label file
+	 * @throws IOException If either file cannot be mapped
+	 */
+	public MnistDataset(String imageFile, String labelFile) throws IOException {
+		this(imageFile, labelFile, 10);
+	}
+
+	/**
+	 * Maps a pair of image and label files, e.g. for EMNIST splits with more than ten classes
+	 * @param imageFile Path of the image file
+	 * @param labelFile Path of the label file
+	 * @param classes Number of distinct labels
+	 * @throws IOException If either file cannot be mapped
+	 */
+	public MnistDataset(String imageFile, String labelFile, int classes) throws IOException {
+		this.images = new IdxFile(imageFile);
+		this.labels = new IdxFile(labelFile);
+		this.classes = classes;
+
+		MnistReader.assertMagicNumber(MnistReader.IMAGE_FILE_MAGIC_NUMBER, this.images.getMagicNumber());
+		MnistReader.assertMagicNumber(MnistReader.LABEL_FILE_MAGIC_NUMBER, this.labels.getMagicNumber());
+
+		// Labels are checked once here, since packBatch writes each one-hot entry without a bounds check
+		MnistReader.assertLabels(this.images, this.labels, classes);
+	}
+
+	/**
+	 * Gets the number of samples
+	 */
+	@Override
+	public int size() {
+		return this.images.getCount();
+	}
+
+	/**
+	 * Gets the number of values in each input, e.g. 784 for 28x28 images
+	 */
+	@Override
+	public int getInputSize() {
+		return this.images.getSampleSize();
+	}
+
+	public int getClasses() {
+		return this.classes;
+	}
+
+	public IdxFile getImages() {
+		return this.images;
+	}
+
+	@Override
+	public int getLabel(int sample) {
+		return this.labels.getUnsigned(sample, 0);
+	}
+
+	/**
+	 * Packs samples one per column into an input matrix and a one-hot expectation matrix,
+	 * normalizing pixels to [0, 1] on the way. Safe to call from several threads with different matrices.
+	 * @param order Sample indices to draw from
+	 * @param from Position in order of the first sample
+	 * @param inputs Matrix of size (input size x batch size) receiving the images
+	 * @param expectations Matrix of size (classes x batch size) receiving the one-hot labels
+	 */
+	public void packBatch(int[] order, int from, Matrix inputs, Matrix expectations) {
+		double[] in = inputs.getData();
+		double[] ex = expectations.getData();
+
+		expectations.fill(0);
+
+		for (int col = 0; col < inputs.getCols(); col++) {
+			int sample = order[from + col];
+
+			this.images.copySample(sample, 1 / 255.0, in, inputs.index(0, col), inputs.getRowStride());
+			ex[expectations.index(this.getLabel(sample), col)] = 1;
+		}
+	}
+
+	/**
+	 * Packs consecutive samples one per column into an input matrix, normalizing pixels to [0, 1] on the way
+	 * @param from Index of the first sample
+	 * @param inputs Matrix of size (input size x count) receiving the images
+	 */
+	@Override
+	public void packInputs(int from, Matrix inputs) {
+		double[] in = inputs.getData();
+
+		for (int col = 0; col < inputs.getCols(); col++) {
+			this.images.copySample(from + col, 1 / 255.0, in, inputs.index(0, col), inputs.getRowStride());
+		}
+	}
+}
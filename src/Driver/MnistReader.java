@@ -4,13 +4,13 @@ package Driver;
 
 import static java.lang.String.format;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
+import Matrices.SparseVector;
 import Network.Pair;
 
 public class MnistReader {
@@ -21,86 +21,143 @@ public class MnistReader {
 	private static int numColumns;
 
 	public static int[] getLabels(String infile) {
+		IdxFile idx = mapFile(infile);
 
-		ByteBuffer bb = loadFileToByteBuffer(infile);
+		assertMagicNumber(LABEL_FILE_MAGIC_NUMBER, idx.getMagicNumber());
 
-		assertMagicNumber(LABEL_FILE_MAGIC_NUMBER, bb.getInt());
-
-		int numLabels = bb.getInt();
+		int numLabels = idx.getCount();
 		int[] labels = new int[numLabels];
 
 		for (int i = 0; i < numLabels; ++i)
-			labels[i] = bb.get() & 0xFF; // To unsigned
+			labels[i] = idx.getUnsigned(i, 0);
 
 		return labels;
 	}
 
 	public static List<int[][]> getImages(String infile) {
-		ByteBuffer bb = loadFileToByteBuffer(infile);
+		IdxFile idx = mapFile(infile);
 
-		assertMagicNumber(IMAGE_FILE_MAGIC_NUMBER, bb.getInt());
+		assertMagicNumber(IMAGE_FILE_MAGIC_NUMBER, idx.getMagicNumber());
 
-		numImages = bb.getInt();
-		numRows = bb.getInt();
-		numColumns = bb.getInt();
+		numImages = idx.getCount();
+		numRows = idx.getDimensions()[1];
+		numColumns = idx.getDimensions()[2];
 		List<int[][]> images = new ArrayList<>();
 
 		for (int i = 0; i < numImages; i++)
-			images.add(readImage(numRows, numColumns, bb));
-		
-		for (int i = 0; i < numRows; i++) {
-			for (int j = 0; j < numColumns; j++) {
-				
-			}
- 		}
+			images.add(readImage(idx, i, numRows, numColumns));
 
 		return images;
 	}
-	
+
 	public static ArrayList<Pair<double[], double[]>> getData(String imageFile, String labelFile) {
+		return getData(imageFile, labelFile, 10);
+	}
+
+	/**
+	 * Reads images with one-hot expectations, e.g. for EMNIST splits with more than ten classes
+	 * @param classes Number of distinct labels, the length of every expectation
+	 */
+	public static ArrayList<Pair<double[], double[]>> getData(String imageFile, String labelFile, int classes) {
 		ArrayList<Pair<double[], double[]>> data = new ArrayList<Pair<double[], double[]>>();
-		
-		ArrayList<int[][]> images = new ArrayList<int[][]>(MnistReader.getImages(imageFile));
-		
-		int[] labels = MnistReader.getLabels(labelFile);
-		
-		for (int i = 0; i < images.size(); i++) {
+
+		IdxFile images = mapFile(imageFile);
+		IdxFile labels = mapFile(labelFile);
+
+		assertMagicNumber(IMAGE_FILE_MAGIC_NUMBER, images.getMagicNumber());
+		assertMagicNumber(LABEL_FILE_MAGIC_NUMBER, labels.getMagicNumber());
+		assertLabels(images, labels, classes);
+
+		numImages = images.getCount();
+		numRows = images.getDimensions()[1];
+		numColumns = images.getDimensions()[2];
+
+		// Pixels are normalized straight out of the mapped file, without an intermediate int[][] per image
+		for (int i = 0; i < numImages; i++) {
 			double[] image = new double[numRows * numColumns];
-			double[] expectation = new double[10];
-			
-			for (int row = 0; row < numRows; row++) {
-				for (int col = 0; col < numColumns; col++) {
-					image[row * numColumns + col] = images.get(i)[row][col] / 255.0;
-				}
-			}
-			
-			for (int j = 0; j < 10; j++) {
-				if (labels[i] == j) {
-					expectation[j] = 1;
-				} else {
-					expectation[j] = 0;
-				}
-			}
-			
-			Pair<double[], double[]> imagePair = new Pair(image, expectation);
-			data.add(imagePair);
+			double[] expectation = new double[classes];
+
+			images.copySample(i, 1 / 255.0, image, 0, 1);
+			expectation[labels.getUnsigned(i, 0)] = 1;
+
+			data.add(new Pair<double[], double[]>(image, expectation));
+		}
+
+		return data;
+	}
+
+	/**
+	 * Reads images as sparse vectors of their non-zero pixels, which for MNIST are about a fifth of them
+	 */
+	public static ArrayList<Pair<SparseVector, double[]>> getSparseData(String imageFile, String labelFile) {
+		return getSparseData(imageFile, labelFile, 10);
+	}
+
+	/**
+	 * Reads images as sparse vectors with one-hot expectations, e.g. for EMNIST splits with more than ten classes
+	 * @param classes Number of distinct labels, the length of every expectation
+	 */
+	public static ArrayList<Pair<SparseVector, double[]>> getSparseData(String imageFile, String labelFile, int classes) {
+		ArrayList<Pair<SparseVector, double[]>> data = new ArrayList<Pair<SparseVector, double[]>>();
+
+		IdxFile images = mapFile(imageFile);
+		IdxFile labels = mapFile(labelFile);
+
+		assertMagicNumber(IMAGE_FILE_MAGIC_NUMBER, images.getMagicNumber());
+		assertMagicNumber(LABEL_FILE_MAGIC_NUMBER, labels.getMagicNumber());
+		assertLabels(images, labels, classes);
+
+		numImages = images.getCount();
+		numRows = images.getDimensions()[1];
+		numColumns = images.getDimensions()[2];
+
+		// One dense scratch image is reused, and only the non-zero pixels are kept
+		double[] image = new double[numRows * numColumns];
+
+		for (int i = 0; i < numImages; i++) {
+			double[] expectation = new double[classes];
+
+			images.copySample(i, 1 / 255.0, image, 0, 1);
+			expectation[labels.getUnsigned(i, 0)] = 1;
+
+			data.add(new Pair<SparseVector, double[]>(SparseVector.fromDense(image), expectation));
 		}
-		
+
 		return data;
 	}
 
-	private static int[][] readImage(int numRows, int numCols, ByteBuffer bb) {
-		int[][] image = new int[numRows][];
+	private static int[][] readImage(IdxFile idx, int image, int numRows, int numCols) {
+		int[][] pixels = new int[numRows][numCols];
 		for (int row = 0; row < numRows; row++)
-			image[row] = readRow(numCols, bb);
-		return image;
+			for (int col = 0; col < numCols; col++)
+				pixels[row][col] = idx.getUnsigned(image, row * numCols + col);
+		return pixels;
 	}
 
-	private static int[] readRow(int numCols, ByteBuffer bb) {
-		int[] row = new int[numCols];
-		for (int col = 0; col < numCols; ++col)
-			row[col] = bb.get() & 0xFF; // To unsigned
-		return row;
+	private static IdxFile mapFile(String infile) {
+		try {
+			return new IdxFile(infile);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Checks that there is one label per image and that every label is one of the classes
+	 * @param classes Number of distinct labels
+	 */
+	static void assertLabels(IdxFile images, IdxFile labels, int classes) {
+		if (classes < 1) {
+			throw new IllegalArgumentException("At least one class is needed");
+		} else if (images.getCount() != labels.getCount()) {
+			throw new RuntimeException(format("%d images but %d labels", images.getCount(), labels.getCount()));
+		}
+
+		for (int i = 0; i < labels.getCount(); i++) {
+			if (labels.getUnsigned(i, 0) >= classes) {
+				throw new RuntimeException(format("Label %d of sample %d is not one of %d classes", labels.getUnsigned(i, 0), i, classes));
+			}
+		}
 	}
 
 	public static void assertMagicNumber(int expectedMagicNumber, int magicNumber) {
@@ -127,19 +184,10 @@ public class MnistReader {
 	}
 
 	public static byte[] loadFile(String infile) {
-		try {
-			RandomAccessFile f = new RandomAccessFile(infile, "r");
-			FileChannel chan = f.getChannel();
-			long fileSize = chan.size();
-			ByteBuffer bb = ByteBuffer.allocate((int) fileSize);
-			chan.read(bb);
-			bb.flip();
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			for (int i = 0; i < fileSize; i++)
-				baos.write(bb.get());
-			chan.close();
-			f.close();
-			return baos.toByteArray();
+		try (RandomAccessFile f = new RandomAccessFile(infile, "r")) {
+			byte[] bytes = new byte[(int) f.length()];
+			f.readFully(bytes);
+			return bytes;
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -1,18 +1,28 @@
 package Driver;
 
-import java.util.ArrayList;
-
 import Network.*;
 
 public class NetworkDriver {
-	public static void main(String args[]) {
-		//TODO: Write driver class
-		int[] networkSize = {728, 16, 16, 10};
+	public static void main(String args[]) throws Exception {
+		int[] networkSize = {784, 16, 16, 10};
 		Network neuralNet = new Network(networkSize);
-		
+
+		TrainingMonitor monitor = new TrainingMonitor();
+		monitor.register("mnist");
+		neuralNet.addListener(monitor);
+		neuralNet.addListener(epoch -> System.out.println(epoch));
+
 		final String LABEL_FILE = "/Users/Michael/Documents/GitHub/Neural Network/assets/t10k-labels.idx1-ubyte";
 		final String IMAGE_FILE = "/Users/Michael/Documents/GitHub/Neural Network/assets/t10k-images.idx3-ubyte";
-		
-		ArrayList<Pair<double[], double[]>> data = MnistReader.getData(IMAGE_FILE, LABEL_FILE);
+
+		MnistDataset data = new MnistDataset(IMAGE_FILE, LABEL_FILE);
+
+		try (MnistBatchSource batches = new MnistBatchSource(data, 10, System.nanoTime())) {
+			neuralNet.train(batches, 30, 3.0);
+		}
+
+		try (Evaluator evaluator = new Evaluator(neuralNet)) {
+			System.out.println(evaluator.evaluate(data));
+		}
 	}
 }
@@ -0,0 +1,125 @@
+package Driver;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestIdxFile {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Writes an unsigned byte IDX header with the given sizes, followed by a number of data bytes
+	 */
+	private String write(int dataBytes, int... dimensions) throws IOException {
+		File file = this.folder.newFile();
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(IdxFile.UNSIGNED_BYTE << 8 | dimensions.length);
+
+			for (int size : dimensions) {
+				out.writeInt(size);
+			}
+
+			for (int i = 0; i < dataBytes; i++) {
+				out.writeByte(i);
+			}
+		}
+
+		return file.getPath();
+	}
+
+	private void assertRejected(String path, String message) throws IOException {
+		try {
+			new IdxFile(path);
+			fail("Bad header accepted");
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(message));
+		}
+	}
+
+	@Test
+	public void testReadsHeader() throws IOException {
+		IdxFile idx = new IdxFile(this.write(12, 2, 3, 2));
+
+		assertArrayEquals(new int[] { 2, 3, 2 }, idx.getDimensions());
+		assertEquals(2, idx.getCount());
+		assertEquals(6, idx.getSampleSize());
+		assertEquals(16, idx.sampleOffset(0));
+		assertEquals(11, idx.getUnsigned(1, 5));
+	}
+
+	@Test
+	public void testEmptySamples() throws IOException {
+		IdxFile idx = new IdxFile(this.write(0, 0, 28, 28));
+
+		assertEquals(0, idx.getCount());
+		assertEquals(784, idx.getSampleSize());
+	}
+
+	@Test
+	public void testRejectsNegativeSizes() throws IOException {
+		this.assertRejected(this.write(4, -1, 2, 2), "negative");
+		this.assertRejected(this.write(4, 1, -2, -2), "negative");
+		this.assertRejected(this.write(4, 1, 2, Integer.MIN_VALUE), "negative");
+	}
+
+	@Test
+	public void testRejectsOverflowingSampleSize() throws IOException {
+		// 2^16 * 2^16 wraps to 0 as an int, and 2^16 * 2^15 * 2 to a negative one along the way
+		this.assertRejected(this.write(4, 1, 1 << 16, 1 << 16), "too large");
+		this.assertRejected(this.write(4, 1, 1 << 16, 1 << 15, 2), "too large");
+	}
+
+	@Test
+	public void testRejectsTruncatedData() throws IOException {
+		this.assertRejected(this.write(11, 2, 3, 2), "truncated");
+
+		// Within int range per sample, but far past the end of the file in total
+		this.assertRejected(this.write(4, Integer.MAX_VALUE, 1 << 15, 1 << 15), "truncated");
+	}
+
+	@Test
+	public void testRejectsTruncatedHeader() throws IOException {
+		File file = this.folder.newFile();
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(IdxFile.UNSIGNED_BYTE << 8 | 3);
+			out.writeInt(2);
+		}
+
+		this.assertRejected(file.getPath(), "truncated");
+	}
+
+	@Test
+	public void testRejectsShortFile() throws IOException {
+		File file = this.folder.newFile();
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeShort(IdxFile.UNSIGNED_BYTE);
+		}
+
+		this.assertRejected(file.getPath(), "too short");
+	}
+
+	@Test
+	public void testRejectsOtherTypes() throws IOException {
+		File file = this.folder.newFile();
+
+		// Signed ints rather than unsigned bytes
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(0x0C << 8 | 1);
+			out.writeInt(0);
+		}
+
+		this.assertRejected(file.getPath(), "not an unsigned byte IDX file");
+	}
+}
@@ -0,0 +1,128 @@
+package Driver;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import Matrices.Matrix;
+import Network.Batch;
+
+public class TestMnistBatchSource {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test(timeout = 10_000)
+	public void testEpochsEndWithNull() throws Exception {
+		try (MnistBatchSource source = new MnistBatchSource(this.dataset(5), 2, 1)) {
+			for (int epoch = 0; epoch < 2; epoch++) {
+				int samples = 0;
+				Batch batch;
+
+				while ((batch = source.next()) != null) {
+					samples += batch.size();
+				}
+
+				assertEquals(5, samples);
+			}
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void testFailureIsRethrownOnEveryCall() throws Exception {
+		MnistDataset failing = new MnistDataset(this.writeImages(5), this.writeLabels(5)) {
+			@Override
+			public void packBatch(int[] order, int from, Matrix inputs, Matrix expectations) {
+				throw new IllegalStateException("Unreadable sample");
+			}
+		};
+
+		try (MnistBatchSource source = new MnistBatchSource(failing, 2, 1)) {
+			for (int call = 0; call < 3; call++) {
+				try {
+					source.next();
+					fail("The producer's failure was not rethrown");
+				} catch (IllegalStateException e) {
+					assertEquals("Unreadable sample", e.getMessage());
+				}
+			}
+		}
+	}
+
+	@Test(timeout = 10_000, expected = IllegalStateException.class)
+	public void testNextAfterCloseThrows() throws Exception {
+		MnistBatchSource source = new MnistBatchSource(this.dataset(5), 2, 1);
+		source.close();
+		source.next();
+	}
+
+	@Test(timeout = 10_000)
+	public void testCloseWakesWaitingCaller() throws Exception {
+		MnistBatchSource source = new MnistBatchSource(this.dataset(5), 2, 1);
+		Thread closer = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			source.close();
+		});
+
+		closer.start();
+
+		try {
+			// Keeps taking batches, without training on them, until close wakes the wait for the next one
+			while (true) {
+				source.next();
+			}
+		} catch (IllegalStateException e) {
+			// Closed
+		}
+
+		closer.join();
+	}
+
+	private MnistDataset dataset(int count) throws IOException {
+		return new MnistDataset(this.writeImages(count), this.writeLabels(count));
+	}
+
+	private String writeImages(int count) throws IOException {
+		File file = this.folder.newFile();
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(MnistReader.IMAGE_FILE_MAGIC_NUMBER);
+			out.writeInt(count);
+			out.writeInt(2);
+			out.writeInt(2);
+
+			for (int i = 0; i < count * 4; i++) {
+				out.writeByte(i);
+			}
+		}
+
+		return file.getPath();
+	}
+
+	private String writeLabels(int count) throws IOException {
+		File file = this.folder.newFile();
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(MnistReader.LABEL_FILE_MAGIC_NUMBER);
+			out.writeInt(count);
+
+			for (int i = 0; i < count; i++) {
+				out.writeByte(i % 10);
+			}
+		}
+
+		return file.getPath();
+	}
+}
@@ -0,0 +1,87 @@
+package Driver;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import Network.Pair;
+
+public class TestMnistDataset {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testExpectationsSizedByClasses() throws IOException {
+		String images = this.writeImages(3);
+		String labels = this.writeLabels(0, 11, 4);
+
+		List<Pair<double[], double[]>> data = MnistReader.getData(images, labels, 12);
+
+		assertEquals(3, data.size());
+		assertEquals(12, data.get(1).getSecond().length);
+		assertEquals(1, data.get(1).getSecond()[11], 0);
+		assertEquals(12, MnistReader.getSparseData(images, labels, 12).get(2).getSecond().length);
+		assertEquals(12, new MnistDataset(images, labels, 12).getClasses());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testDatasetRejectsLabelOutOfRange() throws IOException {
+		new MnistDataset(this.writeImages(3), this.writeLabels(0, 10, 4));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testReaderRejectsLabelOutOfRange() throws IOException {
+		MnistReader.getData(this.writeImages(3), this.writeLabels(0, 10, 4));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testReaderRejectsCountMismatch() throws IOException {
+		MnistReader.getSparseData(this.writeImages(3), this.writeLabels(0, 1));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testDatasetRejectsCountMismatch() throws IOException {
+		new MnistDataset(this.writeImages(2), this.writeLabels(0, 1, 2));
+	}
+
+	private String writeImages(int count) throws IOException {
+		File file = this.folder.newFile();
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(MnistReader.IMAGE_FILE_MAGIC_NUMBER);
+			out.writeInt(count);
+			out.writeInt(2);
+			out.writeInt(2);
+
+			for (int i = 0; i < count * 4; i++) {
+				out.writeByte(i * 20);
+			}
+		}
+
+		return file.getPath();
+	}
+
+	private String writeLabels(int... labels) throws IOException {
+		File file = this.folder.newFile();
+
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(MnistReader.LABEL_FILE_MAGIC_NUMBER);
+			out.writeInt(labels.length);
+
+			for (int label : labels) {
+				out.writeByte(label);
+			}
+		}
+
+		return file.getPath();
+	}
+}
@@ -0,0 +1,12 @@
+package Matrices;
+
+/**
+ * A kernel run over a contiguous run of entries of two matrices at once.
+ * It reads length entries of src and writes, or reads and updates, the matching entries of dst.
+ */
+@FunctionalInterface
+public interface ArrayOperator {
+
+	void apply(double[] src, int srcOffset, double[] dst, int dstOffset, int length);
+
+}
@@ -0,0 +1,81 @@
+package Matrices;
+
+/**
+ * Chooses the {@link Kernels} the matrix operations run on.
+ * The Vector API backend is selected when the jdk.incubator.vector module has been added to the JVM
+ * (--add-modules jdk.incubator.vector), and the scalar backend otherwise or when the system property
+ * matrices.kernels is set to "scalar".
+ * <p>
+ * The Vector API backend is compiled from its own source root, src-vector, only when the module is available,
+ * and is looked up by name, so nothing here depends on it at build time.
+ */
+public final class Backends {
+	private static final Kernels SCALAR = new ScalarKernels();
+	private static final Kernels VECTOR = loadVector();
+
+	private static volatile Kernels kernels = select();
+
+	private Backends() {
+
+	}
+
+	private static Kernels loadVector() {
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			return null;
+		}
+
+		try {
+			Kernels vector = (Kernels) Class.forName("Matrices.VectorKernels").getDeclaredConstructor().newInstance();
+
+			// Touches the API once so that a broken module shows up here rather than in the first kernel call
+			vector.dot(new double[1], 0, new double[1], 0, 1);
+
+			return vector;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// Also reached when the build left out src-vector
+			return null;
+		}
+	}
+
+	private static Kernels select() {
+		if ("scalar".equals(System.getProperty("matrices.kernels")) || VECTOR == null) {
+			return SCALAR;
+		}
+
+		return VECTOR;
+	}
+
+	/**
+	 * Gets the kernels currently in use
+	 */
+	public static Kernels get() {
+		return kernels;
+	}
+
+	/**
+	 * Switches every later operation to other kernels, e.g. to compare backends
+	 * @param backend Kernels to use
+	 */
+	public static void set(Kernels backend) {
+		kernels = backend;
+	}
+
+	/**
+	 * Gets the plain loop kernels, always available
+	 */
+	public static Kernels scalar() {
+		return SCALAR;
+	}
+
+	/**
+	 * Gets the Vector API kernels
+	 * @return The kernels, or null if the jdk.incubator.vector module is not present
+	 */
+	public static Kernels vector() {
+		return VECTOR;
+	}
+
+	public static boolean isVectorAvailable() {
+		return VECTOR != null;
+	}
+}
@@ -0,0 +1,12 @@
+package Matrices;
+
+/**
+ * A kernel run over a contiguous run of entries of two float matrices at once, the single precision counterpart of
+ * {@link ArrayOperator}
+ */
+@FunctionalInterface
+public interface FloatArrayOperator {
+
+	void apply(float[] src, int srcOffset, float[] dst, int dstOffset, int length);
+
+}
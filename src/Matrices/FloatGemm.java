@@ -0,0 +1,208 @@
+package Matrices;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Single precision counterpart of {@link Gemm} behind {@link FloatMatrix#gemm(float, FloatMatrix, FloatMatrix, float, FloatMatrix)}.
+ * It runs the same tiled and dot product kernels over float arrays, sharing Gemm's tile size, threshold and pool.
+ */
+final class FloatGemm {
+
+	private FloatGemm() {
+
+	}
+
+	/**
+	 * Accumulates a product into a matrix: c += alpha * a * b. Sizes are assumed to agree and c must not share entries with a or b.
+	 * @param alpha Scale of the product
+	 * @param a Matrix multiplied on the left
+	 * @param b Matrix multiplied on the right
+	 * @param c Matrix receiving the product
+	 */
+	static void multiply(float alpha, FloatMatrix a, FloatMatrix b, FloatMatrix c) {
+		if (c.getRows() == 0 || c.getCols() == 0 || a.getCols() == 0) {
+			return;
+		}
+
+		// The inner loop runs along rows of b and c, so both are brought to unit column stride first,
+		// unless b is a transposed view whose columns can be walked directly as dot products
+		if (b.getColStride() != 1 && !isDotProduct(a, b)) {
+			b = new FloatMatrix(b, true);
+		}
+
+		if (c.getColStride() != 1) {
+			FloatMatrix packed = new FloatMatrix(c.getRows(), c.getCols());
+			multiply(alpha, a, b, packed);
+
+			for (int i = 0; i < c.getRows(); i++) {
+				for (int j = 0; j < c.getCols(); j++) {
+					c.getData()[c.index(i, j)] += packed.getData()[packed.index(i, j)];
+				}
+			}
+
+			return;
+		}
+
+		long work = (long) c.getRows() * c.getCols() * a.getCols();
+		int tile = Gemm.getTileSize();
+
+		if (work < Gemm.getParallelThreshold()) {
+			multiplyRows(alpha, a, b, c, 0, c.getRows(), tile);
+		} else {
+			ForkJoinPool pool = Gemm.getPool();
+			pool.invoke(new FloatBlock(alpha, a, b, c, 0, c.getRows(), tile, Gemm.columnGrain(c.getRows(), c.getCols(), tile, pool.getParallelism())));
+		}
+	}
+
+	/**
+	 * Whether rows of a and columns of b are both contiguous, as when b is the transpose view of a row-major matrix
+	 */
+	private static boolean isDotProduct(FloatMatrix a, FloatMatrix b) {
+		return a.getColStride() == 1 && b.getRowStride() == 1;
+	}
+
+	/**
+	 * Single-threaded kernel over the result rows [rowStart, rowEnd)
+	 */
+	static void multiplyRows(float alpha, FloatMatrix a, FloatMatrix b, FloatMatrix c, int rowStart, int rowEnd, int tile) {
+		// Matrix-vector products are plain dot products, for which tiling only adds overhead
+		if (b.getColStride() != 1 || (c.getCols() == 1 && isDotProduct(a, b))) {
+			dotRows(alpha, a, b, c, rowStart, rowEnd);
+		} else {
+			blockedRows(alpha, a, b, c, rowStart, rowEnd, tile);
+		}
+	}
+
+	/**
+	 * Blocked i-k-j kernel for a right operand with contiguous rows
+	 */
+	private static void blockedRows(float alpha, FloatMatrix a, FloatMatrix b, FloatMatrix c, int rowStart, int rowEnd, int tile) {
+		float[] ad = a.getData();
+		float[] bd = b.getData();
+		float[] cd = c.getData();
+		Kernels kernels = Backends.get();
+		int ars = a.getRowStride();
+		int acs = a.getColStride();
+		int crs = c.getRowStride();
+		int inner = a.getCols();
+		int cols = c.getCols();
+
+		for (int i0 = rowStart; i0 < rowEnd; i0 += tile) {
+			int i1 = Math.min(i0 + tile, rowEnd);
+
+			for (int k0 = 0; k0 < inner; k0 += tile) {
+				int k1 = Math.min(k0 + tile, inner);
+
+				for (int j0 = 0; j0 < cols; j0 += tile) {
+					int j1 = Math.min(j0 + tile, cols);
+					int i = i0;
+
+					// Four rows of c share every load of b
+					for (; i + 3 < i1; i += 4) {
+						int c0 = c.index(i, 0);
+						int c1 = c0 + crs;
+						int c2 = c1 + crs;
+						int c3 = c2 + crs;
+						int aRow = a.index(i, 0);
+
+						for (int k = k0; k < k1; k++) {
+							int aIdx = aRow + k * acs;
+							kernels.axpy4(alpha * ad[aIdx], alpha * ad[aIdx + ars], alpha * ad[aIdx + 2 * ars], alpha * ad[aIdx + 3 * ars],
+									bd, b.index(k, j0), cd, c0 + j0, c1 + j0, c2 + j0, c3 + j0, j1 - j0);
+						}
+					}
+
+					for (; i < i1; i++) {
+						int cRow = c.index(i, 0);
+						int aRow = a.index(i, 0);
+
+						for (int k = k0; k < k1; k++) {
+							kernels.axpy(alpha * ad[aRow + k * acs], bd, b.index(k, j0), cd, cRow + j0, j1 - j0);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dot product kernel for a right operand with contiguous columns, four columns of b sharing each load of a
+	 */
+	private static void dotRows(float alpha, FloatMatrix a, FloatMatrix b, FloatMatrix c, int rowStart, int rowEnd) {
+		float[] ad = a.getData();
+		float[] bd = b.getData();
+		float[] cd = c.getData();
+		Kernels kernels = Backends.get();
+		int bcs = b.getColStride();
+		int inner = a.getCols();
+		int cols = c.getCols();
+
+		for (int i = rowStart; i < rowEnd; i++) {
+			int aRow = a.index(i, 0);
+			int cRow = c.index(i, 0);
+			int j = 0;
+
+			for (; j + 3 < cols; j += 4) {
+				int b0 = b.index(0, j);
+				kernels.dot4(alpha, ad, aRow, bd, b0, b0 + bcs, b0 + 2 * bcs, b0 + 3 * bcs, inner, cd, cRow + j);
+			}
+
+			for (; j < cols; j++) {
+				cd[cRow + j] += alpha * kernels.dot(ad, aRow, bd, b.index(0, j), inner);
+			}
+		}
+	}
+
+	/**
+	 * Splits the result rows in halves until a block is small enough to run on one thread, then, while the block is
+	 * wider than the column grain, its columns
+	 */
+	private static class FloatBlock extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final float alpha;
+		private final FloatMatrix a;
+		private final FloatMatrix b;
+		private final FloatMatrix c;
+		private final int rowStart;
+		private final int rowEnd;
+		private final int tile;
+		private final int colGrain;
+
+		FloatBlock(float alpha, FloatMatrix a, FloatMatrix b, FloatMatrix c, int rowStart, int rowEnd, int tile, int colGrain) {
+			this.alpha = alpha;
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.tile = tile;
+			this.colGrain = colGrain;
+		}
+
+		@Override
+		protected void compute() {
+			int cols = this.c.getCols();
+
+			if (this.rowEnd - this.rowStart > this.tile) {
+				// Splits on a tile boundary so blocks line up with the serial kernel
+				int mid = this.rowStart + ((this.rowEnd - this.rowStart) / 2 + this.tile - 1) / this.tile * this.tile;
+				mid = Math.min(mid, this.rowEnd - 1);
+				invokeAll(new FloatBlock(this.alpha, this.a, this.b, this.c, this.rowStart, mid, this.tile, this.colGrain),
+						new FloatBlock(this.alpha, this.a, this.b, this.c, mid, this.rowEnd, this.tile, this.colGrain));
+			} else if (cols > this.colGrain) {
+				// Each half multiplies the matching columns of b into a view of the same columns of c
+				int mid = Math.min((cols / 2 + this.tile - 1) / this.tile * this.tile, cols - 1);
+				int inner = this.b.getRows();
+				int rows = this.c.getRows();
+				invokeAll(new FloatBlock(this.alpha, this.a, this.b.subMatrix(0, 0, inner, mid), this.c.subMatrix(0, 0, rows, mid),
+								this.rowStart, this.rowEnd, this.tile, this.colGrain),
+						new FloatBlock(this.alpha, this.a, this.b.subMatrix(0, mid, inner, cols - mid), this.c.subMatrix(0, mid, rows, cols - mid),
+								this.rowStart, this.rowEnd, this.tile, this.colGrain));
+			} else {
+				multiplyRows(this.alpha, this.a, this.b, this.c, this.rowStart, this.rowEnd, this.tile);
+			}
+		}
+	}
+}
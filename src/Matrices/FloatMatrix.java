@@ -0,0 +1,480 @@
+package Matrices;
+
+import java.util.Arrays;
+
+/**
+ * Single precision counterpart of {@link Matrix}, with the same strided row-major layout and views.
+ * It holds half the bytes per entry, so bandwidth-bound passes over it move half the memory, and it converts to and
+ * from double matrices so that a double master copy can be kept alongside it.
+ */
+public class FloatMatrix {
+	/**
+	 * The data stored in the matrix, possibly shared with other views
+	 */
+	private float[] data;
+
+	/**
+	 * Index of entry (0, 0) in the data array
+	 */
+	private int offset;
+
+	/**
+	 * Distance in the data array between two consecutive rows
+	 */
+	private int rowStride;
+
+	/**
+	 * Distance in the data array between two consecutive columns
+	 */
+	private int colStride;
+
+	/**
+	 * Rows in the matrix
+	 */
+	private int rows;
+
+	/**
+	 * Columns in the matrix
+	 */
+	private int cols;
+
+
+	/**
+	 * Zero matrix constructor
+	 * @param rows Rows in the matrix
+	 * @param cols Columns in the matrix
+	 */
+	public FloatMatrix(int rows, int cols) {
+		this(new float[rows * cols], 0, rows, cols, cols, 1);
+	}
+
+	/**
+	 * Clone constructor with optional entry copying
+	 * @param m Matrix to copy
+	 * @param copyEntries Option to add entries from previous matrix
+	 */
+	public FloatMatrix(FloatMatrix m, boolean copyEntries) {
+		this(m.rows, m.cols);
+
+		if (copyEntries) {
+			if (m.isContiguous()) {
+				System.arraycopy(m.data, m.offset, this.data, 0, this.data.length);
+			} else {
+				for (int i = 0; i < this.rows; i++) {
+					for (int j = 0; j < this.cols; j++) {
+						this.data[i * this.cols + j] = m.data[m.index(i, j)];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a float matrix holding the entries of a double matrix, rounded to the nearest float
+	 * @param m Matrix to convert
+	 */
+	public FloatMatrix(Matrix m) {
+		this(m.getRows(), m.getCols());
+
+		convertKernel(this, m);
+	}
+
+	/**
+	 * Wraps a row-major array as a matrix without copying it
+	 * @param rows Rows in the matrix
+	 * @param cols Columns in the matrix
+	 * @param data Row-major entries, of length at least rows * cols
+	 * @throws IllegalArgumentException If the array is too short for the given size
+	 */
+	public FloatMatrix(int rows, int cols, float[] data) throws IllegalArgumentException {
+		this(data, 0, rows, cols, cols, 1);
+
+		if (data.length < rows * cols) {
+			throw new IllegalArgumentException("Array too short for a " + rows + "x" + cols + " matrix");
+		}
+	}
+
+	/**
+	 * View constructor, sharing the given array
+	 */
+	private FloatMatrix(float[] data, int offset, int rows, int cols, int rowStride, int colStride) {
+		this.data = data;
+		this.offset = offset;
+		this.rows = rows;
+		this.cols = cols;
+		this.rowStride = rowStride;
+		this.colStride = colStride;
+	}
+
+
+	/**
+	 * Gets the content of the specified entry
+	 * @param row Specified row
+	 * @param col Specified column
+	 * @throws ArrayIndexOutOfBoundsException If the specified entry does not exist
+	 */
+	public float getEntry(int row, int col) throws ArrayIndexOutOfBoundsException {
+		checkBounds(row, col);
+		return this.data[this.index(row, col)];
+	}
+
+	/**
+	 * Sets the content of the specified entry to a new value
+	 * @param row Specified row
+	 * @param col Specified column
+	 * @param val New value of entry
+	 * @throws ArrayIndexOutOfBoundsException If the specified entry does not exist
+	 */
+	public void setEntry(int row, int col, float val) throws ArrayIndexOutOfBoundsException {
+		checkBounds(row, col);
+		this.data[this.index(row, col)] = val;
+	}
+
+	private void checkBounds(int row, int col) throws ArrayIndexOutOfBoundsException {
+		if (row < 0 || row >= this.rows || col < 0 || col >= this.cols) {
+			throw new ArrayIndexOutOfBoundsException("Entry (" + row + ", " + col + ") outside of " + this.rows + "x" + this.cols + " matrix");
+		}
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getCols() {
+		return this.cols;
+	}
+
+	/**
+	 * Gets the array backing this matrix. It may be shared with other views and hold entries outside of this matrix.
+	 * @return The backing array
+	 */
+	public float[] getData() {
+		return this.data;
+	}
+
+	public int getOffset() {
+		return this.offset;
+	}
+
+	public int getRowStride() {
+		return this.rowStride;
+	}
+
+	public int getColStride() {
+		return this.colStride;
+	}
+
+	/**
+	 * Gets the position of an entry in the backing array, without bounds checking
+	 * @param row Specified row
+	 * @param col Specified column
+	 * @return The index of the entry in {@link #getData()}
+	 */
+	public int index(int row, int col) {
+		return this.offset + row * this.rowStride + col * this.colStride;
+	}
+
+	/**
+	 * Whether the entries occupy one gap-free row-major block of the backing array
+	 */
+	public boolean isContiguous() {
+		return this.colStride == 1 && (this.rowStride == this.cols || this.rows <= 1);
+	}
+
+	/**
+	 * Gets a block of the matrix sharing this matrix's entries
+	 * @param row First row of the block
+	 * @param col First column of the block
+	 * @param rows Rows in the block
+	 * @param cols Columns in the block
+	 * @return A rows x cols view of the block
+	 * @throws ArrayIndexOutOfBoundsException If the block does not fit in the matrix
+	 */
+	public FloatMatrix subMatrix(int row, int col, int rows, int cols) throws ArrayIndexOutOfBoundsException {
+		if (row < 0 || col < 0 || rows < 0 || cols < 0 || row + rows > this.rows || col + cols > this.cols) {
+			throw new ArrayIndexOutOfBoundsException("Block " + rows + "x" + cols + " at (" + row + ", " + col + ") outside of " + this.rows + "x" + this.cols + " matrix");
+		}
+
+		return new FloatMatrix(this.data, this.index(row, col), rows, cols, this.rowStride, this.colStride);
+	}
+
+	/**
+	 * Gets the transpose of the matrix as a view sharing this matrix's entries
+	 * @return A cols x rows view of the matrix
+	 */
+	public FloatMatrix transposeView() {
+		return new FloatMatrix(this.data, this.offset, this.cols, this.rows, this.colStride, this.rowStride);
+	}
+
+	/**
+	 * Whether two matrices are laid out identically, so that their entries can be walked with a single index
+	 */
+	private static boolean sameLayout(FloatMatrix m1, FloatMatrix m2) {
+		return m1.isContiguous() && m2.isContiguous();
+	}
+
+	/**
+	 * Sets every entry of the matrix to the same value
+	 * @param val New value of every entry
+	 */
+	public void fill(float val) {
+		if (this.isContiguous()) {
+			Arrays.fill(this.data, this.offset, this.offset + this.rows * this.cols, val);
+		} else {
+			for (int i = 0; i < this.rows; i++) {
+				int row = this.index(i, 0);
+
+				for (int j = 0; j < this.cols; j++) {
+					this.data[row + j * this.colStride] = val;
+				}
+			}
+		}
+	}
+
+	private static boolean sameSize(FloatMatrix m1, FloatMatrix m2) {
+		return m1.rows == m2.rows && m1.cols == m2.cols;
+	}
+
+	private static boolean sameSize(FloatMatrix m1, Matrix m2) {
+		return m1.rows == m2.getRows() && m1.cols == m2.getCols();
+	}
+
+	/**
+	 * General matrix multiply-accumulate in place: c = alpha * a * b + beta * c, accumulated in single precision
+	 * @param alpha Scale of the product
+	 * @param a Matrix multiplied on the left
+	 * @param b Matrix multiplied on the right
+	 * @param beta Scale of the previous entries of c. When zero, the previous entries are ignored.
+	 * @param c Matrix receiving the result, which must not share entries with a or b
+	 * @throws MatrixMultiplicationException If the sizes of the three matrices do not agree
+	 */
+	public static void gemm(float alpha, FloatMatrix a, FloatMatrix b, float beta, FloatMatrix c) throws MatrixMultiplicationException {
+		if (a.cols != b.rows || c.rows != a.rows || c.cols != b.cols) {
+			throw new MatrixMultiplicationException("Failed to multiply matrices");
+		}
+
+		if (beta == 0) {
+			c.fill(0);
+		} else if (beta != 1) {
+			for (int i = 0; i < c.rows; i++) {
+				for (int j = 0; j < c.cols; j++) {
+					c.data[c.index(i, j)] *= beta;
+				}
+			}
+		}
+
+		FloatGemm.multiply(alpha, a, b, c);
+	}
+
+	/**
+	 * Copies the entries of one matrix into another of the same size
+	 * @param dst Matrix receiving the entries
+	 * @param m Matrix to copy
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static void copyInto(FloatMatrix dst, FloatMatrix m) throws MatrixDimensionException {
+		if (!sameSize(dst, m)) {
+			throw new MatrixDimensionException("Failed to copy matrix");
+		}
+
+		if (sameLayout(dst, m)) {
+			System.arraycopy(m.data, m.offset, dst.data, dst.offset, m.rows * m.cols);
+		} else {
+			for (int i = 0; i < m.rows; i++) {
+				for (int j = 0; j < m.cols; j++) {
+					dst.data[dst.index(i, j)] = m.data[m.index(i, j)];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rounds the entries of a double matrix into a float matrix of the same size
+	 * @param dst Matrix receiving the rounded entries
+	 * @param m Matrix to convert
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static void convertInto(FloatMatrix dst, Matrix m) throws MatrixDimensionException {
+		if (!sameSize(dst, m)) {
+			throw new MatrixDimensionException("Failed to convert matrix");
+		}
+
+		convertKernel(dst, m);
+	}
+
+	/**
+	 * Widens the entries of a float matrix into a double matrix of the same size
+	 * @param dst Matrix receiving the entries
+	 * @param m Matrix to convert
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static void convertInto(Matrix dst, FloatMatrix m) throws MatrixDimensionException {
+		if (!sameSize(m, dst)) {
+			throw new MatrixDimensionException("Failed to convert matrix");
+		}
+
+		double[] dd = dst.getData();
+
+		if (m.isContiguous() && dst.isContiguous()) {
+			int off = dst.getOffset();
+			int n = m.rows * m.cols;
+
+			for (int i = 0; i < n; i++) {
+				dd[off + i] = m.data[m.offset + i];
+			}
+		} else {
+			for (int i = 0; i < m.rows; i++) {
+				for (int j = 0; j < m.cols; j++) {
+					dd[dst.index(i, j)] = m.data[m.index(i, j)];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a scaled matrix to another in place: y = y + alpha * x
+	 * @param alpha Scale of x
+	 * @param x The matrix to add
+	 * @param y The matrix added to
+	 * @throws MatrixAdditionException If the sizes of the two matrices are unequal.
+	 */
+	public static void axpy(float alpha, FloatMatrix x, FloatMatrix y) throws MatrixAdditionException {
+		if (!sameSize(x, y)) {
+			throw new MatrixAdditionException("Failed to add matrices");
+		}
+
+		if (sameLayout(x, y)) {
+			Backends.get().axpy(alpha, x.data, x.offset, y.data, y.offset, y.rows * y.cols);
+		} else {
+			for (int i = 0; i < y.rows; i++) {
+				for (int j = 0; j < y.cols; j++) {
+					y.data[y.index(i, j)] += alpha * x.data[x.index(i, j)];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a scaled float matrix to a double matrix in place, y = y + alpha * x, as when a single precision gradient
+	 * updates a double master copy of the weights
+	 * @param alpha Scale of x
+	 * @param x The matrix to add
+	 * @param y The matrix added to
+	 * @throws MatrixAdditionException If the sizes of the two matrices are unequal.
+	 */
+	public static void axpy(double alpha, FloatMatrix x, Matrix y) throws MatrixAdditionException {
+		if (!sameSize(x, y)) {
+			throw new MatrixAdditionException("Failed to add matrices");
+		}
+
+		double[] yd = y.getData();
+
+		if (x.isContiguous() && y.isContiguous()) {
+			int yOff = y.getOffset();
+			int n = x.rows * x.cols;
+
+			for (int i = 0; i < n; i++) {
+				yd[yOff + i] += alpha * x.data[x.offset + i];
+			}
+		} else {
+			for (int i = 0; i < x.rows; i++) {
+				for (int j = 0; j < x.cols; j++) {
+					yd[y.index(i, j)] += alpha * x.data[x.index(i, j)];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a column vector to every column of a matrix, storing the result in a given matrix
+	 * @param dst Matrix receiving the sum, which may be m itself
+	 * @param m The matrix to add to
+	 * @param v Column vector with as many rows as m
+	 * @throws MatrixAdditionException If v is not a column vector of m's height or dst and m differ in size
+	 */
+	public static void addColumnInto(FloatMatrix dst, FloatMatrix m, FloatMatrix v) throws MatrixAdditionException {
+		if (!sameSize(dst, m) || v.rows != m.rows || v.cols != 1) {
+			throw new MatrixAdditionException("Failed to add column vector to matrix");
+		}
+
+		for (int i = 0; i < m.rows; i++) {
+			float vi = v.data[v.index(i, 0)];
+			int src = m.index(i, 0);
+			int target = dst.index(i, 0);
+
+			for (int j = 0; j < m.cols; j++) {
+				dst.data[target + j * dst.colStride] = m.data[src + j * m.colStride] + vi;
+			}
+		}
+	}
+
+	/**
+	 * Sums every row of a matrix into a column vector
+	 * @param dst Column vector receiving the sums
+	 * @param m The matrix to sum
+	 * @throws MatrixDimensionException If dst is not a column vector of m's height
+	 */
+	public static void rowSumInto(FloatMatrix dst, FloatMatrix m) throws MatrixDimensionException {
+		if (dst.rows != m.rows || dst.cols != 1) {
+			throw new MatrixDimensionException("Failed to sum matrix rows");
+		}
+
+		for (int i = 0; i < m.rows; i++) {
+			int src = m.index(i, 0);
+			float sum = 0;
+
+			for (int j = 0; j < m.cols; j++) {
+				sum += m.data[src + j * m.colStride];
+			}
+
+			dst.data[dst.index(i, 0)] = sum;
+		}
+	}
+
+	/**
+	 * Runs an array kernel over the entries of two matrices of the same size, as few times as their layout allows:
+	 * once if both are contiguous, once per row if both rows are, and once per entry otherwise
+	 * @param dst Matrix written, or read and updated, by the kernel
+	 * @param operator The kernel
+	 * @param m Matrix read by the kernel, which may be dst itself
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static void applyInto(FloatMatrix dst, FloatArrayOperator operator, FloatMatrix m) throws MatrixDimensionException {
+		if (!sameSize(dst, m)) {
+			throw new MatrixDimensionException("Failed to apply operator to matrix");
+		}
+
+		if (sameLayout(dst, m)) {
+			operator.apply(m.data, m.offset, dst.data, dst.offset, m.rows * m.cols);
+		} else if (dst.colStride == 1 && m.colStride == 1) {
+			for (int i = 0; i < m.rows; i++) {
+				operator.apply(m.data, m.index(i, 0), dst.data, dst.index(i, 0), m.cols);
+			}
+		} else {
+			for (int i = 0; i < m.rows; i++) {
+				for (int j = 0; j < m.cols; j++) {
+					operator.apply(m.data, m.index(i, j), dst.data, dst.index(i, j), 1);
+				}
+			}
+		}
+	}
+
+	private static void convertKernel(FloatMatrix dst, Matrix m) {
+		double[] md = m.getData();
+
+		if (dst.isContiguous() && m.isContiguous()) {
+			int mOff = m.getOffset();
+			int n = dst.rows * dst.cols;
+
+			for (int i = 0; i < n; i++) {
+				dst.data[dst.offset + i] = (float) md[mOff + i];
+			}
+		} else {
+			for (int i = 0; i < dst.rows; i++) {
+				for (int j = 0; j < dst.cols; j++) {
+					dst.data[dst.index(i, j)] = (float) md[m.index(i, j)];
+				}
+			}
+		}
+	}
+}
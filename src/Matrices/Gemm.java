@@ -0,0 +1,364 @@
+package Matrices;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cache-blocked general matrix multiplication kernel behind {@link Matrix#matrixMultiply(Matrix, Matrix)}.
+ * The product is tiled in i-k-j order with four rows of the result accumulated at a time, and is split over
+ * row blocks on a ForkJoinPool once the amount of work passes a threshold. Results with too few rows to give every
+ * thread a block, such as a layer's outputs for a batch, are split over column blocks as well.
+ * @author Michael Luger
+ */
+public final class Gemm {
+	/**
+	 * Edge length of the square tiles the loops are blocked into
+	 */
+	private static volatile int tileSize = 64;
+
+	/**
+	 * Number of multiply-adds from which a product is split across threads
+	 */
+	private static volatile long parallelThreshold = 1L << 18;
+
+	/**
+	 * Pool running the blocks of large products
+	 */
+	private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	private Gemm() {
+
+	}
+
+	public static int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Sets the edge length of the tiles, which should keep three tiles within the L1/L2 cache
+	 * @param size New tile size
+	 * @throws IllegalArgumentException If the size is not positive
+	 */
+	public static void setTileSize(int size) throws IllegalArgumentException {
+		if (size < 1) {
+			throw new IllegalArgumentException("Tile size must be positive");
+		}
+
+		tileSize = size;
+	}
+
+	public static long getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Sets the number of multiply-adds from which products are computed on several threads.
+	 * Long.MAX_VALUE keeps every product on the calling thread.
+	 * @param threshold New threshold
+	 */
+	public static void setParallelThreshold(long threshold) {
+		parallelThreshold = threshold;
+	}
+
+	public static ForkJoinPool getPool() {
+		return pool;
+	}
+
+	public static void setPool(ForkJoinPool forkJoinPool) {
+		pool = forkJoinPool;
+	}
+
+	/**
+	 * Accumulates a product into a matrix: c += alpha * a * b. Sizes are assumed to agree and c must not share entries with a or b.
+	 * @param alpha Scale of the product
+	 * @param a Matrix multiplied on the left
+	 * @param b Matrix multiplied on the right
+	 * @param c Matrix receiving the product
+	 */
+	static void multiply(double alpha, Matrix a, Matrix b, Matrix c) {
+		if (c.getRows() == 0 || c.getCols() == 0 || a.getCols() == 0) {
+			return;
+		}
+
+		// The inner loop runs along rows of b and c, so both are brought to unit column stride first,
+		// unless b is a transposed view whose columns can be walked directly as dot products
+		if (b.getColStride() != 1 && !isDotProduct(a, b)) {
+			b = new Matrix(b, true);
+		}
+
+		if (c.getColStride() != 1) {
+			Matrix packed = new Matrix(c.getRows(), c.getCols());
+			multiply(alpha, a, b, packed);
+
+			for (int i = 0; i < c.getRows(); i++) {
+				for (int j = 0; j < c.getCols(); j++) {
+					c.getData()[c.index(i, j)] += packed.getData()[packed.index(i, j)];
+				}
+			}
+
+			return;
+		}
+
+		long work = (long) c.getRows() * c.getCols() * a.getCols();
+		int tile = tileSize;
+
+		if (work < parallelThreshold) {
+			multiplyRows(alpha, a, b, c, 0, c.getRows(), tile);
+		} else {
+			ForkJoinPool pool = Gemm.pool;
+			pool.invoke(new Block(alpha, a, b, c, 0, c.getRows(), tile, columnGrain(c.getRows(), c.getCols(), tile, pool.getParallelism())));
+		}
+	}
+
+	/**
+	 * Fused layer kernel: c = f(a * b + bias), the bias column added to every column of c. Each block of rows of c is
+	 * seeded with its biases, accumulated into by the product and passed through f while it is still in cache.
+	 * Sizes are assumed to agree, c must be contiguous and must not share entries with a or b.
+	 * @param a Matrix multiplied on the left
+	 * @param b Matrix multiplied on the right
+	 * @param bias Column vector with a bias per row of c
+	 * @param f Element-wise kernel run in place over c, or null
+	 * @param c Matrix receiving the result
+	 */
+	static void multiplyBias(Matrix a, Matrix b, Matrix bias, ArrayOperator f, Matrix c) {
+		if (c.getRows() == 0 || c.getCols() == 0) {
+			return;
+		}
+
+		if (b.getColStride() != 1 && !isDotProduct(a, b)) {
+			b = new Matrix(b, true);
+		}
+
+		long work = (long) c.getRows() * c.getCols() * a.getCols();
+		int tile = tileSize;
+
+		if (work < parallelThreshold) {
+			biasRows(a, b, bias, f, c, 0, c.getRows(), tile);
+		} else {
+			ForkJoinPool pool = Gemm.pool;
+			pool.invoke(new Block(1, a, b, c, 0, c.getRows(), tile, columnGrain(c.getRows(), c.getCols(), tile, pool.getParallelism()), bias, f));
+		}
+	}
+
+	/**
+	 * Gets the widest column block a parallel product is split into: the full width when there are at least as many
+	 * row blocks as threads, otherwise whole tiles wide so that the row and column blocks together go round them
+	 * @param rows Rows of the result
+	 * @param cols Columns of the result
+	 * @param tile Tile size
+	 * @param parallelism Number of threads running the blocks
+	 */
+	static int columnGrain(int rows, int cols, int tile, int parallelism) {
+		int rowBlocks = (rows + tile - 1) / tile;
+
+		if (rowBlocks >= parallelism) {
+			return cols;
+		}
+
+		int colBlocks = (parallelism + rowBlocks - 1) / rowBlocks;
+		int width = (cols + colBlocks - 1) / colBlocks;
+
+		return Math.max(tile, (width + tile - 1) / tile * tile);
+	}
+
+	/**
+	 * Single-threaded fused kernel over the result rows [rowStart, rowEnd), one tile of rows at a time
+	 */
+	private static void biasRows(Matrix a, Matrix b, Matrix bias, ArrayOperator f, Matrix c, int rowStart, int rowEnd, int tile) {
+		double[] bd = bias.getData();
+		double[] cd = c.getData();
+		int cols = c.getCols();
+
+		for (int i0 = rowStart; i0 < rowEnd; i0 += tile) {
+			int i1 = Math.min(i0 + tile, rowEnd);
+
+			for (int i = i0; i < i1; i++) {
+				int cRow = c.index(i, 0);
+				Arrays.fill(cd, cRow, cRow + cols, bd[bias.index(i, 0)]);
+			}
+
+			if (a.getCols() > 0) {
+				multiplyRows(1, a, b, c, i0, i1, tile);
+			}
+
+			if (f == null) {
+				continue;
+			}
+
+			// Rows of a column block are not adjacent, so the kernel runs over them one at a time
+			if (c.getRowStride() == cols) {
+				int from = c.index(i0, 0);
+				f.apply(cd, from, cd, from, (i1 - i0) * cols);
+			} else {
+				for (int i = i0; i < i1; i++) {
+					int from = c.index(i, 0);
+					f.apply(cd, from, cd, from, cols);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether rows of a and columns of b are both contiguous, as when b is the transpose view of a row-major matrix
+	 */
+	private static boolean isDotProduct(Matrix a, Matrix b) {
+		return a.getColStride() == 1 && b.getRowStride() == 1;
+	}
+
+	/**
+	 * Single-threaded kernel over the result rows [rowStart, rowEnd)
+	 */
+	static void multiplyRows(double alpha, Matrix a, Matrix b, Matrix c, int rowStart, int rowEnd, int tile) {
+		// Matrix-vector products are plain dot products, for which tiling only adds overhead
+		if (b.getColStride() != 1 || (c.getCols() == 1 && isDotProduct(a, b))) {
+			dotRows(alpha, a, b, c, rowStart, rowEnd);
+		} else {
+			blockedRows(alpha, a, b, c, rowStart, rowEnd, tile);
+		}
+	}
+
+	/**
+	 * Blocked i-k-j kernel for a right operand with contiguous rows
+	 */
+	private static void blockedRows(double alpha, Matrix a, Matrix b, Matrix c, int rowStart, int rowEnd, int tile) {
+		double[] ad = a.getData();
+		double[] bd = b.getData();
+		double[] cd = c.getData();
+		Kernels kernels = Backends.get();
+		int ars = a.getRowStride();
+		int acs = a.getColStride();
+		int crs = c.getRowStride();
+		int inner = a.getCols();
+		int cols = c.getCols();
+
+		for (int i0 = rowStart; i0 < rowEnd; i0 += tile) {
+			int i1 = Math.min(i0 + tile, rowEnd);
+
+			for (int k0 = 0; k0 < inner; k0 += tile) {
+				int k1 = Math.min(k0 + tile, inner);
+
+				for (int j0 = 0; j0 < cols; j0 += tile) {
+					int j1 = Math.min(j0 + tile, cols);
+					int i = i0;
+
+					// Four rows of c share every load of b
+					for (; i + 3 < i1; i += 4) {
+						int c0 = c.index(i, 0);
+						int c1 = c0 + crs;
+						int c2 = c1 + crs;
+						int c3 = c2 + crs;
+						int aRow = a.index(i, 0);
+
+						for (int k = k0; k < k1; k++) {
+							int aIdx = aRow + k * acs;
+							kernels.axpy4(alpha * ad[aIdx], alpha * ad[aIdx + ars], alpha * ad[aIdx + 2 * ars], alpha * ad[aIdx + 3 * ars],
+									bd, b.index(k, j0), cd, c0 + j0, c1 + j0, c2 + j0, c3 + j0, j1 - j0);
+						}
+					}
+
+					for (; i < i1; i++) {
+						int cRow = c.index(i, 0);
+						int aRow = a.index(i, 0);
+
+						for (int k = k0; k < k1; k++) {
+							kernels.axpy(alpha * ad[aRow + k * acs], bd, b.index(k, j0), cd, cRow + j0, j1 - j0);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dot product kernel for a right operand with contiguous columns, four columns of b sharing each load of a
+	 */
+	private static void dotRows(double alpha, Matrix a, Matrix b, Matrix c, int rowStart, int rowEnd) {
+		double[] ad = a.getData();
+		double[] bd = b.getData();
+		double[] cd = c.getData();
+		Kernels kernels = Backends.get();
+		int bcs = b.getColStride();
+		int inner = a.getCols();
+		int cols = c.getCols();
+
+		for (int i = rowStart; i < rowEnd; i++) {
+			int aRow = a.index(i, 0);
+			int cRow = c.index(i, 0);
+			int j = 0;
+
+			for (; j + 3 < cols; j += 4) {
+				int b0 = b.index(0, j);
+				kernels.dot4(alpha, ad, aRow, bd, b0, b0 + bcs, b0 + 2 * bcs, b0 + 3 * bcs, inner, cd, cRow + j);
+			}
+
+			for (; j < cols; j++) {
+				cd[cRow + j] += alpha * kernels.dot(ad, aRow, bd, b.index(0, j), inner);
+			}
+		}
+	}
+
+	/**
+	 * Splits the result rows in halves until a block is small enough to run on one thread, then, while the block is
+	 * wider than the column grain, its columns
+	 */
+	private static class Block extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final double alpha;
+		private final Matrix a;
+		private final Matrix b;
+		private final Matrix c;
+		private final int rowStart;
+		private final int rowEnd;
+		private final int tile;
+		private final int colGrain;
+
+		// Bias seeding the rows and kernel run over them once multiplied, when fused
+		private final Matrix bias;
+		private final ArrayOperator f;
+
+		Block(double alpha, Matrix a, Matrix b, Matrix c, int rowStart, int rowEnd, int tile, int colGrain) {
+			this(alpha, a, b, c, rowStart, rowEnd, tile, colGrain, null, null);
+		}
+
+		Block(double alpha, Matrix a, Matrix b, Matrix c, int rowStart, int rowEnd, int tile, int colGrain, Matrix bias, ArrayOperator f) {
+			this.alpha = alpha;
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.tile = tile;
+			this.colGrain = colGrain;
+			this.bias = bias;
+			this.f = f;
+		}
+
+		@Override
+		protected void compute() {
+			int cols = this.c.getCols();
+
+			if (this.rowEnd - this.rowStart > this.tile) {
+				// Splits on a tile boundary so blocks line up with the serial kernel
+				int mid = this.rowStart + ((this.rowEnd - this.rowStart) / 2 + this.tile - 1) / this.tile * this.tile;
+				mid = Math.min(mid, this.rowEnd - 1);
+				invokeAll(new Block(this.alpha, this.a, this.b, this.c, this.rowStart, mid, this.tile, this.colGrain, this.bias, this.f),
+						new Block(this.alpha, this.a, this.b, this.c, mid, this.rowEnd, this.tile, this.colGrain, this.bias, this.f));
+			} else if (cols > this.colGrain) {
+				// Each half multiplies the matching columns of b into a view of the same columns of c
+				int mid = Math.min((cols / 2 + this.tile - 1) / this.tile * this.tile, cols - 1);
+				int inner = this.b.getRows();
+				int rows = this.c.getRows();
+				invokeAll(new Block(this.alpha, this.a, this.b.subMatrix(0, 0, inner, mid), this.c.subMatrix(0, 0, rows, mid),
+								this.rowStart, this.rowEnd, this.tile, this.colGrain, this.bias, this.f),
+						new Block(this.alpha, this.a, this.b.subMatrix(0, mid, inner, cols - mid), this.c.subMatrix(0, mid, rows, cols - mid),
+								this.rowStart, this.rowEnd, this.tile, this.colGrain, this.bias, this.f));
+			} else if (this.bias != null) {
+				biasRows(this.a, this.b, this.bias, this.f, this.c, this.rowStart, this.rowEnd, this.tile);
+			} else {
+				multiplyRows(this.alpha, this.a, this.b, this.c, this.rowStart, this.rowEnd, this.tile);
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package Matrices;
+
+/**
+ * Inner loops of the matrix operations and activation functions, over contiguous runs of flat arrays.
+ * {@link Backends} picks an implementation at runtime: SIMD kernels on the Java Vector API when the
+ * jdk.incubator.vector module is present, and plain scalar loops otherwise.
+ * Every kernel allows its destination range to be one of its source ranges.
+ */
+public interface Kernels {
+
+	/**
+	 * @return Short name of the backend, for logs and benchmark reports
+	 */
+	String getName();
+
+	/**
+	 * r = a + b over n entries
+	 */
+	void add(double[] a, int aOffset, double[] b, int bOffset, double[] r, int rOffset, int n);
+
+	/**
+	 * r = a * b entry by entry over n entries
+	 */
+	void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] r, int rOffset, int n);
+
+	/**
+	 * r = c * a over n entries
+	 */
+	void scale(double c, double[] a, int aOffset, double[] r, int rOffset, int n);
+
+	/**
+	 * y = y + alpha * x over n entries
+	 */
+	void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int n);
+
+	/**
+	 * Four axpys sharing x, one into each of four runs of y, as in a four-row tile of a matrix product
+	 */
+	void axpy4(double a0, double a1, double a2, double a3, double[] x, int xOffset,
+			double[] y, int y0, int y1, int y2, int y3, int n);
+
+	/**
+	 * @return The dot product of n entries of x and y
+	 */
+	double dot(double[] x, int xOffset, double[] y, int yOffset, int n);
+
+	/**
+	 * Dot products of one run of x with four runs of y, each scaled by alpha and added to one of four consecutive
+	 * entries of dst
+	 */
+	void dot4(double alpha, double[] x, int xOffset, double[] y, int y0, int y1, int y2, int y3, int n, double[] dst, int dstOffset);
+
+	/**
+	 * Single precision counterpart of {@link #axpy(double, double[], int, double[], int, int)}
+	 */
+	void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int n);
+
+	/**
+	 * Single precision counterpart of {@link #axpy4(double, double, double, double, double[], int, double[], int, int, int, int, int)}
+	 */
+	void axpy4(float a0, float a1, float a2, float a3, float[] x, int xOffset,
+			float[] y, int y0, int y1, int y2, int y3, int n);
+
+	/**
+	 * Single precision counterpart of {@link #dot(double[], int, double[], int, int)}
+	 */
+	float dot(float[] x, int xOffset, float[] y, int yOffset, int n);
+
+	/**
+	 * Single precision counterpart of {@link #dot4(double, double[], int, double[], int, int, int, int, int, double[], int)}
+	 */
+	void dot4(float alpha, float[] x, int xOffset, float[] y, int y0, int y1, int y2, int y3, int n, float[] dst, int dstOffset);
+
+	/**
+	 * a = 1 / (1 + e^-z) over n entries
+	 */
+	void sigmoid(double[] z, int zOffset, double[] a, int aOffset, int n);
+
+	/**
+	 * gradient = gradient * a * (1 - a) over n entries
+	 */
+	void sigmoidBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n);
+
+	/**
+	 * a = tanh(z) over n entries
+	 */
+	void tanh(double[] z, int zOffset, double[] a, int aOffset, int n);
+
+	/**
+	 * gradient = gradient * (1 - a^2) over n entries
+	 */
+	void tanhBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n);
+
+	/**
+	 * a = max(0, z) over n entries
+	 */
+	void relu(double[] z, int zOffset, double[] a, int aOffset, int n);
+
+	/**
+	 * gradient = 0 wherever a is not positive, over n entries
+	 */
+	void reluBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n);
+
+}
@@ -1,22 +1,40 @@
 package Matrices;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
- * Class to store entries and function as a Matrix
+ * Class to store entries and function as a Matrix.
+ * Entries are kept in one contiguous row-major array, addressed through an offset and a row and column stride,
+ * so that rows, columns and sub-matrices can be viewed without copying.
  * @author Michael Luger
  */
 public class Matrix implements Serializable {
 	/**
-	 * The data stored in the matrix
+	 * The data stored in the matrix, possibly shared with other views
 	 */
-	private double[][] entries;
-	
+	private double[] data;
+
+	/**
+	 * Index of entry (0, 0) in the data array
+	 */
+	private int offset;
+
+	/**
+	 * Distance in the data array between two consecutive rows
+	 */
+	private int rowStride;
+
+	/**
+	 * Distance in the data array between two consecutive columns
+	 */
+	private int colStride;
+
 	/**
 	 * Rows in the matrix
 	 */
 	private int rows;
-	
+
 	/**
 	 * Columns in the matrix
 	 */
@@ -29,15 +47,7 @@ public class Matrix implements Serializable {
 	 * @param cols Columns in the matrix
 	 */
 	public Matrix(int rows, int cols) {
-		entries = new double[rows][cols];
-		this.rows = rows;
-		this.cols = cols;
-
-		for (int i = 0; i < this.rows; i++) {
-			for (int j = 0; j < this.cols; j++) {
-				this.setEntry(i, j, 0);
-			}
-		}
+		this(new double[rows * cols], 0, rows, cols, cols, 1);
 	}
 
 	/**
@@ -49,9 +59,13 @@ public class Matrix implements Serializable {
 		this(m.rows, m.cols);
 
 		if (copyEntries) {
-			for (int i = 0; i < this.rows; i++) {
-				for (int j = 0; j < this.cols; j++) {
-					this.setEntry(i, j, m.getEntry(i, j));
+			if (m.isContiguous()) {
+				System.arraycopy(m.data, m.offset, this.data, 0, this.data.length);
+			} else {
+				for (int i = 0; i < this.rows; i++) {
+					for (int j = 0; j < this.cols; j++) {
+						this.data[i * this.cols + j] = m.data[m.index(i, j)];
+					}
 				}
 			}
 		}
@@ -62,25 +76,10 @@ public class Matrix implements Serializable {
 	 * @param m Array to copy
 	 */
 	public Matrix(double[][] m) {
-		int rows = m.length;
-		int cols = 0;
-
-		for (double[] array : m) {
-			cols = Math.max(cols, array.length);
-		}
-
-		entries = new double[rows][cols];
-		this.rows = rows;
-		this.cols = cols;
+		this(m.length, maxLength(m));
 
 		for (int i = 0; i < this.rows; i++) {
-			for (int j = 0; j < this.cols; j++) {
-				if (j > m[i].length - 1) {
-					this.setEntry(i, j, 0);
-				} else {
-					this.setEntry(i, j, m[i][j]);
-				}
-			}
+			System.arraycopy(m[i], 0, this.data, i * this.cols, m[i].length);
 		}
 	}
 
@@ -90,28 +89,49 @@ public class Matrix implements Serializable {
 	 * @param col Whether to turn it into a row or column vector. If false, makes row vector. If true, makes column vector.
 	 */
 	public Matrix(double[] m, boolean col) {
-		if (col) {
-			this.rows = m.length;
-			this.cols = 1;
+		this(col ? m.length : 1, col ? 1 : m.length);
 
-			this.entries = new double[rows][cols];
+		System.arraycopy(m, 0, this.data, 0, m.length);
+	}
 
-			for (int i = 0; i < this.rows; i++) {
-				this.setEntry(i, 0, m[i]);
-			}
-		} else {
-			this.rows = 1;
-			this.cols = m.length;
+	/**
+	 * Wraps a row-major array as a matrix without copying it
+	 * @param rows Rows in the matrix
+	 * @param cols Columns in the matrix
+	 * @param data Row-major entries, of length at least rows * cols
+	 * @throws IllegalArgumentException If the array is too short for the given size
+	 */
+	public Matrix(int rows, int cols, double[] data) throws IllegalArgumentException {
+		this(data, 0, rows, cols, cols, 1);
 
-			this.entries = new double[rows][cols];
+		if (data.length < rows * cols) {
+			throw new IllegalArgumentException("Array too short for a " + rows + "x" + cols + " matrix");
+		}
+	}
 
-			for (int i = 0; i < this.rows; i++) {
-				this.setEntry(0, i, m[i]);
-			}
+	/**
+	 * View constructor, sharing the given array
+	 */
+	private Matrix(double[] data, int offset, int rows, int cols, int rowStride, int colStride) {
+		this.data = data;
+		this.offset = offset;
+		this.rows = rows;
+		this.cols = cols;
+		this.rowStride = rowStride;
+		this.colStride = colStride;
+	}
+
+	private static int maxLength(double[][] m) {
+		int cols = 0;
+
+		for (double[] array : m) {
+			cols = Math.max(cols, array.length);
 		}
+
+		return cols;
 	}
 
-	
+
 	/**
 	 * Gets the content of the specified entry
 	 * @param row Specified row
@@ -119,7 +139,8 @@ public class Matrix implements Serializable {
 	 * @throws ArrayIndexOutOfBoundsException If the specified entry does not exist
 	 */
 	public double getEntry(int row, int col) throws ArrayIndexOutOfBoundsException {
-		return this.entries[row][col];
+		checkBounds(row, col);
+		return this.data[this.index(row, col)];
 	}
 
 	/**
@@ -130,17 +151,136 @@ public class Matrix implements Serializable {
 	 * @throws ArrayIndexOutOfBoundsException If the specified entry does not exist
 	 */
 	public void setEntry(int row, int col, double val) throws ArrayIndexOutOfBoundsException {
-		this.entries[row][col] = val;
+		checkBounds(row, col);
+		this.data[this.index(row, col)] = val;
+	}
+
+	private void checkBounds(int row, int col) throws ArrayIndexOutOfBoundsException {
+		if (row < 0 || row >= this.rows || col < 0 || col >= this.cols) {
+			throw new ArrayIndexOutOfBoundsException("Entry (" + row + ", " + col + ") outside of " + this.rows + "x" + this.cols + " matrix");
+		}
 	}
-	
+
 	public int getRows() {
 		return this.rows;
 	}
-	
+
 	public int getCols() {
 		return this.cols;
 	}
 
+	/**
+	 * Gets the array backing this matrix. It may be shared with other views and hold entries outside of this matrix.
+	 * @return The backing array
+	 */
+	public double[] getData() {
+		return this.data;
+	}
+
+	public int getOffset() {
+		return this.offset;
+	}
+
+	public int getRowStride() {
+		return this.rowStride;
+	}
+
+	public int getColStride() {
+		return this.colStride;
+	}
+
+	/**
+	 * Gets the position of an entry in the backing array, without bounds checking
+	 * @param row Specified row
+	 * @param col Specified column
+	 * @return The index of the entry in {@link #getData()}
+	 */
+	public int index(int row, int col) {
+		return this.offset + row * this.rowStride + col * this.colStride;
+	}
+
+	/**
+	 * Whether the entries occupy one gap-free row-major block of the backing array
+	 */
+	public boolean isContiguous() {
+		return this.colStride == 1 && (this.rowStride == this.cols || this.rows <= 1);
+	}
+
+	/**
+	 * Gets a row of the matrix as a row vector sharing this matrix's entries
+	 * @param row Specified row
+	 * @return A 1 x cols view of the row
+	 * @throws ArrayIndexOutOfBoundsException If the row does not exist
+	 */
+	public Matrix getRow(int row) throws ArrayIndexOutOfBoundsException {
+		return this.subMatrix(row, 0, 1, this.cols);
+	}
+
+	/**
+	 * Gets a column of the matrix as a column vector sharing this matrix's entries
+	 * @param col Specified column
+	 * @return A rows x 1 view of the column
+	 * @throws ArrayIndexOutOfBoundsException If the column does not exist
+	 */
+	public Matrix getColumn(int col) throws ArrayIndexOutOfBoundsException {
+		return this.subMatrix(0, col, this.rows, 1);
+	}
+
+	/**
+	 * Gets a block of the matrix sharing this matrix's entries
+	 * @param row First row of the block
+	 * @param col First column of the block
+	 * @param rows Rows in the block
+	 * @param cols Columns in the block
+	 * @return A rows x cols view of the block
+	 * @throws ArrayIndexOutOfBoundsException If the block does not fit in the matrix
+	 */
+	public Matrix subMatrix(int row, int col, int rows, int cols) throws ArrayIndexOutOfBoundsException {
+		if (row < 0 || col < 0 || rows < 0 || cols < 0 || row + rows > this.rows || col + cols > this.cols) {
+			throw new ArrayIndexOutOfBoundsException("Block " + rows + "x" + cols + " at (" + row + ", " + col + ") outside of " + this.rows + "x" + this.cols + " matrix");
+		}
+
+		return new Matrix(this.data, this.index(row, col), rows, cols, this.rowStride, this.colStride);
+	}
+
+
+	/**
+	 * Gets the transpose of the matrix as a view sharing this matrix's entries
+	 * @return A cols x rows view of the matrix
+	 */
+	public Matrix transposeView() {
+		return new Matrix(this.data, this.offset, this.cols, this.rows, this.colStride, this.rowStride);
+	}
+
+	/**
+	 * Whether two matrices are laid out identically, so that their entries can be walked with a single index
+	 */
+	private static boolean sameLayout(Matrix m1, Matrix m2) {
+		return m1.isContiguous() && m2.isContiguous();
+	}
+
+	/**
+	 * Sets every entry of the matrix to the same value
+	 * @param val New value of every entry
+	 */
+	public void fill(double val) {
+		if (this.isContiguous()) {
+			Arrays.fill(this.data, this.offset, this.offset + this.rows * this.cols, val);
+		} else {
+			for (int i = 0; i < this.rows; i++) {
+				int row = this.index(i, 0);
+
+				for (int j = 0; j < this.cols; j++) {
+					this.data[row + j * this.colStride] = val;
+				}
+			}
+		}
+	}
+
+	private static boolean sameSize(Matrix m1, Matrix m2) {
+		return m1.rows == m2.rows && m1.cols == m2.cols;
+	}
+
 	/**
 	 * Gets the result of multiplication of two matrices
 	 * @param m1 Matrix multiplied on the left
@@ -154,16 +294,215 @@ public class Matrix implements Serializable {
 		}
 
 		Matrix result = new Matrix(m1.rows, m2.cols);
+		Gemm.multiply(1, m1, m2, result);
 
-		for (int i = 0; i < result.rows; i++) {
-			for (int j = 0; j < result.cols; j++) {
-				for (int k = 0; k < m1.cols; k++) {
-					result.setEntry(i, j, result.getEntry(i,  j) + m1.entries[i][k] * m2.entries[k][j]);
+		return result;
+	}
+
+	/**
+	 * General matrix multiply-accumulate in place: c = alpha * a * b + beta * c
+	 * @param alpha Scale of the product
+	 * @param a Matrix multiplied on the left
+	 * @param b Matrix multiplied on the right
+	 * @param beta Scale of the previous entries of c. When zero, the previous entries are ignored.
+	 * @param c Matrix receiving the result, which must not share entries with a or b
+	 * @throws MatrixMultiplicationException If the sizes of the three matrices do not agree
+	 */
+	public static void gemm(double alpha, Matrix a, Matrix b, double beta, Matrix c) throws MatrixMultiplicationException {
+		if (a.cols != b.rows || c.rows != a.rows || c.cols != b.cols) {
+			throw new MatrixMultiplicationException("Failed to multiply matrices");
+		}
+
+		if (beta == 0) {
+			c.fill(0);
+		} else if (beta != 1) {
+			scaleKernel(c, beta, c);
+		}
+
+		Gemm.multiply(alpha, a, b, c);
+	}
+
+	/**
+	 * Fused forward pass of a dense layer: out = f(w * x + b), with the bias column added to every column.
+	 * Each block of rows of out is seeded with its biases, accumulated into by the product and passed through f while
+	 * it is still in cache, so out is written in one pass instead of three.
+	 * @param w Weights, multiplied on the left
+	 * @param x Inputs of the layer, one sample per column
+	 * @param b Column vector of biases, one per row of out
+	 * @param f Element-wise kernel run in place over the result, or null to leave the weighted inputs
+	 * @param out Matrix receiving the result, which must not share entries with w or x
+	 * @throws MatrixMultiplicationException If the sizes of w, x and out do not agree
+	 * @throws MatrixAdditionException If b is not a column vector of out's height
+	 */
+	public static void gemmBias(Matrix w, Matrix x, Matrix b, ArrayOperator f, Matrix out) throws MatrixMultiplicationException, MatrixAdditionException {
+		if (w.cols != x.rows || out.rows != w.rows || out.cols != x.cols) {
+			throw new MatrixMultiplicationException("Failed to multiply matrices");
+		} else if (b.rows != out.rows || b.cols != 1) {
+			throw new MatrixAdditionException("Failed to add column vector to matrix");
+		}
+
+		if (out.isContiguous()) {
+			Gemm.multiplyBias(w, x, b, f, out);
+			return;
+		}
+
+		// Strided outputs take the three separate passes
+		gemm(1, w, x, 0, out);
+		addColumnInto(out, out, b);
+
+		if (f != null) {
+			try {
+				applyInto(out, f, out);
+			} catch (MatrixDimensionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Dense by sparse multiply-accumulate in place: c = alpha * a * b + beta * c.
+	 * Only the non-zero entries of b are visited, so the work shrinks with its density.
+	 * @param alpha Scale of the product
+	 * @param a Dense matrix multiplied on the left
+	 * @param b Sparse matrix multiplied on the right
+	 * @param beta Scale of the previous entries of c. When zero, the previous entries are ignored.
+	 * @param c Matrix receiving the result, which must not share entries with a
+	 * @throws MatrixMultiplicationException If the sizes of the three matrices do not agree
+	 */
+	public static void gemm(double alpha, Matrix a, SparseMatrix b, double beta, Matrix c) throws MatrixMultiplicationException {
+		if (a.cols != b.getRows() || c.rows != a.rows || c.cols != b.getCols()) {
+			throw new MatrixMultiplicationException("Failed to multiply matrices");
+		}
+
+		if (beta == 0) {
+			c.fill(0);
+		} else if (beta != 1) {
+			scaleKernel(c, beta, c);
+		}
+
+		int[] pointers = b.getRowPointers();
+		int[] columns = b.getColumns();
+		double[] values = b.getValues();
+
+		// Each entry of a scales one sparse row of b into the matching row of c, four rows of c sharing every entry of b
+		int cs = c.colStride;
+		int i = 0;
+
+		for (; i + 4 <= a.rows; i += 4) {
+			int c0 = c.offset + i * c.rowStride;
+			int c1 = c0 + c.rowStride;
+			int c2 = c1 + c.rowStride;
+			int c3 = c2 + c.rowStride;
+
+			for (int k = 0; k < a.cols; k++) {
+				double s0 = alpha * a.data[a.index(i, k)];
+				double s1 = alpha * a.data[a.index(i + 1, k)];
+				double s2 = alpha * a.data[a.index(i + 2, k)];
+				double s3 = alpha * a.data[a.index(i + 3, k)];
+
+				for (int p = pointers[k]; p < pointers[k + 1]; p++) {
+					int col = columns[p] * cs;
+					double v = values[p];
+
+					c.data[c0 + col] += s0 * v;
+					c.data[c1 + col] += s1 * v;
+					c.data[c2 + col] += s2 * v;
+					c.data[c3 + col] += s3 * v;
 				}
 			}
 		}
 
-		return result;
+		for (; i < a.rows; i++) {
+			int cRow = c.offset + i * c.rowStride;
+
+			for (int k = 0; k < a.cols; k++) {
+				double scale = alpha * a.data[a.index(i, k)];
+
+				if (scale == 0) {
+					continue;
+				}
+
+				for (int p = pointers[k]; p < pointers[k + 1]; p++) {
+					c.data[cRow + columns[p] * cs] += scale * values[p];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dense by transposed sparse multiply-accumulate in place: c = alpha * a * transpose(b) + beta * c.
+	 * With b holding a batch one sample per row, this is a layer's forward pass over sparse inputs: every entry of c
+	 * is a row of a gathered at the non-zero entries of one sample.
+	 * @param alpha Scale of the product
+	 * @param a Dense matrix multiplied on the left
+	 * @param b Sparse matrix whose transpose is multiplied on the right
+	 * @param beta Scale of the previous entries of c. When zero, the previous entries are ignored.
+	 * @param c Matrix receiving the result, which must not share entries with a
+	 * @throws MatrixMultiplicationException If the sizes of the three matrices do not agree
+	 */
+	public static void gemmTransposed(double alpha, Matrix a, SparseMatrix b, double beta, Matrix c) throws MatrixMultiplicationException {
+		if (a.cols != b.getCols() || c.rows != a.rows || c.cols != b.getRows()) {
+			throw new MatrixMultiplicationException("Failed to multiply matrices");
+		}
+
+		int[] pointers = b.getRowPointers();
+		int[] columns = b.getColumns();
+		double[] values = b.getValues();
+
+		// Four rows of a are gathered against every sample at once, sharing its indices and values
+		int as = a.colStride;
+		int i = 0;
+
+		for (; i + 4 <= a.rows; i += 4) {
+			int a0 = a.offset + i * a.rowStride;
+			int a1 = a0 + a.rowStride;
+			int a2 = a1 + a.rowStride;
+			int a3 = a2 + a.rowStride;
+
+			for (int j = 0; j < b.getRows(); j++) {
+				double sum0 = 0;
+				double sum1 = 0;
+				double sum2 = 0;
+				double sum3 = 0;
+
+				for (int p = pointers[j]; p < pointers[j + 1]; p++) {
+					int col = columns[p] * as;
+					double v = values[p];
+
+					sum0 += a.data[a0 + col] * v;
+					sum1 += a.data[a1 + col] * v;
+					sum2 += a.data[a2 + col] * v;
+					sum3 += a.data[a3 + col] * v;
+				}
+
+				c.storeScaled(i, j, alpha * sum0, beta);
+				c.storeScaled(i + 1, j, alpha * sum1, beta);
+				c.storeScaled(i + 2, j, alpha * sum2, beta);
+				c.storeScaled(i + 3, j, alpha * sum3, beta);
+			}
+		}
+
+		for (; i < a.rows; i++) {
+			int aRow = a.offset + i * a.rowStride;
+
+			for (int j = 0; j < b.getRows(); j++) {
+				double sum = 0;
+
+				for (int p = pointers[j]; p < pointers[j + 1]; p++) {
+					sum += a.data[aRow + columns[p] * as] * values[p];
+				}
+
+				c.storeScaled(i, j, alpha * sum, beta);
+			}
+		}
+	}
+
+	/**
+	 * Sets an entry to value + beta * entry, ignoring the previous entry when beta is zero
+	 */
+	private void storeScaled(int row, int col, double value, double beta) {
+		int index = this.index(row, col);
+		this.data[index] = beta == 0 ? value : value + beta * this.data[index];
 	}
 
 	/**
@@ -173,17 +512,45 @@ public class Matrix implements Serializable {
 	 * @return The result of the scalar multiplication
 	 */
 	public static Matrix scalarMultiply(double c, Matrix m) {
-		Matrix result = new Matrix(m, false);
+		Matrix result = new Matrix(m.rows, m.cols);
+		scaleKernel(result, c, m);
 
-		for (int i = 0; i < m.rows; i++) {
-			for (int j = 0; j < m.cols; j++) {
-				result.setEntry(i, j, m.getEntry(i, j) * c);
-			}
+		return result;
+	}
+
+	/**
+	 * Multiplies a matrix by a scalar, storing the result in a given matrix
+	 * @param dst Matrix receiving the result, which may be m itself
+	 * @param c Scalar constant to multiply
+	 * @param m Matrix to be multiplied
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static void scaleInto(Matrix dst, double c, Matrix m) throws MatrixDimensionException {
+		if (!sameSize(dst, m)) {
+			throw new MatrixDimensionException("Failed to multiply matrix by scalar");
 		}
 
-		return result;
+		scaleKernel(dst, c, m);
 	}
-	
+
+	/**
+	 * Copies the entries of one matrix into another of the same size
+	 * @param dst Matrix receiving the entries
+	 * @param m Matrix to copy
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static void copyInto(Matrix dst, Matrix m) throws MatrixDimensionException {
+		if (!sameSize(dst, m)) {
+			throw new MatrixDimensionException("Failed to copy matrix");
+		}
+
+		if (sameLayout(dst, m)) {
+			System.arraycopy(m.data, m.offset, dst.data, dst.offset, m.rows * m.cols);
+		} else {
+			scaleKernel(dst, 1, m);
+		}
+	}
+
 	/**
 	 * Adds two matrices
 	 * @param m1 The first matrix to add
@@ -192,49 +559,155 @@ public class Matrix implements Serializable {
 	 * @throws MatrixAdditionException If the sizes of the two matrices are unequal.
 	 */
 	public static Matrix matrixAdd(Matrix m1, Matrix m2) throws MatrixAdditionException {
-		if (m1.rows != m2.rows || m1.cols != m2.cols) {
+		Matrix result = new Matrix(m1.rows, m1.cols);
+		addInto(result, m1, m2);
+
+		return result;
+	}
+
+	/**
+	 * Adds two matrices, storing the result in a given matrix
+	 * @param dst Matrix receiving the sum, which may be m1 or m2 itself
+	 * @param m1 The first matrix to add
+	 * @param m2 The second matrix to add
+	 * @throws MatrixAdditionException If the sizes of the three matrices are unequal.
+	 */
+	public static void addInto(Matrix dst, Matrix m1, Matrix m2) throws MatrixAdditionException {
+		if (!sameSize(m1, m2) || !sameSize(dst, m1)) {
 			throw new MatrixAdditionException("Failed to add matrices");
 		}
-		
-		Matrix result = new Matrix(m1, false);
-		
-		for (int i = 0; i < result.rows; i++) {
-			for (int j = 0; j < result.cols; j++) {
-				result.setEntry(i, j, m1.getEntry(i, j) + m2.getEntry(i, j));
+
+		if (sameLayout(dst, m1) && sameLayout(dst, m2)) {
+			Backends.get().add(m1.data, m1.offset, m2.data, m2.offset, dst.data, dst.offset, dst.rows * dst.cols);
+		} else {
+			for (int i = 0; i < dst.rows; i++) {
+				for (int j = 0; j < dst.cols; j++) {
+					dst.data[dst.index(i, j)] = m1.data[m1.index(i, j)] + m2.data[m2.index(i, j)];
+				}
 			}
 		}
-		
-		return result;
 	}
-	
+
+	/**
+	 * Adds a scaled matrix to another in place: y = y + alpha * x
+	 * @param alpha Scale of x
+	 * @param x The matrix to add
+	 * @param y The matrix added to
+	 * @throws MatrixAdditionException If the sizes of the two matrices are unequal.
+	 */
+	public static void axpy(double alpha, Matrix x, Matrix y) throws MatrixAdditionException {
+		if (!sameSize(x, y)) {
+			throw new MatrixAdditionException("Failed to add matrices");
+		}
+
+		if (sameLayout(x, y)) {
+			Backends.get().axpy(alpha, x.data, x.offset, y.data, y.offset, y.rows * y.cols);
+		} else {
+			for (int i = 0; i < y.rows; i++) {
+				for (int j = 0; j < y.cols; j++) {
+					y.data[y.index(i, j)] += alpha * x.data[x.index(i, j)];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a column vector to every column of a matrix, storing the result in a given matrix
+	 * @param dst Matrix receiving the sum, which may be m itself
+	 * @param m The matrix to add to
+	 * @param v Column vector with as many rows as m
+	 * @throws MatrixAdditionException If v is not a column vector of m's height or dst and m differ in size
+	 */
+	public static void addColumnInto(Matrix dst, Matrix m, Matrix v) throws MatrixAdditionException {
+		if (!sameSize(dst, m) || v.rows != m.rows || v.cols != 1) {
+			throw new MatrixAdditionException("Failed to add column vector to matrix");
+		}
+
+		for (int i = 0; i < m.rows; i++) {
+			double vi = v.data[v.index(i, 0)];
+			int src = m.index(i, 0);
+			int target = dst.index(i, 0);
+
+			for (int j = 0; j < m.cols; j++) {
+				dst.data[target + j * dst.colStride] = m.data[src + j * m.colStride] + vi;
+			}
+		}
+	}
+
+	/**
+	 * Sums every row of a matrix into a column vector
+	 * @param dst Column vector receiving the sums
+	 * @param m The matrix to sum
+	 * @throws MatrixDimensionException If dst is not a column vector of m's height
+	 */
+	public static void rowSumInto(Matrix dst, Matrix m) throws MatrixDimensionException {
+		if (dst.rows != m.rows || dst.cols != 1) {
+			throw new MatrixDimensionException("Failed to sum matrix rows");
+		}
+
+		for (int i = 0; i < m.rows; i++) {
+			int src = m.index(i, 0);
+			double sum = 0;
+
+			for (int j = 0; j < m.cols; j++) {
+				sum += m.data[src + j * m.colStride];
+			}
+
+			dst.data[dst.index(i, 0)] = sum;
+		}
+	}
+
 	public static Matrix hadamardProduct(Matrix m1, Matrix m2) throws HadamardException {
-		if (m1.rows != m2.rows || m1.cols != m2.cols) {
+		Matrix result = new Matrix(m1.rows, m1.cols);
+		hadamardInto(result, m1, m2);
+
+		return result;
+	}
+
+	/**
+	 * Multiplies two matrices entry by entry, storing the result in a given matrix
+	 * @param dst Matrix receiving the product, which may be m1 or m2 itself
+	 * @param m1 The first matrix to multiply
+	 * @param m2 The second matrix to multiply
+	 * @throws HadamardException If the sizes of the three matrices are unequal.
+	 */
+	public static void hadamardInto(Matrix dst, Matrix m1, Matrix m2) throws HadamardException {
+		if (!sameSize(m1, m2) || !sameSize(dst, m1)) {
 			throw new HadamardException("Failed to perform hadamard product");
 		}
-		
-		Matrix result = new Matrix(m1, false);
-		
-		for (int i = 0; i < result.rows; i++) {
-			for (int j = 0; j < result.cols; j++) {
-				result.setEntry(i, j, m1.getEntry(i, j) * m2.getEntry(i, j));
+
+		if (sameLayout(dst, m1) && sameLayout(dst, m2)) {
+			Backends.get().multiply(m1.data, m1.offset, m2.data, m2.offset, dst.data, dst.offset, dst.rows * dst.cols);
+		} else {
+			for (int i = 0; i < dst.rows; i++) {
+				for (int j = 0; j < dst.cols; j++) {
+					dst.data[dst.index(i, j)] = m1.data[m1.index(i, j)] * m2.data[m2.index(i, j)];
+				}
 			}
 		}
-		
-		return result;
 	}
-	
+
 	public static Matrix transpose(Matrix m) {
 		Matrix result = new Matrix(m.cols, m.rows);
-		
-		for (int row = 0; row < m.rows; row++) {
-			for (int col = 0; col < m.cols; col++) {
-				result.setEntry(col, row, m.getEntry(row, col));
-			}
-		}
-		
+		transposeKernel(result, m);
+
 		return result;
 	}
-	
+
+	/**
+	 * Transposes a matrix into a given matrix
+	 * @param dst Matrix receiving the transpose, which must not share entries with m
+	 * @param m Matrix to transpose
+	 * @throws MatrixDimensionException If dst is not the size of the transpose of m
+	 */
+	public static void transposeInto(Matrix dst, Matrix m) throws MatrixDimensionException {
+		if (dst.rows != m.cols || dst.cols != m.rows) {
+			throw new MatrixDimensionException("Failed to transpose matrix");
+		}
+
+		transposeKernel(dst, m);
+	}
+
 	/**
 	 * Applies an abstract function to every element in the matrix
 	 * @param function The function, extending the abstract class MatrixFunction to be applied to the matrix
@@ -242,14 +715,86 @@ public class Matrix implements Serializable {
 	 * @return The resulting matrix from the given function.
 	 */
 	public static <A extends MatrixFunction> Matrix applyFunction(A function, Matrix m) {
-		Matrix result = new Matrix(m, false);
-		
+		Matrix result = new Matrix(m.rows, m.cols);
+		applyKernel(result, function, m);
+
+		return result;
+	}
+
+	/**
+	 * Applies an abstract function to every element in the matrix, storing the result in a given matrix
+	 * @param dst Matrix receiving the result, which may be m itself
+	 * @param function The function, extending the abstract class MatrixFunction to be applied to the matrix
+	 * @param m The matrix on which the function will be applied
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static <A extends MatrixFunction> void applyInto(Matrix dst, A function, Matrix m) throws MatrixDimensionException {
+		if (!sameSize(dst, m)) {
+			throw new MatrixDimensionException("Failed to apply function to matrix");
+		}
+
+		applyKernel(dst, function, m);
+	}
+
+	/**
+	 * Runs an array kernel over the entries of two matrices of the same size, as few times as their layout allows:
+	 * once if both are contiguous, once per row if both rows are, and once per entry otherwise
+	 * @param dst Matrix written, or read and updated, by the kernel
+	 * @param operator The kernel
+	 * @param m Matrix read by the kernel, which may be dst itself
+	 * @throws MatrixDimensionException If dst and m differ in size
+	 */
+	public static void applyInto(Matrix dst, ArrayOperator operator, Matrix m) throws MatrixDimensionException {
+		if (!sameSize(dst, m)) {
+			throw new MatrixDimensionException("Failed to apply operator to matrix");
+		}
+
+		if (sameLayout(dst, m)) {
+			operator.apply(m.data, m.offset, dst.data, dst.offset, m.rows * m.cols);
+		} else if (dst.colStride == 1 && m.colStride == 1) {
+			for (int i = 0; i < m.rows; i++) {
+				operator.apply(m.data, m.index(i, 0), dst.data, dst.index(i, 0), m.cols);
+			}
+		} else {
+			for (int i = 0; i < m.rows; i++) {
+				for (int j = 0; j < m.cols; j++) {
+					operator.apply(m.data, m.index(i, j), dst.data, dst.index(i, j), 1);
+				}
+			}
+		}
+	}
+
+	private static void scaleKernel(Matrix dst, double c, Matrix m) {
+		if (sameLayout(dst, m)) {
+			Backends.get().scale(c, m.data, m.offset, dst.data, dst.offset, dst.rows * dst.cols);
+		} else {
+			for (int i = 0; i < m.rows; i++) {
+				for (int j = 0; j < m.cols; j++) {
+					dst.data[dst.index(i, j)] = m.data[m.index(i, j)] * c;
+				}
+			}
+		}
+	}
+
+	private static void transposeKernel(Matrix dst, Matrix m) {
+		for (int row = 0; row < m.rows; row++) {
+			int src = m.index(row, 0);
+			int target = dst.index(0, row);
+
+			for (int col = 0; col < m.cols; col++) {
+				dst.data[target + col * dst.rowStride] = m.data[src + col * m.colStride];
+			}
+		}
+	}
+
+	private static void applyKernel(Matrix dst, MatrixFunction function, Matrix m) {
 		for (int i = 0; i < m.rows; i++) {
+			int src = m.index(i, 0);
+			int target = dst.index(i, 0);
+
 			for (int j = 0; j < m.cols; j++) {
-				result.setEntry(i, j, function.apply(i, j, m.rows, m.cols, m.getEntry(i, j)));
+				dst.data[target + j * dst.colStride] = function.apply(i, j, m.rows, m.cols, m.data[src + j * m.colStride]);
 			}
 		}
-		
-		return result;
 	}
 }
@@ -0,0 +1,9 @@
+package Matrices;
+
+public class MatrixDimensionException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	public MatrixDimensionException(String message) {
+		super(message);
+	}
+}
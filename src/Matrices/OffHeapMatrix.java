@@ -0,0 +1,148 @@
+package Matrices;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * Row-major matrix whose entries live outside the Java heap, in a direct or memory-mapped buffer.
+ * The buffer is owned by whoever allocated or mapped it, which frees it explicitly; a matrix must not be used once
+ * its owner has been closed.
+ * <p>
+ * Products stream one row at a time into a small on-heap buffer and run on the selected {@link Kernels}, so an
+ * off-heap matrix multiplies about as fast as a {@link Matrix} while keeping its entries out of the garbage
+ * collector's way.
+ * @author Michael Luger
+ */
+public class OffHeapMatrix {
+	/**
+	 * Per-thread buffer a row is copied into before it is multiplied
+	 */
+	private static final ThreadLocal<double[]> ROW = ThreadLocal.withInitial(() -> new double[0]);
+
+	private final DoubleBuffer data;
+	private final int rows;
+	private final int cols;
+
+	/**
+	 * Wraps a buffer of row-major entries without copying it
+	 * @param rows Rows in the matrix
+	 * @param cols Columns in the matrix
+	 * @param data Buffer holding exactly rows * cols entries, from index 0
+	 * @throws IllegalArgumentException If the buffer holds a different number of entries
+	 */
+	public OffHeapMatrix(int rows, int cols, DoubleBuffer data) throws IllegalArgumentException {
+		if (data.capacity() != (long) rows * cols) {
+			throw new IllegalArgumentException("Buffer of " + data.capacity() + " entries for a " + rows + "x" + cols + " matrix");
+		}
+
+		this.data = data;
+		this.rows = rows;
+		this.cols = cols;
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getCols() {
+		return this.cols;
+	}
+
+	/**
+	 * Whether the entries are mapped read-only, e.g. from a model shared between processes
+	 */
+	public boolean isReadOnly() {
+		return this.data.isReadOnly();
+	}
+
+	public double getEntry(int row, int col) {
+		return this.data.get(row * this.cols + col);
+	}
+
+	public void setEntry(int row, int col, double value) {
+		this.data.put(row * this.cols + col, value);
+	}
+
+	/**
+	 * Copies every entry of an on-heap matrix of the same size into this one
+	 * @throws MatrixDimensionException If the sizes differ
+	 */
+	public void copyFrom(Matrix m) throws MatrixDimensionException {
+		if (m.getRows() != this.rows || m.getCols() != this.cols) {
+			throw new MatrixDimensionException("Matrix dimensions unequal");
+		}
+
+		for (int row = 0; row < this.rows; row++) {
+			if (m.getColStride() == 1) {
+				this.data.put(row * this.cols, m.getData(), m.index(row, 0), this.cols);
+			} else {
+				for (int col = 0; col < this.cols; col++) {
+					this.data.put(row * this.cols + col, m.getData()[m.index(row, col)]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the entries onto the heap
+	 */
+	public Matrix toMatrix() {
+		Matrix result = new Matrix(this.rows, this.cols);
+		this.data.get(0, result.getData(), 0, this.rows * this.cols);
+
+		return result;
+	}
+
+	/**
+	 * Multiplies an off-heap matrix by an on-heap one: c = a * b
+	 * @param a Off-heap matrix multiplied on the left, e.g. a layer's weights
+	 * @param b Matrix multiplied on the right, e.g. a batch of activations one sample per column
+	 * @param c Matrix receiving the result, which must not share entries with b
+	 * @throws MatrixMultiplicationException If the sizes of the three matrices do not agree
+	 */
+	public static void gemm(OffHeapMatrix a, Matrix b, Matrix c) throws MatrixMultiplicationException {
+		if (a.cols != b.getRows() || c.getRows() != a.rows || c.getCols() != b.getCols()) {
+			throw new MatrixMultiplicationException("Failed to multiply matrices");
+		}
+
+		Kernels kernels = Backends.get();
+		double[] row = ROW.get();
+
+		if (row.length < a.cols) {
+			row = new double[a.cols];
+			ROW.set(row);
+		}
+
+		boolean vector = b.getCols() == 1 && b.getRowStride() == 1;
+		boolean rowMajor = b.getColStride() == 1 && c.getColStride() == 1;
+		double[] bData = b.getData();
+		double[] cData = c.getData();
+
+		for (int i = 0; i < a.rows; i++) {
+			a.data.get(i * a.cols, row, 0, a.cols);
+
+			if (vector) {
+				// Matrix-vector product, one dot product per row
+				cData[c.index(i, 0)] = kernels.dot(row, 0, bData, b.getOffset(), a.cols);
+			} else if (rowMajor) {
+				// Row i of c gathers the rows of b, each scaled by an entry of row i of a
+				int cRow = c.index(i, 0);
+				Arrays.fill(cData, cRow, cRow + c.getCols(), 0);
+
+				for (int k = 0; k < a.cols; k++) {
+					kernels.axpy(row[k], bData, b.index(k, 0), cData, cRow, c.getCols());
+				}
+			} else {
+				for (int j = 0; j < c.getCols(); j++) {
+					double sum = 0;
+
+					for (int k = 0; k < a.cols; k++) {
+						sum += row[k] * bData[b.index(k, j)];
+					}
+
+					cData[c.index(i, j)] = sum;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package Matrices;
+
+/**
+ * Plain loop kernels, used when the Vector API is unavailable or disabled
+ */
+final class ScalarKernels implements Kernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public void add(double[] a, int aOffset, double[] b, int bOffset, double[] r, int rOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			r[rOffset + i] = a[aOffset + i] + b[bOffset + i];
+		}
+	}
+
+	@Override
+	public void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] r, int rOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			r[rOffset + i] = a[aOffset + i] * b[bOffset + i];
+		}
+	}
+
+	@Override
+	public void scale(double c, double[] a, int aOffset, double[] r, int rOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			r[rOffset + i] = a[aOffset + i] * c;
+		}
+	}
+
+	@Override
+	public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	public void axpy4(double a0, double a1, double a2, double a3, double[] x, int xOffset,
+			double[] y, int y0, int y1, int y2, int y3, int n) {
+
+		for (int i = 0; i < n; i++) {
+			double xi = x[xOffset + i];
+			y[y0 + i] += a0 * xi;
+			y[y1 + i] += a1 * xi;
+			y[y2 + i] += a2 * xi;
+			y[y3 + i] += a3 * xi;
+		}
+	}
+
+	@Override
+	public double dot(double[] x, int xOffset, double[] y, int yOffset, int n) {
+		// Four partial sums so the additions do not wait on each other
+		double s0 = 0;
+		double s1 = 0;
+		double s2 = 0;
+		double s3 = 0;
+		int i = 0;
+
+		for (; i + 3 < n; i += 4) {
+			s0 += x[xOffset + i] * y[yOffset + i];
+			s1 += x[xOffset + i + 1] * y[yOffset + i + 1];
+			s2 += x[xOffset + i + 2] * y[yOffset + i + 2];
+			s3 += x[xOffset + i + 3] * y[yOffset + i + 3];
+		}
+
+		for (; i < n; i++) {
+			s0 += x[xOffset + i] * y[yOffset + i];
+		}
+
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	@Override
+	public void dot4(double alpha, double[] x, int xOffset, double[] y, int y0, int y1, int y2, int y3, int n, double[] dst, int dstOffset) {
+		double s0 = 0;
+		double s1 = 0;
+		double s2 = 0;
+		double s3 = 0;
+
+		for (int i = 0; i < n; i++) {
+			double xi = x[xOffset + i];
+			s0 += xi * y[y0 + i];
+			s1 += xi * y[y1 + i];
+			s2 += xi * y[y2 + i];
+			s3 += xi * y[y3 + i];
+		}
+
+		dst[dstOffset] += alpha * s0;
+		dst[dstOffset + 1] += alpha * s1;
+		dst[dstOffset + 2] += alpha * s2;
+		dst[dstOffset + 3] += alpha * s3;
+	}
+
+	@Override
+	public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	public void axpy4(float a0, float a1, float a2, float a3, float[] x, int xOffset,
+			float[] y, int y0, int y1, int y2, int y3, int n) {
+
+		for (int i = 0; i < n; i++) {
+			float xi = x[xOffset + i];
+			y[y0 + i] += a0 * xi;
+			y[y1 + i] += a1 * xi;
+			y[y2 + i] += a2 * xi;
+			y[y3 + i] += a3 * xi;
+		}
+	}
+
+	@Override
+	public float dot(float[] x, int xOffset, float[] y, int yOffset, int n) {
+		float s0 = 0;
+		float s1 = 0;
+		float s2 = 0;
+		float s3 = 0;
+		int i = 0;
+
+		for (; i + 3 < n; i += 4) {
+			s0 += x[xOffset + i] * y[yOffset + i];
+			s1 += x[xOffset + i + 1] * y[yOffset + i + 1];
+			s2 += x[xOffset + i + 2] * y[yOffset + i + 2];
+			s3 += x[xOffset + i + 3] * y[yOffset + i + 3];
+		}
+
+		for (; i < n; i++) {
+			s0 += x[xOffset + i] * y[yOffset + i];
+		}
+
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	@Override
+	public void dot4(float alpha, float[] x, int xOffset, float[] y, int y0, int y1, int y2, int y3, int n, float[] dst, int dstOffset) {
+		float s0 = 0;
+		float s1 = 0;
+		float s2 = 0;
+		float s3 = 0;
+
+		for (int i = 0; i < n; i++) {
+			float xi = x[xOffset + i];
+			s0 += xi * y[y0 + i];
+			s1 += xi * y[y1 + i];
+			s2 += xi * y[y2 + i];
+			s3 += xi * y[y3 + i];
+		}
+
+		dst[dstOffset] += alpha * s0;
+		dst[dstOffset + 1] += alpha * s1;
+		dst[dstOffset + 2] += alpha * s2;
+		dst[dstOffset + 3] += alpha * s3;
+	}
+
+	@Override
+	public void sigmoid(double[] z, int zOffset, double[] a, int aOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			a[aOffset + i] = 1 / (1 + Math.exp(-z[zOffset + i]));
+		}
+	}
+
+	@Override
+	public void sigmoidBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			double ai = a[aOffset + i];
+			gradient[gradientOffset + i] *= ai * (1 - ai);
+		}
+	}
+
+	@Override
+	public void tanh(double[] z, int zOffset, double[] a, int aOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			a[aOffset + i] = Math.tanh(z[zOffset + i]);
+		}
+	}
+
+	@Override
+	public void tanhBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			double ai = a[aOffset + i];
+			gradient[gradientOffset + i] *= 1 - ai * ai;
+		}
+	}
+
+	@Override
+	public void relu(double[] z, int zOffset, double[] a, int aOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			a[aOffset + i] = Math.max(0, z[zOffset + i]);
+		}
+	}
+
+	@Override
+	public void reluBackward(double[] a, int aOffset, double[] gradient, int gradientOffset, int n) {
+		for (int i = 0; i < n; i++) {
+			gradient[gradientOffset + i] = a[aOffset + i] > 0 ? gradient[gradientOffset + i] : 0;
+		}
+	}
+
+}
@@ -0,0 +1,317 @@
+package Matrices;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matrix in compressed sparse row (CSR) form: the non-zero entries row by row, each with its column, and the position
+ * in those arrays where every row starts.
+ * <p>
+ * A sparse matrix is also a reusable buffer: packing a batch into it reshapes it to the batch and only reallocates
+ * the entry arrays when they are too small. Batches of samples are packed one sample per row, the transpose of the
+ * dense one-sample-per-column layout, so that each sample's entries sit together.
+ * @author Michael Luger
+ */
+public class SparseMatrix {
+	private int rows;
+	private final int cols;
+
+	/**
+	 * Start of each row in columns and values, with the end of the last row at index rows
+	 */
+	private int[] rowPointers;
+	private int[] columns;
+	private double[] values;
+
+	/**
+	 * Empty matrix constructor
+	 * @param rows Rows in the matrix
+	 * @param cols Columns in the matrix
+	 */
+	public SparseMatrix(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		this.rowPointers = new int[rows + 1];
+		this.columns = new int[0];
+		this.values = new double[0];
+	}
+
+	/**
+	 * Wraps CSR arrays without copying them
+	 * @param rows Rows in the matrix
+	 * @param cols Columns in the matrix
+	 * @param rowPointers Start of every row in the entry arrays, followed by the number of entries
+	 * @param columns Column of every entry, ascending within a row
+	 * @param values Every entry
+	 * @throws IllegalArgumentException If the arrays do not describe a rows x cols matrix
+	 */
+	public SparseMatrix(int rows, int cols, int[] rowPointers, int[] columns, double[] values) throws IllegalArgumentException {
+		if (rowPointers.length < rows + 1 || rowPointers[0] != 0) {
+			throw new IllegalArgumentException("Row pointers must start at 0 and hold one more entry than the rows");
+		} else if (columns.length < rowPointers[rows] || values.length < rowPointers[rows]) {
+			throw new IllegalArgumentException("Entry arrays too short for " + rowPointers[rows] + " non-zeros");
+		}
+
+		for (int row = 0; row < rows; row++) {
+			if (rowPointers[row + 1] < rowPointers[row]) {
+				throw new IllegalArgumentException("Row pointers must not decrease");
+			}
+
+			for (int p = rowPointers[row]; p < rowPointers[row + 1]; p++) {
+				if (columns[p] < 0 || columns[p] >= cols) {
+					throw new IllegalArgumentException("Column " + columns[p] + " out of range in row " + row);
+				}
+			}
+		}
+
+		this.rows = rows;
+		this.cols = cols;
+		this.rowPointers = rowPointers;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/**
+	 * Keeps the non-zero entries of a dense matrix
+	 * @param m Matrix to compress
+	 */
+	public static SparseMatrix fromDense(Matrix m) {
+		SparseMatrix result = new SparseMatrix(m.getRows(), m.getCols());
+		double[] data = m.getData();
+		int nonZeros = countNonZeros(m);
+
+		result.ensureCapacity(nonZeros);
+
+		for (int row = 0, k = 0; row < m.getRows(); row++) {
+			for (int col = 0; col < m.getCols(); col++) {
+				double value = data[m.index(row, col)];
+
+				if (value != 0) {
+					result.columns[k] = col;
+					result.values[k++] = value;
+				}
+			}
+
+			result.rowPointers[row + 1] = k;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Counts the non-zero entries of a dense matrix
+	 */
+	public static int countNonZeros(Matrix m) {
+		double[] data = m.getData();
+		int nonZeros = 0;
+
+		for (int row = 0; row < m.getRows(); row++) {
+			for (int col = 0; col < m.getCols(); col++) {
+				if (data[m.index(row, col)] != 0) {
+					nonZeros++;
+				}
+			}
+		}
+
+		return nonZeros;
+	}
+
+	/**
+	 * Packs the transpose of a dense matrix, so that each of its columns becomes a sparse row
+	 * @param m Matrix of size (cols x batch size), e.g. a batch of inputs stored one sample per column
+	 * @throws MatrixDimensionException If the rows of m differ from the columns of this matrix
+	 */
+	public void packTranspose(Matrix m) throws MatrixDimensionException {
+		this.countTranspose(m);
+		this.fillTranspose(m);
+	}
+
+	/**
+	 * Packs the transpose of a dense matrix, as {@link #packTranspose(Matrix)} does, if few enough of its entries are
+	 * non-zero. The entries are counted once, and the count is kept for packing them.
+	 * @param m Matrix of size (cols x batch size), e.g. a batch of inputs stored one sample per column
+	 * @param maxDensity Fraction of entries that must be non-zero for m to be left dense
+	 * @return Whether m was packed; if not, this matrix is left empty
+	 * @throws MatrixDimensionException If the rows of m differ from the columns of this matrix
+	 */
+	public boolean packTranspose(Matrix m, double maxDensity) throws MatrixDimensionException {
+		int nonZeros = this.countTranspose(m);
+
+		if (nonZeros >= maxDensity * m.getRows() * m.getCols()) {
+			this.reshape(0);
+			return false;
+		}
+
+		this.fillTranspose(m);
+		return true;
+	}
+
+	/**
+	 * Reshapes the matrix to the transpose of m and sets the row pointers from the non-zero entries of each column of
+	 * m, counted in one pass along its rows
+	 * @return The number of non-zero entries
+	 */
+	private int countTranspose(Matrix m) throws MatrixDimensionException {
+		if (m.getRows() != this.cols) {
+			throw new MatrixDimensionException("Matrix dimensions unequal");
+		}
+
+		double[] data = m.getData();
+
+		this.reshape(m.getCols());
+		Arrays.fill(this.rowPointers, 0, this.rows + 1, 0);
+
+		for (int row = 0; row < m.getRows(); row++) {
+			for (int col = 0; col < m.getCols(); col++) {
+				if (data[m.index(row, col)] != 0) {
+					this.rowPointers[col + 1]++;
+				}
+			}
+		}
+
+		for (int row = 0; row < this.rows; row++) {
+			this.rowPointers[row + 1] += this.rowPointers[row];
+		}
+
+		return this.rowPointers[this.rows];
+	}
+
+	/**
+	 * Scatters the non-zero entries of m into the rows counted by {@link #countTranspose(Matrix)}, again along the rows
+	 * of m, so that every sparse row's columns come out ascending
+	 */
+	private void fillTranspose(Matrix m) {
+		double[] data = m.getData();
+
+		this.ensureCapacity(this.rowPointers[this.rows]);
+
+		// Each row pointer serves as its row's insertion point, ending up at the start of the next row
+		for (int col = 0; col < this.cols; col++) {
+			for (int row = 0; row < this.rows; row++) {
+				double value = data[m.index(col, row)];
+
+				if (value != 0) {
+					int k = this.rowPointers[row]++;
+					this.columns[k] = col;
+					this.values[k] = value;
+				}
+			}
+		}
+
+		System.arraycopy(this.rowPointers, 0, this.rowPointers, 1, this.rows);
+		this.rowPointers[0] = 0;
+	}
+
+	/**
+	 * Packs sparse vectors one per row
+	 * @param vectors Vectors of length equal to the columns of this matrix
+	 * @throws MatrixDimensionException If a vector's length differs from the columns of this matrix
+	 */
+	public void packRows(List<SparseVector> vectors) throws MatrixDimensionException {
+		int nonZeros = 0;
+
+		for (SparseVector vector : vectors) {
+			if (vector.getLength() != this.cols) {
+				throw new MatrixDimensionException("Matrix dimensions unequal");
+			}
+
+			nonZeros += vector.getNonZeros();
+		}
+
+		this.reshape(vectors.size());
+		this.ensureCapacity(nonZeros);
+
+		for (int row = 0, k = 0; row < this.rows; row++) {
+			SparseVector vector = vectors.get(row);
+
+			System.arraycopy(vector.getIndices(), 0, this.columns, k, vector.getNonZeros());
+			System.arraycopy(vector.getValues(), 0, this.values, k, vector.getNonZeros());
+			k += vector.getNonZeros();
+			this.rowPointers[row + 1] = k;
+		}
+	}
+
+	/**
+	 * Writes the transpose of the matrix into a dense matrix, undoing {@link #packTranspose(Matrix)}
+	 * @param dst Matrix of size (cols x rows)
+	 * @throws MatrixDimensionException If dst is not the size of the transpose
+	 */
+	public void unpackTranspose(Matrix dst) throws MatrixDimensionException {
+		if (dst.getRows() != this.cols || dst.getCols() != this.rows) {
+			throw new MatrixDimensionException("Matrix dimensions unequal");
+		}
+
+		double[] data = dst.getData();
+		dst.fill(0);
+
+		for (int row = 0; row < this.rows; row++) {
+			for (int p = this.rowPointers[row]; p < this.rowPointers[row + 1]; p++) {
+				data[dst.index(this.columns[p], row)] = this.values[p];
+			}
+		}
+	}
+
+	/**
+	 * Expands the matrix into a dense one
+	 */
+	public Matrix toDense() {
+		Matrix result = new Matrix(this.rows, this.cols);
+		double[] data = result.getData();
+
+		for (int row = 0; row < this.rows; row++) {
+			for (int p = this.rowPointers[row]; p < this.rowPointers[row + 1]; p++) {
+				data[row * this.cols + this.columns[p]] = this.values[p];
+			}
+		}
+
+		return result;
+	}
+
+	private void reshape(int rows) {
+		if (this.rowPointers.length < rows + 1) {
+			this.rowPointers = new int[rows + 1];
+		}
+
+		this.rows = rows;
+	}
+
+	private void ensureCapacity(int nonZeros) {
+		if (this.values.length < nonZeros) {
+			int capacity = Math.max(nonZeros, this.values.length + (this.values.length >> 1));
+
+			this.columns = Arrays.copyOf(this.columns, capacity);
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getCols() {
+		return this.cols;
+	}
+
+	public int getNonZeros() {
+		return this.rowPointers[this.rows];
+	}
+
+	/**
+	 * Gets the fraction of entries that are non-zero
+	 */
+	public double getDensity() {
+		return this.rows == 0 || this.cols == 0 ? 0 : (double) this.getNonZeros() / ((long) this.rows * this.cols);
+	}
+
+	public int[] getRowPointers() {
+		return this.rowPointers;
+	}
+
+	public int[] getColumns() {
+		return this.columns;
+	}
+
+	public double[] getValues() {
+		return this.values;
+	}
+}
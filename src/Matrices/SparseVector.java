@@ -0,0 +1,96 @@
+package Matrices;
+
+/**
+ * Vector storing only its non-zero entries, as ascending indices and the values at them
+ * @author Michael Luger
+ */
+public class SparseVector {
+	private final int length;
+	private final int[] indices;
+	private final double[] values;
+
+	/**
+	 * Wraps arrays of indices and values without copying them
+	 * @param length Length of the dense vector
+	 * @param indices Ascending positions of the non-zero entries
+	 * @param values Entries at those positions
+	 * @throws IllegalArgumentException If the arrays differ in length or an index is out of range
+	 */
+	public SparseVector(int length, int[] indices, double[] values) throws IllegalArgumentException {
+		if (indices.length != values.length) {
+			throw new IllegalArgumentException("Sparse vector has " + indices.length + " indices but " + values.length + " values");
+		}
+
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] < 0 || indices[i] >= length || (i > 0 && indices[i] <= indices[i - 1])) {
+				throw new IllegalArgumentException("Sparse vector indices must ascend within [0, " + length + ")");
+			}
+		}
+
+		this.length = length;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	/**
+	 * Keeps the non-zero entries of a dense vector
+	 * @param dense Entries of the vector
+	 */
+	public static SparseVector fromDense(double[] dense) {
+		int nonZeros = 0;
+
+		for (double value : dense) {
+			if (value != 0) {
+				nonZeros++;
+			}
+		}
+
+		int[] indices = new int[nonZeros];
+		double[] values = new double[nonZeros];
+
+		for (int i = 0, k = 0; i < dense.length; i++) {
+			if (dense[i] != 0) {
+				indices[k] = i;
+				values[k++] = dense[i];
+			}
+		}
+
+		return new SparseVector(dense.length, indices, values);
+	}
+
+	public int getLength() {
+		return this.length;
+	}
+
+	public int getNonZeros() {
+		return this.indices.length;
+	}
+
+	/**
+	 * Gets the fraction of entries that are non-zero
+	 */
+	public double getDensity() {
+		return this.length == 0 ? 0 : (double) this.indices.length / this.length;
+	}
+
+	public int[] getIndices() {
+		return this.indices;
+	}
+
+	public double[] getValues() {
+		return this.values;
+	}
+
+	/**
+	 * Expands the vector into a dense array
+	 */
+	public double[] toDense() {
+		double[] dense = new double[this.length];
+
+		for (int i = 0; i < this.indices.length; i++) {
+			dense[this.indices[i]] = this.values[i];
+		}
+
+		return dense;
+	}
+}
@@ -0,0 +1,150 @@
+package Matrices;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestKernels {
+
+	private static final double EPSILON = 1e-12;
+
+	// Odd length so that every kernel runs both whole vectors and a scalar tail
+	private static final int LENGTH = 203;
+
+	private Kernels scalar;
+	private Kernels vector;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		assumeTrue("jdk.incubator.vector not present", Backends.isVectorAvailable());
+
+		this.scalar = Backends.scalar();
+		this.vector = Backends.vector();
+		this.random = new Random(3);
+	}
+
+	@Test
+	public void testElementWiseKernelsAgree() {
+		double[] a = this.randomArray(LENGTH + 3);
+		double[] b = this.randomArray(LENGTH + 5);
+
+		double[] expected = new double[LENGTH];
+		double[] actual = new double[LENGTH];
+
+		this.scalar.add(a, 3, b, 5, expected, 0, LENGTH);
+		this.vector.add(a, 3, b, 5, actual, 0, LENGTH);
+		assertArrayEquals(expected, actual, EPSILON);
+
+		this.scalar.multiply(a, 3, b, 5, expected, 0, LENGTH);
+		this.vector.multiply(a, 3, b, 5, actual, 0, LENGTH);
+		assertArrayEquals(expected, actual, EPSILON);
+
+		this.scalar.scale(-1.5, a, 3, expected, 0, LENGTH);
+		this.vector.scale(-1.5, a, 3, actual, 0, LENGTH);
+		assertArrayEquals(expected, actual, EPSILON);
+
+		this.scalar.axpy(0.25, b, 5, expected, 0, LENGTH);
+		this.vector.axpy(0.25, b, 5, actual, 0, LENGTH);
+		assertArrayEquals(expected, actual, EPSILON);
+
+		assertEquals(this.scalar.dot(a, 3, b, 5, LENGTH), this.vector.dot(a, 3, b, 5, LENGTH), 1e-9);
+	}
+
+	@Test
+	public void testActivationKernelsAgree() {
+		double[] z = this.randomArray(LENGTH);
+		double[] gradient = this.randomArray(LENGTH);
+
+		String[] names = { "sigmoid", "tanh", "relu" };
+
+		for (String name : names) {
+			double[] expected = new double[LENGTH];
+			double[] actual = new double[LENGTH];
+
+			forward(this.scalar, name, z, expected);
+			forward(this.vector, name, z, actual);
+			assertArrayEquals(name, expected, actual, 1e-14);
+
+			double[] expectedGradient = gradient.clone();
+			double[] actualGradient = gradient.clone();
+
+			backward(this.scalar, name, expected, expectedGradient);
+			backward(this.vector, name, expected, actualGradient);
+			assertArrayEquals(name, expectedGradient, actualGradient, EPSILON);
+		}
+	}
+
+	@Test
+	public void testMatrixProductsAgree() throws Exception {
+		Kernels previous = Backends.get();
+		Matrix a = new Matrix(37, 61, this.randomArray(37 * 61));
+		Matrix b = new Matrix(61, 29, this.randomArray(61 * 29));
+		FloatMatrix fa = new FloatMatrix(a);
+		FloatMatrix fb = new FloatMatrix(b);
+
+		try {
+			Backends.set(this.scalar);
+			Matrix expected = Matrix.matrixMultiply(a, b);
+			Matrix expectedDot = Matrix.matrixMultiply(a, Matrix.transpose(b).transposeView());
+			FloatMatrix expectedFloat = new FloatMatrix(37, 29);
+			FloatMatrix.gemm(1, fa, fb, 0, expectedFloat);
+
+			Backends.set(this.vector);
+			Matrix actual = Matrix.matrixMultiply(a, b);
+			Matrix actualDot = Matrix.matrixMultiply(a, Matrix.transpose(b).transposeView());
+			FloatMatrix actualFloat = new FloatMatrix(37, 29);
+			FloatMatrix.gemm(1, fa, fb, 0, actualFloat);
+
+			for (int i = 0; i < 37; i++) {
+				for (int j = 0; j < 29; j++) {
+					assertEquals(expected.getEntry(i, j), actual.getEntry(i, j), 1e-9);
+					assertEquals(expectedDot.getEntry(i, j), actualDot.getEntry(i, j), 1e-9);
+					assertEquals(expectedFloat.getEntry(i, j), actualFloat.getEntry(i, j), 1e-3);
+				}
+			}
+		} finally {
+			Backends.set(previous);
+		}
+	}
+
+	private static void forward(Kernels kernels, String name, double[] z, double[] a) {
+		switch (name) {
+		case "sigmoid":
+			kernels.sigmoid(z, 0, a, 0, z.length);
+			break;
+		case "tanh":
+			kernels.tanh(z, 0, a, 0, z.length);
+			break;
+		default:
+			kernels.relu(z, 0, a, 0, z.length);
+		}
+	}
+
+	private static void backward(Kernels kernels, String name, double[] a, double[] gradient) {
+		switch (name) {
+		case "sigmoid":
+			kernels.sigmoidBackward(a, 0, gradient, 0, a.length);
+			break;
+		case "tanh":
+			kernels.tanhBackward(a, 0, gradient, 0, a.length);
+			break;
+		default:
+			kernels.reluBackward(a, 0, gradient, 0, a.length);
+		}
+	}
+
+	private double[] randomArray(int length) {
+		double[] array = new double[length];
+
+		for (int i = 0; i < length; i++) {
+			array[i] = 4 * this.random.nextGaussian();
+		}
+
+		return array;
+	}
+}
@@ -0,0 +1,333 @@
+package Matrices;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class TestMatrix {
+
+	private static final double EPSILON = 1e-12;
+
+	@Test
+	public void testViewsShareEntries() {
+		Matrix m = new Matrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+
+		Matrix row = m.getRow(1);
+		Matrix col = m.getColumn(2);
+
+		assertEquals(1, row.getRows());
+		assertEquals(3, row.getCols());
+		assertEquals(5, row.getEntry(0, 1), EPSILON);
+		assertEquals(2, col.getRows());
+		assertEquals(6, col.getEntry(1, 0), EPSILON);
+
+		col.setEntry(0, 0, 7);
+		assertEquals(7, m.getEntry(0, 2), EPSILON);
+		assertFalse(col.isContiguous());
+		assertTrue(row.isContiguous());
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testEntryOutOfBounds() {
+		new Matrix(2, 3).getEntry(0, 3);
+	}
+
+	@Test
+	public void testOperationsOnViews() throws Exception {
+		Matrix m = new Matrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 9 } });
+		Matrix block = m.subMatrix(1, 1, 2, 2);
+
+		assertMatrixEquals(new double[][] { { 10, 12 }, { 16, 18 } }, Matrix.matrixAdd(block, block));
+		assertMatrixEquals(new double[][] { { 25, 36 }, { 64, 81 } }, Matrix.hadamardProduct(block, block));
+		assertMatrixEquals(new double[][] { { 5, 8 }, { 6, 9 } }, Matrix.transpose(block));
+		assertMatrixEquals(new double[][] { { 73, 84 }, { 112, 129 } }, Matrix.matrixMultiply(block, block));
+		assertMatrixEquals(new double[][] { { 14 }, { 32 }, { 50 } }, Matrix.matrixMultiply(m, Matrix.transpose(m.getRow(0))));
+	}
+
+	@Test
+	public void testBlockedMultiplyMatchesNaive() throws Exception {
+		int tileSize = Gemm.getTileSize();
+		long threshold = Gemm.getParallelThreshold();
+		Random random = new Random(42);
+		Matrix a = randomMatrix(random, 131, 77);
+		Matrix b = randomMatrix(random, 77, 45);
+
+		try {
+			Gemm.setTileSize(16);
+			Gemm.setParallelThreshold(0);
+			Matrix parallel = Matrix.matrixMultiply(a, b);
+
+			Gemm.setParallelThreshold(Long.MAX_VALUE);
+			Matrix serial = Matrix.matrixMultiply(a, b);
+
+			for (int i = 0; i < a.getRows(); i++) {
+				for (int j = 0; j < b.getCols(); j++) {
+					double expected = 0;
+
+					for (int k = 0; k < a.getCols(); k++) {
+						expected += a.getEntry(i, k) * b.getEntry(k, j);
+					}
+
+					assertEquals(expected, serial.getEntry(i, j), 1e-9);
+					assertEquals(expected, parallel.getEntry(i, j), 1e-9);
+				}
+			}
+		} finally {
+			Gemm.setTileSize(tileSize);
+			Gemm.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	public void testParallelMatchesSerialAtLayerShape() throws Exception {
+		long threshold = Gemm.getParallelThreshold();
+		ForkJoinPool pool = Gemm.getPool();
+		ForkJoinPool workers = new ForkJoinPool(4);
+		Random random = new Random(5);
+
+		// A 30 neuron layer over a batch of 256 MNIST inputs: a single row block, so only a column split is parallel
+		Matrix w = randomMatrix(random, 30, 784);
+		Matrix x = randomMatrix(random, 784, 256);
+		Matrix b = randomMatrix(random, 30, 1);
+		ArrayOperator tanh = (src, srcOffset, dst, dstOffset, length) -> {
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = Math.tanh(src[srcOffset + i]);
+			}
+		};
+
+		assertEquals(Gemm.getTileSize(), Gemm.columnGrain(30, 256, Gemm.getTileSize(), 4));
+		assertEquals(256, Gemm.columnGrain(1024, 256, Gemm.getTileSize(), 4));
+
+		try {
+			Gemm.setPool(workers);
+			Gemm.setParallelThreshold(0);
+			Matrix parallel = Matrix.matrixMultiply(w, x);
+			Matrix parallelDot = Matrix.matrixMultiply(w, Matrix.transpose(x).transposeView());
+			Matrix parallelLayer = new Matrix(30, 256);
+			Matrix.gemmBias(w, x, b, tanh, parallelLayer);
+			FloatMatrix parallelFloat = new FloatMatrix(30, 256);
+			FloatMatrix.gemm(1, new FloatMatrix(w), new FloatMatrix(x), 0, parallelFloat);
+
+			Gemm.setParallelThreshold(Long.MAX_VALUE);
+			Matrix serial = Matrix.matrixMultiply(w, x);
+			Matrix serialLayer = new Matrix(30, 256);
+			Matrix.gemmBias(w, x, b, tanh, serialLayer);
+			FloatMatrix serialFloat = new FloatMatrix(30, 256);
+			FloatMatrix.gemm(1, new FloatMatrix(w), new FloatMatrix(x), 0, serialFloat);
+
+			for (int i = 0; i < 30; i++) {
+				for (int j = 0; j < 256; j++) {
+					assertEquals(serial.getEntry(i, j), parallel.getEntry(i, j), EPSILON);
+					assertEquals(serial.getEntry(i, j), parallelDot.getEntry(i, j), 1e-9);
+					assertEquals(serialLayer.getEntry(i, j), parallelLayer.getEntry(i, j), EPSILON);
+					assertEquals(serialFloat.getEntry(i, j), parallelFloat.getEntry(i, j), 1e-5);
+				}
+			}
+		} finally {
+			Gemm.setPool(pool);
+			Gemm.setParallelThreshold(threshold);
+			workers.shutdown();
+		}
+	}
+
+	@Test
+	public void testInPlaceVariants() throws Exception {
+		Matrix a = new Matrix(new double[][] { { 1, 2 }, { 3, 4 } });
+		Matrix b = new Matrix(new double[][] { { 5, 6 }, { 7, 8 } });
+		Matrix c = new Matrix(new double[][] { { 1, 1 }, { 1, 1 } });
+
+		Matrix.gemm(2, a, b, 3, c);
+		assertMatrixEquals(new double[][] { { 41, 47 }, { 89, 103 } }, c);
+
+		Matrix.axpy(-1, a, b);
+		assertMatrixEquals(new double[][] { { 4, 4 }, { 4, 4 } }, b);
+
+		Matrix.hadamardInto(b, b, a);
+		assertMatrixEquals(new double[][] { { 4, 8 }, { 12, 16 } }, b);
+
+		Matrix.addInto(a.getColumn(1), a.getColumn(0), a.getColumn(1));
+		assertMatrixEquals(new double[][] { { 1, 3 }, { 3, 7 } }, a);
+
+		Matrix.transposeInto(c, a);
+		assertMatrixEquals(new double[][] { { 1, 3 }, { 3, 7 } }, c);
+	}
+
+	@Test
+	public void testMultiplyByTransposeView() throws Exception {
+		Matrix m = randomMatrix(new Random(7), 9, 13);
+		Matrix expected = Matrix.matrixMultiply(m, Matrix.transpose(m));
+		Matrix actual = new Matrix(9, 9);
+
+		Matrix.gemm(1, m, m.transposeView(), 0, actual);
+
+		for (int i = 0; i < 9; i++) {
+			for (int j = 0; j < 9; j++) {
+				assertEquals(expected.getEntry(i, j), actual.getEntry(i, j), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testFloatMultiplyMatchesDouble() throws Exception {
+		Random random = new Random(11);
+		Matrix a = randomMatrix(random, 70, 90);
+		Matrix b = randomMatrix(random, 40, 90);
+		Matrix expected = Matrix.matrixMultiply(a, b.transposeView());
+		FloatMatrix product = new FloatMatrix(70, 40);
+		FloatMatrix blocked = new FloatMatrix(70, 40);
+
+		FloatMatrix.gemm(1, new FloatMatrix(a), new FloatMatrix(b).transposeView(), 0, product);
+		FloatMatrix.gemm(1, new FloatMatrix(a), new FloatMatrix(Matrix.transpose(b)), 0, blocked);
+
+		Matrix widened = new Matrix(70, 40);
+		FloatMatrix.convertInto(widened, product);
+
+		for (int i = 0; i < 70; i++) {
+			for (int j = 0; j < 40; j++) {
+				assertEquals(expected.getEntry(i, j), widened.getEntry(i, j), 1e-4);
+				assertEquals(expected.getEntry(i, j), blocked.getEntry(i, j), 1e-4);
+			}
+		}
+	}
+
+	@Test
+	public void testSparseMultiplyMatchesDense() throws Exception {
+		Random random = new Random(13);
+		Matrix weights = randomMatrix(random, 7, 50);
+		Matrix delta = randomMatrix(random, 7, 9);
+		Matrix inputs = randomMatrix(random, 50, 9);
+
+		for (int i = 0; i < inputs.getData().length; i++) {
+			if (random.nextDouble() < 0.8) {
+				inputs.getData()[i] = 0;
+			}
+		}
+
+		SparseMatrix sparse = new SparseMatrix(4, 50);
+		sparse.packTranspose(inputs);
+
+		Matrix forward = new Matrix(7, 9);
+		Matrix gradient = new Matrix(7, 50);
+		Matrix.gemmTransposed(1, weights, sparse, 0, forward);
+		Matrix.gemm(1, delta, sparse, 0, gradient);
+
+		Matrix expectedForward = Matrix.matrixMultiply(weights, inputs);
+		Matrix expectedGradient = Matrix.matrixMultiply(delta, inputs.transposeView());
+
+		for (int i = 0; i < 7; i++) {
+			for (int j = 0; j < 9; j++) {
+				assertEquals(expectedForward.getEntry(i, j), forward.getEntry(i, j), EPSILON);
+			}
+
+			for (int j = 0; j < 50; j++) {
+				assertEquals(expectedGradient.getEntry(i, j), gradient.getEntry(i, j), EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testGemmBiasMatchesSeparatePasses() throws Exception {
+		Random random = new Random(17);
+		Matrix w = randomMatrix(random, 150, 40);
+		Matrix x = randomMatrix(random, 40, 9);
+		Matrix b = randomMatrix(random, 150, 1);
+		ArrayOperator square = (src, srcOffset, dst, dstOffset, length) -> {
+			for (int i = 0; i < length; i++) {
+				dst[dstOffset + i] = src[srcOffset + i] * src[srcOffset + i];
+			}
+		};
+
+		Matrix expected = Matrix.matrixMultiply(w, x);
+		Matrix.addColumnInto(expected, expected, b);
+		Matrix.applyInto(expected, square, expected);
+
+		Matrix fused = new Matrix(150, 9);
+		Matrix.gemmBias(w, x, b, square, fused);
+
+		Matrix strided = new Matrix(9, 150).transposeView();
+		Matrix.gemmBias(w, x, b, square, strided);
+
+		for (int i = 0; i < 150; i++) {
+			for (int j = 0; j < 9; j++) {
+				assertEquals(expected.getEntry(i, j), fused.getEntry(i, j), EPSILON);
+				assertEquals(expected.getEntry(i, j), strided.getEntry(i, j), EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testPackTransposeBelowDensity() throws Exception {
+		Random random = new Random(19);
+		Matrix inputs = randomMatrix(random, 30, 11);
+
+		for (int i = 0; i < inputs.getData().length; i++) {
+			if (random.nextDouble() < 0.7) {
+				inputs.getData()[i] = 0;
+			}
+		}
+
+		int nonZeros = SparseMatrix.countNonZeros(inputs);
+		double density = (double) nonZeros / (30 * 11);
+		SparseMatrix sparse = new SparseMatrix(4, 30);
+
+		// Left dense at or above the threshold, and empty rather than holding a stale batch
+		assertFalse(sparse.packTranspose(inputs, density));
+		assertEquals(0, sparse.getNonZeros());
+
+		assertTrue(sparse.packTranspose(inputs, density + 1e-9));
+		assertEquals(11, sparse.getRows());
+		assertEquals(nonZeros, sparse.getNonZeros());
+
+		// Every sparse row holds one input column, its columns ascending
+		for (int row = 0; row < 11; row++) {
+			for (int p = sparse.getRowPointers()[row] + 1; p < sparse.getRowPointers()[row + 1]; p++) {
+				assertTrue(sparse.getColumns()[p - 1] < sparse.getColumns()[p]);
+			}
+		}
+
+		Matrix unpacked = new Matrix(30, 11);
+		sparse.unpackTranspose(unpacked);
+		assertArrayEquals(inputs.getData(), unpacked.getData(), 0);
+
+		// A strided view packs the same as its copy
+		Matrix view = Matrix.transpose(inputs).transposeView();
+		SparseMatrix fromView = new SparseMatrix(0, 30);
+		fromView.packTranspose(view);
+		assertArrayEquals(Arrays.copyOf(sparse.getRowPointers(), 12), Arrays.copyOf(fromView.getRowPointers(), 12));
+		assertArrayEquals(Arrays.copyOf(sparse.getColumns(), nonZeros), Arrays.copyOf(fromView.getColumns(), nonZeros));
+		assertArrayEquals(Arrays.copyOf(sparse.getValues(), nonZeros), Arrays.copyOf(fromView.getValues(), nonZeros), 0);
+	}
+
+	@Test(expected = MatrixDimensionException.class)
+	public void testTransposeIntoWrongSize() throws Exception {
+		Matrix.transposeInto(new Matrix(2, 3), new Matrix(2, 3));
+	}
+
+	private static Matrix randomMatrix(Random random, int rows, int cols) {
+		Matrix m = new Matrix(rows, cols);
+
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				m.setEntry(i, j, random.nextGaussian());
+			}
+		}
+
+		return m;
+	}
+
+	private static void assertMatrixEquals(double[][] expected, Matrix actual) {
+		assertEquals(expected.length, actual.getRows());
+
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].length, actual.getCols());
+
+			for (int j = 0; j < expected[i].length; j++) {
+				assertEquals(expected[i][j], actual.getEntry(i, j), EPSILON);
+			}
+		}
+	}
+}
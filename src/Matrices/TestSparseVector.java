@@ -0,0 +1,86 @@
+package Matrices;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestSparseVector {
+
+	@Test
+	public void testFromDenseRoundTrip() {
+		double[] dense = { 0, 1.5, 0, 0, -2, 0, 3 };
+		SparseVector vector = SparseVector.fromDense(dense);
+
+		assertEquals(7, vector.getLength());
+		assertEquals(3, vector.getNonZeros());
+		assertArrayEquals(new int[] { 1, 4, 6 }, vector.getIndices());
+		assertArrayEquals(new double[] { 1.5, -2, 3 }, vector.getValues(), 0);
+		assertEquals(3.0 / 7, vector.getDensity(), 1e-15);
+		assertArrayEquals(dense, vector.toDense(), 0);
+	}
+
+	@Test
+	public void testEmpty() {
+		SparseVector zeros = SparseVector.fromDense(new double[5]);
+		assertEquals(0, zeros.getNonZeros());
+		assertEquals(0, zeros.getDensity(), 0);
+		assertArrayEquals(new double[5], zeros.toDense(), 0);
+
+		SparseVector none = new SparseVector(0, new int[0], new double[0]);
+		assertEquals(0, none.getDensity(), 0);
+		assertEquals(0, none.toDense().length);
+	}
+
+	@Test
+	public void testWrapsArrays() {
+		int[] indices = { 0, 2 };
+		double[] values = { 4, 5 };
+		SparseVector vector = new SparseVector(3, indices, values);
+
+		assertSame(indices, vector.getIndices());
+		assertSame(values, vector.getValues());
+		assertArrayEquals(new double[] { 4, 0, 5 }, vector.toDense(), 0);
+	}
+
+	@Test
+	public void testRejectsBadIndices() {
+		int[][] bad = { { 1, 1 }, { 2, 1 }, { -1, 0 }, { 0, 3 } };
+
+		for (int[] indices : bad) {
+			try {
+				new SparseVector(3, indices, new double[2]);
+				fail("Indices " + Arrays.toString(indices) + " accepted");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsMismatchedArrays() {
+		new SparseVector(3, new int[] { 0, 1 }, new double[1]);
+	}
+
+	@Test
+	public void testPackRows() throws Exception {
+		SparseMatrix m = new SparseMatrix(0, 4);
+		m.packRows(Arrays.asList(SparseVector.fromDense(new double[] { 0, 1, 0, 2 }), SparseVector.fromDense(new double[4]),
+				SparseVector.fromDense(new double[] { 3, 0, 0, 0 })));
+
+		assertEquals(3, m.getRows());
+		assertEquals(3, m.getNonZeros());
+		assertArrayEquals(new int[] { 0, 2, 2, 3 }, Arrays.copyOf(m.getRowPointers(), 4));
+
+		Matrix dense = m.toDense();
+		assertEquals(2, dense.getEntry(0, 3), 0);
+		assertEquals(0, dense.getEntry(1, 1), 0);
+		assertEquals(3, dense.getEntry(2, 0), 0);
+	}
+
+	@Test(expected = MatrixDimensionException.class)
+	public void testPackRowsWrongLength() throws Exception {
+		new SparseMatrix(0, 4).packRows(Arrays.asList(SparseVector.fromDense(new double[3])));
+	}
+}
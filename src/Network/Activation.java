@@ -0,0 +1,49 @@
+package Network;
+
+import Matrices.ArrayOperator;
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+import Matrices.MatrixDimensionException;
+
+/**
+ * Activation function of a layer, evaluated in bulk over a matrix of z values with one sample per column.
+ * The backward pass only needs the activations cached by the forward pass, never the z values.
+ */
+public interface Activation extends Layer {
+
+	/**
+	 * Evaluates the activation function: a = f(z)
+	 * @param z Weighted inputs of the layer
+	 * @param a Matrix receiving the activations, which may be z itself
+	 * @throws MatrixDimensionException If z and a differ in size
+	 */
+	void forward(Matrix z, Matrix a) throws MatrixDimensionException;
+
+	/**
+	 * Turns the gradient of the cost with respect to the activations into the gradient with respect to the z values,
+	 * in place. For element-wise functions this multiplies every entry by f'(z), computed from a.
+	 * @param a Activations computed by {@link #forward(Matrix, Matrix)}
+	 * @param gradient Gradient with respect to a, overwritten by the gradient with respect to z
+	 * @throws MatrixDimensionException If a and gradient differ in size
+	 */
+	void backward(Matrix a, Matrix gradient) throws MatrixDimensionException;
+
+	/**
+	 * Single precision counterpart of {@link #forward(Matrix, Matrix)}
+	 */
+	void forward(FloatMatrix z, FloatMatrix a) throws MatrixDimensionException;
+
+	/**
+	 * Single precision counterpart of {@link #backward(Matrix, Matrix)}
+	 */
+	void backward(FloatMatrix a, FloatMatrix gradient) throws MatrixDimensionException;
+
+	/**
+	 * Gets the kernel computing the function entry by entry, which lets a layer fuse it into its matrix product
+	 * @return The forward kernel, or null if the function is not element-wise, as with softmax over each column
+	 */
+	default ArrayOperator getForwardKernel() {
+		return null;
+	}
+
+}
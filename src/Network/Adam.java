@@ -0,0 +1,78 @@
+package Network;
+
+/**
+ * Adam, stepping along bias-corrected running means of the gradient and its square:
+ * m = b1 * m + (1 - b1) * g, v = b2 * v + (1 - b2) * g^2, w = w - eta * m' / (sqrt(v') + epsilon),
+ * where m' and v' are m and v divided by (1 - b1^t) and (1 - b2^t)
+ */
+public class Adam extends Optimizer {
+	private final double beta1;
+	private final double beta2;
+	private final double epsilon;
+
+	public Adam() {
+		this(0.9, 0.999, 1e-8, 0);
+	}
+
+	/**
+	 * @param beta1 Decay rate of the running mean of the gradient
+	 * @param beta2 Decay rate of the running mean of the squared gradient
+	 * @param epsilon Added to the root mean square to keep the division stable
+	 * @param weightDecay Strength of the L2 weight decay, zero for none
+	 */
+	public Adam(double beta1, double beta2, double epsilon, double weightDecay) {
+		super(weightDecay);
+
+		if (beta1 < 0 || beta1 >= 1 || beta2 < 0 || beta2 >= 1) {
+			throw new IllegalArgumentException("Decay rates must be in [0, 1)");
+		}
+
+		this.beta1 = beta1;
+		this.beta2 = beta2;
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	protected int getStateSize() {
+		return 2;
+	}
+
+	@Override
+	protected void update(double[] p, int pOffset, double[] g, int gOffset, double[][] state, int n,
+			double gradientScale, double learningRate, double decay) {
+
+		double[] m = state[0];
+		double[] v = state[1];
+		long t = Math.max(1, this.getSteps());
+		double correction1 = 1 / (1 - Math.pow(this.beta1, t));
+		double correction2 = 1 / (1 - Math.pow(this.beta2, t));
+
+		for (int i = 0; i < n; i++) {
+			double gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			m[i] = this.beta1 * m[i] + (1 - this.beta1) * gi;
+			v[i] = this.beta2 * v[i] + (1 - this.beta2) * gi * gi;
+			p[pOffset + i] -= learningRate * m[i] * correction1 / (Math.sqrt(v[i] * correction2) + this.epsilon);
+		}
+	}
+
+	@Override
+	protected void update(float[] p, int pOffset, float[] g, int gOffset, float[][] state, int n,
+			float gradientScale, float learningRate, float decay) {
+
+		float[] m = state[0];
+		float[] v = state[1];
+		long t = Math.max(1, this.getSteps());
+		float b1 = (float) this.beta1;
+		float b2 = (float) this.beta2;
+		float e = (float) this.epsilon;
+		float correction1 = (float) (1 / (1 - Math.pow(this.beta1, t)));
+		float correction2 = (float) (1 / (1 - Math.pow(this.beta2, t)));
+
+		for (int i = 0; i < n; i++) {
+			float gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			m[i] = b1 * m[i] + (1 - b1) * gi;
+			v[i] = b2 * v[i] + (1 - b2) * gi * gi;
+			p[pOffset + i] -= learningRate * m[i] * correction1 / ((float) Math.sqrt(v[i] * correction2) + e);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package Network;
+
+import Matrices.Matrix;
+
+/**
+ * Reusable mini-batch buffer holding inputs and expected outputs one sample per column.
+ * The backing arrays are allocated once for the largest batch, and rewrapped for smaller ones.
+ */
+public class Batch {
+	private final int inputSize;
+	private final int outputSize;
+	private final int capacity;
+	private final double[] inputData;
+	private final double[] expectationData;
+	private Matrix inputs;
+	private Matrix expectations;
+
+	/**
+	 * @param inputSize Rows of the input matrix
+	 * @param outputSize Rows of the expectation matrix
+	 * @param capacity Largest number of samples the batch can hold
+	 */
+	public Batch(int inputSize, int outputSize, int capacity) {
+		this.inputSize = inputSize;
+		this.outputSize = outputSize;
+		this.capacity = capacity;
+		this.inputData = new double[inputSize * capacity];
+		this.expectationData = new double[outputSize * capacity];
+		this.resize(capacity);
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Gets the number of samples currently in the batch
+	 */
+	public int size() {
+		return this.inputs.getCols();
+	}
+
+	/**
+	 * Sets the number of samples in the batch, reusing the same arrays
+	 * @param size New number of samples, at most the capacity
+	 * @throws IllegalArgumentException If the size is above the capacity
+	 */
+	public void resize(int size) throws IllegalArgumentException {
+		if (size > this.capacity) {
+			throw new IllegalArgumentException("Batch of " + size + " exceeds capacity " + this.capacity);
+		}
+
+		if (this.inputs == null || this.inputs.getCols() != size) {
+			this.inputs = new Matrix(this.inputSize, size, this.inputData);
+			this.expectations = new Matrix(this.outputSize, size, this.expectationData);
+		}
+	}
+
+	/**
+	 * Gets the inputs, of size (input size x batch size)
+	 */
+	public Matrix getInputs() {
+		return this.inputs;
+	}
+
+	/**
+	 * Gets the expected outputs, of size (output size x batch size)
+	 */
+	public Matrix getExpectations() {
+		return this.expectations;
+	}
+}
@@ -0,0 +1,31 @@
+package Network;
+
+/**
+ * Stream of mini-batches, one epoch after another.
+ * Implementations may reuse batch buffers, so a batch is only valid until the next call to {@link #next()}.
+ */
+public interface BatchSource extends AutoCloseable {
+
+	/**
+	 * Gets the next mini-batch of the current epoch
+	 * @return The next batch, or null once the epoch is over. The call after that starts the next epoch.
+	 * @throws InterruptedException If interrupted while waiting for the batch
+	 */
+	Batch next() throws InterruptedException;
+
+	/**
+	 * Gets the number of inputs in each sample
+	 */
+	int getInputSize();
+
+	/**
+	 * Gets the number of expected outputs in each sample
+	 */
+	int getOutputSize();
+
+	/**
+	 * Stops producing batches and releases any resources held
+	 */
+	@Override
+	void close();
+}
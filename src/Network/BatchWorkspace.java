@@ -0,0 +1,144 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import Matrices.Matrix;
+import Matrices.SparseMatrix;
+
+/**
+ * Buffers for a forward and backward pass over a mini-batch, stored one sample per column.
+ * The arrays are allocated once for the largest batch seen and rewrapped when a smaller batch comes through.
+ */
+class BatchWorkspace {
+	private final int[] sizes;
+	private final double[] dropout;
+	private final int capacity;
+	private int batchSize;
+
+	// Backing arrays, one per layer, large enough for capacity samples
+	private final double[][] activationData;
+	private final double[][] deltaData;
+	private final double[][] outputData;
+	private final double[][] maskData;
+	private final double[] inputData;
+	private final double[] expectationData;
+
+	// Views of the backing arrays for the current batch size. Index 0 of deltas is left unused.
+	Matrix inputs;
+	Matrix expectations;
+	final ArrayList<Matrix> activations = new ArrayList<>();
+	final ArrayList<Matrix> deltas = new ArrayList<>();
+
+	// Activations before dropout and the masks applied to them. A layer without dropout has no mask, and its
+	// outputs are its activations.
+	final ArrayList<Matrix> outputs = new ArrayList<>();
+	final ArrayList<Matrix> masks = new ArrayList<>();
+	final SplittableRandom random;
+
+	// The inputs one sample per row, used in place of the dense inputs by the first layer when sparse is set
+	final SparseMatrix sparseInputs;
+	boolean sparse;
+
+	// Patches and pooling positions of every convolutional connection, null for dense ones
+	final ArrayList<Convolution.Buffers> convolutionBuffers = new ArrayList<>();
+
+	// Gradients summed over the batch, shaped like the weights and biases
+	final ArrayList<Matrix> nablaW = new ArrayList<>();
+	final ArrayList<Matrix> nablaB = new ArrayList<>();
+
+	/**
+	 * @param sizes Number of neurons in each layer
+	 * @param convolutions Geometry of every connection, null for dense ones
+	 * @param dropout Dropout rate of each layer, 0 for none
+	 * @param capacity Most samples in a batch
+	 * @param random Stream the dropout masks are drawn from, owned by the workspace
+	 */
+	BatchWorkspace(int[] sizes, List<Convolution> convolutions, double[] dropout, int capacity, SplittableRandom random) {
+		this.sizes = sizes;
+		this.dropout = dropout;
+		this.capacity = capacity;
+		this.random = random;
+
+		this.activationData = new double[sizes.length][];
+		this.deltaData = new double[sizes.length][];
+		this.outputData = new double[sizes.length][];
+		this.maskData = new double[sizes.length][];
+
+		for (int i = 1; i < sizes.length; i++) {
+			this.activationData[i] = new double[sizes[i] * capacity];
+			this.deltaData[i] = new double[sizes[i] * capacity];
+
+			if (dropout[i] > 0) {
+				this.outputData[i] = new double[sizes[i] * capacity];
+				this.maskData[i] = new double[sizes[i] * capacity];
+			}
+		}
+
+		this.inputData = new double[sizes[0] * capacity];
+		this.sparseInputs = new SparseMatrix(capacity, sizes[0]);
+		this.expectationData = new double[sizes[sizes.length - 1] * capacity];
+
+		for (int i = 0; i < sizes.length - 1; i++) {
+			Convolution conv = convolutions.get(i);
+
+			this.nablaW.add(Network.weightMatrix(sizes, convolutions, i));
+			this.nablaB.add(Network.biasMatrix(sizes, convolutions, i));
+			this.convolutionBuffers.add(conv == null ? null : conv.newBuffers(capacity));
+		}
+
+		this.resize(capacity);
+	}
+
+	int getCapacity() {
+		return this.capacity;
+	}
+
+	int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Points every view at the first batchSize columns' worth of its backing array
+	 * @param batchSize Samples in the next batch, at most the capacity
+	 */
+	void resize(int batchSize) {
+		if (batchSize == this.batchSize) {
+			return;
+		}
+
+		this.batchSize = batchSize;
+		this.inputs = new Matrix(this.sizes[0], batchSize, this.inputData);
+		this.expectations = new Matrix(this.sizes[this.sizes.length - 1], batchSize, this.expectationData);
+
+		this.activations.clear();
+		this.deltas.clear();
+		this.outputs.clear();
+		this.masks.clear();
+
+		for (Convolution.Buffers buffers : this.convolutionBuffers) {
+			if (buffers != null) {
+				buffers.resize(batchSize);
+			}
+		}
+
+		for (int i = 0; i < this.sizes.length; i++) {
+			if (i == 0) {
+				this.activations.add(this.inputs);
+				this.deltas.add(null);
+			} else {
+				this.activations.add(new Matrix(this.sizes[i], batchSize, this.activationData[i]));
+				this.deltas.add(new Matrix(this.sizes[i], batchSize, this.deltaData[i]));
+			}
+
+			if (this.dropout[i] > 0) {
+				this.outputs.add(new Matrix(this.sizes[i], batchSize, this.outputData[i]));
+				this.masks.add(new Matrix(this.sizes[i], batchSize, this.maskData[i]));
+			} else {
+				this.outputs.add(this.activations.get(i));
+				this.masks.add(null);
+			}
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package Network;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import Matrices.Matrix;
+
+/**
+ * Versioned binary checkpoint of a network's parameters.
+ * <p>
+ * Layout, all little-endian: the magic number, the format version, the number of layers and the size of every
+ * layer as ints, the activation function of every layer after the input as an int code, the dropout rate of
+ * every layer as a double, the geometry of every connection as eight ints (input channels, height and width,
+ * filters, kernel size, stride, padding and pool size, all zero for a dense connection), then for each layer in turn
+ * its weights (row-major) and its biases as raw doubles. Every count and size in the header is checked before
+ * anything is allocated for it, so a corrupt file fails with an IOException rather than an OutOfMemoryError.
+ * Files are written through a FileChannel and read back by memory-mapping them, so loading is a bulk copy out of
+ * the page cache with no per-object decoding. A checkpoint is written to a temporary file beside the target and
+ * renamed over it once complete, so a reader or a crash mid-save never sees a partly written file.
+ */
+public final class Checkpoint {
+	/**
+	 * "NNCK" in ASCII
+	 */
+	public static final int MAGIC_NUMBER = 0x4E4E434B;
+	public static final int VERSION = 1;
+
+	/**
+	 * Activation functions a checkpoint can record, coded by their index
+	 */
+	private static final List<Class<? extends Activation>> ACTIVATIONS =
+			List.of(Sigmoid.class, Tanh.class, ReLU.class, Softmax.class, SoftmaxCrossEntropy.class);
+
+	/**
+	 * Header of a checkpoint: the shape of the network its parameters belong to
+	 */
+	static final class Header {
+		final int[] sizes;
+		final ArrayList<Activation> activations;
+		final double[] dropout;
+		final ArrayList<Convolution> convolutions;
+
+		Header(int[] sizes, ArrayList<Activation> activations, double[] dropout, ArrayList<Convolution> convolutions) {
+			this.sizes = sizes;
+			this.activations = activations;
+			this.dropout = dropout;
+			this.convolutions = convolutions;
+		}
+	}
+
+	/**
+	 * Header bytes of every layer (its size and dropout rate) and of every layer after the input (its activation and
+	 * its connection's geometry)
+	 */
+	private static final int LAYER_HEADER_BYTES = Integer.BYTES + Double.BYTES;
+	private static final int CONNECTION_HEADER_BYTES = Integer.BYTES + 8 * Integer.BYTES;
+
+	/**
+	 * Most entries a weight or bias matrix may hold, the largest array most JVMs allocate
+	 */
+	private static final long MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Size of the buffer the parameters are streamed through when writing
+	 */
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+	private Checkpoint() {
+
+	}
+
+	/**
+	 * Writes a network's layers, weights and biases to a file, atomically replacing it if it exists
+	 * @param network Network to save
+	 * @param path Path of the checkpoint file
+	 * @throws IOException If the file cannot be written, or the network uses an activation function of its own
+	 */
+	public static void write(Network network, String path) throws IOException {
+		for (Activation activation : network.layerActivations) {
+			if (!ACTIVATIONS.contains(activation.getClass())) {
+				throw new IOException(format("Cannot save activation %s", activation.getClass().getName()));
+			}
+		}
+
+		// The temporary file is in the same directory, so that the rename cannot cross file systems
+		Path target = Paths.get(path).toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+		try {
+			try (FileChannel chan = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				writeTo(chan, network);
+				chan.force(true);
+			}
+
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static void writeTo(FileChannel chan, Network network) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(MAGIC_NUMBER);
+		buffer.putInt(VERSION);
+		buffer.putInt(network.numLayers);
+
+		for (int size : network.sizes) {
+			buffer.putInt(size);
+		}
+
+		for (Activation activation : network.layerActivations) {
+			buffer.putInt(ACTIVATIONS.indexOf(activation.getClass()));
+		}
+
+		for (double rate : network.dropout) {
+			buffer.putDouble(rate);
+		}
+
+		for (Convolution conv : network.convolutions) {
+			if (conv == null) {
+				buffer.put(new byte[8 * Integer.BYTES]);
+			} else {
+				buffer.putInt(conv.channels).putInt(conv.height).putInt(conv.width).putInt(conv.filters)
+						.putInt(conv.kernel).putInt(conv.stride).putInt(conv.padding).putInt(conv.pool);
+			}
+		}
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			writeMatrix(chan, buffer, network.weights.get(i));
+			writeMatrix(chan, buffer, network.biases.get(i));
+		}
+
+		buffer.flip();
+		writeFully(chan, buffer);
+	}
+
+	/**
+	 * Appends a matrix's entries to the buffer in row-major order, bulk copying as much as fits at a time
+	 */
+	private static void writeMatrix(FileChannel chan, ByteBuffer buffer, Matrix m) throws IOException {
+		if (!m.isContiguous()) {
+			m = new Matrix(m, true);
+		}
+
+		double[] data = m.getData();
+		int from = m.getOffset();
+		int end = from + m.getRows() * m.getCols();
+
+		while (from < end) {
+			if (buffer.remaining() < Double.BYTES) {
+				buffer.flip();
+				writeFully(chan, buffer);
+				buffer.clear();
+			}
+
+			int n = Math.min(end - from, buffer.remaining() / Double.BYTES);
+			buffer.asDoubleBuffer().put(data, from, n);
+			buffer.position(buffer.position() + n * Double.BYTES);
+			from += n;
+		}
+	}
+
+	private static void writeFully(FileChannel chan, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			chan.write(buffer);
+		}
+	}
+
+	/**
+	 * Loads a network from a checkpoint file
+	 * @param path Path of the checkpoint file
+	 * @return A network with the saved layers, weights and biases
+	 * @throws IOException If the file cannot be read, or is not a checkpoint of a supported version
+	 */
+	public static Network read(String path) throws IOException {
+		try (FileChannel chan = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = chan.map(FileChannel.MapMode.READ_ONLY, 0, chan.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			Header header = readHeader(buffer, chan.size(), path);
+			int[] sizes = header.sizes;
+			int numLayers = sizes.length;
+			ArrayList<Matrix> weights = new ArrayList<>();
+			ArrayList<Matrix> biases = new ArrayList<>();
+
+			for (int i = 0; i < numLayers - 1; i++) {
+				weights.add(readMatrix(buffer, Network.weightMatrix(sizes, header.convolutions, i)));
+				biases.add(readMatrix(buffer, Network.biasMatrix(sizes, header.convolutions, i)));
+			}
+
+			return new Network(sizes, weights, biases, header.activations, header.convolutions, header.dropout, new SplittableRandom());
+		}
+	}
+
+	/**
+	 * Checks the header of a checkpoint and reads its layers, leaving the buffer at the first weight
+	 * @param buffer Little-endian buffer positioned at the start of the file
+	 * @param fileSize Size of the whole file in bytes
+	 * @param path Path of the file, for error messages
+	 * @return Number of neurons, activation function, dropout rate and geometry of each layer
+	 * @throws IOException If the buffer is not a checkpoint of a supported version, or its size does not match the layers
+	 */
+	static Header readHeader(ByteBuffer buffer, long fileSize, String path) throws IOException {
+		if (buffer.remaining() < 12 || buffer.getInt() != MAGIC_NUMBER) {
+			throw new IOException(format("%s is not a network checkpoint", path));
+		}
+
+		int version = buffer.getInt();
+
+		if (version != VERSION) {
+			throw new IOException(format("Unsupported checkpoint version %d in %s", version, path));
+		}
+
+		int numLayers = buffer.getInt();
+
+		// Checked against the bytes present before the layer arrays are allocated
+		if (numLayers < 1 || buffer.remaining() < (long) numLayers * LAYER_HEADER_BYTES + (long) (numLayers - 1) * CONNECTION_HEADER_BYTES) {
+			throw new IOException(format("%s has a corrupt header", path));
+		}
+
+		int[] sizes = new int[numLayers];
+
+		for (int i = 0; i < numLayers; i++) {
+			sizes[i] = buffer.getInt();
+
+			if (sizes[i] < 1) {
+				throw new IOException(format("%s has a layer of %d neurons", path, sizes[i]));
+			}
+		}
+
+		ArrayList<Activation> activations = new ArrayList<>();
+
+		for (int i = 0; i < numLayers - 1; i++) {
+			int code = buffer.getInt();
+
+			if (code < 0 || code >= ACTIVATIONS.size()) {
+				throw new IOException(format("Unknown activation %d in %s", code, path));
+			}
+
+			activations.add(activation(code));
+		}
+
+		double[] dropout = new double[numLayers];
+
+		for (int i = 0; i < numLayers; i++) {
+			dropout[i] = buffer.getDouble();
+
+			// Also rejects NaN
+			if (!(dropout[i] >= 0 && dropout[i] < 1)) {
+				throw new IOException(format("%s has a dropout rate of %s, outside [0, 1)", path, dropout[i]));
+			}
+		}
+
+		ArrayList<Convolution> convolutions = Network.dense(numLayers);
+
+		for (int i = 0; i < numLayers - 1; i++) {
+			int[] geometry = new int[8];
+
+			for (int j = 0; j < geometry.length; j++) {
+				geometry[j] = buffer.getInt();
+			}
+
+			if (geometry[0] != 0) {
+				convolutions.set(i, convolution(geometry, sizes, i, path));
+			}
+		}
+
+		long expected = 0;
+
+		for (int i = 0; i < numLayers - 1; i++) {
+			Convolution conv = convolutions.get(i);
+			long rows = conv == null ? sizes[i + 1] : conv.filters;
+			long cols = conv == null ? sizes[i] : conv.getPatchSize();
+
+			if (rows * cols > MAX_ENTRIES) {
+				throw new IOException(format("%s has a %dx%d weight matrix, too large to load", path, rows, cols));
+			}
+
+			expected += (rows * cols + rows) * Double.BYTES;
+		}
+
+		long remaining = fileSize - buffer.position();
+
+		if (remaining != expected) {
+			throw new IOException(format("%s holds %d bytes of parameters, expected %d", path, remaining, expected));
+		}
+
+		return new Header(sizes, activations, dropout, convolutions);
+	}
+
+	/**
+	 * Rebuilds a convolution from its recorded geometry, checking it against the sizes of the layers it joins
+	 */
+	private static Convolution convolution(int[] g, int[] sizes, int i, String path) throws IOException {
+		// The input's size is checked before the int sizes computed from it can overflow
+		if ((long) g[0] * g[1] * g[2] != sizes[i]) {
+			throw new IOException(format("%s has a corrupt convolution", path));
+		}
+
+		Convolution conv;
+
+		try {
+			conv = new Convolution(g[0], g[1], g[2], g[3], g[4], g[5], g[6], g[7]);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(format("%s has a corrupt convolution: %s", path, e.getMessage()));
+		}
+
+		if ((long) conv.filters * conv.pooledHeight * conv.pooledWidth != sizes[i + 1]) {
+			throw new IOException(format("%s has a corrupt convolution", path));
+		}
+
+		return conv;
+	}
+
+	private static Activation activation(int code) {
+		try {
+			return ACTIVATIONS.get(code).getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			// Every recorded activation has a public no-argument constructor
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a matrix's entries into it from the buffer's position
+	 */
+	private static Matrix readMatrix(ByteBuffer buffer, Matrix m) {
+		double[] data = m.getData();
+
+		buffer.asDoubleBuffer().get(data);
+		buffer.position(buffer.position() + data.length * Double.BYTES);
+
+		return m;
+	}
+}
@@ -0,0 +1,56 @@
+package Network;
+
+/**
+ * Convolutional layer: a bank of filters slid over the channels of an image, each producing a channel of the
+ * output. The layer before must have a known shape, either the network's input or another convolution.
+ * Like {@link Dense}, each Conv2D layer is followed by its activation, which must be element-wise.
+ */
+public class Conv2D implements Layer {
+	private final int filters;
+	private final int kernelSize;
+	private final int stride;
+	private final int padding;
+
+	/**
+	 * Creates a layer applying every filter at every position of the input, without padding
+	 * @param filters Number of filters, and of output channels
+	 * @param kernelSize Height and width of the filters
+	 */
+	public Conv2D(int filters, int kernelSize) {
+		this(filters, kernelSize, 1, 0);
+	}
+
+	/**
+	 * @param filters Number of filters, and of output channels
+	 * @param kernelSize Height and width of the filters
+	 * @param stride Step between the positions the filters are applied at
+	 * @param padding Zeros added around every edge of the input
+	 */
+	public Conv2D(int filters, int kernelSize, int stride, int padding) {
+		if (filters < 1 || kernelSize < 1 || stride < 1 || padding < 0) {
+			throw new IllegalArgumentException("Invalid convolution");
+		}
+
+		this.filters = filters;
+		this.kernelSize = kernelSize;
+		this.stride = stride;
+		this.padding = padding;
+	}
+
+	public int getFilters() {
+		return this.filters;
+	}
+
+	public int getKernelSize() {
+		return this.kernelSize;
+	}
+
+	public int getStride() {
+		return this.stride;
+	}
+
+	public int getPadding() {
+		return this.padding;
+	}
+
+}
@@ -0,0 +1,376 @@
+package Network;
+
+import java.util.Arrays;
+
+import Matrices.Backends;
+import Matrices.Matrix;
+import Matrices.MatrixDimensionException;
+import Matrices.MatrixMultiplicationException;
+
+/**
+ * Geometry and kernels of a convolutional connection: a {@link Conv2D} layer, optionally max-pooled.
+ * <p>
+ * Activations keep the network's layout of one sample per column, each column holding a sample's channels one
+ * after the other, every channel row by row. The convolution is lowered to one GEMM through im2col: every patch of
+ * the input is copied into a column of a (channels * kernel * kernel) x (positions * batch) matrix, ordered by
+ * position then sample, so that multiplying it by the (filters x channels * kernel * kernel) weights writes the
+ * outputs straight in the network's layout. The backward pass is two more GEMMs, with col2im adding the patches'
+ * errors back onto the input.
+ * <p>
+ * Pooling is applied to the z values, before the bias and the activation. The bias is shared by a filter's
+ * positions and the activation functions allowed after a convolution never decrease, so this gives the same
+ * result as pooling the activations while activating a quarter as many values for 2x2 pools.
+ */
+final class Convolution {
+	final int channels;
+	final int height;
+	final int width;
+	final int filters;
+	final int kernel;
+	final int stride;
+	final int padding;
+	final int pool;
+
+	final int outHeight;
+	final int outWidth;
+	final int pooledHeight;
+	final int pooledWidth;
+
+	// Scratch buffers of the inference path, one set per thread
+	private final ThreadLocal<Buffers> scratch = new ThreadLocal<>();
+
+	/**
+	 * Buffers kept between the forward and backward pass of a batch
+	 */
+	static final class Buffers {
+		private final Convolution conv;
+		private final int capacity;
+		private final double[] columnData;
+		private final double[] poolData;
+		private final int[] argmax;
+		private int batchSize;
+
+		// Patches of the input, one per column, and the convolution before pooling, both ordered by position then sample
+		Matrix columns;
+		Matrix pooling;
+
+		Buffers(Convolution conv, int capacity) {
+			this.conv = conv;
+			this.capacity = capacity;
+			this.columnData = new double[conv.getPatchSize() * conv.getPositions() * capacity];
+			this.poolData = conv.pool > 1 ? new double[conv.filters * conv.getPositions() * capacity] : null;
+			this.argmax = conv.pool > 1 ? new int[conv.getOutputSize() * capacity] : null;
+			this.resize(capacity);
+		}
+
+		int getCapacity() {
+			return this.capacity;
+		}
+
+		void resize(int batchSize) {
+			if (batchSize == this.batchSize) {
+				return;
+			}
+
+			this.batchSize = batchSize;
+			this.columns = new Matrix(this.conv.getPatchSize(), this.conv.getPositions() * batchSize, this.columnData);
+			this.pooling = this.poolData == null ? null : new Matrix(this.conv.filters, this.conv.getPositions() * batchSize, this.poolData);
+		}
+	}
+
+	/**
+	 * @param channels Channels of the input
+	 * @param height Height of the input
+	 * @param width Width of the input
+	 * @param filters Channels of the output, one per filter
+	 * @param kernel Height and width of the filters
+	 * @param stride Step between neighbouring patches
+	 * @param padding Zeros added around every edge of the input
+	 * @param pool Height and width of the non-overlapping max-pooling windows, 1 for no pooling
+	 * @throws IllegalArgumentException If a dimension is out of range, the filters do not fit the padded input or the
+	 * pool does not fit the output
+	 */
+	Convolution(int channels, int height, int width, int filters, int kernel, int stride, int padding, int pool) {
+		if (channels < 1 || height < 1 || width < 1 || filters < 1 || kernel < 1 || stride < 1 || padding < 0) {
+			throw new IllegalArgumentException("Invalid convolution");
+		}
+
+		this.channels = channels;
+		this.height = height;
+		this.width = width;
+		this.filters = filters;
+		this.kernel = kernel;
+		this.stride = stride;
+		this.padding = padding;
+		this.pool = pool;
+
+		this.outHeight = (height + 2 * padding - kernel) / stride + 1;
+		this.outWidth = (width + 2 * padding - kernel) / stride + 1;
+
+		if (height + 2 * padding < kernel || width + 2 * padding < kernel) {
+			throw new IllegalArgumentException("Filters larger than the " + height + "x" + width + " input");
+		} else if (pool < 1 || pool > this.outHeight || pool > this.outWidth) {
+			throw new IllegalArgumentException("Pool does not fit the " + this.outHeight + "x" + this.outWidth + " output");
+		}
+
+		this.pooledHeight = this.outHeight / pool;
+		this.pooledWidth = this.outWidth / pool;
+	}
+
+	/**
+	 * Gets the same convolution followed by max-pooling
+	 */
+	Convolution withPool(int pool) {
+		return new Convolution(this.channels, this.height, this.width, this.filters, this.kernel, this.stride, this.padding, pool);
+	}
+
+	/**
+	 * Gets the number of inputs each filter reads at a position, the width of the weight matrix
+	 */
+	int getPatchSize() {
+		return this.channels * this.kernel * this.kernel;
+	}
+
+	/**
+	 * Gets the number of positions the filters are applied at
+	 */
+	int getPositions() {
+		return this.outHeight * this.outWidth;
+	}
+
+	int getInputSize() {
+		return this.channels * this.height * this.width;
+	}
+
+	/**
+	 * Gets the number of neurons the connection feeds, after pooling
+	 */
+	int getOutputSize() {
+		return this.filters * this.pooledHeight * this.pooledWidth;
+	}
+
+	Buffers newBuffers(int capacity) {
+		return new Buffers(this, capacity);
+	}
+
+	/**
+	 * Runs the layer forward in the calling thread's scratch buffers, for inference
+	 * @param out Contiguous matrix receiving the activations, one sample per column
+	 */
+	void forward(Matrix w, Matrix b, Activation activation, Matrix in, Matrix out)
+			throws MatrixMultiplicationException, MatrixDimensionException {
+
+		Buffers buffers = this.scratch.get();
+
+		if (buffers == null || buffers.getCapacity() < in.getCols()) {
+			buffers = this.newBuffers(in.getCols());
+			this.scratch.set(buffers);
+		}
+
+		buffers.resize(in.getCols());
+		this.forward(w, b, activation, in, buffers, out);
+	}
+
+	/**
+	 * Runs the layer forward: out = f(pool(w * im2col(in)) + b), keeping the patches and the pooled positions for
+	 * {@link #backward(Matrix, Matrix, Buffers, Matrix, Matrix, Matrix)}
+	 * @param buffers Buffers sized for the batch
+	 * @param out Contiguous matrix receiving the activations, one sample per column
+	 */
+	void forward(Matrix w, Matrix b, Activation activation, Matrix in, Buffers buffers, Matrix out)
+			throws MatrixMultiplicationException, MatrixDimensionException {
+
+		int batch = in.getCols();
+
+		if (in.getRows() != this.getInputSize() || out.getRows() != this.getOutputSize() || out.getCols() != batch) {
+			throw new MatrixDimensionException("Failed to convolve");
+		}
+
+		Matrix z = wide(out, this.filters);
+		this.im2col(in, buffers.columns);
+
+		if (this.pool > 1) {
+			Matrix.gemm(1, w, buffers.columns, 0, buffers.pooling);
+			this.maxPool(buffers.pooling, batch, out, buffers.argmax);
+		} else {
+			Matrix.gemm(1, w, buffers.columns, 0, z);
+		}
+
+		// Every filter's bias is added to all of its positions
+		double[] od = out.getData();
+		int run = this.pooledHeight * this.pooledWidth * batch;
+
+		for (int f = 0; f < this.filters; f++) {
+			double bias = b.getData()[b.index(f, 0)];
+
+			for (int i = f * run; i < (f + 1) * run; i++) {
+				od[i] += bias;
+			}
+		}
+
+		activation.forward(out, out);
+	}
+
+	/**
+	 * Runs the layer backward from the error of its z values, after the activation's backward pass
+	 * @param delta Error of the pooled z values, one sample per column
+	 * @param buffers Buffers filled by the batch's forward pass. The patches are overwritten.
+	 * @param nablaW Matrix receiving the gradient of the weights summed over the batch
+	 * @param nablaB Matrix receiving the gradient of the biases summed over the batch
+	 * @param previous Contiguous matrix receiving the error of the input activations, or null for the input layer
+	 */
+	void backward(Matrix w, Matrix delta, Buffers buffers, Matrix nablaW, Matrix nablaB, Matrix previous)
+			throws MatrixMultiplicationException, MatrixDimensionException {
+
+		Matrix error = wide(delta, this.filters);
+		Matrix.rowSumInto(nablaB, error);
+
+		// The error of the unpooled outputs is routed to the position each window took its maximum from
+		if (this.pool > 1) {
+			double[] dd = delta.getData();
+			double[] pd = buffers.pooling.getData();
+			int n = delta.getRows() * delta.getCols();
+
+			Arrays.fill(pd, 0, buffers.pooling.getRows() * buffers.pooling.getCols(), 0);
+
+			for (int i = 0; i < n; i++) {
+				pd[buffers.argmax[i]] += dd[i];
+			}
+
+			error = buffers.pooling;
+		}
+
+		Matrix.gemm(1, error, buffers.columns.transposeView(), 0, nablaW);
+
+		if (previous != null) {
+			Matrix.gemm(1, w.transposeView(), error, 0, buffers.columns);
+			this.col2im(buffers.columns, previous);
+		}
+	}
+
+	/**
+	 * Views a contiguous matrix of one sample per column as rows of (positions * batch) values, one row per filter
+	 */
+	private static Matrix wide(Matrix m, int rows) throws MatrixDimensionException {
+		if (!m.isContiguous() || m.getOffset() != 0) {
+			throw new MatrixDimensionException("Convolution buffers must be contiguous");
+		}
+
+		return new Matrix(rows, m.getRows() / rows * m.getCols(), m.getData());
+	}
+
+	/**
+	 * Copies every patch of the input into a column, ordered by position then sample, with zeros for the padding
+	 */
+	private void im2col(Matrix in, Matrix columns) {
+		double[] src = in.getData();
+		double[] dst = columns.getData();
+		int batch = in.getCols();
+		int width = columns.getCols();
+
+		for (int c = 0; c < this.channels; c++) {
+			for (int ky = 0; ky < this.kernel; ky++) {
+				for (int kx = 0; kx < this.kernel; kx++) {
+					int base = ((c * this.kernel + ky) * this.kernel + kx) * width;
+
+					for (int oy = 0; oy < this.outHeight; oy++) {
+						int y = oy * this.stride + ky - this.padding;
+
+						for (int ox = 0; ox < this.outWidth; ox++) {
+							int x = ox * this.stride + kx - this.padding;
+							int d = base + (oy * this.outWidth + ox) * batch;
+
+							if (y < 0 || y >= this.height || x < 0 || x >= this.width) {
+								Arrays.fill(dst, d, d + batch, 0);
+							} else {
+								int row = (c * this.height + y) * this.width + x;
+
+								if (in.getColStride() == 1) {
+									System.arraycopy(src, in.index(row, 0), dst, d, batch);
+								} else {
+									for (int s = 0; s < batch; s++) {
+										dst[d + s] = src[in.index(row, s)];
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds every column's error back onto the input entries of its patch, the transpose of im2col
+	 */
+	private void col2im(Matrix columns, Matrix previous) throws MatrixDimensionException {
+		if (!previous.isContiguous() || previous.getOffset() != 0) {
+			throw new MatrixDimensionException("Convolution buffers must be contiguous");
+		}
+
+		double[] src = columns.getData();
+		double[] dst = previous.getData();
+		int batch = previous.getCols();
+		int width = columns.getCols();
+
+		previous.fill(0);
+
+		for (int c = 0; c < this.channels; c++) {
+			for (int ky = 0; ky < this.kernel; ky++) {
+				for (int kx = 0; kx < this.kernel; kx++) {
+					int base = ((c * this.kernel + ky) * this.kernel + kx) * width;
+
+					for (int oy = 0; oy < this.outHeight; oy++) {
+						int y = oy * this.stride + ky - this.padding;
+
+						if (y < 0 || y >= this.height) {
+							continue;
+						}
+
+						for (int ox = 0; ox < this.outWidth; ox++) {
+							int x = ox * this.stride + kx - this.padding;
+
+							if (x >= 0 && x < this.width) {
+								int row = (c * this.height + y) * this.width + x;
+								Backends.get().axpy(1, src, base + (oy * this.outWidth + ox) * batch, dst, row * batch, batch);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes the maximum of every window of the convolution, recording where each came from if argmax is given
+	 */
+	private void maxPool(Matrix conv, int batch, Matrix out, int[] argmax) {
+		double[] src = conv.getData();
+		double[] dst = out.getData();
+		int run = this.getPositions() * batch;
+
+		for (int f = 0; f < this.filters; f++) {
+			for (int py = 0; py < this.pooledHeight; py++) {
+				for (int px = 0; px < this.pooledWidth; px++) {
+					int o = ((f * this.pooledHeight + py) * this.pooledWidth + px) * batch;
+
+					for (int dy = 0; dy < this.pool; dy++) {
+						for (int dx = 0; dx < this.pool; dx++) {
+							int s = f * run + ((py * this.pool + dy) * this.outWidth + px * this.pool + dx) * batch;
+
+							for (int i = 0; i < batch; i++) {
+								if ((dy == 0 && dx == 0) || src[s + i] > dst[o + i]) {
+									dst[o + i] = src[s + i];
+
+									if (argmax != null) {
+										argmax[o + i] = s + i;
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+}
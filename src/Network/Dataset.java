@@ -0,0 +1,33 @@
+package Network;
+
+import Matrices.Matrix;
+
+/**
+ * Labelled samples that can be packed into batches from any thread, e.g. a test set scored by {@link Evaluator}
+ */
+public interface Dataset {
+
+	/**
+	 * Gets the number of samples
+	 */
+	int size();
+
+	/**
+	 * Gets the number of values in each input
+	 */
+	int getInputSize();
+
+	/**
+	 * Gets the class of a sample
+	 * @param sample Index of the sample
+	 */
+	int getLabel(int sample);
+
+	/**
+	 * Packs consecutive samples one per column into an input matrix. Must be safe to call from several threads with
+	 * different matrices.
+	 * @param from Index of the first sample
+	 * @param inputs Matrix of size (input size x count) receiving samples [from, from + count)
+	 */
+	void packInputs(int from, Matrix inputs);
+}
@@ -0,0 +1,25 @@
+package Network;
+
+/**
+ * Fully connected layer, z = w * a + b, computed from every neuron of the layer before it.
+ * Each Dense layer is followed by the activation applied to its z values.
+ */
+public class Dense implements Layer {
+	private final int size;
+
+	/**
+	 * @param size Number of neurons in the layer
+	 */
+	public Dense(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Layers must hold at least one neuron");
+		}
+
+		this.size = size;
+	}
+
+	public int getSize() {
+		return this.size;
+	}
+
+}
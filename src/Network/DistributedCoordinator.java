@@ -0,0 +1,197 @@
+package Network;
+
+import static java.lang.String.format;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Rendezvous point of a group of {@link DistributedWorker} processes, e.g. one per machine.
+ * The coordinator waits for every worker to connect, checks that they hold the same dataset and the same network,
+ * and hands each one its rank, its shard of the samples and the address of the next worker in the ring.
+ * It then stays out of the way: gradients only ever travel from worker to worker through {@link RingAllReduce},
+ * and the coordinator just collects each worker's throughput once training ends.
+ * <p>
+ * Every message is a fixed sequence of little-endian primitives written through a direct buffer.
+ */
+public class DistributedCoordinator implements AutoCloseable {
+	/**
+	 * First int of every worker's greeting, "NNDT"
+	 */
+	static final int MAGIC = 0x4E4E4454;
+	static final int VERSION = 1;
+
+	/**
+	 * Bytes of a greeting: magic, version, ring port, samples and parameter count
+	 */
+	static final int HELLO_BYTES = 4 * Integer.BYTES + Long.BYTES;
+
+	/**
+	 * Bytes of a configuration before the next worker's host: rank, workers, shard start and end, epochs,
+	 * mini-batch size, steps per epoch, learning rate, seed, next worker's port and host length
+	 */
+	static final int CONFIG_BYTES = 7 * Integer.BYTES + Double.BYTES + Long.BYTES + 2 * Integer.BYTES;
+
+	/**
+	 * Bytes of a worker's report: samples trained on and nanoseconds spent
+	 */
+	static final int DONE_BYTES = 2 * Long.BYTES;
+
+	private final ServerSocketChannel server;
+	private final int workers;
+
+	// Throughput of the last run
+	private long samples;
+	private long nanos;
+
+	/**
+	 * Starts listening for workers
+	 * @param port Port to listen on, or 0 for any free port
+	 * @param workers Number of workers that will train together
+	 * @throws IOException If the port cannot be bound
+	 */
+	public DistributedCoordinator(int port, int workers) throws IOException {
+		if (workers < 1) {
+			throw new IllegalArgumentException("At least one worker is needed");
+		}
+
+		this.workers = workers;
+		this.server = ServerSocketChannel.open();
+		this.server.bind(new InetSocketAddress(port), workers);
+	}
+
+	/**
+	 * Gets the port workers connect to, useful when listening on any free port
+	 */
+	public int getPort() {
+		return ((InetSocketAddress) this.server.socket().getLocalSocketAddress()).getPort();
+	}
+
+	public int getWorkers() {
+		return this.workers;
+	}
+
+	/**
+	 * Waits for every worker, starts them training and waits until all of them are done.
+	 * Each worker trains on an equal, contiguous shard of the samples, and every step averages the gradients of
+	 * one mini-batch from each shard, so a step covers up to workers * miniBatchSize samples.
+	 * @param epochs Number of passes over each shard
+	 * @param miniBatchSize Samples each worker adds to every step
+	 * @param learningRate Step size
+	 * @param seed Seed of the workers' shuffles
+	 * @throws IOException If a worker disconnects or the workers do not agree on the dataset or the network
+	 */
+	public void run(int epochs, int miniBatchSize, double learningRate, long seed) throws IOException {
+		if (miniBatchSize < 1) {
+			throw new IllegalArgumentException("Mini-batches need at least one sample");
+		}
+
+		SocketChannel[] channels = new SocketChannel[this.workers];
+		int[] ports = new int[this.workers];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(CONFIG_BYTES + 256).order(ByteOrder.LITTLE_ENDIAN);
+		int total = -1;
+		long parameters = -1;
+
+		try {
+			for (int rank = 0; rank < this.workers; rank++) {
+				channels[rank] = this.server.accept();
+
+				buffer.clear().limit(HELLO_BYTES);
+				read(channels[rank], buffer);
+
+				if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+					throw new IOException("Unknown client connected to the coordinator");
+				}
+
+				ports[rank] = buffer.getInt();
+				int count = buffer.getInt();
+				long size = buffer.getLong();
+
+				if (rank > 0 && (count != total || size != parameters)) {
+					throw new IOException(format("Worker %d holds %d samples and %d parameters, expected %d and %d",
+							rank, count, size, total, parameters));
+				}
+
+				total = count;
+				parameters = size;
+			}
+
+			int largest = (int) (((long) total + this.workers - 1) / this.workers);
+			int steps = (largest + miniBatchSize - 1) / miniBatchSize;
+
+			for (int rank = 0; rank < this.workers; rank++) {
+				int next = (rank + 1) % this.workers;
+				byte[] host = ((InetSocketAddress) channels[next].getRemoteAddress()).getAddress().getHostAddress()
+						.getBytes(StandardCharsets.UTF_8);
+
+				buffer.clear();
+				buffer.putInt(rank).putInt(this.workers);
+				buffer.putInt((int) ((long) total * rank / this.workers)).putInt((int) ((long) total * (rank + 1) / this.workers));
+				buffer.putInt(epochs).putInt(miniBatchSize).putInt(steps);
+				buffer.putDouble(learningRate).putLong(seed);
+				buffer.putInt(ports[next]).putInt(host.length).put(host);
+				buffer.flip();
+				write(channels[rank], buffer);
+			}
+
+			this.samples = 0;
+			this.nanos = 0;
+
+			for (int rank = 0; rank < this.workers; rank++) {
+				buffer.clear().limit(DONE_BYTES);
+				read(channels[rank], buffer);
+
+				this.samples += buffer.getLong();
+				this.nanos = Math.max(this.nanos, buffer.getLong());
+			}
+		} finally {
+			for (SocketChannel channel : channels) {
+				if (channel != null) {
+					channel.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the training throughput of the whole group over the last run, from the slowest worker's time
+	 * @return Samples processed per second
+	 */
+	public double getSamplesPerSecond() {
+		return this.nanos == 0 ? 0 : this.samples * 1e9 / this.nanos;
+	}
+
+	/**
+	 * Fills the rest of a buffer from a blocking channel and flips it for reading
+	 * @throws EOFException If the other end closes first
+	 */
+	static void read(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("Connection closed by " + channel.getRemoteAddress());
+			}
+		}
+
+		buffer.flip();
+	}
+
+	/**
+	 * Writes the rest of a buffer to a blocking channel
+	 */
+	static void write(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.server.close();
+	}
+}
@@ -0,0 +1,268 @@
+package Network;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import Matrices.*;
+
+/**
+ * One replica of a network trained across processes, under a {@link DistributedCoordinator}.
+ * Every worker keeps a full copy of the network and runs the batched backward pass on its own shard of the data.
+ * After each step the workers sum their gradients with a {@link RingAllReduce} over direct socket connections,
+ * so every replica applies the same averaged gradient and the copies never drift apart. Rank 0's initial weights
+ * are broadcast the same way before the first step.
+ * <p>
+ * The weight and bias gradients are flattened into one array of doubles per step, layer by layer, with the
+ * number of samples behind them in the last slot so that shards of uneven length still average correctly.
+ */
+public class DistributedWorker {
+	private final Network network;
+	private final String host;
+	private final int port;
+
+	private int rank = -1;
+	private int workers;
+
+	// Throughput and time spent summing gradients over the last run
+	private long samples;
+	private long nanos;
+	private long exchangeNanos;
+
+	/**
+	 * @param network Network trained by this worker, in double precision
+	 * @param host Host of the coordinator
+	 * @param port Port of the coordinator
+	 */
+	public DistributedWorker(Network network, String host, int port) {
+		this.network = network;
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * Gets the position of this worker in the ring, once training has started
+	 */
+	public int getRank() {
+		return this.rank;
+	}
+
+	public int getWorkers() {
+		return this.workers;
+	}
+
+	/**
+	 * Gets the training throughput of this worker over its shard in the last run
+	 * @return Samples processed per second
+	 */
+	public double getSamplesPerSecond() {
+		return this.nanos == 0 ? 0 : this.samples * 1e9 / this.nanos;
+	}
+
+	/**
+	 * Gets the time spent exchanging gradients with the other workers in the last run
+	 */
+	public long getExchangeNanos() {
+		return this.exchangeNanos;
+	}
+
+	/**
+	 * Joins the coordinator and trains on this worker's shard of the data until every worker is done
+	 * @param trainingData Pairs of inputs and expected outputs, the same on every worker
+	 * @throws IOException If the coordinator or another worker disconnects
+	 * @throws NetworkInputException If an input does not match the input layer
+	 * @throws NetworkExpectationException If an expectation does not match the output layer
+	 */
+	public void train(List<Pair<double[], double[]>> trainingData) throws IOException, NetworkInputException, NetworkExpectationException {
+		if (this.network.getPrecision() != Precision.DOUBLE) {
+			throw new IllegalStateException("Distributed training runs in double precision");
+		}
+
+		double[] flat = new double[this.parameterCount() + 1];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(DistributedCoordinator.CONFIG_BYTES + 256).order(ByteOrder.LITTLE_ENDIAN);
+
+		try (ServerSocketChannel listener = ServerSocketChannel.open();
+				SocketChannel coordinator = SocketChannel.open(new InetSocketAddress(this.host, this.port))) {
+
+			listener.bind(new InetSocketAddress(0), 1);
+
+			buffer.clear();
+			buffer.putInt(DistributedCoordinator.MAGIC).putInt(DistributedCoordinator.VERSION);
+			buffer.putInt(((InetSocketAddress) listener.getLocalAddress()).getPort());
+			buffer.putInt(trainingData.size()).putLong(flat.length - 1);
+			buffer.flip();
+			DistributedCoordinator.write(coordinator, buffer);
+
+			buffer.clear().limit(DistributedCoordinator.CONFIG_BYTES);
+			DistributedCoordinator.read(coordinator, buffer);
+
+			this.rank = buffer.getInt();
+			this.workers = buffer.getInt();
+			int shardStart = buffer.getInt();
+			int shardEnd = buffer.getInt();
+			int epochs = buffer.getInt();
+			int miniBatchSize = buffer.getInt();
+			int steps = buffer.getInt();
+			double learningRate = buffer.getDouble();
+			long seed = buffer.getLong();
+			int nextPort = buffer.getInt();
+			byte[] nextHost = new byte[buffer.getInt()];
+
+			buffer.clear().limit(nextHost.length);
+			DistributedCoordinator.read(coordinator, buffer);
+			buffer.get(nextHost);
+
+			try (SocketChannel next = this.workers > 1 ? SocketChannel.open(new InetSocketAddress(new String(nextHost, StandardCharsets.UTF_8), nextPort)) : null;
+					SocketChannel previous = this.workers > 1 ? this.acceptPrevious(listener, next, buffer) : null;
+					RingAllReduce ring = this.workers > 1 ? new RingAllReduce(previous, next, this.rank, this.workers, flat.length) : null) {
+
+				// Start every replica from rank 0's weights
+				if (this.rank == 0) {
+					this.flatten(this.network.weights, this.network.biases, flat);
+				}
+
+				this.sum(ring, flat);
+				this.unflatten(flat, this.network.weights, this.network.biases);
+
+				this.train(new ArrayList<>(trainingData.subList(shardStart, shardEnd)), ring, flat, epochs, miniBatchSize, steps,
+						learningRate, new Random(seed + this.rank));
+			}
+
+			buffer.clear();
+			buffer.putLong(this.samples).putLong(this.nanos);
+			buffer.flip();
+			DistributedCoordinator.write(coordinator, buffer);
+		}
+	}
+
+	private void train(ArrayList<Pair<double[], double[]>> shard, RingAllReduce ring, double[] flat, int epochs, int miniBatchSize,
+			int steps, double learningRate, Random random) throws IOException, NetworkInputException, NetworkExpectationException {
+
+		this.samples = 0;
+		this.exchangeNanos = 0;
+		long start = System.nanoTime();
+
+		try {
+			for (int epoch = 0; epoch < epochs; epoch++) {
+				Collections.shuffle(shard, random);
+
+				for (int step = 0; step < steps; step++) {
+					int from = Math.min(step * miniBatchSize, shard.size());
+					List<Pair<double[], double[]>> miniBatch = shard.subList(from, Math.min(from + miniBatchSize, shard.size()));
+
+					// A worker whose shard has run out still takes part in the sum, with no gradient of its own
+					if (miniBatch.isEmpty()) {
+						Arrays.fill(flat, 0);
+					} else {
+						BatchWorkspace ws = this.network.workspace(miniBatch.size());
+						Network.packBatch(miniBatch, ws.inputs, ws.expectations);
+						this.network.backpropagateBatch(ws.inputs, ws.expectations, ws);
+						this.flatten(ws.nablaW, ws.nablaB, flat);
+					}
+
+					flat[flat.length - 1] = miniBatch.size();
+
+					long exchangeStart = System.nanoTime();
+					this.sum(ring, flat);
+					this.exchangeNanos += System.nanoTime() - exchangeStart;
+
+					BatchWorkspace ws = this.network.workspace(Math.max(miniBatch.size(), 1));
+					this.unflatten(flat, ws.nablaW, ws.nablaB);
+					this.network.applyGradients(ws.nablaW, ws.nablaB, (int) flat[flat.length - 1], learningRate);
+					this.samples += miniBatch.size();
+				}
+			}
+		} catch (MatrixAdditionException | MatrixMultiplicationException | HadamardException | MatrixDimensionException e) {
+			// The gradients are shaped from the network's own layers, so this cannot happen
+			throw new IllegalStateException(e);
+		}
+
+		this.nanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Accepts the connection from the previous worker, each side sending its rank so that a miswired ring is caught
+	 */
+	private SocketChannel acceptPrevious(ServerSocketChannel listener, SocketChannel next, ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		buffer.putInt(this.rank);
+		buffer.flip();
+		DistributedCoordinator.write(next, buffer);
+
+		SocketChannel previous = listener.accept();
+
+		buffer.clear().limit(Integer.BYTES);
+		DistributedCoordinator.read(previous, buffer);
+		int expected = Math.floorMod(this.rank - 1, this.workers);
+		int actual = buffer.getInt();
+
+		if (actual != expected) {
+			previous.close();
+			throw new IOException(format("Worker %d was connected to by worker %d instead of %d", this.rank, actual, expected));
+		}
+
+		return previous;
+	}
+
+	private void sum(RingAllReduce ring, double[] flat) throws IOException {
+		if (ring != null) {
+			ring.sum(flat);
+		}
+	}
+
+	private int parameterCount() {
+		long count = 0;
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			count += (long) this.network.weights.get(i).getRows() * this.network.weights.get(i).getCols();
+			count += (long) this.network.biases.get(i).getRows() * this.network.biases.get(i).getCols();
+		}
+
+		if (count >= Integer.MAX_VALUE) {
+			throw new IllegalStateException("Network too large to exchange in one buffer");
+		}
+
+		return (int) count;
+	}
+
+	/**
+	 * Copies contiguous weight and bias matrices into a flat array, layer by layer
+	 */
+	private void flatten(List<Matrix> w, List<Matrix> b, double[] flat) {
+		int position = 0;
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			for (Matrix m : new Matrix[] { w.get(i), b.get(i) }) {
+				int n = m.getRows() * m.getCols();
+				System.arraycopy(m.getData(), m.getOffset(), flat, position, n);
+				position += n;
+			}
+		}
+	}
+
+	/**
+	 * Copies a flat array back into contiguous weight and bias matrices, the inverse of {@link #flatten}
+	 */
+	private void unflatten(double[] flat, List<Matrix> w, List<Matrix> b) {
+		int position = 0;
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			for (Matrix m : new Matrix[] { w.get(i), b.get(i) }) {
+				int n = m.getRows() * m.getCols();
+				System.arraycopy(flat, position, m.getData(), m.getOffset(), n);
+				position += n;
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package Network;
+
+import java.util.SplittableRandom;
+
+import Matrices.Backends;
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+
+/**
+ * Inverted dropout on the activations of the layer before it, active only while training.
+ * Every step each activation is zeroed with the given probability and the survivors are scaled by 1 / (1 - rate),
+ * so the expected input of the next layer is unchanged and inference runs the network as is, with no rescaling.
+ * The same mask multiplies the gradient flowing back through the layer.
+ */
+public class Dropout implements Layer {
+	private final double rate;
+
+	/**
+	 * @param rate Probability of dropping each activation, in [0, 1)
+	 */
+	public Dropout(double rate) {
+		if (!(rate >= 0 && rate < 1)) {
+			throw new IllegalArgumentException("Dropout rate must be in [0, 1)");
+		}
+
+		this.rate = rate;
+	}
+
+	public double getRate() {
+		return this.rate;
+	}
+
+	/**
+	 * Draws a fresh mask, every entry 0 with probability rate and 1 / (1 - rate) otherwise
+	 * @param mask Contiguous matrix receiving the mask
+	 */
+	static void sample(double rate, SplittableRandom random, Matrix mask) {
+		double keep = 1 / (1 - rate);
+		double[] data = mask.getData();
+		int end = mask.getOffset() + mask.getRows() * mask.getCols();
+
+		for (int i = mask.getOffset(); i < end; i++) {
+			data[i] = random.nextDouble() < rate ? 0 : keep;
+		}
+	}
+
+	/**
+	 * Multiplies a matrix by a mask entry by entry: r = a * mask, all three contiguous and the same size
+	 */
+	static void apply(Matrix a, Matrix mask, Matrix r) {
+		Backends.get().multiply(a.getData(), a.getOffset(), mask.getData(), mask.getOffset(), r.getData(), r.getOffset(),
+				a.getRows() * a.getCols());
+	}
+
+	/**
+	 * Single precision counterpart of {@link #sample(double, SplittableRandom, Matrix)}
+	 */
+	static void sample(double rate, SplittableRandom random, FloatMatrix mask) {
+		float keep = (float) (1 / (1 - rate));
+		float[] data = mask.getData();
+		int end = mask.getOffset() + mask.getRows() * mask.getCols();
+
+		for (int i = mask.getOffset(); i < end; i++) {
+			data[i] = random.nextDouble() < rate ? 0 : keep;
+		}
+	}
+
+	/**
+	 * Single precision counterpart of {@link #apply(Matrix, Matrix, Matrix)}
+	 */
+	static void apply(FloatMatrix a, FloatMatrix mask, FloatMatrix r) {
+		float[] ad = a.getData();
+		float[] md = mask.getData();
+		float[] rd = r.getData();
+		int n = a.getRows() * a.getCols();
+
+		for (int i = 0; i < n; i++) {
+			rd[r.getOffset() + i] = ad[a.getOffset() + i] * md[mask.getOffset() + i];
+		}
+	}
+
+}
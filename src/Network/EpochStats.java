@@ -0,0 +1,88 @@
+package Network;
+
+import static java.lang.String.format;
+
+/**
+ * Measurements of one epoch of training, summed over its steps
+ */
+public class EpochStats {
+	private final int epoch;
+	private final long steps;
+	private final long samples;
+	private final long elapsedNanos;
+	private final long[] phaseNanos;
+	private final long allocatedBytes;
+	private final double loss;
+	private final double accuracy;
+
+	EpochStats(int epoch, long steps, long samples, long elapsedNanos, long[] phaseNanos, long allocatedBytes, double loss, double accuracy) {
+		this.epoch = epoch;
+		this.steps = steps;
+		this.samples = samples;
+		this.elapsedNanos = elapsedNanos;
+		this.phaseNanos = phaseNanos;
+		this.allocatedBytes = allocatedBytes;
+		this.loss = loss;
+		this.accuracy = accuracy;
+	}
+
+	public int getEpoch() {
+		return this.epoch;
+	}
+
+	public long getSteps() {
+		return this.steps;
+	}
+
+	public long getSamples() {
+		return this.samples;
+	}
+
+	/**
+	 * Gets the wall-clock time of the epoch, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	/**
+	 * Gets the time the epoch spent in a phase, in nanoseconds
+	 */
+	public long getNanos(Phase phase) {
+		return this.phaseNanos[phase.ordinal()];
+	}
+
+	public double getSamplesPerSecond() {
+		return this.elapsedNanos == 0 ? 0 : this.samples * 1e9 / this.elapsedNanos;
+	}
+
+	/**
+	 * Gets the mean bytes allocated by the training thread per step
+	 * @return The mean, or -1 if the JVM does not measure thread allocations
+	 */
+	public double getAllocatedBytesPerStep() {
+		return this.allocatedBytes < 0 ? -1 : this.steps == 0 ? 0 : (double) this.allocatedBytes / this.steps;
+	}
+
+	/**
+	 * Gets the mean cost over the epoch's samples, cross-entropy for a SoftmaxCrossEntropy output and quadratic otherwise
+	 */
+	public double getLoss() {
+		return this.loss;
+	}
+
+	/**
+	 * Gets the fraction of the epoch's samples the network classified correctly while training on them
+	 */
+	public double getAccuracy() {
+		return this.accuracy;
+	}
+
+	@Override
+	public String toString() {
+		return format("epoch %d: loss %.5f, accuracy %.2f%%, %.0f samples/s, load %.1f ms, forward %.1f ms, backward %.1f ms, update %.1f ms, %.0f B/step",
+				this.epoch, this.loss, 100 * this.accuracy, this.getSamplesPerSecond(),
+				this.getNanos(Phase.LOAD) / 1e6, this.getNanos(Phase.FORWARD) / 1e6, this.getNanos(Phase.BACKWARD) / 1e6,
+				this.getNanos(Phase.UPDATE) / 1e6, this.getAllocatedBytesPerStep());
+	}
+}
@@ -0,0 +1,127 @@
+package Network;
+
+import static java.lang.String.format;
+
+/**
+ * Scores of a network over a labelled dataset: accuracy, the confusion matrix and per-class precision and recall
+ */
+public class Evaluation {
+	private final int classes;
+
+	// Row-major, actual class by predicted class
+	private final long[] confusion;
+	private final long samples;
+	private final long correct;
+
+	/**
+	 * @param classes Number of classes
+	 * @param confusion Counts of samples of each actual class (row) given each predicted class (column), row-major
+	 */
+	Evaluation(int classes, long[] confusion) {
+		this.classes = classes;
+		this.confusion = confusion;
+
+		long samples = 0;
+		long correct = 0;
+
+		for (int actual = 0; actual < classes; actual++) {
+			for (int predicted = 0; predicted < classes; predicted++) {
+				samples += confusion[actual * classes + predicted];
+			}
+
+			correct += confusion[actual * classes + actual];
+		}
+
+		this.samples = samples;
+		this.correct = correct;
+	}
+
+	public int getClasses() {
+		return this.classes;
+	}
+
+	public long getSamples() {
+		return this.samples;
+	}
+
+	public long getCorrect() {
+		return this.correct;
+	}
+
+	/**
+	 * Gets the fraction of samples classified correctly
+	 */
+	public double getAccuracy() {
+		return this.samples == 0 ? 0 : (double) this.correct / this.samples;
+	}
+
+	/**
+	 * Gets the number of samples of one class that were classified as another
+	 * @param actual Class the samples belong to
+	 * @param predicted Class the network picked
+	 */
+	public long getCount(int actual, int predicted) {
+		return this.confusion[actual * this.classes + predicted];
+	}
+
+	/**
+	 * Gets a copy of the confusion matrix, indexed by actual class then predicted class
+	 */
+	public long[][] getConfusionMatrix() {
+		long[][] m = new long[this.classes][this.classes];
+
+		for (int actual = 0; actual < this.classes; actual++) {
+			System.arraycopy(this.confusion, actual * this.classes, m[actual], 0, this.classes);
+		}
+
+		return m;
+	}
+
+	/**
+	 * Gets the fraction of the samples predicted as a class that really belong to it
+	 * @return The precision, or 0 if the class was never predicted
+	 */
+	public double getPrecision(int label) {
+		long predicted = 0;
+
+		for (int actual = 0; actual < this.classes; actual++) {
+			predicted += this.getCount(actual, label);
+		}
+
+		return predicted == 0 ? 0 : (double) this.getCount(label, label) / predicted;
+	}
+
+	/**
+	 * Gets the fraction of the samples of a class that were predicted as it
+	 * @return The recall, or 0 if the class has no samples
+	 */
+	public double getRecall(int label) {
+		long actual = 0;
+
+		for (int predicted = 0; predicted < this.classes; predicted++) {
+			actual += this.getCount(label, predicted);
+		}
+
+		return actual == 0 ? 0 : (double) this.getCount(label, label) / actual;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(format("accuracy %.2f%% (%d / %d)%n", this.getAccuracy() * 100, this.correct, this.samples));
+		sb.append("class  precision  recall  predicted as");
+
+		for (int predicted = 0; predicted < this.classes; predicted++) {
+			sb.append(format(" %6d", predicted));
+		}
+
+		for (int actual = 0; actual < this.classes; actual++) {
+			sb.append(format("%n%5d  %9.4f  %6.4f  %12s", actual, this.getPrecision(actual), this.getRecall(actual), ""));
+
+			for (int predicted = 0; predicted < this.classes; predicted++) {
+				sb.append(format(" %6d", this.getCount(actual, predicted)));
+			}
+		}
+
+		return sb.toString();
+	}
+}
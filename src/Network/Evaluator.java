@@ -0,0 +1,223 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Matrices.*;
+
+/**
+ * Scores a network against a labelled dataset on several threads.
+ * Workers pull batches of consecutive samples, pack them into their own buffers and run them forward as one
+ * matrix-matrix product per layer. Each worker counts its predictions into its own confusion matrix, so nothing is
+ * shared while they run; the counts are added together once every worker has finished.
+ * <p>
+ * The network's current weights are read in place, so evaluation must not overlap with training.
+ */
+public class Evaluator implements AutoCloseable {
+	private final Network network;
+	private final int threads;
+	private final int batchSize;
+	private final ForkJoinPool pool;
+
+	// Per-worker layer buffers, index 0 holding the packed inputs, and confusion counts
+	private final double[][][] layerData;
+	private final long[][] confusion;
+
+	/**
+	 * @param network Network to score
+	 * @param threads Number of worker threads
+	 * @param batchSize Samples run forward together by a worker
+	 */
+	public Evaluator(Network network, int threads, int batchSize) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one worker thread is needed");
+		} else if (batchSize < 1) {
+			throw new IllegalArgumentException("Batches must hold at least one sample");
+		}
+
+		int classes = network.sizes[network.numLayers - 1];
+
+		this.network = network;
+		this.threads = threads;
+		this.batchSize = batchSize;
+		this.pool = new ForkJoinPool(threads);
+		this.layerData = new double[threads][network.numLayers][];
+		this.confusion = new long[threads][classes * classes];
+
+		for (int w = 0; w < threads; w++) {
+			for (int i = 0; i < network.numLayers; i++) {
+				this.layerData[w][i] = new double[network.sizes[i] * batchSize];
+			}
+		}
+	}
+
+	/**
+	 * Scores the network on one worker per available processor, 256 samples at a time
+	 */
+	public Evaluator(Network network) {
+		this(network, Runtime.getRuntime().availableProcessors(), 256);
+	}
+
+	public int getThreads() {
+		return this.threads;
+	}
+
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Classifies every sample of a dataset
+	 * @param data Labelled samples, e.g. the MNIST test set
+	 * @return Accuracy, confusion matrix and per-class precision and recall
+	 * @throws NetworkInputException If the samples do not match the input layer
+	 */
+	public Evaluation evaluate(Dataset data) throws NetworkInputException {
+		if (data.getInputSize() != this.network.sizes[0]) {
+			throw new NetworkInputException("Input matrix wrong size");
+		}
+
+		int size = data.size();
+		int workers = Math.max(1, Math.min(this.threads, (size + this.batchSize - 1) / this.batchSize));
+		AtomicInteger nextBatch = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<>();
+
+		for (int w = 0; w < workers; w++) {
+			final int worker = w;
+
+			tasks.add(() -> {
+				int start;
+
+				while ((start = nextBatch.getAndAdd(this.batchSize)) < size) {
+					this.classify(worker, data, start, Math.min(this.batchSize, size - start));
+				}
+
+				return null;
+			});
+		}
+
+		for (int w = 0; w < workers; w++) {
+			Arrays.fill(this.confusion[w], 0);
+		}
+
+		for (Future<Void> future : this.pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Worker failed", e.getCause());
+			}
+		}
+
+		// Every worker has finished, so its counts are visible here without locking
+		long[] total = new long[this.confusion[0].length];
+
+		for (int w = 0; w < workers; w++) {
+			for (int i = 0; i < total.length; i++) {
+				total[i] += this.confusion[w][i];
+			}
+		}
+
+		return new Evaluation(this.network.sizes[this.network.numLayers - 1], total);
+	}
+
+	/**
+	 * Classifies pairs of inputs and expected outputs, taking each sample's class as its highest expected output
+	 * @param testData Pairs of inputs and expected outputs, as used for training
+	 * @return Accuracy, confusion matrix and per-class precision and recall
+	 * @throws NetworkInputException If the inputs do not match the input layer
+	 */
+	public Evaluation evaluate(List<Pair<double[], double[]>> testData) throws NetworkInputException {
+		int inputSize = testData.isEmpty() ? this.network.sizes[0] : testData.get(0).getFirst().length;
+
+		return this.evaluate(new Dataset() {
+			@Override
+			public int size() {
+				return testData.size();
+			}
+
+			@Override
+			public int getInputSize() {
+				return inputSize;
+			}
+
+			@Override
+			public int getLabel(int sample) {
+				return argmax(testData.get(sample).getSecond(), 0, 1, testData.get(sample).getSecond().length);
+			}
+
+			@Override
+			public void packInputs(int from, Matrix inputs) {
+				double[] in = inputs.getData();
+
+				for (int col = 0; col < inputs.getCols(); col++) {
+					double[] input = testData.get(from + col).getFirst();
+
+					for (int row = 0; row < input.length; row++) {
+						in[inputs.index(row, col)] = input[row];
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs samples [start, start + count) forward in the worker's buffers and counts the predictions
+	 */
+	private void classify(int worker, Dataset data, int start, int count) throws Exception {
+		Matrix[] layers = new Matrix[this.network.numLayers];
+
+		for (int i = 0; i < layers.length; i++) {
+			layers[i] = new Matrix(this.network.sizes[i], count, this.layerData[worker][i]);
+		}
+
+		data.packInputs(start, layers[0]);
+
+		for (int i = 0; i < layers.length - 1; i++) {
+			Matrix next = layers[i + 1];
+
+			ExecutionPlan.layer(this.network.convolutions.get(i), this.network.weights.get(i), layers[i], this.network.biases.get(i),
+					this.network.layerActivations.get(i), next);
+		}
+
+		Matrix output = layers[layers.length - 1];
+		int classes = output.getRows();
+		long[] counts = this.confusion[worker];
+
+		for (int col = 0; col < count; col++) {
+			int label = data.getLabel(start + col);
+
+			if (label < 0 || label >= classes) {
+				throw new IllegalArgumentException("Sample " + (start + col) + " has label " + label + " but the network has " + classes + " outputs");
+			}
+
+			int predicted = argmax(output.getData(), output.index(0, col), output.getRowStride(), classes);
+			counts[label * classes + predicted]++;
+		}
+	}
+
+	private static int argmax(double[] data, int offset, int stride, int length) {
+		int best = 0;
+
+		for (int i = 1; i < length; i++) {
+			if (data[offset + i * stride] > data[offset + best * stride]) {
+				best = i;
+			}
+		}
+
+		return best;
+	}
+
+	@Override
+	public void close() {
+		this.pool.shutdown();
+	}
+}
@@ -0,0 +1,179 @@
+package Network;
+
+import java.util.List;
+
+import Matrices.*;
+
+/**
+ * Forward pass compiled once from a network's layer sizes and activation functions.
+ * Every layer's output buffer is allocated up front for a maximum batch size, and each layer runs as one fused
+ * GEMM + bias + activation kernel ({@link Matrix#gemmBias(Matrix, Matrix, Matrix, ArrayOperator, Matrix)}), so a
+ * forward pass allocates nothing and writes each layer's outputs once. Convolutional layers run through im2col into
+ * per-thread scratch buffers, see {@link Convolution}.
+ * <p>
+ * The plan reads the network's weights and biases in place, so it keeps up with training. Its buffers belong to
+ * one thread at a time.
+ */
+public class ExecutionPlan {
+	private final int[] sizes;
+	private final List<Matrix> weights;
+	private final List<Matrix> biases;
+	private final List<Activation> activations;
+	private final List<Convolution> convolutions;
+	private final int capacity;
+
+	// Backing arrays of every layer for capacity samples, and views of them for the current batch size
+	private final double[][] layerData;
+	private final Matrix[] layers;
+	private int batchSize;
+
+	/**
+	 * Compiles the forward pass of a network
+	 * @param network Network whose parameters the plan reads
+	 * @param capacity Most samples run forward at once
+	 */
+	public ExecutionPlan(Network network, int capacity) {
+		this(network.sizes, network.weights, network.biases, network.layerActivations, network.convolutions, capacity);
+	}
+
+	ExecutionPlan(int[] sizes, List<Matrix> weights, List<Matrix> biases, List<Activation> activations, List<Convolution> convolutions,
+			int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Plans must hold at least one sample");
+		}
+
+		this.sizes = sizes.clone();
+		this.weights = weights;
+		this.biases = biases;
+		this.activations = activations;
+		this.convolutions = convolutions;
+		this.capacity = capacity;
+		this.layerData = new double[sizes.length][];
+		this.layers = new Matrix[sizes.length];
+
+		for (int i = 0; i < sizes.length; i++) {
+			this.layerData[i] = new double[sizes[i] * capacity];
+		}
+
+		this.resize(capacity);
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	private void resize(int batchSize) {
+		if (batchSize == this.batchSize) {
+			return;
+		}
+
+		this.batchSize = batchSize;
+
+		for (int i = 0; i < this.sizes.length; i++) {
+			this.layers[i] = new Matrix(this.sizes[i], batchSize, this.layerData[i]);
+		}
+	}
+
+	/**
+	 * Runs a batch forward
+	 * @param inputs Input matrix of size (input layer x batch size), at most capacity samples
+	 * @return The output activations, one sample per column, valid until the next call
+	 * @throws NetworkInputException If the inputs do not match the input layer or exceed the capacity
+	 */
+	public Matrix forward(Matrix inputs) throws NetworkInputException {
+		if (inputs.getRows() != this.sizes[0] || inputs.getCols() > this.capacity) {
+			throw new NetworkInputException("Input matrix wrong size");
+		}
+
+		this.resize(inputs.getCols());
+
+		Matrix first = this.layers[0];
+		this.layers[0] = inputs;
+
+		try {
+			this.run(this.layers);
+		} finally {
+			this.layers[0] = first;
+		}
+
+		return this.layers[this.layers.length - 1];
+	}
+
+	/**
+	 * Runs one sample forward
+	 * @param input Input values, one per input neuron
+	 * @return The output activations as a column vector, valid until the next call
+	 * @throws NetworkInputException If the input does not match the input layer
+	 */
+	public Matrix forward(double[] input) throws NetworkInputException {
+		if (input.length != this.sizes[0]) {
+			throw new NetworkInputException("Input matrix wrong size");
+		}
+
+		this.resize(1);
+		System.arraycopy(input, 0, this.layerData[0], 0, input.length);
+		this.run(this.layers);
+
+		return this.layers[this.layers.length - 1];
+	}
+
+	/**
+	 * Runs every layer in turn over caller-owned buffers, each computed from the one before
+	 * @param layers Activations of every layer, index 0 holding the inputs
+	 */
+	void run(List<Matrix> layers) {
+		for (int i = 0; i < this.weights.size(); i++) {
+			this.layer(i, layers.get(i), layers.get(i + 1));
+		}
+	}
+
+	private void run(Matrix[] layers) {
+		for (int i = 0; i < this.weights.size(); i++) {
+			this.layer(i, layers[i], layers[i + 1]);
+		}
+	}
+
+	/**
+	 * Runs one layer forward: out = f(w * in + b)
+	 * @param i Index of the layer the weights read from, 0 for the input layer
+	 */
+	void layer(int i, Matrix in, Matrix out) {
+		layer(this.convolutions.get(i), this.weights.get(i), in, this.biases.get(i), this.activations.get(i), out);
+	}
+
+	/**
+	 * Runs a dense or convolutional layer forward
+	 * @param conv Geometry of the layer, null if it is dense
+	 */
+	static void layer(Convolution conv, Matrix w, Matrix in, Matrix b, Activation activation, Matrix out) {
+		if (conv == null) {
+			layer(w, in, b, activation, out);
+			return;
+		}
+
+		try {
+			conv.forward(w, b, activation, in, out);
+		} catch (MatrixMultiplicationException | MatrixDimensionException e) {
+			// Every buffer is sized from the layer sizes, so this cannot happen
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Runs a dense layer forward as one fused kernel, activating separately only when the function is not element-wise
+	 */
+	static void layer(Matrix w, Matrix in, Matrix b, Activation activation, Matrix out) {
+		try {
+			ArrayOperator kernel = activation.getForwardKernel();
+			Matrix.gemmBias(w, in, b, kernel, out);
+
+			if (kernel == null) {
+				activation.forward(out, out);
+			}
+		} catch (MatrixMultiplicationException | MatrixAdditionException | MatrixDimensionException e) {
+			// Every buffer is sized from the layer sizes, so this cannot happen
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+
+/**
+ * Single precision counterpart of {@link BatchWorkspace}, used when a network trains in float or mixed precision
+ */
+class FloatWorkspace {
+	private final int[] sizes;
+	private final double[] dropout;
+	private final int capacity;
+	private int batchSize;
+
+	// Backing arrays, one per layer, large enough for capacity samples
+	private final float[][] activationData;
+	private final float[][] zData;
+	private final float[][] deltaData;
+	private final float[][] outputData;
+	private final float[][] maskData;
+	private final float[] inputData;
+	private final float[] expectationData;
+
+	// Views of the backing arrays for the current batch size. Index 0 of zValues and deltas is left unused.
+	FloatMatrix inputs;
+	FloatMatrix expectations;
+	final ArrayList<FloatMatrix> activations = new ArrayList<>();
+	final ArrayList<FloatMatrix> zValues = new ArrayList<>();
+	final ArrayList<FloatMatrix> deltas = new ArrayList<>();
+
+	// Activations before dropout and the masks applied to them, as in BatchWorkspace
+	final ArrayList<FloatMatrix> outputs = new ArrayList<>();
+	final ArrayList<FloatMatrix> masks = new ArrayList<>();
+	final SplittableRandom random;
+
+	// Gradients summed over the batch, shaped like the weights and biases
+	final ArrayList<FloatMatrix> nablaW = new ArrayList<>();
+	final ArrayList<FloatMatrix> nablaB = new ArrayList<>();
+
+	// Double copies of the gradients for a double master copy of the parameters, empty unless requested
+	final ArrayList<Matrix> masterNablaW = new ArrayList<>();
+	final ArrayList<Matrix> masterNablaB = new ArrayList<>();
+
+	FloatWorkspace(int[] sizes, double[] dropout, int capacity, boolean master, SplittableRandom random) {
+		this.sizes = sizes;
+		this.dropout = dropout;
+		this.capacity = capacity;
+		this.random = random;
+
+		this.activationData = new float[sizes.length][];
+		this.zData = new float[sizes.length][];
+		this.deltaData = new float[sizes.length][];
+		this.outputData = new float[sizes.length][];
+		this.maskData = new float[sizes.length][];
+
+		for (int i = 1; i < sizes.length; i++) {
+			this.activationData[i] = new float[sizes[i] * capacity];
+			this.zData[i] = new float[sizes[i] * capacity];
+			this.deltaData[i] = new float[sizes[i] * capacity];
+
+			if (dropout[i] > 0) {
+				this.outputData[i] = new float[sizes[i] * capacity];
+				this.maskData[i] = new float[sizes[i] * capacity];
+			}
+		}
+
+		this.inputData = new float[sizes[0] * capacity];
+		this.expectationData = new float[sizes[sizes.length - 1] * capacity];
+
+		for (int i = 0; i < sizes.length - 1; i++) {
+			this.nablaW.add(new FloatMatrix(sizes[i + 1], sizes[i]));
+			this.nablaB.add(new FloatMatrix(sizes[i + 1], 1));
+
+			if (master) {
+				this.masterNablaW.add(new Matrix(sizes[i + 1], sizes[i]));
+				this.masterNablaB.add(new Matrix(sizes[i + 1], 1));
+			}
+		}
+
+		this.resize(capacity);
+	}
+
+	int getCapacity() {
+		return this.capacity;
+	}
+
+	int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Points every view at the first batchSize columns' worth of its backing array
+	 * @param batchSize Samples in the next batch, at most the capacity
+	 */
+	void resize(int batchSize) {
+		if (batchSize == this.batchSize) {
+			return;
+		}
+
+		this.batchSize = batchSize;
+		this.inputs = new FloatMatrix(this.sizes[0], batchSize, this.inputData);
+		this.expectations = new FloatMatrix(this.sizes[this.sizes.length - 1], batchSize, this.expectationData);
+
+		this.activations.clear();
+		this.zValues.clear();
+		this.deltas.clear();
+		this.outputs.clear();
+		this.masks.clear();
+
+		for (int i = 0; i < this.sizes.length; i++) {
+			if (i == 0) {
+				this.activations.add(this.inputs);
+				this.zValues.add(null);
+				this.deltas.add(null);
+			} else {
+				this.activations.add(new FloatMatrix(this.sizes[i], batchSize, this.activationData[i]));
+				this.zValues.add(new FloatMatrix(this.sizes[i], batchSize, this.zData[i]));
+				this.deltas.add(new FloatMatrix(this.sizes[i], batchSize, this.deltaData[i]));
+			}
+
+			if (this.dropout[i] > 0) {
+				this.outputs.add(new FloatMatrix(this.sizes[i], batchSize, this.outputData[i]));
+				this.masks.add(new FloatMatrix(this.sizes[i], batchSize, this.maskData[i]));
+			} else {
+				this.outputs.add(this.activations.get(i));
+				this.masks.add(null);
+			}
+		}
+	}
+}
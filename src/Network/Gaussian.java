@@ -0,0 +1,30 @@
+package Network;
+
+/**
+ * Draws every weight and bias from the same normal distribution, N(0, 1) by default
+ */
+public class Gaussian implements Initializer {
+	private final double deviation;
+
+	public Gaussian() {
+		this(1);
+	}
+
+	/**
+	 * @param deviation Standard deviation of every weight and bias
+	 */
+	public Gaussian(double deviation) {
+		this.deviation = deviation;
+	}
+
+	@Override
+	public double weightDeviation(int fanIn, int fanOut) {
+		return this.deviation;
+	}
+
+	@Override
+	public double biasDeviation(int fanIn, int fanOut) {
+		return this.deviation;
+	}
+
+}
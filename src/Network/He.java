@@ -0,0 +1,13 @@
+package Network;
+
+/**
+ * He initialization for ReLU layers, which zero half their inputs: weights from N(0, 2 / fanIn) and zero biases
+ */
+public class He implements Initializer {
+
+	@Override
+	public double weightDeviation(int fanIn, int fanOut) {
+		return Math.sqrt(2.0 / fanIn);
+	}
+
+}
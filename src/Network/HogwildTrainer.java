@@ -0,0 +1,183 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import Matrices.*;
+
+/**
+ * Asynchronous lock-free trainer in the style of Hogwild!.
+ * Every thread works through its own shard of the training data and applies each of its updates straight to the
+ * network's shared weight and bias arrays, with no locks and no barrier between steps. Concurrent updates to the
+ * same stretch of entries may overwrite each other. The kernels read and write whole SIMD vectors at a time, so one
+ * lost race can drop another step's contribution to several neighbouring entries, not only to the entry both threads
+ * were writing. This converges well when the gradients of different samples touch mostly different weights.
+ * <p>
+ * Updates are always plain gradient descent steps, since an optimizer's state cannot be shared without locks: the
+ * network's optimizer must be a plain {@link SGD}, without momentum or weight decay.
+ */
+public class HogwildTrainer implements AutoCloseable {
+	private final Network network;
+	private final int threads;
+	private final ForkJoinPool pool;
+
+	// Buffers of each thread, kept for the trainer's lifetime
+	private final BatchWorkspace[] workspaces;
+
+	// Throughput of the last epoch, per thread
+	private final long[] samples;
+	private final long[] nanos;
+
+	/**
+	 * Trains with plain gradient descent steps only. Networks set to use another optimizer, or SGD with momentum or
+	 * weight decay, are rejected, as that optimizer would otherwise be silently ignored.
+	 * @param network Network whose weights and biases are trained, with the default plain SGD optimizer
+	 * @param threads Number of threads updating the network concurrently
+	 * @throws IllegalArgumentException If there are no threads or the network's optimizer is not plain SGD
+	 */
+	public HogwildTrainer(Network network, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one worker thread is needed");
+		} else if (!isPlainSGD(network.getOptimizer())) {
+			throw new IllegalArgumentException("Hogwild training only takes plain gradient descent steps, not " + network.getOptimizer().getClass().getSimpleName());
+		}
+
+		this.network = network;
+		this.threads = threads;
+		this.pool = new ForkJoinPool(threads);
+		this.workspaces = new BatchWorkspace[threads];
+		this.samples = new long[threads];
+		this.nanos = new long[threads];
+	}
+
+	public int getThreads() {
+		return this.threads;
+	}
+
+	/**
+	 * Whether an optimizer steps by the plain gradient, keeping no state between steps
+	 */
+	private static boolean isPlainSGD(Optimizer optimizer) {
+		return optimizer.getClass() == SGD.class && optimizer.getStateSize() == 0 && optimizer.weightDecay == 0;
+	}
+
+	/**
+	 * Trains the network asynchronously. Each epoch shuffles the data and deals it out to the threads.
+	 * @param trainingData Pairs of inputs and expected outputs
+	 * @param epochs Number of passes over the training data
+	 * @param miniBatchSize Samples in each thread's updates, usually 1
+	 * @param learningRate Step size
+	 * @throws IllegalStateException If the network's optimizer has since been set to one other than plain SGD
+	 */
+	public void stochasticGradientDescent(List<Pair<double[], double[]>> trainingData, int epochs, int miniBatchSize, double learningRate) {
+		if (!isPlainSGD(this.network.getOptimizer())) {
+			throw new IllegalStateException("Hogwild training only takes plain gradient descent steps, not " + this.network.getOptimizer().getClass().getSimpleName());
+		}
+
+		ArrayList<Pair<double[], double[]>> shuffled = new ArrayList<>(trainingData);
+
+		// Created in thread order, so each thread's dropout masks come from the same split of the network's stream
+		for (int t = 0; t < this.threads; t++) {
+			if (this.workspaces[t] == null || this.workspaces[t].getCapacity() < miniBatchSize) {
+				this.workspaces[t] = this.network.newWorkspace(miniBatchSize);
+			}
+		}
+
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			Collections.shuffle(shuffled);
+			List<Callable<Void>> tasks = new ArrayList<>();
+
+			for (int t = 0; t < this.threads; t++) {
+				final int thread = t;
+				final List<Pair<double[], double[]>> shard = shuffled.subList(
+						(int) ((long) shuffled.size() * t / this.threads), (int) ((long) shuffled.size() * (t + 1) / this.threads));
+
+				tasks.add(() -> {
+					this.runShard(thread, shard, miniBatchSize, learningRate);
+					return null;
+				});
+			}
+
+			for (Future<Void> future : this.pool.invokeAll(tasks)) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(e);
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Worker failed", e.getCause());
+				}
+			}
+		}
+	}
+
+	private void runShard(int thread, List<Pair<double[], double[]>> shard, int miniBatchSize, double learningRate) throws Exception {
+		BatchWorkspace ws = this.workspaces[thread];
+		long start = System.nanoTime();
+
+		for (int i = 0; i < shard.size(); i += miniBatchSize) {
+			List<Pair<double[], double[]>> miniBatch = shard.subList(i, Math.min(i + miniBatchSize, shard.size()));
+
+			ws.resize(miniBatch.size());
+			Network.packBatch(miniBatch, ws.inputs, ws.expectations);
+			this.network.backpropagateBatch(ws.inputs, ws.expectations, ws);
+
+			// Unsynchronized read-modify-write of the shared parameters
+			for (int layer = 0; layer < this.network.numLayers - 1; layer++) {
+				Matrix.axpy(- learningRate / miniBatch.size(), ws.nablaW.get(layer), this.network.weights.get(layer));
+				Matrix.axpy(- learningRate / miniBatch.size(), ws.nablaB.get(layer), this.network.biases.get(layer));
+			}
+		}
+
+		this.nanos[thread] = System.nanoTime() - start;
+		this.samples[thread] = shard.size();
+	}
+
+	/**
+	 * Gets the training throughput of one thread over the last epoch
+	 * @param thread Index of the thread
+	 * @return Samples processed per second
+	 */
+	public double getSamplesPerSecond(int thread) {
+		return this.nanos[thread] == 0 ? 0 : this.samples[thread] * 1e9 / this.nanos[thread];
+	}
+
+	/**
+	 * Gets the combined training throughput of every thread over the last epoch
+	 * @return Samples processed per second
+	 */
+	public double getSamplesPerSecond() {
+		double total = 0;
+
+		for (int t = 0; t < this.threads; t++) {
+			total += this.getSamplesPerSecond(t);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Describes the per-thread throughput of the last epoch
+	 */
+	public String throughputReport() {
+		StringBuilder sb = new StringBuilder();
+
+		for (int t = 0; t < this.threads; t++) {
+			sb.append(String.format("thread %d: %.1f samples/sec%n", t, this.getSamplesPerSecond(t)));
+		}
+
+		sb.append(String.format("total: %.1f samples/sec%n", this.getSamplesPerSecond()));
+
+		return sb.toString();
+	}
+
+	@Override
+	public void close() {
+		this.pool.shutdown();
+	}
+}
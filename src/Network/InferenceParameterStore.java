@@ -0,0 +1,368 @@
+package Network;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Matrices.*;
+
+/**
+ * Read-mostly arena serving a trained network's weights and biases to inference from outside the Java heap, so that
+ * wide layers neither fill the old generation nor lengthen full collections.
+ * <p>
+ * A store is either allocated in direct memory, which counts against -XX:MaxDirectMemorySize rather than the heap,
+ * or maps a {@link Checkpoint} file read-only. A mapped store reads the parameters straight out of the page cache,
+ * so several inference processes on one host share a single copy of the model. Closing the store frees or unmaps
+ * its memory at once instead of waiting for the buffers to be collected; where sun.misc.Unsafe cannot be reached, the
+ * buffers are dropped on close and freed by the collector once no matrix refers to them. Close waits for the inference sessions
+ * already reading the store to finish, and makes any later read fail; the matrices handed out by
+ * {@link #getWeights(int)} and {@link #getBiases(int)} must not be used afterwards.
+ * <p>
+ * The store is for inference only. Its matrices are {@link OffHeapMatrix} views, which
+ * {@link InferenceSession#InferenceSession(InferenceParameterStore)} multiplies in place, but training runs on the
+ * network's own on-heap matrices: a trained network is copied in with {@link #copyOf(Network)} or
+ * {@link #copyFrom(Network)}, and copied back out with {@link #toNetwork()} to carry on training it.
+ * Stores hold fully connected networks only.
+ */
+public final class InferenceParameterStore implements AutoCloseable {
+	/**
+	 * Unsafe.invokeCleaner, which frees a direct buffer or unmaps a mapped one straight away
+	 */
+	private static final Method INVOKE_CLEANER = invokeCleaner();
+	private static final Object UNSAFE = unsafe();
+
+	private final int[] sizes;
+	private final ArrayList<Activation> activations;
+	private final double[] dropout;
+	private final boolean readOnly;
+	private final ArrayList<OffHeapMatrix> weights = new ArrayList<>();
+	private final ArrayList<OffHeapMatrix> biases = new ArrayList<>();
+
+	// Buffers owned by the store, freed on close
+	private final ArrayList<ByteBuffer> buffers = new ArrayList<>();
+	private volatile boolean open = true;
+
+	// Reads under way, which close waits for before freeing the buffers
+	private final AtomicInteger users = new AtomicInteger();
+
+	// Whether close frees the buffers itself, rather than leaving them to the collector
+	boolean freeOnClose = INVOKE_CLEANER != null && UNSAFE != null;
+
+	private static Method invokeCleaner() {
+		try {
+			return Class.forName("sun.misc.Unsafe").getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Buffers are then freed when they are collected
+			return null;
+		}
+	}
+
+	private static Object unsafe() {
+		try {
+			Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+
+			return field.get(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private InferenceParameterStore(int[] sizes, List<Activation> activations, double[] dropout, boolean readOnly) {
+		this.sizes = sizes.clone();
+		this.activations = new ArrayList<>(activations);
+		this.dropout = dropout.clone();
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * Allocates zeroed weights and biases in direct memory for a sigmoid network
+	 * @param sizes Number of neurons in each layer, input layer first
+	 */
+	public static InferenceParameterStore allocate(int[] sizes) {
+		return allocate(sizes, Network.sigmoids(sizes.length), new double[sizes.length]);
+	}
+
+	private static InferenceParameterStore allocate(int[] sizes, List<Activation> activations, double[] dropout) {
+		InferenceParameterStore store = new InferenceParameterStore(sizes, activations, dropout, false);
+
+		for (int i = 0; i < sizes.length - 1; i++) {
+			store.weights.add(store.allocateMatrix(sizes[i + 1], sizes[i]));
+			store.biases.add(store.allocateMatrix(sizes[i + 1], 1));
+		}
+
+		return store;
+	}
+
+	/**
+	 * Copies a network's weights and biases into direct memory
+	 * @param network Fully connected network to copy
+	 * @throws IllegalArgumentException If the network is convolutional
+	 */
+	public static InferenceParameterStore copyOf(Network network) {
+		if (network.convolutional) {
+			throw new IllegalArgumentException("Parameter stores hold fully connected networks only");
+		}
+
+		InferenceParameterStore store = allocate(network.sizes, network.layerActivations, network.dropout);
+
+		try {
+			store.copyFrom(network);
+		} catch (MatrixDimensionException e) {
+			// The store is sized from the network, so this cannot happen
+			throw new IllegalStateException(e);
+		}
+
+		return store;
+	}
+
+	/**
+	 * Maps the parameters of a checkpoint file read-only, without copying them
+	 * @param path Path of a file written by {@link Checkpoint#write(Network, String)}
+	 * @throws IOException If the file cannot be mapped, is not a checkpoint of a supported version or holds a convolutional network
+	 */
+	public static InferenceParameterStore map(String path) throws IOException {
+		try (FileChannel chan = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate((int) Math.min(chan.size(), 1 << 16)).order(ByteOrder.LITTLE_ENDIAN);
+
+			int read;
+
+			do {
+				read = chan.read(header);
+			} while (read >= 0 && header.hasRemaining());
+
+			header.flip();
+			Checkpoint.Header layers = Checkpoint.readHeader(header, chan.size(), path);
+			int[] sizes = layers.sizes;
+
+			if (layers.convolutions.stream().anyMatch(conv -> conv != null)) {
+				throw new IOException(path + " holds a convolutional network, which parameter stores cannot map");
+			}
+			InferenceParameterStore store = new InferenceParameterStore(sizes, layers.activations, layers.dropout, true);
+			long position = header.position();
+
+			// Every matrix is mapped on its own, so no single mapping has to span the whole model
+			try {
+				for (int i = 0; i < sizes.length - 1; i++) {
+					store.weights.add(store.mapMatrix(chan, position, sizes[i + 1], sizes[i]));
+					position += (long) sizes[i + 1] * sizes[i] * Double.BYTES;
+
+					store.biases.add(store.mapMatrix(chan, position, sizes[i + 1], 1));
+					position += (long) sizes[i + 1] * Double.BYTES;
+				}
+			} catch (IOException | RuntimeException e) {
+				store.close();
+				throw e;
+			}
+
+			return store;
+		}
+	}
+
+	private OffHeapMatrix allocateMatrix(int rows, int cols) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(byteSize(rows, cols)).order(ByteOrder.nativeOrder());
+		this.buffers.add(buffer);
+
+		return new OffHeapMatrix(rows, cols, buffer.asDoubleBuffer());
+	}
+
+	private OffHeapMatrix mapMatrix(FileChannel chan, long position, int rows, int cols) throws IOException {
+		MappedByteBuffer buffer = chan.map(FileChannel.MapMode.READ_ONLY, position, byteSize(rows, cols));
+		this.buffers.add(buffer);
+
+		return new OffHeapMatrix(rows, cols, buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+	}
+
+	private static int byteSize(int rows, int cols) {
+		long bytes = (long) rows * cols * Double.BYTES;
+
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A " + rows + "x" + cols + " matrix does not fit in one buffer");
+		}
+
+		return (int) bytes;
+	}
+
+	public int[] getSizes() {
+		return this.sizes.clone();
+	}
+
+	/**
+	 * Gets the activation function of every layer after the input
+	 */
+	public List<Activation> getActivations() {
+		return Collections.unmodifiableList(this.activations);
+	}
+
+	/**
+	 * Whether the parameters are mapped from a file and cannot be changed
+	 */
+	public boolean isReadOnly() {
+		return this.readOnly;
+	}
+
+	public boolean isOpen() {
+		return this.open;
+	}
+
+	/**
+	 * Gets the bytes held outside the heap
+	 */
+	public long getBytes() {
+		long bytes = 0;
+
+		for (ByteBuffer buffer : this.buffers) {
+			bytes += buffer.capacity();
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Gets the weights between a layer and the next
+	 * @param layer Index of the layer the weights read from, 0 for the input layer
+	 * @throws IllegalStateException If the store has been closed
+	 */
+	public OffHeapMatrix getWeights(int layer) {
+		this.checkOpen();
+		return this.weights.get(layer);
+	}
+
+	/**
+	 * Gets the biases of the layer after the given one
+	 * @param layer Index of the layer before the biases, 0 for the input layer
+	 * @throws IllegalStateException If the store has been closed
+	 */
+	public OffHeapMatrix getBiases(int layer) {
+		this.checkOpen();
+		return this.biases.get(layer);
+	}
+
+	/**
+	 * Overwrites the stored parameters with a network's
+	 * @param network Network with the same layer sizes
+	 * @throws MatrixDimensionException If the network's layers differ from the store's
+	 * @throws IllegalStateException If the store is read-only or has been closed
+	 */
+	public void copyFrom(Network network) throws MatrixDimensionException {
+		if (this.readOnly) {
+			throw new IllegalStateException("Parameter store is read-only");
+		} else if (network.numLayers != this.sizes.length) {
+			throw new MatrixDimensionException("Matrix dimensions unequal");
+		}
+
+		this.acquire();
+
+		try {
+			for (int i = 0; i < this.sizes.length - 1; i++) {
+				this.weights.get(i).copyFrom(network.weights.get(i));
+				this.biases.get(i).copyFrom(network.biases.get(i));
+			}
+		} finally {
+			this.release();
+		}
+	}
+
+	/**
+	 * Copies the parameters back onto the heap as a network, e.g. to carry on training it
+	 * @throws IllegalStateException If the store has been closed
+	 */
+	public Network toNetwork() {
+		ArrayList<Matrix> weights = new ArrayList<>();
+		ArrayList<Matrix> biases = new ArrayList<>();
+
+		this.acquire();
+
+		try {
+			for (int i = 0; i < this.sizes.length - 1; i++) {
+				weights.add(this.weights.get(i).toMatrix());
+				biases.add(this.biases.get(i).toMatrix());
+			}
+		} finally {
+			this.release();
+		}
+
+		return new Network(this.sizes.clone(), weights, biases, this.activations, Network.dense(this.sizes.length), this.dropout, new SplittableRandom());
+	}
+
+	private void checkOpen() {
+		if (!this.open) {
+			throw new IllegalStateException("Parameter store closed");
+		}
+	}
+
+	/**
+	 * Starts a read of the parameters, which holds off close until the matching {@link #release()}
+	 * @throws IllegalStateException If the store has been closed
+	 */
+	void acquire() {
+		// Paired with close, which clears open before reading the count: either close sees this read or it sees close
+		this.users.incrementAndGet();
+
+		if (!this.open) {
+			this.release();
+			throw new IllegalStateException("Parameter store closed");
+		}
+	}
+
+	/**
+	 * Ends a read started by {@link #acquire()}, waking a close waiting for it
+	 */
+	void release() {
+		if (this.users.decrementAndGet() == 0 && !this.open) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Frees the direct memory, or unmaps the file, once every read under way has been released.
+	 * Reads started afterwards fail with an IllegalStateException.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!this.open) {
+			return;
+		}
+
+		this.open = false;
+		boolean interrupted = false;
+
+		// Freeing a buffer that is still being read would crash the JVM, so an interrupt only delays the wait
+		while (this.users.get() > 0) {
+			try {
+				this.wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (this.freeOnClose) {
+			for (ByteBuffer buffer : this.buffers) {
+				try {
+					INVOKE_CLEANER.invoke(UNSAFE, buffer);
+				} catch (ReflectiveOperationException e) {
+					// Left for the collector to free
+				}
+			}
+		}
+
+		this.buffers.clear();
+	}
+}
@@ -0,0 +1,244 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import Matrices.*;
+
+/**
+ * Embedded inference service that coalesces concurrent single-sample requests into micro-batches.
+ * Requests are queued in process; one worker thread waits for the first request, gathers more until either the
+ * batch is full or the oldest request has waited the maximum wait time, then runs the whole batch as one
+ * matrix-matrix forward pass. A longer wait window gives larger batches and more throughput at the cost of latency;
+ * {@link #getLatencies()} reports the p50, p99 and throughput to tune it by.
+ */
+public class InferenceServer implements AutoCloseable {
+	private final int[] sizes;
+	private final ArrayList<Activation> activations;
+	private final ArrayList<Convolution> convolutions;
+	private final ArrayList<Matrix> weights = new ArrayList<>();
+	private final ArrayList<Matrix> biases = new ArrayList<>();
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+
+	// Layer buffers for the largest batch, index 0 holding the packed inputs
+	private final double[][] layerData;
+
+	private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+	private final LatencyRecorder latencies = new LatencyRecorder(1 << 16);
+	private final Thread worker;
+	private volatile boolean running = true;
+	private long batches;
+	private long batchedRequests;
+
+	/**
+	 * Pending request and the future its caller waits on
+	 */
+	private static class Request {
+		final double[] input;
+		final long submitted = System.nanoTime();
+		final CompletableFuture<Prediction> result = new CompletableFuture<>();
+
+		Request(double[] input) {
+			this.input = input;
+		}
+	}
+
+	/**
+	 * Starts serving a snapshot of a trained network
+	 * @param network Trained network, copied so that it may keep training
+	 * @param maxBatchSize Most requests run in one forward pass
+	 * @param maxWaitMicros Longest a request waits for others to join its batch, in microseconds
+	 */
+	public InferenceServer(Network network, int maxBatchSize, long maxWaitMicros) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Batches must hold at least one request");
+		} else if (maxWaitMicros < 0) {
+			throw new IllegalArgumentException("Wait window must not be negative");
+		}
+
+		this.sizes = network.sizes.clone();
+		this.activations = new ArrayList<>(network.layerActivations);
+		this.convolutions = new ArrayList<>(network.convolutions);
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+		this.layerData = new double[this.sizes.length][];
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			this.weights.add(new Matrix(network.weights.get(i), true));
+			this.biases.add(new Matrix(network.biases.get(i), true));
+		}
+
+		for (int i = 0; i < this.sizes.length; i++) {
+			this.layerData[i] = new double[this.sizes[i] * maxBatchSize];
+		}
+
+		this.worker = new Thread(this::serve, "InferenceServer worker");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * Queues a copy of an input for classification, so the caller may reuse its array straight away
+	 * @param input Input values, one per input neuron
+	 * @return Future completed with the prediction once the input's batch has run
+	 * @throws NetworkInputException If the input does not match the input layer
+	 * @throws IllegalStateException If the server has been closed
+	 */
+	public CompletableFuture<Prediction> submit(double[] input) throws NetworkInputException {
+		if (input.length != this.sizes[0]) {
+			throw new NetworkInputException("Input matrix wrong size");
+		} else if (!this.running) {
+			throw new IllegalStateException("Inference server closed");
+		}
+
+		Request request = new Request(input.clone());
+		this.queue.add(request);
+
+		// Closed while queueing, after the worker's last drain of the queue
+		if (!this.running && this.queue.remove(request)) {
+			request.result.completeExceptionally(new IllegalStateException("Inference server closed"));
+		}
+
+		return request.result;
+	}
+
+	/**
+	 * Gets the recorded request latencies and throughput
+	 */
+	public LatencyRecorder getLatencies() {
+		return this.latencies;
+	}
+
+	/**
+	 * Gets the mean number of requests per forward pass so far
+	 */
+	public synchronized double getMeanBatchSize() {
+		return this.batches == 0 ? 0 : (double) this.batchedRequests / this.batches;
+	}
+
+	private void serve() {
+		ArrayList<Request> batch = new ArrayList<>(this.maxBatchSize);
+
+		try {
+			while (this.running) {
+				batch.add(this.queue.take());
+				long deadline = batch.get(0).submitted + this.maxWaitNanos;
+
+				// Gathers requests until the batch is full or the first request's wait window closes
+				while (batch.size() < this.maxBatchSize) {
+					Request request = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+					if (request == null) {
+						break;
+					}
+
+					batch.add(request);
+				}
+
+				this.run(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		}
+
+		for (Request request : batch) {
+			request.result.completeExceptionally(new IllegalStateException("Inference server closed"));
+		}
+
+		Request request;
+
+		while ((request = this.queue.poll()) != null) {
+			request.result.completeExceptionally(new IllegalStateException("Inference server closed"));
+		}
+	}
+
+	/**
+	 * Runs one micro-batch forward and completes its requests
+	 */
+	private void run(ArrayList<Request> batch) {
+		int n = batch.size();
+		Matrix[] layers = new Matrix[this.sizes.length];
+
+		for (int i = 0; i < this.sizes.length; i++) {
+			layers[i] = new Matrix(this.sizes[i], n, this.layerData[i]);
+		}
+
+		for (int col = 0; col < n; col++) {
+			double[] input = batch.get(col).input;
+
+			for (int row = 0; row < input.length; row++) {
+				this.layerData[0][row * n + col] = input[row];
+			}
+		}
+
+		try {
+			for (int i = 0; i < this.weights.size(); i++) {
+				ExecutionPlan.layer(this.convolutions.get(i), this.weights.get(i), layers[i], this.biases.get(i), this.activations.get(i), layers[i + 1]);
+			}
+		} catch (RuntimeException e) {
+			for (Request request : batch) {
+				request.result.completeExceptionally(e);
+			}
+
+			return;
+		}
+
+		Matrix output = layers[layers.length - 1];
+
+		for (int col = 0; col < n; col++) {
+			double[] scores = new double[output.getRows()];
+			int label = 0;
+
+			for (int row = 0; row < scores.length; row++) {
+				scores[row] = output.getData()[output.index(row, col)];
+
+				if (scores[row] > scores[label]) {
+					label = row;
+				}
+			}
+
+			Request request = batch.get(col);
+			this.latencies.record(System.nanoTime() - request.submitted);
+			request.result.complete(new Prediction(label, scores));
+		}
+
+		synchronized (this) {
+			this.batches++;
+			this.batchedRequests += n;
+		}
+	}
+
+	/**
+	 * Stops the worker, failing every request still queued, and waits for it to finish its current batch
+	 */
+	@Override
+	public void close() {
+		this.running = false;
+		this.worker.interrupt();
+
+		// A caller completing a future may close from the worker itself, which cannot wait for its own end
+		if (Thread.currentThread() == this.worker) {
+			return;
+		}
+
+		boolean interrupted = false;
+
+		while (true) {
+			try {
+				this.worker.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
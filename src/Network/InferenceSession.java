@@ -0,0 +1,161 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Matrices.*;
+
+/**
+ * Thread-safe, allocation-free single-sample inference over a snapshot of a trained network.
+ * The weights and biases of a network are copied when the session is created, so training may carry on with the
+ * original network; a session over a {@link InferenceParameterStore} reads the weights in place instead.
+ * Every thread calling into the session gets its own preallocated activation buffers on first use, after which a
+ * prediction allocates nothing.
+ */
+public class InferenceSession {
+	private final int[] sizes;
+	private final ArrayList<Activation> activations;
+	private final ArrayList<Convolution> convolutions;
+	private final ArrayList<Matrix> weights = new ArrayList<>();
+	private final ArrayList<Matrix> biases = new ArrayList<>();
+	private final ArrayList<OffHeapMatrix> storeWeights = new ArrayList<>();
+	private final InferenceParameterStore store;
+	private final ThreadLocal<Matrix[]> buffers;
+
+	/**
+	 * @param network Trained network to snapshot
+	 */
+	public InferenceSession(Network network) {
+		this(network.sizes, network.layerActivations, network.convolutions, null);
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			this.weights.add(new Matrix(network.weights.get(i), true));
+			this.biases.add(new Matrix(network.biases.get(i), true));
+		}
+	}
+
+	/**
+	 * Runs inference with the weights read in place from an off-heap store, e.g. a checkpoint mapped by several
+	 * processes, activating every layer as the store records. Only the biases are copied onto the heap. Each
+	 * prediction holds the store open until it is done, and predictions after the store closes fail.
+	 * @param store Parameters of a trained network
+	 */
+	public InferenceSession(InferenceParameterStore store) {
+		this(store.getSizes(), store.getActivations(), Network.dense(store.getSizes().length), store);
+
+		for (int i = 0; i < this.sizes.length - 1; i++) {
+			this.storeWeights.add(store.getWeights(i));
+			this.biases.add(store.getBiases(i).toMatrix());
+		}
+	}
+
+	private InferenceSession(int[] sizes, List<Activation> activations, List<Convolution> convolutions, InferenceParameterStore store) {
+		this.sizes = sizes.clone();
+		this.activations = new ArrayList<>(activations);
+		this.convolutions = new ArrayList<>(convolutions);
+		this.store = store;
+
+		// Index 0 holds the input, every other index a layer's z values then, in place, its activations
+		this.buffers = ThreadLocal.withInitial(() -> {
+			Matrix[] layers = new Matrix[this.sizes.length];
+
+			for (int i = 0; i < this.sizes.length; i++) {
+				layers[i] = new Matrix(this.sizes[i], 1);
+			}
+
+			return layers;
+		});
+	}
+
+	public int getInputSize() {
+		return this.sizes[0];
+	}
+
+	public int getOutputSize() {
+		return this.sizes[this.sizes.length - 1];
+	}
+
+	/**
+	 * Gets the most likely class of an input
+	 * @param input Input values, one per input neuron
+	 * @return Index of the output neuron with the highest activation
+	 * @throws NetworkInputException If the input does not match the input layer
+	 * @throws IllegalStateException If the session reads a store that has been closed
+	 */
+	public int classify(double[] input) throws NetworkInputException {
+		return argmax(this.forward(input));
+	}
+
+	/**
+	 * Gets the most likely class of an input along with the score of every class
+	 * @param input Input values, one per input neuron
+	 * @param scores Array receiving the output activations, one per output neuron
+	 * @return Index of the output neuron with the highest activation
+	 * @throws NetworkInputException If the input or the scores array does not match the network
+	 * @throws IllegalStateException If the session reads a store that has been closed
+	 */
+	public int classify(double[] input, double[] scores) throws NetworkInputException {
+		if (scores.length != this.getOutputSize()) {
+			throw new NetworkInputException("Scores array wrong size");
+		}
+
+		Matrix output = this.forward(input);
+		System.arraycopy(output.getData(), output.getOffset(), scores, 0, scores.length);
+
+		return argmax(output);
+	}
+
+	/**
+	 * Runs the input through every layer in the calling thread's buffers
+	 * @return The output activations, valid until the thread's next call
+	 */
+	private Matrix forward(double[] input) throws NetworkInputException {
+		if (input.length != this.sizes[0]) {
+			throw new NetworkInputException("Input matrix wrong size");
+		}
+
+		Matrix[] layers = this.buffers.get();
+		System.arraycopy(input, 0, layers[0].getData(), 0, input.length);
+
+		// Keeps the store from freeing the weights under the pass; the output is on the heap, so it outlives the hold
+		if (this.store != null) {
+			this.store.acquire();
+		}
+
+		try {
+			for (int i = 0; i < this.biases.size(); i++) {
+				Matrix next = layers[i + 1];
+
+				if (this.store != null) {
+					OffHeapMatrix.gemm(this.storeWeights.get(i), layers[i], next);
+					Matrix.addInto(next, next, this.biases.get(i));
+					this.activations.get(i).forward(next, next);
+				} else {
+					ExecutionPlan.layer(this.convolutions.get(i), this.weights.get(i), layers[i], this.biases.get(i), this.activations.get(i), next);
+				}
+			}
+		} catch (MatrixMultiplicationException | MatrixAdditionException | MatrixDimensionException e) {
+			// Every buffer is sized from the network, so this cannot happen
+			throw new IllegalStateException(e);
+		} finally {
+			if (this.store != null) {
+				this.store.release();
+			}
+		}
+
+		return layers[layers.length - 1];
+	}
+
+	private static int argmax(Matrix output) {
+		double[] data = output.getData();
+		int best = 0;
+
+		for (int i = 1; i < output.getRows(); i++) {
+			if (data[output.index(i, 0)] > data[output.index(best, 0)]) {
+				best = i;
+			}
+		}
+
+		return best;
+	}
+}
@@ -0,0 +1,67 @@
+package Network;
+
+import java.util.SplittableRandom;
+
+import Matrices.Matrix;
+
+/**
+ * Scheme drawing a network's initial weights and biases from zero-mean normal distributions.
+ * Schemes only choose the spread of each layer's distribution from its fan-in and fan-out; the entries themselves
+ * are filled in bulk by {@link #fill(Matrix, double, SplittableRandom)}.
+ */
+public interface Initializer {
+	/**
+	 * Gets the standard deviation of a layer's weights
+	 * @param fanIn Number of neurons feeding the layer
+	 * @param fanOut Number of neurons in the layer
+	 */
+	double weightDeviation(int fanIn, int fanOut);
+
+	/**
+	 * Gets the standard deviation of a layer's biases, zero by default
+	 * @param fanIn Number of neurons feeding the layer
+	 * @param fanOut Number of neurons in the layer
+	 */
+	default double biasDeviation(int fanIn, int fanOut) {
+		return 0;
+	}
+
+	/**
+	 * Fills a layer's weights and biases, each from its own split of the random stream
+	 * @param weights Weights of the layer, one row per neuron
+	 * @param biases Biases of the layer
+	 * @param random Stream the layer's values are split from
+	 */
+	default void initialize(Matrix weights, Matrix biases, SplittableRandom random) {
+		int fanIn = weights.getCols();
+		int fanOut = weights.getRows();
+
+		fill(weights, this.weightDeviation(fanIn, fanOut), random.split());
+		fill(biases, this.biasDeviation(fanIn, fanOut), random.split());
+	}
+
+	/**
+	 * Fills every entry of a matrix with samples of N(0, deviation^2).
+	 * The entries are drawn in fixed-size chunks, each from its own split of the stream, so that large matrices are
+	 * filled in parallel while a given seed always yields the same values.
+	 * @param m Matrix to fill
+	 * @param deviation Standard deviation of the samples
+	 * @param random Stream the chunks are split from
+	 */
+	static void fill(Matrix m, double deviation, SplittableRandom random) {
+		if (deviation == 0) {
+			m.fill(0);
+		} else if (m.isContiguous()) {
+			RandomFill.gaussian(m.getData(), m.getOffset(), m.getRows() * m.getCols(), deviation, random);
+		} else {
+			double[] samples = new double[m.getRows() * m.getCols()];
+			RandomFill.gaussian(samples, 0, samples.length, deviation, random);
+
+			for (int row = 0; row < m.getRows(); row++) {
+				for (int col = 0; col < m.getCols(); col++) {
+					m.getData()[m.index(row, col)] = samples[row * m.getCols() + col];
+				}
+			}
+		}
+	}
+}
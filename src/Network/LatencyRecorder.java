@@ -0,0 +1,84 @@
+package Network;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples and the overall request rate, for reporting percentiles and throughput
+ */
+public class LatencyRecorder {
+	private final long[] samples;
+	private int next;
+	private int size;
+	private long count;
+	private long firstNanos;
+	private long lastNanos;
+
+	/**
+	 * @param capacity Number of most recent samples the percentiles are computed over
+	 */
+	public LatencyRecorder(int capacity) {
+		this.samples = new long[capacity];
+	}
+
+	/**
+	 * Records one completed request
+	 * @param latencyNanos Time from submission to completion
+	 */
+	public synchronized void record(long latencyNanos) {
+		long now = System.nanoTime();
+
+		if (this.count == 0) {
+			this.firstNanos = now - latencyNanos;
+		}
+
+		this.samples[this.next] = latencyNanos;
+		this.next = (this.next + 1) % this.samples.length;
+		this.size = Math.min(this.size + 1, this.samples.length);
+		this.count++;
+		this.lastNanos = now;
+	}
+
+	/**
+	 * Gets a latency percentile over the recent samples
+	 * @param percentile Between 0 and 100, e.g. 99 for the p99
+	 * @return The latency in nanoseconds, or 0 with no samples
+	 */
+	public synchronized long percentile(double percentile) {
+		if (this.size == 0) {
+			return 0;
+		}
+
+		long[] sorted = Arrays.copyOf(this.samples, this.size);
+		Arrays.sort(sorted);
+
+		int rank = (int) Math.ceil(percentile / 100 * this.size) - 1;
+
+		return sorted[Math.max(0, Math.min(rank, this.size - 1))];
+	}
+
+	/**
+	 * Gets the number of requests recorded since creation or the last reset
+	 */
+	public synchronized long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Gets the completed requests per second, from the first submission to the last completion
+	 */
+	public synchronized double throughput() {
+		return this.lastNanos == this.firstNanos ? 0 : this.count * 1e9 / (this.lastNanos - this.firstNanos);
+	}
+
+	public synchronized void reset() {
+		this.next = 0;
+		this.size = 0;
+		this.count = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d requests, p50 %.1f us, p99 %.1f us, %.0f requests/sec",
+				this.count, this.percentile(50) / 1e3, this.percentile(99) / 1e3, this.throughput());
+	}
+}
@@ -0,0 +1,10 @@
+package Network;
+
+/**
+ * Building block of a network composed with {@link Network#builder(int)}: a {@link Dense} or {@link Conv2D} layer,
+ * an {@link Activation} applied to the layer before it, a {@link MaxPool} over a convolution, or {@link Dropout} on
+ * the layer before it while training
+ */
+public interface Layer {
+
+}
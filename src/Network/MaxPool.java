@@ -0,0 +1,25 @@
+package Network;
+
+/**
+ * Max-pooling over non-overlapping square windows of the convolution before it, keeping the largest value of every
+ * window in each channel. Rows and columns left over at the bottom and right edges are dropped.
+ */
+public class MaxPool implements Layer {
+	private final int size;
+
+	/**
+	 * @param size Height and width of the windows, also their stride
+	 */
+	public MaxPool(int size) {
+		if (size < 2) {
+			throw new IllegalArgumentException("Pooling windows must be at least 2x2");
+		}
+
+		this.size = size;
+	}
+
+	public int getSize() {
+		return this.size;
+	}
+
+}
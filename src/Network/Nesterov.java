@@ -0,0 +1,59 @@
+package Network;
+
+/**
+ * Nesterov accelerated gradient, in the form that only needs the gradient at the current weights:
+ * v = mu * v + g, w = w - eta * (g + mu * v)
+ */
+public class Nesterov extends Optimizer {
+	private final double momentum;
+
+	public Nesterov() {
+		this(0.9, 0);
+	}
+
+	/**
+	 * @param momentum Fraction of the previous velocity kept each step
+	 * @param weightDecay Strength of the L2 weight decay, zero for none
+	 */
+	public Nesterov(double momentum, double weightDecay) {
+		super(weightDecay);
+
+		if (momentum < 0 || momentum >= 1) {
+			throw new IllegalArgumentException("Momentum must be in [0, 1)");
+		}
+
+		this.momentum = momentum;
+	}
+
+	@Override
+	protected int getStateSize() {
+		return 1;
+	}
+
+	@Override
+	protected void update(double[] p, int pOffset, double[] g, int gOffset, double[][] state, int n,
+			double gradientScale, double learningRate, double decay) {
+
+		double[] v = state[0];
+
+		for (int i = 0; i < n; i++) {
+			double gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			v[i] = this.momentum * v[i] + gi;
+			p[pOffset + i] -= learningRate * (gi + this.momentum * v[i]);
+		}
+	}
+
+	@Override
+	protected void update(float[] p, int pOffset, float[] g, int gOffset, float[][] state, int n,
+			float gradientScale, float learningRate, float decay) {
+
+		float[] v = state[0];
+		float mu = (float) this.momentum;
+
+		for (int i = 0; i < n; i++) {
+			float gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			v[i] = mu * v[i] + gi;
+			p[pOffset + i] -= learningRate * (gi + mu * v[i]);
+		}
+	}
+}
@@ -1,59 +1,846 @@
 package Network;
-import java.io.*;
-import java.math.*;
+import java.io.IOException;
 import java.util.ArrayList;
-import org.apache.commons.math3.distribution.NormalDistribution;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
 import Matrices.*;
 
-public class Network implements Serializable {
+public class Network {
+	/**
+	 * Input density below which the first layer runs on sparse inputs by default.
+	 * Around this density the sparse kernels match the vectorized dense product on 784-pixel inputs.
+	 */
+	public static final double DEFAULT_SPARSE_THRESHOLD = 0.2;
+
 	// Storage of info: layers, and matrices of activations, biases, and weights.
 	int numLayers;
 	int[] sizes;
 	ArrayList<Matrix> activations;
-	ArrayList<Matrix> zValues;
 	ArrayList<Matrix> biases;
 	ArrayList<Matrix> weights;
 
+	// Whether training runs each mini-batch as matrix-matrix products instead of sample by sample
+	boolean batched = true;
+
+	// Buffers reused by the batched training path
+	BatchWorkspace workspace;
+
+	// Fused forward pass over the current parameters, compiled on first use
+	private volatile ExecutionPlan plan;
+
+	// Fraction of non-zero inputs below which a batch is packed sparse for the first layer, or 0 to never do so
+	double sparseThreshold = DEFAULT_SPARSE_THRESHOLD;
+
+	// Activation function of every layer after the input, index i applying to layer i + 1
+	final ArrayList<Activation> layerActivations = new ArrayList<>();
+
+	// Geometry of every convolutional connection, index i feeding layer i + 1, null for dense ones
+	final ArrayList<Convolution> convolutions = new ArrayList<>();
+	final boolean convolutional;
+
+	// Rate at which each layer's activations drop out while training, 0 for none
+	final double[] dropout;
+	final boolean dropsOut;
+
+	// Whether the output layer is a softmax trained against the cross-entropy cost
+	final boolean crossEntropy;
+
+	// Stream the workspaces' dropout masks are split from
+	private final SplittableRandom random;
+
+	// Timings, loss and accuracy of training, reported to the listeners
+	final TrainingMetrics metrics = new TrainingMetrics();
+
+	// Update rule applied to the summed gradients of each mini-batch
+	Optimizer optimizer = new SGD();
+
+	// Precision of training, with single precision copies of the parameters and buffers when not DOUBLE
+	Precision precision = Precision.DOUBLE;
+	ArrayList<FloatMatrix> floatWeights;
+	ArrayList<FloatMatrix> floatBiases;
+	FloatWorkspace floatWorkspace;
+
+	/**
+	 * Creates a network with every weight and bias drawn from N(0, 1)
+	 * @param sizes Number of neurons in each layer, input layer first
+	 */
 	public Network(int[] sizes) {
-		// Initializes the matrices and activations, generating random biases and weights.
+		this(sizes, new Gaussian(), new SplittableRandom());
+	}
+
+	/**
+	 * Creates a network with every weight and bias drawn from N(0, 1), reproducibly
+	 * @param sizes Number of neurons in each layer, input layer first
+	 * @param seed Seed of the random initial values
+	 */
+	public Network(int[] sizes, long seed) {
+		this(sizes, new Gaussian(), new SplittableRandom(seed));
+	}
+
+	/**
+	 * Creates a network with weights and biases drawn by an initialization scheme, reproducibly
+	 * @param sizes Number of neurons in each layer, input layer first
+	 * @param initializer Scheme choosing the spread of each layer's initial values
+	 * @param seed Seed of the random initial values
+	 */
+	public Network(int[] sizes, Initializer initializer, long seed) {
+		this(sizes, initializer, new SplittableRandom(seed));
+	}
+
+	private Network(int[] sizes, Initializer initializer, SplittableRandom random) {
+		this(sizes, sigmoids(sizes.length), dense(sizes.length), new double[sizes.length], initializer, random);
+	}
+
+	/**
+	 * Creates a network composed by a {@link NetworkBuilder}
+	 * @param layerActivations Activation function of every layer after the input
+	 * @param convolutions Geometry of every connection, null for dense ones
+	 * @param dropout Dropout rate of every layer, 0 for none
+	 */
+	Network(int[] sizes, List<Activation> layerActivations, List<Convolution> convolutions, double[] dropout, Initializer initializer,
+			SplittableRandom random) {
+
+		this(sizes, new ArrayList<>(), new ArrayList<>(), layerActivations, convolutions, dropout, random);
+
+		// Each layer gets its own split, so a layer's values do not depend on the sizes of the layers before it
+		for (int i = 0; i < this.numLayers - 1; i++) {
+			this.weights.add(weightMatrix(sizes, convolutions, i));
+			this.biases.add(biasMatrix(sizes, convolutions, i));
+			initializer.initialize(this.weights.get(i), this.biases.get(i), random.split());
+		}
+	}
+
+	/**
+	 * Creates a sigmoid network around existing weights and biases
+	 */
+	Network(int[] sizes, ArrayList<Matrix> weights, ArrayList<Matrix> biases) {
+		this(sizes, weights, biases, sigmoids(sizes.length), dense(sizes.length), new double[sizes.length], new SplittableRandom());
+	}
+
+	/**
+	 * Creates a network around existing weights and biases, e.g. loaded from a checkpoint
+	 */
+	Network(int[] sizes, ArrayList<Matrix> weights, ArrayList<Matrix> biases, List<Activation> layerActivations,
+			List<Convolution> convolutions, double[] dropout, SplittableRandom random) {
+
 		this.sizes = sizes;
 		this.numLayers = this.sizes.length;
+		this.activations = new ArrayList<>();
+		this.biases = biases;
+		this.weights = weights;
+		this.layerActivations.addAll(layerActivations);
+		this.convolutions.addAll(convolutions);
+		this.convolutional = convolutions.stream().anyMatch(conv -> conv != null);
+		this.dropout = dropout.clone();
+		this.random = random;
 
 		for (int i = 0; i < this.numLayers; i++) {
 			this.activations.add(new Matrix(sizes[i], 1));
-			this.zValues.add(new Matrix(sizes[i], 1)); // First index of zValues left unused
 		}
 
-		for (int i = 0; i < this.numLayers - 1; i++) {
-			this.biases.add(new Matrix(sizes[i + 1], 1));
-			this.biases.set(i, Matrix.applyFunction(new Normal(), this.biases.get(i)));
+		boolean dropsOut = false;
 
-			this.weights.add(new Matrix(sizes[i + 1], sizes[i]));
-			this.weights.set(i, Matrix.applyFunction(new Normal(), this.weights.get(i)));
+		for (double rate : this.dropout) {
+			dropsOut |= rate > 0;
 		}
+
+		this.dropsOut = dropsOut;
+		this.crossEntropy = this.layerActivations.get(this.numLayers - 2) instanceof SoftmaxCrossEntropy;
+		this.metrics.setCrossEntropy(this.crossEntropy);
+	}
+
+	/**
+	 * Starts composing a network layer by layer
+	 * @param inputSize Number of input neurons
+	 */
+	public static NetworkBuilder builder(int inputSize) {
+		return new NetworkBuilder(inputSize);
+	}
+
+	/**
+	 * Starts composing a network over images, whose first layers may be convolutional
+	 * @param channels Channels of the input images, each read row by row
+	 * @param height Height of the input images
+	 * @param width Width of the input images
+	 */
+	public static NetworkBuilder builder(int channels, int height, int width) {
+		return new NetworkBuilder(channels, height, width);
+	}
+
+	static ArrayList<Activation> sigmoids(int numLayers) {
+		return new ArrayList<>(Collections.nCopies(numLayers - 1, new Sigmoid()));
+	}
+
+	/**
+	 * Gets the connections of a fully connected network
+	 */
+	static ArrayList<Convolution> dense(int numLayers) {
+		return new ArrayList<>(Collections.nCopies(numLayers - 1, null));
+	}
+
+	/**
+	 * Allocates the weights feeding a layer: one row per neuron for a dense connection, one per filter for a convolution
+	 * @param i Index of the layer the weights read from, 0 for the input layer
+	 */
+	static Matrix weightMatrix(int[] sizes, List<Convolution> convolutions, int i) {
+		Convolution conv = convolutions.get(i);
+		return conv == null ? new Matrix(sizes[i + 1], sizes[i]) : new Matrix(conv.filters, conv.getPatchSize());
+	}
+
+	/**
+	 * Allocates the biases of a layer, one per filter for a convolution
+	 * @param i Index of the layer before the biases, 0 for the input layer
+	 */
+	static Matrix biasMatrix(int[] sizes, List<Convolution> convolutions, int i) {
+		Convolution conv = convolutions.get(i);
+		return new Matrix(conv == null ? sizes[i + 1] : conv.filters, 1);
+	}
+
+	/**
+	 * Gets the activation function of every layer after the input
+	 */
+	public List<Activation> getActivations() {
+		return Collections.unmodifiableList(this.layerActivations);
+	}
+
+	/**
+	 * Gets the rate at which a layer's activations drop out while training
+	 * @param layer Index of the layer, 0 for the input layer
+	 */
+	public double getDropout(int layer) {
+		return this.dropout[layer];
+	}
+
+	public boolean isBatched() {
+		return this.batched;
+	}
+
+	/**
+	 * Chooses between training each mini-batch as one set of matrix-matrix products, or one sample at a time.
+	 * Networks with dropout or convolutions always train batched.
+	 * @param batched Whether to use the batched path
+	 */
+	public void setBatched(boolean batched) {
+		this.batched = batched;
+	}
+
+	public double getSparseThreshold() {
+		return this.sparseThreshold;
+	}
+
+	/**
+	 * Sets the input density below which batched double precision training multiplies the first layer by the
+	 * non-zero inputs only. The density of every batch is measured as it comes through.
+	 * @param sparseThreshold Fraction of non-zero inputs, 0 to always use the dense product or 1 to use the sparse
+	 * one whenever any input is zero
+	 */
+	public void setSparseThreshold(double sparseThreshold) {
+		this.sparseThreshold = sparseThreshold;
+	}
+
+	/**
+	 * Starts reporting the network's training to a listener. Measurement is switched on while at least one listener
+	 * is attached: per-phase timings, throughput, allocated bytes, loss and accuracy.
+	 * @param listener Listener called on the training thread after every step and epoch
+	 */
+	public void addListener(TrainingListener listener) {
+		this.metrics.addListener(listener);
+	}
+
+	public void removeListener(TrainingListener listener) {
+		this.metrics.removeListener(listener);
+	}
+
+	public Optimizer getOptimizer() {
+		return this.optimizer;
+	}
+
+	/**
+	 * Sets the rule that turns each mini-batch's gradient into a step, plain gradient descent by default.
+	 * The learning rate passed to the training methods is the optimizer's step size. {@link HogwildTrainer} only
+	 * trains networks left on plain SGD.
+	 * @param optimizer New optimizer, whose state should not be shared with another network
+	 */
+	public void setOptimizer(Optimizer optimizer) {
+		this.optimizer = optimizer;
 	}
 
-	private void feedForward() throws MatrixMultiplicationException, MatrixAdditionException {
+	public Precision getPrecision() {
+		return this.precision;
+	}
+
+	/**
+	 * Chooses the precision the network trains in. In FLOAT and MIXED precision every mini-batch runs batched on
+	 * single precision copies of the weights and biases, taken when the precision is set. In FLOAT precision the
+	 * double weights and biases are brought up to date at the end of every training call; in MIXED precision they
+	 * are the master copy and always current. ParallelTrainer and HogwildTrainer always train in double, as do
+	 * convolutional networks.
+	 * @param precision New precision
+	 * @throws IllegalStateException If the network is convolutional and the precision is not DOUBLE
+	 */
+	public void setPrecision(Precision precision) {
+		if (this.convolutional && precision != Precision.DOUBLE) {
+			throw new IllegalStateException("Convolutional networks train in double precision");
+		}
+
+		if (this.precision == Precision.FLOAT) {
+			this.syncWeights();
+		}
+
+		this.precision = precision;
+		this.floatWorkspace = null;
+
+		if (precision == Precision.DOUBLE) {
+			this.floatWeights = null;
+			this.floatBiases = null;
+		} else {
+			this.floatWeights = new ArrayList<>();
+			this.floatBiases = new ArrayList<>();
+
+			for (int i = 0; i < this.numLayers - 1; i++) {
+				this.floatWeights.add(new FloatMatrix(this.weights.get(i)));
+				this.floatBiases.add(new FloatMatrix(this.biases.get(i)));
+			}
+		}
+	}
+
+	private void feedForward() {
 		// Iterates forward through layers, finding the new activations until the outputs are reached
-		for (int i = 0; i < this.numLayers - 2; i++) {
-			Matrix currentActivations = this.activations.get(i);
-			Matrix currentWeights = this.weights.get(i);
-			Matrix currentBiases = this.biases.get(i);
-			Matrix nextZValues = new Matrix(this.zValues.get(i + 1), false);
-			Matrix nextActivations = new Matrix(this.activations.get(i + 1), false);
+		this.plan().run(this.activations);
+	}
+
+	/**
+	 * Gets the compiled forward pass, compiling it on first use
+	 */
+	ExecutionPlan plan() {
+		ExecutionPlan plan = this.plan;
+
+		if (plan == null) {
+			plan = new ExecutionPlan(this, 1);
+			this.plan = plan;
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Trains the network with mini-batch stochastic gradient descent
+	 * @param trainingData Pairs of inputs and expected outputs
+	 * @param epochs Number of passes over the training data
+	 * @param miniBatchSize Samples averaged into each step
+	 * @param learningRate Step size
+	 */
+	public void stochasticGradientDescent(List<Pair<double[], double[]>> trainingData, int epochs, int miniBatchSize, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
+
+		ArrayList<Pair<double[], double[]>> shuffled = new ArrayList<>(trainingData);
+
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			this.metrics.beginEpoch(epoch);
+			long loadStart = this.metrics.start();
+			Collections.shuffle(shuffled);
+			this.metrics.record(Phase.LOAD, loadStart);
+
+			for (int start = 0; start < shuffled.size(); start += miniBatchSize) {
+				List<Pair<double[], double[]>> miniBatch = shuffled.subList(start, Math.min(start + miniBatchSize, shuffled.size()));
+				this.metrics.beginStep();
+
+				if (this.batched || this.dropsOut || this.convolutional || this.precision != Precision.DOUBLE) {
+					loadStart = this.metrics.start();
+					BatchWorkspace ws = this.workspace(miniBatch.size());
+					packBatch(miniBatch, ws.inputs, ws.expectations);
+					this.metrics.record(Phase.LOAD, loadStart);
+					this.step(ws.inputs, ws.expectations, learningRate);
+				} else {
+					this.updateMiniBatch(miniBatch, learningRate);
+				}
+
+				this.metrics.endStep(miniBatch.size());
+			}
 
-			// Multiplies current weight and activations to store in target activations. Normalizes, then assigns to next value matrix.
-			nextZValues = Matrix.matrixMultiply(currentWeights, currentActivations);
-			nextZValues = Matrix.matrixAdd(nextZValues, currentBiases);
-			nextActivations = Matrix.applyFunction(new Sigmoid(), nextZValues);
-			this.zValues.set(i + 1, nextZValues);
-			this.activations.set(i + 1, nextActivations);
+			this.metrics.endEpoch();
+		}
+
+		this.syncWeights();
+	}
+
+	/**
+	 * Trains the network with mini-batch stochastic gradient descent on sparse inputs, e.g. from
+	 * {@code MnistReader.getSparseData}. In double precision each mini-batch is packed straight into sparse form and
+	 * a dense first layer only visits the non-zero inputs; otherwise the batch is expanded to dense inputs.
+	 * @param trainingData Pairs of sparse inputs and expected outputs
+	 * @param epochs Number of passes over the training data
+	 * @param miniBatchSize Samples averaged into each step
+	 * @param learningRate Step size
+	 */
+	public void stochasticGradientDescentSparse(List<Pair<SparseVector, double[]>> trainingData, int epochs, int miniBatchSize, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
+
+		ArrayList<Pair<SparseVector, double[]>> shuffled = new ArrayList<>(trainingData);
+		ArrayList<SparseVector> inputs = new ArrayList<>(miniBatchSize);
+
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			this.metrics.beginEpoch(epoch);
+			long loadStart = this.metrics.start();
+			Collections.shuffle(shuffled);
+			this.metrics.record(Phase.LOAD, loadStart);
+
+			for (int start = 0; start < shuffled.size(); start += miniBatchSize) {
+				List<Pair<SparseVector, double[]>> miniBatch = shuffled.subList(start, Math.min(start + miniBatchSize, shuffled.size()));
+				this.metrics.beginStep();
+				loadStart = this.metrics.start();
+
+				BatchWorkspace ws = this.workspace(miniBatch.size());
+				inputs.clear();
+
+				for (int col = 0; col < miniBatch.size(); col++) {
+					SparseVector input = miniBatch.get(col).getFirst();
+					double[] expectation = miniBatch.get(col).getSecond();
+
+					if (input.getLength() != this.sizes[0]) {
+						throw new NetworkInputException("Input matrix wrong size");
+					} else if (expectation.length != ws.expectations.getRows()) {
+						throw new NetworkExpectationException("Expectation Matrix wrong size");
+					}
+
+					inputs.add(input);
+
+					for (int row = 0; row < expectation.length; row++) {
+						ws.expectations.getData()[ws.expectations.index(row, col)] = expectation[row];
+					}
+				}
+
+				ws.sparseInputs.packRows(inputs);
+
+				if (this.precision == Precision.DOUBLE && this.convolutions.get(0) == null) {
+					this.metrics.record(Phase.LOAD, loadStart);
+					this.stepSparse(ws, learningRate);
+				} else {
+					ws.sparseInputs.unpackTranspose(ws.inputs);
+					this.metrics.record(Phase.LOAD, loadStart);
+					this.step(ws.inputs, ws.expectations, learningRate);
+				}
+
+				this.metrics.endStep(miniBatch.size());
+			}
+
+			this.metrics.endEpoch();
+		}
+
+		this.syncWeights();
+	}
+
+	/**
+	 * Trains the network with mini-batch stochastic gradient descent, drawing the batches from a stream
+	 * @param source Stream of shuffled mini-batches
+	 * @param epochs Number of passes over the training data
+	 * @param learningRate Step size
+	 * @throws InterruptedException If interrupted while waiting for a batch
+	 */
+	public void train(BatchSource source, int epochs, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException, InterruptedException {
+
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			this.metrics.beginEpoch(epoch);
+
+			while (true) {
+				// The wait for the batch that ends the epoch is still load time, kept by the epoch rather than a step
+				long loadStart = this.metrics.start();
+				Batch batch = source.next();
+				this.metrics.record(Phase.LOAD, loadStart);
+
+				if (batch == null) {
+					break;
+				}
+
+				this.metrics.beginStep();
+				this.step(batch.getInputs(), batch.getExpectations(), learningRate);
+				this.metrics.endStep(batch.size());
+			}
+
+			this.metrics.endEpoch();
+		}
+
+		this.syncWeights();
+	}
+
+	/**
+	 * Copies samples into the columns of an input and an expectation matrix
+	 * @throws NetworkInputException If an input does not match the input matrix's height
+	 * @throws NetworkExpectationException If an expectation does not match the expectation matrix's height
+	 */
+	static void packBatch(List<Pair<double[], double[]>> samples, Matrix inputs, Matrix expectations)
+			throws NetworkInputException, NetworkExpectationException {
+
+		for (int col = 0; col < samples.size(); col++) {
+			double[] data = samples.get(col).getFirst();
+			double[] expectation = samples.get(col).getSecond();
+
+			if (data.length != inputs.getRows()) {
+				throw new NetworkInputException("Input matrix wrong size");
+			} else if (expectation.length != expectations.getRows()) {
+				throw new NetworkExpectationException("Expectation Matrix wrong size");
+			}
+
+			for (int row = 0; row < data.length; row++) {
+				inputs.getData()[inputs.index(row, col)] = data[row];
+			}
+
+			for (int row = 0; row < expectation.length; row++) {
+				expectations.getData()[expectations.index(row, col)] = expectation[row];
+			}
+		}
+	}
+
+	/**
+	 * Gets the batched buffers sized for the given number of samples, growing them if needed
+	 */
+	BatchWorkspace workspace(int batchSize) {
+		if (this.workspace == null || this.workspace.getCapacity() < batchSize) {
+			this.workspace = this.newWorkspace(batchSize);
+		}
+
+		this.workspace.resize(batchSize);
+
+		return this.workspace;
+	}
+
+	/**
+	 * Allocates batched buffers with their own stream of dropout masks, e.g. for another training thread
+	 * @param capacity Most samples in a batch
+	 */
+	BatchWorkspace newWorkspace(int capacity) {
+		return new BatchWorkspace(this.sizes, this.convolutions, this.dropout, capacity, this.splitRandom());
+	}
+
+	private synchronized SplittableRandom splitRandom() {
+		return this.random.split();
+	}
+
+	/**
+	 * Takes one gradient step over a mini-batch stored one sample per column
+	 * @param inputs Input matrix of size (input layer x batch size)
+	 * @param expectations Expected outputs of size (output layer x batch size)
+	 * @param learningRate Step size
+	 */
+	public void updateMiniBatch(Matrix inputs, Matrix expectations, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
+
+		this.metrics.beginStep();
+		this.step(inputs, expectations, learningRate);
+		this.syncWeights();
+		this.metrics.endStep(inputs.getCols());
+	}
+
+	/**
+	 * Takes one gradient step in the network's precision, leaving float weights unsynced
+	 */
+	private void step(Matrix inputs, Matrix expectations, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
+
+		if (this.precision != Precision.DOUBLE) {
+			this.stepFloat(inputs, expectations, learningRate);
+			return;
+		}
+
+		BatchWorkspace ws = this.workspace(inputs.getCols());
+		long start = this.metrics.start();
+		this.forwardBatch(inputs, expectations, ws);
+		this.finishStep(expectations, ws, learningRate, start);
+	}
+
+	/**
+	 * Takes one double precision gradient step over the sparse inputs and expectations already packed in the workspace
+	 */
+	private void stepSparse(BatchWorkspace ws, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException {
+
+		long start = this.metrics.start();
+		ws.sparse = true;
+		ws.activations.set(0, ws.inputs);
+		this.forwardLayers(ws);
+		this.finishStep(ws.expectations, ws, learningRate, start);
+	}
+
+	/**
+	 * Runs the backward pass and the optimizer after a step's forward pass, started at the given time
+	 */
+	private void finishStep(Matrix expectations, BatchWorkspace ws, double learningRate, long start)
+			throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException {
+
+		this.metrics.recordOutputs(ws.activations.get(this.numLayers - 1), expectations);
+		start = this.metrics.record(Phase.FORWARD, start);
+
+		this.backwardBatch(expectations, ws);
+		start = this.metrics.record(Phase.BACKWARD, start);
+
+		this.applyGradients(ws.nablaW, ws.nablaB, ws.getBatchSize(), learningRate);
+		this.metrics.record(Phase.UPDATE, start);
+	}
+
+	/**
+	 * Steps the weights and biases with the optimizer, weights in the even slots and biases in the odd ones
+	 * @param nablaW Gradients of the weights summed over the batch
+	 * @param nablaB Gradients of the biases summed over the batch
+	 * @param batchSize Samples summed into the gradients
+	 * @param learningRate Step size
+	 */
+	void applyGradients(List<Matrix> nablaW, List<Matrix> nablaB, int batchSize, double learningRate) throws MatrixAdditionException {
+		this.optimizer.beginStep();
+
+		for (int i = 0; i < this.numLayers - 1; i++) {
+			this.optimizer.update(2 * i, this.weights.get(i), nablaW.get(i), 1.0 / batchSize, learningRate, true);
+			this.optimizer.update(2 * i + 1, this.biases.get(i), nablaB.get(i), 1.0 / batchSize, learningRate, false);
+		}
+	}
+
+	/**
+	 * Takes one gradient step in single precision, applying it to the float weights, or in MIXED precision to the
+	 * double master weights which are then rounded back into the float weights
+	 */
+	private void stepFloat(Matrix inputs, Matrix expectations, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
+
+		if (inputs.getRows() != this.sizes[0]) {
+			throw new NetworkInputException("Input matrix wrong size");
+		} else if (expectations.getRows() != this.sizes[this.numLayers - 1] || expectations.getCols() != inputs.getCols()) {
+			throw new NetworkExpectationException("Expectation Matrix wrong size");
+		}
+
+		FloatWorkspace ws = this.floatWorkspace(inputs.getCols());
+		long start = this.metrics.start();
+		FloatMatrix.convertInto(ws.inputs, inputs);
+		FloatMatrix.convertInto(ws.expectations, expectations);
+		this.forwardFloat(ws);
+		this.metrics.recordOutputs(ws.activations.get(this.numLayers - 1), ws.expectations);
+		start = this.metrics.record(Phase.FORWARD, start);
+
+		this.backwardFloat(ws);
+		start = this.metrics.record(Phase.BACKWARD, start);
+
+		double scale = 1.0 / inputs.getCols();
+		this.optimizer.beginStep();
+
+		for (int i = 0; i < this.numLayers - 1; i++) {
+			if (this.precision == Precision.MIXED) {
+				// The master weights take a double gradient, widened in place of the fused mixed kernel
+				FloatMatrix.convertInto(ws.masterNablaW.get(i), ws.nablaW.get(i));
+				FloatMatrix.convertInto(ws.masterNablaB.get(i), ws.nablaB.get(i));
+				this.optimizer.update(2 * i, this.weights.get(i), ws.masterNablaW.get(i), scale, learningRate, true);
+				this.optimizer.update(2 * i + 1, this.biases.get(i), ws.masterNablaB.get(i), scale, learningRate, false);
+				FloatMatrix.convertInto(this.floatWeights.get(i), this.weights.get(i));
+				FloatMatrix.convertInto(this.floatBiases.get(i), this.biases.get(i));
+			} else {
+				this.optimizer.update(2 * i, this.floatWeights.get(i), ws.nablaW.get(i), scale, learningRate, true);
+				this.optimizer.update(2 * i + 1, this.floatBiases.get(i), ws.nablaB.get(i), scale, learningRate, false);
+			}
+		}
+
+		this.metrics.record(Phase.UPDATE, start);
+	}
+
+	/**
+	 * Gets the single precision buffers sized for the given number of samples, growing them if needed
+	 */
+	private FloatWorkspace floatWorkspace(int batchSize) {
+		if (this.floatWorkspace == null || this.floatWorkspace.getCapacity() < batchSize) {
+			this.floatWorkspace = new FloatWorkspace(this.sizes, this.dropout, batchSize, this.precision == Precision.MIXED, this.splitRandom());
+		}
+
+		this.floatWorkspace.resize(batchSize);
+
+		return this.floatWorkspace;
+	}
+
+	/**
+	 * Single precision counterpart of {@link #forwardBatch(Matrix, Matrix, BatchWorkspace)} over the float weights,
+	 * reading the batch from the workspace's inputs
+	 */
+	private void forwardFloat(FloatWorkspace ws) throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException {
+
+		for (int i = 0; i < this.numLayers - 1; i++) {
+			FloatMatrix z = ws.zValues.get(i + 1);
+
+			FloatMatrix.gemm(1, this.floatWeights.get(i), ws.activations.get(i), 0, z);
+			FloatMatrix.addColumnInto(z, z, this.floatBiases.get(i));
+			this.layerActivations.get(i).forward(z, ws.outputs.get(i + 1));
+
+			FloatMatrix mask = ws.masks.get(i + 1);
+
+			if (mask != null) {
+				Dropout.sample(this.dropout[i + 1], ws.random, mask);
+				Dropout.apply(ws.outputs.get(i + 1), mask, ws.activations.get(i + 1));
+			}
+		}
+
+	}
+
+	/**
+	 * Single precision counterpart of {@link #backwardBatch(Matrix, BatchWorkspace)}, reading the expectations from the workspace
+	 */
+	private void backwardFloat(FloatWorkspace ws) throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException {
+		int last = this.numLayers - 1;
+		FloatMatrix delta = ws.deltas.get(last);
+		FloatMatrix.copyInto(delta, ws.activations.get(last));
+		FloatMatrix.axpy(-1, ws.expectations, delta);
+
+		for (int i = last; i > 0; i--) {
+			if (i < last || !this.crossEntropy) {
+				this.layerActivations.get(i - 1).backward(ws.outputs.get(i), delta);
+			}
+
+			FloatMatrix.rowSumInto(ws.nablaB.get(i - 1), delta);
+			FloatMatrix.gemm(1, delta, ws.activations.get(i - 1).transposeView(), 0, ws.nablaW.get(i - 1));
+
+			if (i > 1) {
+				FloatMatrix previous = ws.deltas.get(i - 1);
+				FloatMatrix.gemm(1, this.floatWeights.get(i - 1).transposeView(), delta, 0, previous);
+
+				if (ws.masks.get(i - 1) != null) {
+					Dropout.apply(previous, ws.masks.get(i - 1), previous);
+				}
+
+				delta = previous;
+			}
+		}
+	}
+
+	/**
+	 * Widens the float weights and biases into the double ones when they are the copy being trained
+	 */
+	private void syncWeights() {
+		if (this.precision != Precision.FLOAT) {
+			return;
+		}
+
+		try {
+			for (int i = 0; i < this.numLayers - 1; i++) {
+				FloatMatrix.convertInto(this.weights.get(i), this.floatWeights.get(i));
+				FloatMatrix.convertInto(this.biases.get(i), this.floatBiases.get(i));
+			}
+		} catch (MatrixDimensionException e) {
+			// The float copies are made from the double matrices, so this cannot happen
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Runs the whole mini-batch forward and backward as matrix-matrix products, leaving the summed gradients in the workspace
+	 */
+	void backpropagateBatch(Matrix inputs, Matrix expectations, BatchWorkspace ws)
+			throws MatrixAdditionException, MatrixMultiplicationException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
+
+		this.forwardBatch(inputs, expectations, ws);
+		this.backwardBatch(expectations, ws);
+	}
+
+	/**
+	 * Runs the mini-batch forward, leaving every layer's activations in the workspace
+	 */
+	private void forwardBatch(Matrix inputs, Matrix expectations, BatchWorkspace ws)
+			throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
+
+		if (inputs.getRows() != this.sizes[0] || inputs.getCols() != ws.getBatchSize()) {
+			throw new NetworkInputException("Input matrix wrong size");
+		} else if (expectations.getRows() != this.sizes[this.numLayers - 1] || expectations.getCols() != inputs.getCols()) {
+			throw new NetworkExpectationException("Expectation Matrix wrong size");
+		}
+
+		ws.activations.set(0, inputs);
+		ws.sparse = false;
+
+		// Sparse enough inputs are packed one sample per row, so a dense first layer only visits the non-zero ones
+		if (this.sparseThreshold > 0 && this.convolutions.get(0) == null) {
+			ws.sparse = ws.sparseInputs.packTranspose(inputs, this.sparseThreshold);
+		}
+
+		this.forwardLayers(ws);
+	}
+
+	/**
+	 * Runs every layer forward from the workspace's inputs, dense or sparse
+	 */
+	private void forwardLayers(BatchWorkspace ws) throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException {
+		ExecutionPlan plan = this.plan();
+
+		for (int i = 0; i < this.numLayers - 1; i++) {
+			Matrix a = ws.outputs.get(i + 1);
+
+			if (i == 0 && ws.sparse) {
+				Matrix.gemmTransposed(1, this.weights.get(0), ws.sparseInputs, 0, a);
+				Matrix.addColumnInto(a, a, this.biases.get(0));
+				this.layerActivations.get(0).forward(a, a);
+			} else if (this.convolutions.get(i) != null) {
+				this.convolutions.get(i).forward(this.weights.get(i), this.biases.get(i), this.layerActivations.get(i),
+						ws.activations.get(i), ws.convolutionBuffers.get(i), a);
+			} else {
+				plan.layer(i, ws.activations.get(i), a);
+			}
+
+			// The next layer reads the dropped activations, while the backward pass reads f'(z) off the full ones
+			Matrix mask = ws.masks.get(i + 1);
+
+			if (mask != null) {
+				Dropout.sample(this.dropout[i + 1], ws.random, mask);
+				Dropout.apply(a, mask, ws.activations.get(i + 1));
+			}
+		}
+	}
+
+	/**
+	 * Runs the mini-batch backward from the activations left by {@link #forwardBatch(Matrix, Matrix, BatchWorkspace)},
+	 * leaving the summed gradients in the workspace
+	 */
+	private void backwardBatch(Matrix expectations, BatchWorkspace ws)
+			throws MatrixAdditionException, MatrixMultiplicationException, MatrixDimensionException {
+
+		// Output error of the quadratic cost, (a - y) * f'(z), with f'(z) read off the cached activations.
+		// Softmax with the cross-entropy cost leaves a - y as it is.
+		int last = this.numLayers - 1;
+		Matrix delta = ws.deltas.get(last);
+		Matrix.copyInto(delta, ws.activations.get(last));
+		Matrix.axpy(-1, expectations, delta);
+
+		for (int i = last; i > 0; i--) {
+			if (i < last || !this.crossEntropy) {
+				this.layerActivations.get(i - 1).backward(ws.outputs.get(i), delta);
+			}
+
+			Convolution conv = this.convolutions.get(i - 1);
+
+			if (conv != null) {
+				// The convolution's two GEMMs give both the gradients and the error of the layer before
+				Matrix previous = i > 1 ? ws.deltas.get(i - 1) : null;
+				conv.backward(this.weights.get(i - 1), delta, ws.convolutionBuffers.get(i - 1), ws.nablaW.get(i - 1), ws.nablaB.get(i - 1), previous);
+			} else if (i == 1 && ws.sparse) {
+				Matrix.rowSumInto(ws.nablaB.get(0), delta);
+				Matrix.gemm(1, delta, ws.sparseInputs, 0, ws.nablaW.get(0));
+			} else {
+				Matrix.rowSumInto(ws.nablaB.get(i - 1), delta);
+				Matrix.gemm(1, delta, ws.activations.get(i - 1).transposeView(), 0, ws.nablaW.get(i - 1));
+			}
+
+			if (i > 1) {
+				Matrix previous = ws.deltas.get(i - 1);
+
+				if (conv == null) {
+					Matrix.gemm(1, this.weights.get(i - 1).transposeView(), delta, 0, previous);
+				}
+
+				// Dropped units pass no error back
+				if (ws.masks.get(i - 1) != null) {
+					Dropout.apply(previous, ws.masks.get(i - 1), previous);
+				}
+
+				delta = previous;
+			}
 		}
 	}
 
 	// Initializes the gradient matrices, calls backpropagation, and subtracts the gradient from the original weights and biases
-	private void updateMiniBatch(ArrayList<Pair<double[], double[]>> miniBatch, double learningRate) 
-			throws MatrixAdditionException, MatrixMultiplicationException, NetworkInputException, NetworkExpectationException {
+	private void updateMiniBatch(List<Pair<double[], double[]>> miniBatch, double learningRate)
+			throws MatrixAdditionException, MatrixMultiplicationException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
 
 		// ArrayLists of gradient matrices
 		ArrayList<Matrix> nablaW = new ArrayList<>(weights);
@@ -68,27 +855,31 @@ public class Network implements Serializable {
 		}
 
 		// This loop finds and adds the gradients to their respective matrices. Most of the work is done in backpropagate()
+		long start = this.metrics.start();
+
 		for (Pair<double[], double[]> tuple : miniBatch) {
 			Pair<ArrayList<Matrix>, ArrayList<Matrix>> deltas = this.backpropagate(tuple.getFirst(), tuple.getSecond());
 
+			if (this.metrics.isEnabled()) {
+				this.metrics.recordOutputs(this.activations.get(this.numLayers - 1), new Matrix(tuple.getSecond(), true));
+			}
+
 			for (int i = 0; i < this.numLayers - 1; i++) {
-				nablaW.set(i, Matrix.matrixAdd(nablaW.get(i), deltas.getFirst().get(i)));
-				nablaB.set(i, Matrix.matrixAdd(nablaB.get(i), deltas.getSecond().get(i)));
+				Matrix.axpy(1, deltas.getFirst().get(i), nablaW.get(i));
+				Matrix.axpy(1, deltas.getSecond().get(i), nablaB.get(i));
 			}
 		}
 
-		for (int i = 0; i < this.numLayers - 1; i++) {
-			nablaW.set(i, Matrix.scalarMultiply(- learningRate / miniBatch.size(), nablaW.get(i)));
-			this.weights.set(i, Matrix.matrixAdd(this.weights.get(i), nablaW.get(i)));
+		start = this.metrics.record(Phase.BACKWARD, start);
 
-			nablaB.set(i, Matrix.scalarMultiply(- learningRate / miniBatch.size(), nablaB.get(i)));
-			this.biases.set(i, Matrix.matrixAdd(this.biases.get(i), nablaB.get(i)));
-		}
+		// Steps the weights and biases in place against the averaged gradient
+		this.applyGradients(nablaW, nablaB, miniBatch.size(), learningRate);
+		this.metrics.record(Phase.UPDATE, start);
 	}
 
 	// Backpropagation that determines the adjustments to the weights and biases according to each training example in the mini-batch
-	private Pair<ArrayList<Matrix>, ArrayList<Matrix>> backpropagate(double[] data, double[] expectation) 
-			throws MatrixMultiplicationException, MatrixAdditionException, NetworkInputException, NetworkExpectationException {
+	Pair<ArrayList<Matrix>, ArrayList<Matrix>> backpropagate(double[] data, double[] expectation)
+			throws MatrixMultiplicationException, MatrixAdditionException, HadamardException, MatrixDimensionException, NetworkInputException, NetworkExpectationException {
 
 		// Checks if the data has the correct size input
 		if (data.length != this.activations.get(0).getRows()) {
@@ -100,87 +891,56 @@ public class Network implements Serializable {
 		ArrayList<Matrix> nablaW = new ArrayList<>(weights);
 		ArrayList<Matrix> nablaB = new ArrayList<>(biases);
 
-		for (int i = 0; i < nablaW.size(); i++) {
-			nablaW.set(i, new Matrix(nablaW.get(i), false));
-		}
-
-		for (int i = 0; i < nablaB.size(); i++) {
-			nablaB.set(i, new Matrix(nablaB.get(i), false));
-		}
-
 		Matrix image = new Matrix(data, true);
 
 		this.activations.set(0, image);
 
 		this.feedForward();
 
-		// Calculates the gradient for all weights and biases using backpropagation
-		double activationDerivative = 0;
-		for (int i = numLayers - 1; i >= 0; i--) {
-			if (i == numLayers - 1) {
-				for (int j = 0; j < activations.get(i).getRows(); j++) {
-					activationDerivative += 2 * (activations.get(i).getEntry(j, 0) - expectation[j]) * 
-							Matrix.applyFunction(new SigmoidPrime(), zValues.get(i)).getEntry(j, 0);
-				}
-			} else {
-				double layerActivationDerivative = 0;
+		// Calculates the gradient for all weights and biases using backpropagation, from the output layer back
+		Matrix delta = this.costDerivative(new Matrix(expectation, true));
 
-				// TODO: Calculate factor of derivative for generalized case
-
-				activationDerivative *= layerActivationDerivative;
+		for (int i = this.numLayers - 1; i > 0; i--) {
+			if (i < this.numLayers - 1) {
+				// Error of a hidden layer is the next layer's error carried back through its weights
+				delta = Matrix.matrixMultiply(this.weights.get(i).transposeView(), delta);
 			}
 
-			for (int row = 0; row < this.weights.get(i).getRows(); row++) {
-				for (int col = 0; col < this.weights.get(i).getCols(); col++) {
-					nablaW.get(i).setEntry(row, col, activationDerivative * activations.get(i).getEntry(col, 0));
-				}
-
-				nablaB.get(i).setEntry(row, 0, activationDerivative);
+			if (i < this.numLayers - 1 || !this.crossEntropy) {
+				this.layerActivations.get(i - 1).backward(this.activations.get(i), delta);
 			}
+
+			nablaB.set(i - 1, delta);
+			nablaW.set(i - 1, Matrix.matrixMultiply(delta, this.activations.get(i - 1).transposeView()));
 		}
+
+		return new Pair<>(nablaW, nablaB);
 	}
 
-	private Matrix costDerivative(int expectation) {
-		// FIXME: Change from colt to Matrix class
-		Matrix output = this.activations.get(activations.size() - 1);
-		Matrix expectationMatrix = generateExpectationMatrix(expectation, this.activations.get(this.numLayers - 1).size());
-		expectationMatrix.assign(new ScalarMultiply(-1));
-		output.assign(expectationMatrix, new Add());
+	// Derivative of the quadratic cost with respect to the output activations, or with softmax and cross-entropy the output error
+	private Matrix costDerivative(Matrix expectation) throws MatrixAdditionException {
+		Matrix output = new Matrix(this.activations.get(this.numLayers - 1), true);
+		Matrix.axpy(-1, expectation, output);
 
 		return output;
 	}
 
-	public final static void writeObject(Network x) throws IOException {
-		try {
-			FileOutputStream fileOut =
-					new FileOutputStream("/tmp/network.ser");
-			ObjectOutputStream out = new ObjectOutputStream(fileOut);
-			out.writeObject(x);
-			out.close();
-			fileOut.close();
-			System.out.printf("Serialized data is saved in /tmp/network.ser");
-		} catch (IOException i) {
-			i.printStackTrace();
-		}
+	/**
+	 * Saves the network's sizes, weights and biases in the binary checkpoint format
+	 * @param path Path of the checkpoint file
+	 * @throws IOException If the file cannot be written
+	 */
+	public void save(String path) throws IOException {
+		Checkpoint.write(this, path);
 	}
 
-	public final static Network readObject() throws IOException, ClassNotFoundException {
-		Network x = null;
-		try {
-			FileInputStream fileIn = new FileInputStream("/tmp/network.ser");
-			ObjectInputStream in = new ObjectInputStream(fileIn);
-			x = (Network) in.readObject();
-			in.close();
-			fileIn.close();
-		} catch (IOException i) {
-			i.printStackTrace();
-			return null;
-		} catch (ClassNotFoundException c) {
-			System.out.println("Employee class not found");
-			c.printStackTrace();
-			return null;
-		}
-		
-		return x;
-	}
-}
\ No newline at end of file
+	/**
+	 * Loads a network saved with {@link #save(String)}
+	 * @param path Path of the checkpoint file
+	 * @return The saved network
+	 * @throws IOException If the file cannot be read or is not a checkpoint
+	 */
+	public static Network load(String path) throws IOException {
+		return Checkpoint.read(path);
+	}
+}
@@ -0,0 +1,180 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Composes a network layer by layer, e.g.
+ * <pre>
+ * Network network = Network.builder(784)
+ *         .add(new Dense(128)).add(new ReLU()).add(new Dropout(0.2))
+ *         .add(new Dense(10)).add(new SoftmaxCrossEntropy())
+ *         .build(seed);
+ * </pre>
+ * Every {@link Dense} or {@link Conv2D} layer must be followed by its activation, optionally followed by a
+ * {@link Dropout} on it. A Conv2D layer may also be followed by a {@link MaxPool}, before or after its activation,
+ * and needs the shape of the layer before it: the input of a network built with {@link Network#builder(int, int, int)}
+ * or another convolution. The output layer may not drop out, and {@link SoftmaxCrossEntropy} may only end the network.
+ */
+public class NetworkBuilder {
+	private final ArrayList<Integer> sizes = new ArrayList<>();
+	private final ArrayList<Activation> activations = new ArrayList<>();
+	private final ArrayList<Double> dropout = new ArrayList<>();
+	private final ArrayList<Convolution> convolutions = new ArrayList<>();
+
+	// Shape of the last layer, or no channels once a Dense layer has flattened it
+	private int channels;
+	private int height;
+	private int width;
+
+	/**
+	 * @param inputSize Number of input neurons
+	 */
+	NetworkBuilder(int inputSize) {
+		this(inputSize, 0, 0, 0);
+	}
+
+	/**
+	 * @param channels Channels of the input images
+	 * @param height Height of the input images
+	 * @param width Width of the input images
+	 */
+	NetworkBuilder(int channels, int height, int width) {
+		this(channels * height * width, channels, height, width);
+
+		if (channels < 1 || height < 1 || width < 1) {
+			throw new IllegalArgumentException("Images must hold at least one pixel");
+		}
+	}
+
+	private NetworkBuilder(int inputSize, int channels, int height, int width) {
+		if (inputSize < 1) {
+			throw new IllegalArgumentException("Layers must hold at least one neuron");
+		}
+
+		this.sizes.add(inputSize);
+		this.dropout.add(0.0);
+		this.channels = channels;
+		this.height = height;
+		this.width = width;
+	}
+
+	/**
+	 * Appends a layer to the network
+	 * @param layer A Dense or Conv2D layer, the activation of the layer just added, max-pooling of a convolution, or
+	 * dropout on an activated layer
+	 * @return This builder
+	 * @throws IllegalArgumentException If the layer cannot follow the layers before it
+	 */
+	public NetworkBuilder add(Layer layer) {
+		int last = this.sizes.size() - 1;
+		boolean activated = this.activations.size() == last;
+		Convolution conv = last > 0 ? this.convolutions.get(last - 1) : null;
+
+		if (!activated && !(layer instanceof Activation || layer instanceof MaxPool)) {
+			throw new IllegalArgumentException("Dense and Conv2D layers must be followed by an activation");
+		} else if (activated && last > 0 && this.activations.get(last - 1) instanceof SoftmaxCrossEntropy) {
+			throw new IllegalArgumentException("SoftmaxCrossEntropy must be the last layer");
+		}
+
+		if (layer instanceof Dense) {
+			this.sizes.add(((Dense) layer).getSize());
+			this.dropout.add(0.0);
+			this.convolutions.add(null);
+			this.channels = 0;
+		} else if (layer instanceof Conv2D) {
+			Conv2D conv2d = (Conv2D) layer;
+
+			if (this.channels == 0) {
+				throw new IllegalArgumentException("Conv2D must follow the input images or another convolution");
+			}
+
+			conv = new Convolution(this.channels, this.height, this.width, conv2d.getFilters(), conv2d.getKernelSize(),
+					conv2d.getStride(), conv2d.getPadding(), 1);
+
+			this.sizes.add(conv.getOutputSize());
+			this.dropout.add(0.0);
+			this.convolutions.add(conv);
+			this.channels = conv.filters;
+			this.height = conv.pooledHeight;
+			this.width = conv.pooledWidth;
+		} else if (layer instanceof MaxPool) {
+			if (conv == null || conv.pool > 1 || this.dropout.get(last) > 0) {
+				throw new IllegalArgumentException("MaxPool must follow a Conv2D layer or its activation");
+			}
+
+			conv = conv.withPool(((MaxPool) layer).getSize());
+			this.sizes.set(last, conv.getOutputSize());
+			this.convolutions.set(last - 1, conv);
+			this.height = conv.pooledHeight;
+			this.width = conv.pooledWidth;
+		} else if (layer instanceof Activation) {
+			if (activated) {
+				throw new IllegalArgumentException("Activations must follow a Dense or Conv2D layer");
+			} else if (conv != null && layer instanceof Softmax) {
+				throw new IllegalArgumentException("Activations of a convolution must be element-wise");
+			}
+
+			this.activations.add((Activation) layer);
+		} else if (layer instanceof Dropout) {
+			if (last == 0) {
+				throw new IllegalArgumentException("Dropout must follow an activated layer");
+			} else if (this.dropout.get(last) > 0) {
+				throw new IllegalArgumentException("Layers may only drop out once");
+			}
+
+			this.dropout.set(last, ((Dropout) layer).getRate());
+		} else {
+			throw new IllegalArgumentException("Unknown layer " + layer);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Creates the network with every weight and bias drawn from N(0, 1)
+	 */
+	public Network build() {
+		return this.build(new Gaussian(), new SplittableRandom());
+	}
+
+	/**
+	 * Creates the network with every weight and bias drawn from N(0, 1), reproducibly
+	 * @param seed Seed of the random initial values and of the dropout masks
+	 */
+	public Network build(long seed) {
+		return this.build(new Gaussian(), new SplittableRandom(seed));
+	}
+
+	/**
+	 * Creates the network with weights and biases drawn by an initialization scheme, reproducibly
+	 * @param initializer Scheme choosing the spread of each layer's initial values
+	 * @param seed Seed of the random initial values and of the dropout masks
+	 */
+	public Network build(Initializer initializer, long seed) {
+		return this.build(initializer, new SplittableRandom(seed));
+	}
+
+	private Network build(Initializer initializer, SplittableRandom random) {
+		int last = this.sizes.size() - 1;
+
+		if (last == 0) {
+			throw new IllegalStateException("Networks need at least one Dense layer");
+		} else if (this.activations.size() != last) {
+			throw new IllegalStateException("The last Dense layer has no activation");
+		} else if (this.dropout.get(last) > 0) {
+			throw new IllegalStateException("The output layer may not drop out");
+		}
+
+		int[] sizes = new int[this.sizes.size()];
+		double[] dropout = new double[sizes.length];
+
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = this.sizes.get(i);
+			dropout[i] = this.dropout.get(i);
+		}
+
+		return new Network(sizes, this.activations, this.convolutions, dropout, initializer, random);
+	}
+
+}
@@ -0,0 +1,163 @@
+package Network;
+
+import java.util.ArrayList;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+import Matrices.MatrixAdditionException;
+
+/**
+ * Rule turning a mini-batch's summed gradient into an in-place update of a network's weights and biases.
+ * <p>
+ * Each parameter matrix is identified by a slot number and gets its own state buffers, flat arrays shaped like the
+ * parameters and allocated on its first update. Implementations update the parameters and their state together in
+ * one pass over the arrays, folding in the averaging of the gradient and the optional L2 weight decay.
+ */
+public abstract class Optimizer {
+	/**
+	 * Strength of the L2 penalty added to the cost, lambda / 2 * |w|^2, applied to weights only
+	 */
+	protected final double weightDecay;
+
+	private final ArrayList<double[][]> state = new ArrayList<>();
+	private final ArrayList<float[][]> floatState = new ArrayList<>();
+	private long steps;
+
+	/**
+	 * @param weightDecay Strength of the L2 weight decay, zero for none
+	 */
+	protected Optimizer(double weightDecay) {
+		if (weightDecay < 0) {
+			throw new IllegalArgumentException("Weight decay must not be negative");
+		}
+
+		this.weightDecay = weightDecay;
+	}
+
+	/**
+	 * Gets the number of state arrays kept per parameter matrix, e.g. one for a velocity
+	 */
+	protected abstract int getStateSize();
+
+	/**
+	 * Starts a new step. Called once per mini-batch, before its parameter updates.
+	 */
+	public void beginStep() {
+		this.steps++;
+	}
+
+	/**
+	 * Gets the number of steps begun so far, starting at 1 during the first step
+	 */
+	protected long getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * Forgets every parameter's state and the step count, e.g. before training a freshly initialized network
+	 */
+	public void reset() {
+		this.state.clear();
+		this.floatState.clear();
+		this.steps = 0;
+	}
+
+	/**
+	 * Updates one parameter matrix in place
+	 * @param slot Number identifying the parameter matrix from step to step
+	 * @param parameters Weights or biases to update, stored contiguously
+	 * @param gradient Gradient of the parameters summed over the mini-batch, stored contiguously
+	 * @param gradientScale Factor turning the summed gradient into the mean, one over the batch size
+	 * @param learningRate Step size
+	 * @param decay Whether to apply weight decay, false for biases
+	 * @throws MatrixAdditionException If the gradient and the parameters differ in size
+	 */
+	public void update(int slot, Matrix parameters, Matrix gradient, double gradientScale, double learningRate, boolean decay)
+			throws MatrixAdditionException {
+
+		if (parameters.getRows() != gradient.getRows() || parameters.getCols() != gradient.getCols()) {
+			throw new MatrixAdditionException("Failed to add matrices");
+		} else if (!parameters.isContiguous() || !gradient.isContiguous()) {
+			throw new IllegalArgumentException("Optimizers update contiguous matrices only");
+		}
+
+		int n = parameters.getRows() * parameters.getCols();
+		double[][] buffers = this.state(slot, n);
+
+		this.update(parameters.getData(), parameters.getOffset(), gradient.getData(), gradient.getOffset(), buffers, n,
+				gradientScale, learningRate, decay ? this.weightDecay : 0);
+	}
+
+	/**
+	 * Single precision counterpart of {@link #update(int, Matrix, Matrix, double, double, boolean)}, keeping the
+	 * parameter's state in float as well
+	 */
+	public void update(int slot, FloatMatrix parameters, FloatMatrix gradient, double gradientScale, double learningRate, boolean decay)
+			throws MatrixAdditionException {
+
+		if (parameters.getRows() != gradient.getRows() || parameters.getCols() != gradient.getCols()) {
+			throw new MatrixAdditionException("Failed to add matrices");
+		} else if (!parameters.isContiguous() || !gradient.isContiguous()) {
+			throw new IllegalArgumentException("Optimizers update contiguous matrices only");
+		}
+
+		int n = parameters.getRows() * parameters.getCols();
+		float[][] buffers = this.floatState(slot, n);
+
+		this.update(parameters.getData(), parameters.getOffset(), gradient.getData(), gradient.getOffset(), buffers, n,
+				(float) gradientScale, (float) learningRate, decay ? (float) this.weightDecay : 0);
+	}
+
+	/**
+	 * Gets a parameter matrix's state, allocating it on first use
+	 */
+	private double[][] state(int slot, int n) {
+		while (this.state.size() <= slot) {
+			this.state.add(null);
+		}
+
+		double[][] buffers = this.state.get(slot);
+
+		if (buffers == null) {
+			buffers = new double[this.getStateSize()][n];
+			this.state.set(slot, buffers);
+		} else if (buffers.length > 0 && buffers[0].length != n) {
+			throw new IllegalArgumentException("Parameter slot " + slot + " changed size");
+		}
+
+		return buffers;
+	}
+
+	private float[][] floatState(int slot, int n) {
+		while (this.floatState.size() <= slot) {
+			this.floatState.add(null);
+		}
+
+		float[][] buffers = this.floatState.get(slot);
+
+		if (buffers == null) {
+			buffers = new float[this.getStateSize()][n];
+			this.floatState.set(slot, buffers);
+		} else if (buffers.length > 0 && buffers[0].length != n) {
+			throw new IllegalArgumentException("Parameter slot " + slot + " changed size");
+		}
+
+		return buffers;
+	}
+
+	/**
+	 * Fused update kernel over n parameters. The effective gradient of parameter i is
+	 * gradientScale * g[i] + decay * p[i].
+	 * @param p Parameters, updated in place from pOffset
+	 * @param g Summed gradient, read from gOffset
+	 * @param state This parameter matrix's state arrays, each of length n
+	 */
+	protected abstract void update(double[] p, int pOffset, double[] g, int gOffset, double[][] state, int n,
+			double gradientScale, double learningRate, double decay);
+
+	/**
+	 * Single precision counterpart of {@link #update(double[], int, double[], int, double[][], int, double, double, double)}
+	 */
+	protected abstract void update(float[] p, int pOffset, float[] g, int gOffset, float[][] state, int n,
+			float gradientScale, float learningRate, float decay);
+}
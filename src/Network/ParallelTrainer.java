@@ -0,0 +1,278 @@
+package Network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Matrices.*;
+
+/**
+ * Data-parallel trainer that splits every mini-batch across worker threads.
+ * Each worker runs the batched backward pass on its share of the samples with its own buffers, and the
+ * per-worker gradients are combined by a pairwise tree reduction before the network's optimizer steps the weights.
+ * <p>
+ * In deterministic mode every worker takes one fixed, contiguous slice of the batch, so the summation order
+ * and the result are the same on every run. Otherwise workers pull small chunks of samples as they finish,
+ * which balances load better but lets the summation order vary between runs.
+ */
+public class ParallelTrainer implements AutoCloseable {
+	/**
+	 * Samples handed out at a time when workers balance load dynamically
+	 */
+	private static final int CHUNK_SIZE = 8;
+
+	private final Network network;
+	private final int threads;
+	private final boolean deterministic;
+	private final ForkJoinPool pool;
+
+	// Per-worker buffers and gradient sums
+	private final BatchWorkspace[] workspaces;
+	private final ArrayList<ArrayList<Matrix>> sumW = new ArrayList<>();
+	private final ArrayList<ArrayList<Matrix>> sumB = new ArrayList<>();
+
+	// Throughput of the last epoch
+	private long epochSamples;
+	private long epochNanos;
+
+	/**
+	 * @param network Network whose weights and biases are trained
+	 * @param threads Number of worker threads
+	 * @param deterministic Whether to fix the partition of samples and the reduction order
+	 */
+	public ParallelTrainer(Network network, int threads, boolean deterministic) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one worker thread is needed");
+		}
+
+		this.network = network;
+		this.threads = threads;
+		this.deterministic = deterministic;
+		this.pool = new ForkJoinPool(threads);
+		this.workspaces = new BatchWorkspace[threads];
+
+		for (int w = 0; w < threads; w++) {
+			ArrayList<Matrix> workerW = new ArrayList<>();
+			ArrayList<Matrix> workerB = new ArrayList<>();
+
+			for (int i = 0; i < network.numLayers - 1; i++) {
+				workerW.add(new Matrix(network.weights.get(i), false));
+				workerB.add(new Matrix(network.biases.get(i), false));
+			}
+
+			this.sumW.add(workerW);
+			this.sumB.add(workerB);
+		}
+	}
+
+	public int getThreads() {
+		return this.threads;
+	}
+
+	public boolean isDeterministic() {
+		return this.deterministic;
+	}
+
+	/**
+	 * Trains the network with mini-batch stochastic gradient descent, each mini-batch split across the workers
+	 * @param trainingData Pairs of inputs and expected outputs
+	 * @param epochs Number of passes over the training data
+	 * @param miniBatchSize Samples averaged into each step
+	 * @param learningRate Step size
+	 */
+	public void stochasticGradientDescent(List<Pair<double[], double[]>> trainingData, int epochs, int miniBatchSize, double learningRate)
+			throws NetworkInputException, NetworkExpectationException {
+
+		ArrayList<Pair<double[], double[]>> shuffled = new ArrayList<>(trainingData);
+		double[] inputData = new double[this.network.sizes[0] * miniBatchSize];
+		double[] expectationData = new double[this.network.sizes[this.network.numLayers - 1] * miniBatchSize];
+
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			Collections.shuffle(shuffled);
+			long epochStart = System.nanoTime();
+
+			for (int start = 0; start < shuffled.size(); start += miniBatchSize) {
+				List<Pair<double[], double[]>> miniBatch = shuffled.subList(start, Math.min(start + miniBatchSize, shuffled.size()));
+				Matrix inputs = new Matrix(this.network.sizes[0], miniBatch.size(), inputData);
+				Matrix expectations = new Matrix(this.network.sizes[this.network.numLayers - 1], miniBatch.size(), expectationData);
+
+				Network.packBatch(miniBatch, inputs, expectations);
+				this.updateMiniBatch(inputs, expectations, learningRate);
+			}
+
+			this.epochNanos = System.nanoTime() - epochStart;
+			this.epochSamples = shuffled.size();
+		}
+	}
+
+	/**
+	 * Trains the network with mini-batch stochastic gradient descent, drawing the batches from a stream
+	 * @param source Stream of shuffled mini-batches
+	 * @param epochs Number of passes over the training data
+	 * @param learningRate Step size
+	 * @throws InterruptedException If interrupted while waiting for a batch
+	 */
+	public void train(BatchSource source, int epochs, double learningRate)
+			throws NetworkInputException, NetworkExpectationException, InterruptedException {
+
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			long epochStart = System.nanoTime();
+			long samples = 0;
+			Batch batch;
+
+			while ((batch = source.next()) != null) {
+				this.updateMiniBatch(batch.getInputs(), batch.getExpectations(), learningRate);
+				samples += batch.size();
+			}
+
+			this.epochNanos = System.nanoTime() - epochStart;
+			this.epochSamples = samples;
+		}
+	}
+
+	/**
+	 * Gets the training throughput over the last epoch, comparable to {@link HogwildTrainer#getSamplesPerSecond()}
+	 * @return Samples processed per second
+	 */
+	public double getSamplesPerSecond() {
+		return this.epochNanos == 0 ? 0 : this.epochSamples * 1e9 / this.epochNanos;
+	}
+
+	/**
+	 * Takes one gradient step over a mini-batch stored one sample per column, computing the gradient on all workers
+	 * @param inputs Input matrix of size (input layer x batch size)
+	 * @param expectations Expected outputs of size (output layer x batch size)
+	 * @param learningRate Step size
+	 * @throws NetworkInputException If the inputs do not match the input layer
+	 * @throws NetworkExpectationException If the expectations do not match the output layer or the number of inputs
+	 */
+	public void updateMiniBatch(Matrix inputs, Matrix expectations, double learningRate)
+			throws NetworkInputException, NetworkExpectationException {
+
+		if (inputs.getRows() != this.network.sizes[0]) {
+			throw new NetworkInputException("Input matrix wrong size");
+		} else if (expectations.getRows() != this.network.sizes[this.network.numLayers - 1] || expectations.getCols() != inputs.getCols()) {
+			throw new NetworkExpectationException("Expectation Matrix wrong size");
+		}
+
+		int batchSize = inputs.getCols();
+		int workers = Math.min(this.threads, batchSize);
+		AtomicInteger nextChunk = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<>();
+
+		// Workspaces split their dropout masks off the network's stream here, in worker order, rather than in
+		// whichever order the workers first reach them, so deterministic runs draw the same masks every time
+		int largest = this.deterministic ? (batchSize + workers - 1) / workers : Math.min(CHUNK_SIZE, batchSize);
+
+		for (int w = 0; w < workers; w++) {
+			if (this.workspaces[w] == null || this.workspaces[w].getCapacity() < largest) {
+				this.workspaces[w] = this.network.newWorkspace(largest);
+			}
+		}
+
+		for (int w = 0; w < workers; w++) {
+			final int worker = w;
+
+			tasks.add(() -> {
+				this.clear(worker);
+
+				if (this.deterministic) {
+					int start = (int) ((long) batchSize * worker / workers);
+					int end = (int) ((long) batchSize * (worker + 1) / workers);
+					this.accumulate(worker, inputs, expectations, start, end - start);
+				} else {
+					int start;
+
+					while ((start = nextChunk.getAndAdd(CHUNK_SIZE)) < batchSize) {
+						this.accumulate(worker, inputs, expectations, start, Math.min(CHUNK_SIZE, batchSize - start));
+					}
+				}
+
+				return null;
+			});
+		}
+
+		this.invokeAll(tasks);
+		this.reduce(workers);
+
+		try {
+			this.network.applyGradients(this.sumW.get(0), this.sumB.get(0), batchSize, learningRate);
+		} catch (MatrixAdditionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void clear(int worker) {
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			this.sumW.get(worker).get(i).fill(0);
+			this.sumB.get(worker).get(i).fill(0);
+		}
+	}
+
+	/**
+	 * Runs the backward pass over columns [start, start + count) of the batch and adds the result to the worker's sums
+	 */
+	private void accumulate(int worker, Matrix inputs, Matrix expectations, int start, int count) throws Exception {
+		if (count <= 0) {
+			return;
+		}
+
+		BatchWorkspace ws = this.workspaces[worker];
+		ws.resize(count);
+		this.network.backpropagateBatch(inputs.subMatrix(0, start, inputs.getRows(), count),
+				expectations.subMatrix(0, start, expectations.getRows(), count), ws);
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			Matrix.axpy(1, ws.nablaW.get(i), this.sumW.get(worker).get(i));
+			Matrix.axpy(1, ws.nablaB.get(i), this.sumB.get(worker).get(i));
+		}
+	}
+
+	/**
+	 * Adds the workers' sums together pairwise, level by level, leaving the total in worker 0's buffers
+	 */
+	private void reduce(int workers) {
+		for (int stride = 1; stride < workers; stride *= 2) {
+			final int step = stride;
+			List<Callable<Void>> tasks = new ArrayList<>();
+
+			for (int w = 0; w + step < workers; w += 2 * step) {
+				final int target = w;
+
+				tasks.add(() -> {
+					for (int i = 0; i < this.network.numLayers - 1; i++) {
+						Matrix.axpy(1, this.sumW.get(target + step).get(i), this.sumW.get(target).get(i));
+						Matrix.axpy(1, this.sumB.get(target + step).get(i), this.sumB.get(target).get(i));
+					}
+
+					return null;
+				});
+			}
+
+			this.invokeAll(tasks);
+		}
+	}
+
+	private void invokeAll(List<Callable<Void>> tasks) {
+		for (Future<Void> future : this.pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Worker failed", e.getCause());
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		this.pool.shutdown();
+	}
+}
@@ -0,0 +1,27 @@
+package Network;
+
+/**
+ * Parts of a training step timed by the training metrics
+ */
+public enum Phase {
+	/**
+	 * Shuffling the data and packing or waiting for the next mini-batch
+	 */
+	LOAD,
+
+	/**
+	 * Forward pass over the mini-batch
+	 */
+	FORWARD,
+
+	/**
+	 * Backward pass computing the gradients. The per-sample path runs each sample forward and backward in turn and
+	 * books both here.
+	 */
+	BACKWARD,
+
+	/**
+	 * Optimizer step applying the gradients
+	 */
+	UPDATE
+}
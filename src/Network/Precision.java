@@ -0,0 +1,22 @@
+package Network;
+
+/**
+ * Storage precision a network trains in
+ */
+public enum Precision {
+	/**
+	 * Weights, activations and gradients all in double
+	 */
+	DOUBLE,
+
+	/**
+	 * Weights, activations and gradients all in float, halving the memory moved by every pass
+	 */
+	FLOAT,
+
+	/**
+	 * Activations and gradients in float, with each step applied to a double master copy of the weights that is
+	 * rounded to float for the next pass, so that small updates are not lost to rounding
+	 */
+	MIXED
+}
@@ -0,0 +1,28 @@
+package Network;
+
+/**
+ * Result of classifying one input: the most likely class and the score of every class
+ */
+public class Prediction {
+	private final int label;
+	private final double[] scores;
+
+	public Prediction(int label, double[] scores) {
+		this.label = label;
+		this.scores = scores;
+	}
+
+	/**
+	 * Gets the index of the output neuron with the highest activation
+	 */
+	public int getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * Gets the output activations, one per class
+	 */
+	public double[] getScores() {
+		return this.scores;
+	}
+}
@@ -0,0 +1,63 @@
+package Network;
+
+/**
+ * RMSProp, dividing each step by a running root mean square of the gradient:
+ * s = rho * s + (1 - rho) * g^2, w = w - eta * g / (sqrt(s) + epsilon)
+ */
+public class RMSProp extends Optimizer {
+	private final double rho;
+	private final double epsilon;
+
+	public RMSProp() {
+		this(0.9, 1e-8, 0);
+	}
+
+	/**
+	 * @param rho Decay rate of the running mean square
+	 * @param epsilon Added to the root mean square to keep the division stable
+	 * @param weightDecay Strength of the L2 weight decay, zero for none
+	 */
+	public RMSProp(double rho, double epsilon, double weightDecay) {
+		super(weightDecay);
+
+		if (rho < 0 || rho >= 1) {
+			throw new IllegalArgumentException("Decay rate must be in [0, 1)");
+		}
+
+		this.rho = rho;
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	protected int getStateSize() {
+		return 1;
+	}
+
+	@Override
+	protected void update(double[] p, int pOffset, double[] g, int gOffset, double[][] state, int n,
+			double gradientScale, double learningRate, double decay) {
+
+		double[] s = state[0];
+
+		for (int i = 0; i < n; i++) {
+			double gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			s[i] = this.rho * s[i] + (1 - this.rho) * gi * gi;
+			p[pOffset + i] -= learningRate * gi / (Math.sqrt(s[i]) + this.epsilon);
+		}
+	}
+
+	@Override
+	protected void update(float[] p, int pOffset, float[] g, int gOffset, float[][] state, int n,
+			float gradientScale, float learningRate, float decay) {
+
+		float[] s = state[0];
+		float r = (float) this.rho;
+		float e = (float) this.epsilon;
+
+		for (int i = 0; i < n; i++) {
+			float gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			s[i] = r * s[i] + (1 - r) * gi * gi;
+			p[pOffset + i] -= learningRate * gi / ((float) Math.sqrt(s[i]) + e);
+		}
+	}
+}
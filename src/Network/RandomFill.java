@@ -0,0 +1,94 @@
+package Network;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+
+import Matrices.Gemm;
+
+/**
+ * Bulk normal sampling into flat arrays, split into chunks that are filled in parallel on the matrix pool
+ */
+final class RandomFill {
+	/**
+	 * Entries drawn from each split of the random stream
+	 */
+	static final int CHUNK_SIZE = 1 << 14;
+
+	/**
+	 * Entries from which an array is filled on several threads
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 18;
+
+	private RandomFill() {
+
+	}
+
+	/**
+	 * Fills a range of an array with samples of N(0, deviation^2)
+	 * @param data Array to fill
+	 * @param offset First index filled
+	 * @param length Number of entries filled
+	 * @param deviation Standard deviation of the samples
+	 * @param random Stream the chunks are split from, in order
+	 */
+	static void gaussian(double[] data, int offset, int length, double deviation, SplittableRandom random) {
+		int chunks = (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		SplittableRandom[] streams = new SplittableRandom[chunks];
+
+		// Splits serially so that each chunk's values depend only on the seed, not on the threads
+		for (int i = 0; i < chunks; i++) {
+			streams[i] = random.split();
+		}
+
+		Chunks task = new Chunks(data, offset, length, deviation, streams, 0, chunks);
+
+		if (length >= PARALLEL_THRESHOLD) {
+			Gemm.getPool().invoke(task);
+		} else {
+			task.compute();
+		}
+	}
+
+	private static void fillChunk(double[] data, int from, int to, double deviation, SplittableRandom random) {
+		for (int i = from; i < to; i++) {
+			data[i] = deviation * random.nextGaussian();
+		}
+	}
+
+	private static class Chunks extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] data;
+		private final int offset;
+		private final int length;
+		private final double deviation;
+		private final SplittableRandom[] streams;
+		private final int start;
+		private final int end;
+
+		Chunks(double[] data, int offset, int length, double deviation, SplittableRandom[] streams, int start, int end) {
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+			this.deviation = deviation;
+			this.streams = streams;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.start <= 1) {
+				for (int i = this.start; i < this.end; i++) {
+					int from = i * CHUNK_SIZE;
+					int to = Math.min(from + CHUNK_SIZE, this.length);
+					fillChunk(this.data, this.offset + from, this.offset + to, this.deviation, this.streams[i]);
+				}
+			} else {
+				int mid = (this.start + this.end) >>> 1;
+				invokeAll(new Chunks(this.data, this.offset, this.length, this.deviation, this.streams, this.start, mid),
+						new Chunks(this.data, this.offset, this.length, this.deviation, this.streams, mid, this.end));
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package Network;
+
+import java.util.function.DoubleUnaryOperator;
+
+import Matrices.ArrayOperator;
+import Matrices.Backends;
+import Matrices.FloatArrayOperator;
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+import Matrices.MatrixDimensionException;
+
+public class ReLU implements Activation, DoubleUnaryOperator {
+
+	private static final ArrayOperator FORWARD = (z, zOffset, a, aOffset, length) -> Backends.get().relu(z, zOffset, a, aOffset, length);
+
+	// The derivative is 1 wherever the unit is active and 0 elsewhere
+	private static final ArrayOperator BACKWARD = (a, aOffset, gradient, gradientOffset, length) ->
+			Backends.get().reluBackward(a, aOffset, gradient, gradientOffset, length);
+
+	private static final FloatArrayOperator FLOAT_FORWARD = (z, zOffset, a, aOffset, length) -> {
+		for (int i = 0; i < length; i++) {
+			a[aOffset + i] = Math.max(0, z[zOffset + i]);
+		}
+	};
+
+	private static final FloatArrayOperator FLOAT_BACKWARD = (a, aOffset, gradient, gradientOffset, length) -> {
+		for (int i = 0; i < length; i++) {
+			gradient[gradientOffset + i] = a[aOffset + i] > 0 ? gradient[gradientOffset + i] : 0;
+		}
+	};
+
+	@Override
+	public double applyAsDouble(double x) {
+		return Math.max(0, x);
+	}
+
+	@Override
+	public void forward(Matrix z, Matrix a) throws MatrixDimensionException {
+		Matrix.applyInto(a, FORWARD, z);
+	}
+
+	@Override
+	public ArrayOperator getForwardKernel() {
+		return FORWARD;
+	}
+
+	@Override
+	public void backward(Matrix a, Matrix gradient) throws MatrixDimensionException {
+		Matrix.applyInto(gradient, BACKWARD, a);
+	}
+
+	@Override
+	public void forward(FloatMatrix z, FloatMatrix a) throws MatrixDimensionException {
+		FloatMatrix.applyInto(a, FLOAT_FORWARD, z);
+	}
+
+	@Override
+	public void backward(FloatMatrix a, FloatMatrix gradient) throws MatrixDimensionException {
+		FloatMatrix.applyInto(gradient, FLOAT_BACKWARD, a);
+	}
+
+}
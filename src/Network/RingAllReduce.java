@@ -0,0 +1,169 @@
+package Network;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import Matrices.Backends;
+
+/**
+ * Ring all-reduce of a flat array of doubles across the workers of a {@link DistributedWorker} ring.
+ * <p>
+ * The array is cut into one chunk per worker. In the reduce-scatter phase each worker passes a chunk to the next
+ * worker and adds the chunk coming from the previous one, so that after workers - 1 rounds every worker holds one
+ * chunk summed over the whole ring. The all-gather phase passes the summed chunks on around the ring in the same
+ * way, overwriting instead of adding. Every worker sends and receives 2 * (workers - 1) / workers of the array,
+ * however many workers there are, and all of them end with bit-identical sums.
+ * <p>
+ * Chunks travel as raw little-endian doubles through direct buffers. Both channels are non-blocking and served by
+ * one selector, so a worker drains its previous neighbour while its own send is still in flight and the ring
+ * cannot deadlock on full socket buffers.
+ */
+final class RingAllReduce implements AutoCloseable {
+	/**
+	 * Longest a worker waits for its neighbours to send or take any data before giving up on the ring
+	 */
+	private static final long TIMEOUT_MILLIS = 60_000;
+
+	private final SocketChannel previous;
+	private final SocketChannel next;
+	private final int rank;
+	private final int workers;
+	private final Selector selector;
+	private final ByteBuffer sendBuffer;
+	private final ByteBuffer receiveBuffer;
+	private final double[] chunk;
+
+	/**
+	 * @param previous Connection from the previous worker in the ring
+	 * @param next Connection to the next worker in the ring
+	 * @param rank Position of this worker in the ring
+	 * @param workers Number of workers in the ring
+	 * @param length Length of the arrays that will be summed
+	 * @throws IOException If the channels cannot be registered
+	 */
+	RingAllReduce(SocketChannel previous, SocketChannel next, int rank, int workers, int length) throws IOException {
+		this.previous = previous;
+		this.next = next;
+		this.rank = rank;
+		this.workers = workers;
+		this.selector = Selector.open();
+
+		int largest = (length + workers - 1) / workers;
+		this.sendBuffer = ByteBuffer.allocateDirect(largest * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		this.receiveBuffer = ByteBuffer.allocateDirect(largest * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		this.chunk = new double[largest];
+
+		// Chunks are written whole, so there is nothing for Nagle's algorithm to coalesce
+		next.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		previous.configureBlocking(false);
+		next.configureBlocking(false);
+		previous.register(this.selector, SelectionKey.OP_READ);
+		next.register(this.selector, 0);
+	}
+
+	/**
+	 * Replaces an array with its sum over every worker in the ring
+	 * @param data Array of the same length on every worker
+	 * @throws IOException If a neighbour disconnects or stops responding
+	 */
+	void sum(double[] data) throws IOException {
+		int n = this.workers;
+
+		for (int round = 0; round < n - 1; round++) {
+			this.exchange(data, Math.floorMod(this.rank - round, n), Math.floorMod(this.rank - round - 1, n), true);
+		}
+
+		for (int round = 0; round < n - 1; round++) {
+			this.exchange(data, Math.floorMod(this.rank + 1 - round, n), Math.floorMod(this.rank - round, n), false);
+		}
+	}
+
+	/**
+	 * Sends one chunk to the next worker while receiving another from the previous one
+	 * @param add Whether to add the received chunk to the array, or to overwrite the array with it
+	 */
+	private void exchange(double[] data, int send, int receive, boolean add) throws IOException {
+		int sendFrom = this.start(data.length, send);
+		int receiveFrom = this.start(data.length, receive);
+		int receiveLength = this.start(data.length, receive + 1) - receiveFrom;
+
+		this.sendBuffer.clear();
+		this.sendBuffer.asDoubleBuffer().put(data, sendFrom, this.start(data.length, send + 1) - sendFrom);
+		this.sendBuffer.limit((this.start(data.length, send + 1) - sendFrom) * Double.BYTES);
+
+		this.receiveBuffer.clear();
+		this.receiveBuffer.limit(receiveLength * Double.BYTES);
+
+		SelectionKey writeKey = this.next.keyFor(this.selector);
+		writeKey.interestOps(SelectionKey.OP_WRITE);
+
+		// Select may return early with nothing ready, e.g. on a spurious wakeup, so the timeout runs off a deadline
+		// that only moves when data does
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+
+		while (this.sendBuffer.hasRemaining() || this.receiveBuffer.hasRemaining()) {
+			long remaining = deadline - System.nanoTime();
+
+			if (remaining <= 0) {
+				throw new IOException("Ring neighbour stopped responding");
+			}
+
+			// A timeout of 0 would block for good, so the last fraction of a millisecond is rounded up
+			this.selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+			boolean progress = false;
+
+			for (SelectionKey key : this.selector.selectedKeys()) {
+				if (key.isWritable() && this.sendBuffer.hasRemaining()) {
+					progress |= this.next.write(this.sendBuffer) > 0;
+
+					if (!this.sendBuffer.hasRemaining()) {
+						writeKey.interestOps(0);
+					}
+				} else if (key.isReadable() && this.receiveBuffer.hasRemaining()) {
+					int read = this.previous.read(this.receiveBuffer);
+
+					if (read < 0) {
+						throw new IOException("Ring neighbour disconnected");
+					}
+
+					progress |= read > 0;
+				}
+			}
+
+			this.selector.selectedKeys().clear();
+
+			if (progress) {
+				deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+			}
+		}
+
+		this.receiveBuffer.flip();
+		DoubleBuffer received = this.receiveBuffer.asDoubleBuffer();
+
+		if (add) {
+			received.get(this.chunk, 0, receiveLength);
+			Backends.get().axpy(1, this.chunk, 0, data, receiveFrom, receiveLength);
+		} else {
+			received.get(data, receiveFrom, receiveLength);
+		}
+	}
+
+	/**
+	 * Gets the first index of a chunk, chunks differing in length by at most one
+	 */
+	private int start(int length, int chunk) {
+		return (int) ((long) length * chunk / this.workers);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.selector.close();
+	}
+}
@@ -0,0 +1,83 @@
+package Network;
+
+/**
+ * Stochastic gradient descent, optionally with classical momentum: v = mu * v + g, w = w - eta * v
+ */
+public class SGD extends Optimizer {
+	private final double momentum;
+
+	/**
+	 * Plain gradient descent, w = w - eta * g
+	 */
+	public SGD() {
+		this(0, 0);
+	}
+
+	/**
+	 * @param momentum Fraction of the previous velocity kept each step, zero for plain gradient descent
+	 * @param weightDecay Strength of the L2 weight decay, zero for none
+	 */
+	public SGD(double momentum, double weightDecay) {
+		super(weightDecay);
+
+		if (momentum < 0 || momentum >= 1) {
+			throw new IllegalArgumentException("Momentum must be in [0, 1)");
+		}
+
+		this.momentum = momentum;
+	}
+
+	@Override
+	protected int getStateSize() {
+		return this.momentum == 0 ? 0 : 1;
+	}
+
+	@Override
+	protected void update(double[] p, int pOffset, double[] g, int gOffset, double[][] state, int n,
+			double gradientScale, double learningRate, double decay) {
+
+		if (this.momentum == 0) {
+			double step = - learningRate * gradientScale;
+			double shrink = 1 - learningRate * decay;
+
+			for (int i = 0; i < n; i++) {
+				p[pOffset + i] = shrink * p[pOffset + i] + step * g[gOffset + i];
+			}
+
+			return;
+		}
+
+		double[] v = state[0];
+
+		for (int i = 0; i < n; i++) {
+			double gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			v[i] = this.momentum * v[i] + gi;
+			p[pOffset + i] -= learningRate * v[i];
+		}
+	}
+
+	@Override
+	protected void update(float[] p, int pOffset, float[] g, int gOffset, float[][] state, int n,
+			float gradientScale, float learningRate, float decay) {
+
+		if (this.momentum == 0) {
+			float step = - learningRate * gradientScale;
+			float shrink = 1 - learningRate * decay;
+
+			for (int i = 0; i < n; i++) {
+				p[pOffset + i] = shrink * p[pOffset + i] + step * g[gOffset + i];
+			}
+
+			return;
+		}
+
+		float[] v = state[0];
+		float mu = (float) this.momentum;
+
+		for (int i = 0; i < n; i++) {
+			float gi = gradientScale * g[gOffset + i] + decay * p[pOffset + i];
+			v[i] = mu * v[i] + gi;
+			p[pOffset + i] -= learningRate * v[i];
+		}
+	}
+}
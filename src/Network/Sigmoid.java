@@ -1,16 +1,63 @@
 package Network;
 
-import Matrices.MatrixFunction;
+import java.util.function.DoubleUnaryOperator;
 
-public class Sigmoid extends MatrixFunction {
+import Matrices.ArrayOperator;
+import Matrices.Backends;
+import Matrices.FloatArrayOperator;
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+import Matrices.MatrixDimensionException;
 
-	public Sigmoid() {
-		
+public class Sigmoid implements Activation, DoubleUnaryOperator {
+
+	private static final ArrayOperator FORWARD = (z, zOffset, a, aOffset, length) -> Backends.get().sigmoid(z, zOffset, a, aOffset, length);
+
+	// sigma'(z) = sigma(z) * (1 - sigma(z)), read off the cached activation
+	private static final ArrayOperator BACKWARD = (a, aOffset, gradient, gradientOffset, length) ->
+			Backends.get().sigmoidBackward(a, aOffset, gradient, gradientOffset, length);
+
+	private static final FloatArrayOperator FLOAT_FORWARD = (z, zOffset, a, aOffset, length) -> {
+		for (int i = 0; i < length; i++) {
+			a[aOffset + i] = 1 / (1 + (float) Math.exp(-z[zOffset + i]));
+		}
+	};
+
+	private static final FloatArrayOperator FLOAT_BACKWARD = (a, aOffset, gradient, gradientOffset, length) -> {
+		for (int i = 0; i < length; i++) {
+			float ai = a[aOffset + i];
+			gradient[gradientOffset + i] *= ai * (1 - ai);
+		}
+	};
+
+	@Override
+	public double applyAsDouble(double x) {
+		return 1 / (1 + Math.exp(-x));
 	}
-	
+
+	@Override
+	public void forward(Matrix z, Matrix a) throws MatrixDimensionException {
+		Matrix.applyInto(a, FORWARD, z);
+	}
+
+	@Override
+	public ArrayOperator getForwardKernel() {
+		return FORWARD;
+	}
+
+	@Override
+	public void backward(Matrix a, Matrix gradient) throws MatrixDimensionException {
+		Matrix.applyInto(gradient, BACKWARD, a);
+	}
+
+	@Override
+	public void forward(FloatMatrix z, FloatMatrix a) throws MatrixDimensionException {
+		FloatMatrix.applyInto(a, FLOAT_FORWARD, z);
+	}
+
 	@Override
-	public double apply(int entryRow, int entryCol, int matrixRows, int matrixCols, double currentVal) {
-		return 1 / (1 + Math.pow(Math.E, -currentVal));
+	public void backward(FloatMatrix a, FloatMatrix gradient) throws MatrixDimensionException {
+		FloatMatrix.applyInto(gradient, FLOAT_BACKWARD, a);
 	}
 
-}
\ No newline at end of file
+}
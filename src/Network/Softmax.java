@@ -0,0 +1,125 @@
+package Network;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+import Matrices.MatrixDimensionException;
+
+/**
+ * Softmax over every column, turning each sample's z values into a probability distribution
+ */
+public class Softmax implements Activation {
+
+	@Override
+	public void forward(Matrix z, Matrix a) throws MatrixDimensionException {
+		if (z.getRows() != a.getRows() || z.getCols() != a.getCols()) {
+			throw new MatrixDimensionException("Failed to apply softmax");
+		}
+
+		double[] zd = z.getData();
+		double[] ad = a.getData();
+
+		for (int col = 0; col < z.getCols(); col++) {
+			// Shifting by the largest value keeps exp from overflowing without changing the result
+			double max = Double.NEGATIVE_INFINITY;
+
+			for (int row = 0; row < z.getRows(); row++) {
+				max = Math.max(max, zd[z.index(row, col)]);
+			}
+
+			double sum = 0;
+
+			for (int row = 0; row < z.getRows(); row++) {
+				double e = Math.exp(zd[z.index(row, col)] - max);
+				ad[a.index(row, col)] = e;
+				sum += e;
+			}
+
+			for (int row = 0; row < z.getRows(); row++) {
+				ad[a.index(row, col)] /= sum;
+			}
+		}
+	}
+
+	/**
+	 * Multiplies each column of the gradient by the softmax Jacobian: g_i = a_i * (g_i - sum_j a_j g_j)
+	 */
+	@Override
+	public void backward(Matrix a, Matrix gradient) throws MatrixDimensionException {
+		if (a.getRows() != gradient.getRows() || a.getCols() != gradient.getCols()) {
+			throw new MatrixDimensionException("Failed to apply softmax derivative");
+		}
+
+		double[] ad = a.getData();
+		double[] gd = gradient.getData();
+
+		for (int col = 0; col < a.getCols(); col++) {
+			double dot = 0;
+
+			for (int row = 0; row < a.getRows(); row++) {
+				dot += ad[a.index(row, col)] * gd[gradient.index(row, col)];
+			}
+
+			for (int row = 0; row < a.getRows(); row++) {
+				int g = gradient.index(row, col);
+				gd[g] = ad[a.index(row, col)] * (gd[g] - dot);
+			}
+		}
+	}
+
+	@Override
+	public void forward(FloatMatrix z, FloatMatrix a) throws MatrixDimensionException {
+		if (z.getRows() != a.getRows() || z.getCols() != a.getCols()) {
+			throw new MatrixDimensionException("Failed to apply softmax");
+		}
+
+		float[] zd = z.getData();
+		float[] ad = a.getData();
+
+		for (int col = 0; col < z.getCols(); col++) {
+			float max = Float.NEGATIVE_INFINITY;
+
+			for (int row = 0; row < z.getRows(); row++) {
+				max = Math.max(max, zd[z.index(row, col)]);
+			}
+
+			// The sum is kept in double so that wide layers do not lose the smaller terms
+			double sum = 0;
+
+			for (int row = 0; row < z.getRows(); row++) {
+				float e = (float) Math.exp(zd[z.index(row, col)] - max);
+				ad[a.index(row, col)] = e;
+				sum += e;
+			}
+
+			float scale = (float) (1 / sum);
+
+			for (int row = 0; row < z.getRows(); row++) {
+				ad[a.index(row, col)] *= scale;
+			}
+		}
+	}
+
+	@Override
+	public void backward(FloatMatrix a, FloatMatrix gradient) throws MatrixDimensionException {
+		if (a.getRows() != gradient.getRows() || a.getCols() != gradient.getCols()) {
+			throw new MatrixDimensionException("Failed to apply softmax derivative");
+		}
+
+		float[] ad = a.getData();
+		float[] gd = gradient.getData();
+
+		for (int col = 0; col < a.getCols(); col++) {
+			float dot = 0;
+
+			for (int row = 0; row < a.getRows(); row++) {
+				dot += ad[a.index(row, col)] * gd[gradient.index(row, col)];
+			}
+
+			for (int row = 0; row < a.getRows(); row++) {
+				int g = gradient.index(row, col);
+				gd[g] = ad[a.index(row, col)] * (gd[g] - dot);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,13 @@
+package Network;
+
+/**
+ * Softmax output layer trained against the cross-entropy cost, -sum y * ln(a), in place of the quadratic cost.
+ * <p>
+ * The two are fused: the softmax Jacobian and the derivative of the cost cancel to a - y, so the output error is
+ * taken straight from the activations in one pass, without dividing by the probabilities or running the softmax
+ * backward pass. The gradient stays exact where the probabilities underflow, and does not vanish as the softmax
+ * saturates the way the quadratic cost's does. Only allowed as the last layer of a network.
+ */
+public class SoftmaxCrossEntropy extends Softmax {
+
+}
@@ -0,0 +1,68 @@
+package Network;
+
+/**
+ * Measurements of one training step
+ */
+public class StepStats {
+	private final int epoch;
+	private final long step;
+	private final int batchSize;
+	private final long[] phaseNanos;
+	private final long allocatedBytes;
+	private final double loss;
+	private final int correct;
+
+	StepStats(int epoch, long step, int batchSize, long[] phaseNanos, long allocatedBytes, double loss, int correct) {
+		this.epoch = epoch;
+		this.step = step;
+		this.batchSize = batchSize;
+		this.phaseNanos = phaseNanos;
+		this.allocatedBytes = allocatedBytes;
+		this.loss = loss;
+		this.correct = correct;
+	}
+
+	public int getEpoch() {
+		return this.epoch;
+	}
+
+	/**
+	 * Gets the number of the step, counted from 0 across every epoch
+	 */
+	public long getStep() {
+		return this.step;
+	}
+
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Gets the time the step spent in a phase, in nanoseconds
+	 */
+	public long getNanos(Phase phase) {
+		return this.phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * Gets the bytes allocated by the training thread during the step
+	 * @return The byte count, or -1 if the JVM does not measure thread allocations
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	/**
+	 * Gets the mean cost over the batch's samples, cross-entropy for a SoftmaxCrossEntropy output and quadratic otherwise
+	 */
+	public double getLoss() {
+		return this.loss;
+	}
+
+	/**
+	 * Gets the number of samples in the batch the network classified correctly
+	 */
+	public int getCorrect() {
+		return this.correct;
+	}
+}
@@ -0,0 +1,63 @@
+package Network;
+
+import java.util.function.DoubleUnaryOperator;
+
+import Matrices.ArrayOperator;
+import Matrices.Backends;
+import Matrices.FloatArrayOperator;
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+import Matrices.MatrixDimensionException;
+
+public class Tanh implements Activation, DoubleUnaryOperator {
+
+	private static final ArrayOperator FORWARD = (z, zOffset, a, aOffset, length) -> Backends.get().tanh(z, zOffset, a, aOffset, length);
+
+	// tanh'(z) = 1 - tanh(z)^2
+	private static final ArrayOperator BACKWARD = (a, aOffset, gradient, gradientOffset, length) ->
+			Backends.get().tanhBackward(a, aOffset, gradient, gradientOffset, length);
+
+	private static final FloatArrayOperator FLOAT_FORWARD = (z, zOffset, a, aOffset, length) -> {
+		for (int i = 0; i < length; i++) {
+			a[aOffset + i] = (float) Math.tanh(z[zOffset + i]);
+		}
+	};
+
+	private static final FloatArrayOperator FLOAT_BACKWARD = (a, aOffset, gradient, gradientOffset, length) -> {
+		for (int i = 0; i < length; i++) {
+			float ai = a[aOffset + i];
+			gradient[gradientOffset + i] *= 1 - ai * ai;
+		}
+	};
+
+	@Override
+	public double applyAsDouble(double x) {
+		return Math.tanh(x);
+	}
+
+	@Override
+	public void forward(Matrix z, Matrix a) throws MatrixDimensionException {
+		Matrix.applyInto(a, FORWARD, z);
+	}
+
+	@Override
+	public ArrayOperator getForwardKernel() {
+		return FORWARD;
+	}
+
+	@Override
+	public void backward(Matrix a, Matrix gradient) throws MatrixDimensionException {
+		Matrix.applyInto(gradient, BACKWARD, a);
+	}
+
+	@Override
+	public void forward(FloatMatrix z, FloatMatrix a) throws MatrixDimensionException {
+		FloatMatrix.applyInto(a, FLOAT_FORWARD, z);
+	}
+
+	@Override
+	public void backward(FloatMatrix a, FloatMatrix gradient) throws MatrixDimensionException {
+		FloatMatrix.applyInto(gradient, FLOAT_BACKWARD, a);
+	}
+
+}
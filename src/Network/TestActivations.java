@@ -0,0 +1,125 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.Test;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+
+public class TestActivations {
+
+	private static final double EPSILON = 1e-12;
+	private static final double FLOAT_EPSILON = 1e-5;
+
+	private final Random random = new Random(29);
+
+	@Test
+	public void testSigmoid() throws Exception {
+		this.assertElementWise(new Sigmoid(), z -> 1 / (1 + Math.exp(-z)), z -> Math.exp(-z) / Math.pow(1 + Math.exp(-z), 2));
+	}
+
+	@Test
+	public void testTanh() throws Exception {
+		this.assertElementWise(new Tanh(), Math::tanh, z -> 1 / Math.pow(Math.cosh(z), 2));
+	}
+
+	@Test
+	public void testReLU() throws Exception {
+		this.assertElementWise(new ReLU(), z -> Math.max(0, z), z -> z > 0 ? 1 : 0);
+	}
+
+	@Test
+	public void testSoftmax() throws Exception {
+		int rows = 5;
+		int cols = 3;
+		Matrix z = this.randomMatrix(rows, cols);
+		Matrix g = this.randomMatrix(rows, cols);
+		Softmax softmax = new Softmax();
+
+		Matrix a = new Matrix(rows, cols);
+		softmax.forward(z, a);
+		Matrix gradient = new Matrix(g, true);
+		softmax.backward(a, gradient);
+
+		FloatMatrix floatA = new FloatMatrix(rows, cols);
+		softmax.forward(new FloatMatrix(z), floatA);
+		FloatMatrix floatGradient = new FloatMatrix(g);
+		softmax.backward(floatA, floatGradient);
+
+		for (int col = 0; col < cols; col++) {
+			double sum = 0;
+
+			for (int row = 0; row < rows; row++) {
+				sum += Math.exp(z.getEntry(row, col));
+			}
+
+			for (int i = 0; i < rows; i++) {
+				double ai = Math.exp(z.getEntry(i, col)) / sum;
+				assertEquals(ai, a.getEntry(i, col), EPSILON);
+				assertEquals(ai, floatA.getEntry(i, col), FLOAT_EPSILON);
+
+				// Jacobian of softmax, d a_j / d z_i = a_j * (delta_ij - a_i), applied to the gradient
+				double expected = 0;
+
+				for (int j = 0; j < rows; j++) {
+					double aj = Math.exp(z.getEntry(j, col)) / sum;
+					expected += g.getEntry(j, col) * aj * ((i == j ? 1 : 0) - ai);
+				}
+
+				assertEquals(expected, gradient.getEntry(i, col), EPSILON);
+				assertEquals(expected, floatGradient.getEntry(i, col), FLOAT_EPSILON);
+			}
+		}
+	}
+
+	/**
+	 * Checks forward against the function and backward against its derivative, both taken straight from z
+	 */
+	private void assertElementWise(Activation activation, DoubleUnaryOperator f, DoubleUnaryOperator derivative) throws Exception {
+		int rows = 7;
+		int cols = 5;
+		Matrix z = this.randomMatrix(rows, cols);
+		Matrix g = this.randomMatrix(rows, cols);
+
+		Matrix a = new Matrix(rows, cols);
+		activation.forward(z, a);
+		Matrix gradient = new Matrix(g, true);
+		activation.backward(a, gradient);
+
+		FloatMatrix floatA = new FloatMatrix(rows, cols);
+		activation.forward(new FloatMatrix(z), floatA);
+		FloatMatrix floatGradient = new FloatMatrix(g);
+		activation.backward(floatA, floatGradient);
+
+		// The kernel a layer fuses into its product computes the same values
+		Matrix fused = new Matrix(rows, cols);
+		activation.getForwardKernel().apply(z.getData(), 0, fused.getData(), 0, rows * cols);
+
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				double zi = z.getEntry(row, col);
+				double gi = g.getEntry(row, col);
+
+				assertEquals(f.applyAsDouble(zi), a.getEntry(row, col), EPSILON);
+				assertEquals(f.applyAsDouble(zi), fused.getEntry(row, col), EPSILON);
+				assertEquals(f.applyAsDouble(zi), floatA.getEntry(row, col), FLOAT_EPSILON);
+				assertEquals(gi * derivative.applyAsDouble(zi), gradient.getEntry(row, col), EPSILON);
+				assertEquals(gi * derivative.applyAsDouble(zi), floatGradient.getEntry(row, col), FLOAT_EPSILON);
+			}
+		}
+	}
+
+	private Matrix randomMatrix(int rows, int cols) {
+		Matrix m = new Matrix(rows, cols);
+
+		for (int i = 0; i < rows * cols; i++) {
+			m.getData()[i] = 3 * this.random.nextGaussian();
+		}
+
+		return m;
+	}
+}
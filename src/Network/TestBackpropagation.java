@@ -0,0 +1,100 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import Matrices.Matrix;
+
+public class TestBackpropagation {
+
+	private static final double EPSILON = 1e-12;
+
+	private final Network network = new Network(new int[] { 3, 4, 5, 2 }, 11);
+	private final Random random = new Random(23);
+
+	@Test
+	public void testBackpropagateMatchesFiniteDifferences() throws Exception {
+		double[] x = this.randomArray(3);
+		double[] y = { 0.25, 0.75 };
+		Pair<ArrayList<Matrix>, ArrayList<Matrix>> gradients = this.network.backpropagate(x, y);
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			this.assertMatchesFiniteDifferences(this.network.weights.get(i), gradients.getFirst().get(i), x, y);
+			this.assertMatchesFiniteDifferences(this.network.biases.get(i), gradients.getSecond().get(i), x, y);
+		}
+	}
+
+	@Test
+	public void testBatchedGradientsAreSumOfSamples() throws Exception {
+		int batch = 4;
+		List<Pair<double[], double[]>> samples = new ArrayList<>();
+
+		for (int s = 0; s < batch; s++) {
+			samples.add(new Pair<>(this.randomArray(3), new double[] { s % 2, 1 - s % 2 }));
+		}
+
+		BatchWorkspace ws = this.network.workspace(batch);
+		Network.packBatch(samples, ws.inputs, ws.expectations);
+		this.network.backpropagateBatch(ws.inputs, ws.expectations, ws);
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			Matrix sumW = new Matrix(this.network.weights.get(i), false);
+			Matrix sumB = new Matrix(this.network.biases.get(i), false);
+
+			for (Pair<double[], double[]> sample : samples) {
+				Pair<ArrayList<Matrix>, ArrayList<Matrix>> gradients = this.network.backpropagate(sample.getFirst(), sample.getSecond());
+				Matrix.axpy(1, gradients.getFirst().get(i), sumW);
+				Matrix.axpy(1, gradients.getSecond().get(i), sumB);
+			}
+
+			assertArrayEquals(sumW.getData(), ws.nablaW.get(i).getData(), EPSILON);
+			assertArrayEquals(sumB.getData(), ws.nablaB.get(i).getData(), EPSILON);
+		}
+	}
+
+	/**
+	 * Checks a gradient against central differences of the quadratic cost, one parameter at a time
+	 */
+	private void assertMatchesFiniteDifferences(Matrix parameters, Matrix gradient, double[] x, double[] y) throws Exception {
+		double[] data = parameters.getData();
+
+		for (int i = 0; i < data.length; i++) {
+			double old = data[i];
+			data[i] = old + 1e-6;
+			double plus = this.cost(x, y);
+			data[i] = old - 1e-6;
+			double minus = this.cost(x, y);
+			data[i] = old;
+
+			assertEquals((plus - minus) / 2e-6, gradient.getData()[i], 1e-8);
+		}
+	}
+
+	// Quadratic cost of one sample, 0.5 * |a - y|^2
+	private double cost(double[] x, double[] y) throws Exception {
+		Matrix a = new ExecutionPlan(this.network, 1).forward(x);
+		double sum = 0;
+
+		for (int i = 0; i < y.length; i++) {
+			double d = a.getEntry(i, 0) - y[i];
+			sum += 0.5 * d * d;
+		}
+
+		return sum;
+	}
+
+	private double[] randomArray(int length) {
+		double[] array = new double[length];
+
+		for (int i = 0; i < length; i++) {
+			array[i] = this.random.nextGaussian();
+		}
+
+		return array;
+	}
+}
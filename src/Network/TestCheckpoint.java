@@ -0,0 +1,205 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import Matrices.Matrix;
+
+public class TestCheckpoint {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Convolution, max-pooling, dropout and every section of the header
+	private final Network network = Network.builder(1, 6, 6)
+			.add(new Conv2D(2, 3)).add(new ReLU()).add(new MaxPool(2))
+			.add(new Dense(5)).add(new Tanh()).add(new Dropout(0.25))
+			.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+			.build(new He(), 13);
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		String path = this.folder.getRoot() + "/network.ckpt";
+		Checkpoint.write(this.network, path);
+		Network loaded = Checkpoint.read(path);
+
+		assertArrayEquals(this.network.sizes, loaded.sizes);
+		assertArrayEquals(this.network.dropout, loaded.dropout, 0);
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			assertEquals(this.network.layerActivations.get(i).getClass(), loaded.layerActivations.get(i).getClass());
+			assertArrayEquals(this.network.weights.get(i).getData(), loaded.weights.get(i).getData(), 0);
+			assertArrayEquals(this.network.biases.get(i).getData(), loaded.biases.get(i).getData(), 0);
+		}
+
+		Convolution conv = loaded.convolutions.get(0);
+		assertEquals(2, conv.filters);
+		assertEquals(3, conv.kernel);
+		assertEquals(2, conv.pool);
+		assertNull(loaded.convolutions.get(1));
+
+		double[] input = new double[36];
+
+		for (int i = 0; i < input.length; i++) {
+			input[i] = i / 36.0;
+		}
+
+		Matrix expected = new ExecutionPlan(this.network, 1).forward(input);
+		assertArrayEquals(expected.getData(), new ExecutionPlan(loaded, 1).forward(input).getData(), 0);
+	}
+
+	@Test
+	public void testOverwriteLeavesNoTemporaryFiles() throws Exception {
+		String path = this.folder.getRoot() + "/network.ckpt";
+		Checkpoint.write(new Network(new int[] { 2, 2 }, 1), path);
+		Checkpoint.write(this.network, path);
+
+		assertEquals(1, this.folder.getRoot().list().length);
+		assertArrayEquals(this.network.sizes, Checkpoint.read(path).sizes);
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsTruncatedFile() throws Exception {
+		File file = this.written();
+
+		try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+			f.setLength(f.length() - Double.BYTES);
+		}
+
+		Checkpoint.read(file.getPath());
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsTruncatedHeader() throws Exception {
+		File file = this.written();
+
+		try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+			f.setLength(20);
+		}
+
+		Checkpoint.read(file.getPath());
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsBadMagicNumber() throws Exception {
+		Checkpoint.read(this.corrupted(0, 0x12345678).getPath());
+	}
+
+	@Test
+	public void testRejectsOtherVersions() throws Exception {
+		for (int version : new int[] { Checkpoint.VERSION - 1, Checkpoint.VERSION + 1, Checkpoint.VERSION + 2, -1 }) {
+			this.assertRejected(this.corrupted(4, version));
+		}
+	}
+
+	@Test
+	public void testRejectsBadLayerCounts() throws Exception {
+		// Counts the header cannot hold are caught before any array is sized from them
+		for (int count : new int[] { 0, -1, 5, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+			this.assertRejected(this.corrupted(8, count));
+		}
+	}
+
+	@Test
+	public void testRejectsBadLayerSizes() throws Exception {
+		for (int size : new int[] { 0, -5, Integer.MIN_VALUE, Integer.MAX_VALUE }) {
+			for (int layer = 0; layer < 4; layer++) {
+				this.assertRejected(this.corrupted(12 + layer * Integer.BYTES, size));
+			}
+		}
+	}
+
+	@Test
+	public void testRejectsOverflowingMatrix() throws Exception {
+		// Two dense layers of 2^16 neurons: 2^32 weights, which wrap to 0 as an int product
+		File file = this.folder.newFile();
+		ByteBuffer header = ByteBuffer.allocate(12 + 2 * 4 + 4 + 2 * 8 + 32).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(Checkpoint.MAGIC_NUMBER).putInt(Checkpoint.VERSION).putInt(2).putInt(1 << 16).putInt(1 << 16).putInt(0);
+		Files.write(file.toPath(), header.array());
+
+		try {
+			Checkpoint.read(file.getPath());
+			fail("Matrices past the array limit are rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("too large"));
+		}
+	}
+
+	@Test
+	public void testRejectsBadDropoutRates() throws Exception {
+		// Just past the sizes and the three activation codes
+		int dropout = 12 + 4 * Integer.BYTES + 3 * Integer.BYTES;
+
+		for (double rate : new double[] { 1, 1.5, -0.25, Double.NaN, Double.POSITIVE_INFINITY }) {
+			for (int layer = 0; layer < 4; layer++) {
+				File file = this.written();
+				byte[] bytes = Files.readAllBytes(file.toPath());
+				ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putDouble(dropout + layer * Double.BYTES, rate);
+				Files.write(file.toPath(), bytes);
+
+				this.assertRejected(file);
+			}
+		}
+	}
+
+	@Test
+	public void testRejectsBadConvolution() throws Exception {
+		// The first connection's geometry follows the four dropout rates; its input channels then height
+		int geometry = 12 + 4 * Integer.BYTES + 3 * Integer.BYTES + 4 * Double.BYTES;
+
+		this.assertRejected(this.corrupted(geometry, 2));
+		this.assertRejected(this.corrupted(geometry + Integer.BYTES, 1 << 30));
+		this.assertRejected(this.corrupted(geometry + 3 * Integer.BYTES, -2));
+	}
+
+	private void assertRejected(File file) throws Exception {
+		try {
+			Checkpoint.read(file.getPath());
+			fail("Corrupt checkpoint read");
+		} catch (IOException e) {
+			// Expected
+		}
+
+		try {
+			InferenceParameterStore.map(file.getPath()).close();
+			fail("Corrupt checkpoint mapped");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsUnknownActivation() throws Exception {
+		// Just past the magic number, version, layer count and the four layer sizes
+		Checkpoint.read(this.corrupted(12 + 4 * Integer.BYTES, 99).getPath());
+	}
+
+	private File written() throws IOException {
+		File file = this.folder.newFile();
+		Checkpoint.write(this.network, file.getPath());
+
+		return file;
+	}
+
+	/**
+	 * Writes the network and overwrites one int of the file
+	 */
+	private File corrupted(int position, int value) throws IOException {
+		File file = this.written();
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+		Files.write(file.toPath(), bytes);
+
+		return file;
+	}
+}
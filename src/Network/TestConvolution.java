@@ -0,0 +1,132 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import Matrices.Matrix;
+
+public class TestConvolution {
+
+	private static final double EPSILON = 1e-12;
+
+	// Two channels of 7x6 images, three 3x3 filters with stride 2 and padding 1, pooled 2x2
+	private final Convolution conv = new Convolution(2, 7, 6, 3, 3, 2, 1, 2);
+	private final Random random = new Random(19);
+
+	@Test
+	public void testForwardMatchesDirectConvolution() throws Exception {
+		int batch = 3;
+		Matrix w = randomMatrix(this.conv.filters, this.conv.getPatchSize());
+		Matrix b = randomMatrix(this.conv.filters, 1);
+		Matrix in = randomMatrix(this.conv.getInputSize(), batch);
+		Matrix out = new Matrix(this.conv.getOutputSize(), batch);
+
+		this.conv.forward(w, b, new Tanh(), in, out);
+
+		assertEquals(4, this.conv.outHeight);
+		assertEquals(3, this.conv.outWidth);
+
+		for (int s = 0; s < batch; s++) {
+			for (int f = 0; f < this.conv.filters; f++) {
+				for (int py = 0; py < this.conv.pooledHeight; py++) {
+					for (int px = 0; px < this.conv.pooledWidth; px++) {
+						double max = Double.NEGATIVE_INFINITY;
+
+						for (int dy = 0; dy < 2; dy++) {
+							for (int dx = 0; dx < 2; dx++) {
+								max = Math.max(max, this.direct(w, in, s, f, py * 2 + dy, px * 2 + dx));
+							}
+						}
+
+						int row = (f * this.conv.pooledHeight + py) * this.conv.pooledWidth + px;
+						assertEquals(Math.tanh(max + b.getEntry(f, 0)), out.getEntry(row, s), EPSILON);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBackwardMatchesFiniteDifferences() throws Exception {
+		int batch = 2;
+		Matrix w = randomMatrix(this.conv.filters, this.conv.getPatchSize());
+		Matrix b = randomMatrix(this.conv.filters, 1);
+		Matrix in = randomMatrix(this.conv.getInputSize(), batch);
+		Matrix g = randomMatrix(this.conv.getOutputSize(), batch);
+		Convolution.Buffers buffers = this.conv.newBuffers(batch);
+
+		// Gradients of sum(g * out)
+		Matrix out = new Matrix(this.conv.getOutputSize(), batch);
+		this.conv.forward(w, b, new Tanh(), in, buffers, out);
+		Matrix delta = new Matrix(g, true);
+		new Tanh().backward(out, delta);
+
+		Matrix nablaW = new Matrix(w, false);
+		Matrix nablaB = new Matrix(b, false);
+		Matrix previous = new Matrix(in, false);
+		this.conv.backward(w, delta, buffers, nablaW, nablaB, previous);
+
+		for (Matrix[] pair : new Matrix[][] { { w, nablaW }, { b, nablaB }, { in, previous } }) {
+			double[] data = pair[0].getData();
+
+			for (int i = 0; i < data.length; i++) {
+				double old = data[i];
+				data[i] = old + 1e-6;
+				double plus = this.loss(w, b, in, g);
+				data[i] = old - 1e-6;
+				double minus = this.loss(w, b, in, g);
+				data[i] = old;
+
+				assertEquals((plus - minus) / 2e-6, pair[1].getData()[i], 1e-7);
+			}
+		}
+	}
+
+	/**
+	 * Gets one output of the convolution before pooling, padding read as zeros
+	 */
+	private double direct(Matrix w, Matrix in, int sample, int filter, int oy, int ox) {
+		double sum = 0;
+
+		for (int c = 0; c < this.conv.channels; c++) {
+			for (int ky = 0; ky < 3; ky++) {
+				for (int kx = 0; kx < 3; kx++) {
+					int y = oy * 2 + ky - 1;
+					int x = ox * 2 + kx - 1;
+
+					if (y >= 0 && y < this.conv.height && x >= 0 && x < this.conv.width) {
+						sum += w.getEntry(filter, (c * 3 + ky) * 3 + kx) * in.getEntry((c * this.conv.height + y) * this.conv.width + x, sample);
+					}
+				}
+			}
+		}
+
+		return sum;
+	}
+
+	private double loss(Matrix w, Matrix b, Matrix in, Matrix g) throws Exception {
+		Matrix out = new Matrix(g.getRows(), g.getCols());
+		this.conv.forward(w, b, new Tanh(), in, out);
+
+		double sum = 0;
+
+		for (int i = 0; i < out.getData().length; i++) {
+			sum += out.getData()[i] * g.getData()[i];
+		}
+
+		return sum;
+	}
+
+	private Matrix randomMatrix(int rows, int cols) {
+		Matrix m = new Matrix(rows, cols);
+
+		for (int i = 0; i < rows * cols; i++) {
+			m.getData()[i] = this.random.nextGaussian();
+		}
+
+		return m;
+	}
+}
@@ -0,0 +1,146 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import Matrices.Matrix;
+
+public class TestDistributedTraining {
+
+	private static final int WORKERS = 3;
+	private static final double LEARNING_RATE = 0.5;
+
+	private final Random random = new Random(37);
+
+	@Test(timeout = 60_000)
+	public void testOneStepMatchesSingleProcess() throws Exception {
+		// Equal shards of four samples and mini-batches of four, so the workers take exactly one step together
+		List<Pair<double[], double[]>> data = this.samples(12);
+		Network[] networks = networks();
+		DistributedWorker[] workers = this.train(networks, data, 1, 4, 5);
+
+		// Every replica starts from rank 0's weights, so the reference does too
+		int rank0 = 0;
+
+		while (workers[rank0].getRank() != 0) {
+			rank0++;
+		}
+
+		Network expected = network(rank0);
+		Matrix inputs = new Matrix(4, data.size());
+		Matrix expectations = new Matrix(3, data.size());
+		Network.packBatch(data, inputs, expectations);
+		expected.updateMiniBatch(inputs, expectations, LEARNING_RATE);
+
+		// The ring sums the shards' gradients in another order than one batch does
+		for (Network network : networks) {
+			for (int i = 0; i < network.numLayers - 1; i++) {
+				assertArrayEquals(expected.weights.get(i).getData(), network.weights.get(i).getData(), 1e-12);
+				assertArrayEquals(expected.biases.get(i).getData(), network.biases.get(i).getData(), 1e-12);
+			}
+		}
+	}
+
+	@Test(timeout = 60_000)
+	public void testReplicasStayIdentical() throws Exception {
+		// Shards of 4, 4 and 5 samples in mini-batches of 2, so the smaller shards run out before the last step
+		Network[] networks = networks();
+		DistributedWorker[] workers = this.train(networks, this.samples(13), 2, 2, 9);
+		Network first = networks[0];
+
+		for (int w = 0; w < WORKERS; w++) {
+			assertEquals(WORKERS, workers[w].getWorkers());
+
+			for (int i = 0; i < first.numLayers - 1; i++) {
+				assertArrayEquals(first.weights.get(i).getData(), networks[w].weights.get(i).getData(), 0);
+				assertArrayEquals(first.biases.get(i).getData(), networks[w].biases.get(i).getData(), 0);
+			}
+
+			// Training moved the weights away from every starting point
+			assertFalse(Arrays.equals(network(w).weights.get(0).getData(), first.weights.get(0).getData()));
+		}
+	}
+
+	/**
+	 * Trains one replica per worker on this machine, each worker in its own thread and starting from its own weights
+	 */
+	private DistributedWorker[] train(Network[] networks, List<Pair<double[], double[]>> data, int epochs, int miniBatchSize, long seed) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(WORKERS + 1);
+
+		try (DistributedCoordinator coordinator = new DistributedCoordinator(0, WORKERS)) {
+			Future<?> run = pool.submit(() -> {
+				coordinator.run(epochs, miniBatchSize, LEARNING_RATE, seed);
+				return null;
+			});
+
+			DistributedWorker[] workers = new DistributedWorker[WORKERS];
+			List<Future<?>> training = new ArrayList<>();
+
+			for (int w = 0; w < WORKERS; w++) {
+				DistributedWorker worker = new DistributedWorker(networks[w], "localhost", coordinator.getPort());
+				workers[w] = worker;
+				training.add(pool.submit(() -> {
+					worker.train(data);
+					return null;
+				}));
+			}
+
+			for (Future<?> future : training) {
+				future.get();
+			}
+
+			run.get();
+
+			return workers;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static Network[] networks() {
+		Network[] networks = new Network[WORKERS];
+
+		for (int w = 0; w < WORKERS; w++) {
+			networks[w] = network(w);
+		}
+
+		return networks;
+	}
+
+	/**
+	 * Gets the initial network of a worker, each worker's weights drawn from a different seed
+	 */
+	private static Network network(int worker) {
+		return Network.builder(4)
+				.add(new Dense(5)).add(new Tanh())
+				.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+				.build(100 + worker);
+	}
+
+	private List<Pair<double[], double[]>> samples(int count) {
+		List<Pair<double[], double[]>> samples = new ArrayList<>();
+
+		for (int s = 0; s < count; s++) {
+			double[] x = new double[4];
+			double[] y = new double[3];
+
+			for (int i = 0; i < x.length; i++) {
+				x[i] = this.random.nextGaussian();
+			}
+
+			y[s % 3] = 1;
+			samples.add(new Pair<>(x, y));
+		}
+
+		return samples;
+	}
+}
@@ -0,0 +1,188 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import Matrices.Matrix;
+
+public class TestEvaluator {
+
+	private static final int SAMPLES = 103;
+
+	private final Network network = Network.builder(6)
+			.add(new Dense(8)).add(new Tanh())
+			.add(new Dense(4)).add(new Softmax())
+			.build(new Xavier(), 29);
+
+	/**
+	 * Deterministic inputs whose labels the untrained network gets partly right, so every count is exercised
+	 */
+	private final Dataset data = new Dataset() {
+		@Override
+		public int size() {
+			return SAMPLES;
+		}
+
+		@Override
+		public int getInputSize() {
+			return 6;
+		}
+
+		@Override
+		public int getLabel(int sample) {
+			return sample % 4;
+		}
+
+		@Override
+		public void packInputs(int from, Matrix inputs) {
+			for (int col = 0; col < inputs.getCols(); col++) {
+				double[] input = input(from + col);
+
+				for (int row = 0; row < input.length; row++) {
+					inputs.getData()[inputs.index(row, col)] = input[row];
+				}
+			}
+		}
+	};
+
+	private static double[] input(int sample) {
+		double[] input = new double[6];
+
+		for (int j = 0; j < input.length; j++) {
+			input[j] = Math.sin(sample * 1.3 + j * 0.7) * 2;
+		}
+
+		return input;
+	}
+
+	/**
+	 * Counts the predictions one sample at a time through an inference session
+	 */
+	private long[][] expectedConfusion() throws Exception {
+		InferenceSession session = new InferenceSession(this.network);
+		long[][] confusion = new long[4][4];
+
+		for (int i = 0; i < SAMPLES; i++) {
+			confusion[this.data.getLabel(i)][session.classify(input(i))]++;
+		}
+
+		return confusion;
+	}
+
+	@Test
+	public void testMatchesSession() throws Exception {
+		long[][] expected = this.expectedConfusion();
+
+		// 103 samples divide evenly into none of these batch sizes but 1
+		for (int threads : new int[] { 1, 2, 3, 8 }) {
+			for (int batchSize : new int[] { 1, 10, 16, 256 }) {
+				try (Evaluator evaluator = new Evaluator(this.network, threads, batchSize)) {
+					Evaluation evaluation = evaluator.evaluate(this.data);
+
+					assertEquals(SAMPLES, evaluation.getSamples());
+					assertArrayEquals("threads " + threads + ", batch size " + batchSize, expected, evaluation.getConfusionMatrix());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRepeatedEvaluations() throws Exception {
+		try (Evaluator evaluator = new Evaluator(this.network, 3, 16)) {
+			Evaluation first = evaluator.evaluate(this.data);
+			Evaluation second = evaluator.evaluate(this.data);
+
+			// Each evaluation starts its counts from zero
+			assertArrayEquals(first.getConfusionMatrix(), second.getConfusionMatrix());
+			assertEquals(SAMPLES, second.getSamples());
+		}
+	}
+
+	@Test
+	public void testPairs() throws Exception {
+		List<Pair<double[], double[]>> pairs = new ArrayList<>();
+
+		for (int i = 0; i < SAMPLES; i++) {
+			double[] expected = new double[4];
+			expected[this.data.getLabel(i)] = 1;
+			pairs.add(new Pair<>(input(i), expected));
+		}
+
+		try (Evaluator evaluator = new Evaluator(this.network, 2, 10)) {
+			assertArrayEquals(this.expectedConfusion(), evaluator.evaluate(pairs).getConfusionMatrix());
+		}
+	}
+
+	@Test(expected = NetworkInputException.class)
+	public void testWrongInputSize() throws Exception {
+		List<Pair<double[], double[]>> pairs = new ArrayList<>();
+		pairs.add(new Pair<>(new double[5], new double[4]));
+
+		try (Evaluator evaluator = new Evaluator(this.network, 1, 4)) {
+			evaluator.evaluate(pairs);
+		}
+	}
+
+	@Test
+	public void testLabelOutOfRange() throws Exception {
+		List<Pair<double[], double[]>> pairs = new ArrayList<>();
+		pairs.add(new Pair<>(input(0), new double[] { 0, 0, 0, 0, 1 }));
+
+		try (Evaluator evaluator = new Evaluator(this.network, 1, 4)) {
+			evaluator.evaluate(pairs);
+			fail("Labels past the output layer are rejected");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+	}
+
+	@Test
+	public void testPrecisionAndRecall() {
+		Evaluation evaluation = new Evaluation(4, new long[] {
+				3, 0, 1, 1,
+				1, 0, 1, 0,
+				0, 0, 4, 0,
+				0, 0, 0, 0
+		});
+
+		assertEquals(11, evaluation.getSamples());
+		assertEquals(7, evaluation.getCorrect());
+		assertEquals(7.0 / 11, evaluation.getAccuracy(), 1e-15);
+		assertEquals(1, evaluation.getCount(1, 0));
+
+		assertEquals(3.0 / 4, evaluation.getPrecision(0), 1e-15);
+		assertEquals(4.0 / 6, evaluation.getPrecision(2), 1e-15);
+		assertEquals(3.0 / 5, evaluation.getRecall(0), 1e-15);
+		assertEquals(1, evaluation.getRecall(2), 1e-15);
+
+		// Class 3 is predicted once but has no samples
+		assertEquals(0, evaluation.getPrecision(3), 0);
+		assertEquals(0, evaluation.getRecall(3), 0);
+
+		// Class 1 has samples but is never predicted
+		assertEquals(0, evaluation.getPrecision(1), 0);
+		assertEquals(0, evaluation.getRecall(1), 0);
+	}
+
+	@Test
+	public void testEmpty() {
+		Evaluation evaluation = new Evaluation(2, new long[4]);
+
+		assertEquals(0, evaluation.getSamples());
+		assertEquals(0, evaluation.getAccuracy(), 0);
+		assertEquals(0, evaluation.getPrecision(0), 0);
+		assertEquals(0, evaluation.getRecall(1), 0);
+	}
+
+	@Test
+	public void testConfusionMatrixIsCopied() {
+		Evaluation evaluation = new Evaluation(2, new long[] { 1, 2, 3, 4 });
+		evaluation.getConfusionMatrix()[0][0] = 100;
+
+		assertEquals(1, evaluation.getCount(0, 0));
+	}
+}
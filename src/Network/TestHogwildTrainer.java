@@ -0,0 +1,148 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestHogwildTrainer {
+
+	@Test
+	public void testSingleThreadMatchesSGD() throws Exception {
+		Random random = new Random(3);
+		List<Pair<double[], double[]>> data = new ArrayList<>();
+
+		for (int s = 0; s < 20; s++) {
+			double[] x = new double[5];
+			double[] y = new double[2];
+
+			for (int i = 0; i < x.length; i++) {
+				x[i] = random.nextDouble();
+			}
+
+			y[s % 2] = 1;
+			data.add(new Pair<>(x, y));
+		}
+
+		Network sgd = new Network(new int[] { 5, 4, 2 }, 17);
+		Network hogwild = new Network(new int[] { 5, 4, 2 }, 17);
+
+		// One mini-batch per epoch, so the unseeded shuffles only change the order of summation
+		sgd.stochasticGradientDescent(data, 3, data.size(), 0.5);
+
+		try (HogwildTrainer trainer = new HogwildTrainer(hogwild, 1)) {
+			trainer.stochasticGradientDescent(data, 3, data.size(), 0.5);
+		}
+
+		for (int i = 0; i < sgd.numLayers - 1; i++) {
+			assertArrayEquals(sgd.weights.get(i).getData(), hogwild.weights.get(i).getData(), 1e-12);
+			assertArrayEquals(sgd.biases.get(i).getData(), hogwild.biases.get(i).getData(), 1e-12);
+		}
+	}
+
+	/**
+	 * Samples of two classes, split by the sign of the first input minus the second
+	 */
+	private static List<Pair<double[], double[]>> separable(int samples, long seed) {
+		Random random = new Random(seed);
+		List<Pair<double[], double[]>> data = new ArrayList<>();
+
+		for (int s = 0; s < samples; s++) {
+			double[] x = new double[5];
+			double[] y = new double[2];
+
+			for (int i = 0; i < x.length; i++) {
+				x[i] = random.nextDouble() * 2 - 1;
+			}
+
+			y[x[0] > x[1] ? 0 : 1] = 1;
+			data.add(new Pair<>(x, y));
+		}
+
+		return data;
+	}
+
+	@Test
+	public void testConcurrentTrainingLearns() throws Exception {
+		List<Pair<double[], double[]>> data = separable(800, 5);
+		Network network = new Network(new int[] { 5, 8, 2 }, 11);
+
+		try (Evaluator evaluator = new Evaluator(network, 1, 100)) {
+			double before = evaluator.evaluate(data).getAccuracy();
+
+			try (HogwildTrainer trainer = new HogwildTrainer(network, 4)) {
+				trainer.stochasticGradientDescent(data, 10, 1, 0.5);
+
+				for (int t = 0; t < 4; t++) {
+					assertTrue(trainer.getSamplesPerSecond(t) > 0);
+				}
+
+				assertEquals(trainer.getSamplesPerSecond(0) + trainer.getSamplesPerSecond(1) + trainer.getSamplesPerSecond(2)
+						+ trainer.getSamplesPerSecond(3), trainer.getSamplesPerSecond(), 1e-6);
+				assertTrue(trainer.throughputReport().contains("thread 3: "));
+			}
+
+			double after = evaluator.evaluate(data).getAccuracy();
+			assertTrue("accuracy " + before + " -> " + after, after > 0.9 && after > before);
+		}
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			for (double w : network.weights.get(i).getData()) {
+				assertTrue(Double.isFinite(w));
+			}
+		}
+	}
+
+	@Test
+	public void testMoreThreadsThanSamples() throws Exception {
+		List<Pair<double[], double[]>> data = separable(3, 7);
+		Network network = new Network(new int[] { 5, 4, 2 }, 3);
+		Network untouched = new Network(new int[] { 5, 4, 2 }, 3);
+
+		// Empty shards are skipped, and the growing mini-batch size reallocates the workspaces between calls
+		try (HogwildTrainer trainer = new HogwildTrainer(network, 8)) {
+			trainer.stochasticGradientDescent(data, 2, 1, 0.1);
+			trainer.stochasticGradientDescent(data, 2, 4, 0.1);
+			assertEquals(0, trainer.getSamplesPerSecond(0), 0);
+			assertTrue(trainer.getSamplesPerSecond(7) > 0);
+		}
+
+		assertFalse(Arrays.equals(untouched.weights.get(0).getData(), network.weights.get(0).getData()));
+	}
+
+	@Test
+	public void testRejectsOtherOptimizers() {
+		Optimizer[] optimizers = { new SGD(0.9, 0), new SGD(0, 1e-4), new Nesterov(), new Adam(), new RMSProp() };
+
+		for (Optimizer optimizer : optimizers) {
+			Network network = new Network(new int[] { 5, 4, 2 }, 1);
+			network.setOptimizer(optimizer);
+
+			try {
+				new HogwildTrainer(network, 2).close();
+				fail(optimizer.getClass().getSimpleName() + " accepted");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRejectsOptimizerSetLater() {
+		Network network = new Network(new int[] { 5, 4, 2 }, 1);
+
+		try (HogwildTrainer trainer = new HogwildTrainer(network, 2)) {
+			network.setOptimizer(new Adam());
+			trainer.stochasticGradientDescent(separable(10, 1), 1, 1, 0.1);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoThreads() {
+		new HogwildTrainer(new Network(new int[] { 5, 4, 2 }, 1), 0);
+	}
+}
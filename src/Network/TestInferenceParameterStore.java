@@ -0,0 +1,213 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestInferenceParameterStore {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Network network = Network.builder(6)
+			.add(new Dense(5)).add(new Tanh())
+			.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+			.build(new He(), 17);
+
+	private final double[] input = { 0.1, -0.4, 0.9, 0.3, -0.2, 0.7 };
+
+	@Test
+	public void testCopyOfRoundTrip() throws Exception {
+		try (InferenceParameterStore store = InferenceParameterStore.copyOf(this.network)) {
+			assertFalse(store.isReadOnly());
+			assertEquals(8 * (6 * 5 + 5 + 5 * 3 + 3), store.getBytes());
+			this.assertHoldsNetwork(store);
+		}
+	}
+
+	@Test
+	public void testMapRoundTrip() throws Exception {
+		String path = this.folder.getRoot() + "/network.ckpt";
+		Checkpoint.write(this.network, path);
+
+		try (InferenceParameterStore store = InferenceParameterStore.map(path)) {
+			assertTrue(store.isReadOnly());
+			this.assertHoldsNetwork(store);
+
+			try {
+				store.copyFrom(this.network);
+				fail("Mapped stores are read-only");
+			} catch (IllegalStateException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapConvolutional() throws Exception {
+		String path = this.folder.getRoot() + "/conv.ckpt";
+		Checkpoint.write(Network.builder(1, 4, 4).add(new Conv2D(2, 3)).add(new ReLU()).add(new Dense(2)).add(new Sigmoid()).build(3), path);
+		InferenceParameterStore.map(path);
+	}
+
+	@Test
+	public void testUseAfterClose() throws Exception {
+		InferenceParameterStore store = InferenceParameterStore.copyOf(this.network);
+		InferenceSession session = new InferenceSession(store);
+		session.classify(this.input);
+
+		store.close();
+		store.close();
+		assertFalse(store.isOpen());
+
+		for (Runnable use : new Runnable[] { () -> store.getWeights(0), () -> store.getBiases(0), store::toNetwork }) {
+			try {
+				use.run();
+				fail("Closed stores must not be read");
+			} catch (IllegalStateException e) {
+				// Expected
+			}
+		}
+
+		try {
+			session.classify(this.input);
+			fail("Sessions must not read a closed store");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void testCloseWaitsForReads() throws Exception {
+		InferenceParameterStore store = InferenceParameterStore.copyOf(this.network);
+		store.acquire();
+
+		Thread closer = new Thread(store::close);
+		closer.start();
+		closer.join(200);
+
+		// Close has begun, so new reads fail, but the memory stays until the read under way is released
+		assertTrue(closer.isAlive());
+		assertFalse(store.isOpen());
+
+		try {
+			store.acquire();
+			fail("Reads must not start once the store is closing");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+
+		store.release();
+		closer.join(TimeUnit.SECONDS.toMillis(5));
+		assertFalse(closer.isAlive());
+		assertEquals(0, store.getBytes());
+	}
+
+	/**
+	 * Collects garbage and lets the cleaner thread free the direct buffers of earlier tests, so that the figures read
+	 * afterwards only move with this test's buffers
+	 */
+	private static void settle() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+	}
+
+	/**
+	 * Gets the direct memory in use by the JVM
+	 */
+	private static long directMemory() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (pool.getName().equals("direct")) {
+				return pool.getMemoryUsed();
+			}
+		}
+
+		throw new AssertionError("No direct buffer pool");
+	}
+
+	/**
+	 * Allocates a store of a little over 8 MB, sigmoid layers of 1024 neurons
+	 */
+	private static InferenceParameterStore allocateWide() {
+		return InferenceParameterStore.allocate(new int[] { 1024, 1024 });
+	}
+
+	private static final long WIDE_BYTES = 8L * (1024 * 1024 + 1024);
+
+	@Test
+	public void testCloseFreesMemory() throws Exception {
+		settle();
+		InferenceParameterStore store = allocateWide();
+		Assume.assumeTrue("sun.misc.Unsafe is out of reach", store.freeOnClose);
+		long used = directMemory();
+
+		store.close();
+		assertEquals(used - WIDE_BYTES, directMemory());
+	}
+
+	@Test
+	public void testCollectorFreesMemoryWithoutUnsafe() throws Exception {
+		settle();
+		long before = directMemory();
+		InferenceParameterStore store = allocateWide();
+		InferenceSession session = new InferenceSession(store);
+		assertEquals(before + WIDE_BYTES, directMemory());
+
+		// As when Unsafe.invokeCleaner cannot be reached: close only drops the store's own references
+		store.freeOnClose = false;
+		store.close();
+		assertFalse(store.isOpen());
+		assertEquals(0, store.getBytes());
+		assertEquals(before + WIDE_BYTES, directMemory());
+
+		try {
+			session.classify(new double[1024]);
+			fail("Sessions must not read a closed store");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+
+		// The session still refers to the weights, so only once it is gone can the collector free them
+		session = null;
+		store = null;
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+
+		while (directMemory() > before && System.nanoTime() < deadline) {
+			settle();
+		}
+
+		assertEquals(before, directMemory());
+	}
+
+	/**
+	 * Checks a store's parameters and its inference against the network it was made from
+	 */
+	private void assertHoldsNetwork(InferenceParameterStore store) throws Exception {
+		assertArrayEquals(this.network.sizes, store.getSizes());
+		Network copy = store.toNetwork();
+
+		for (int i = 0; i < this.network.numLayers - 1; i++) {
+			assertEquals(this.network.layerActivations.get(i).getClass(), store.getActivations().get(i).getClass());
+			assertArrayEquals(this.network.weights.get(i).getData(), copy.weights.get(i).getData(), 0);
+			assertArrayEquals(this.network.biases.get(i).getData(), copy.biases.get(i).getData(), 0);
+		}
+
+		double[] expected = new double[3];
+		double[] actual = new double[3];
+		int expectedClass = new InferenceSession(this.network).classify(this.input, expected);
+
+		assertEquals(expectedClass, new InferenceSession(store).classify(this.input, actual));
+		assertArrayEquals(expected, actual, 1e-12);
+	}
+}
@@ -0,0 +1,182 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestInferenceServer {
+
+	// Long enough that a batch is only ever flushed by filling up
+	private static final long FOREVER_MICROS = TimeUnit.SECONDS.toMicros(30);
+
+	private final Network network = Network.builder(6)
+			.add(new Dense(5)).add(new Tanh())
+			.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+			.build(new He(), 17);
+
+	private static double[] input(int i) {
+		double[] input = new double[6];
+
+		for (int j = 0; j < input.length; j++) {
+			input[j] = Math.sin(i * 7 + j);
+		}
+
+		return input;
+	}
+
+	private void assertMatchesSession(double[] input, Prediction prediction) throws Exception {
+		InferenceSession session = new InferenceSession(this.network);
+		double[] scores = new double[3];
+
+		assertEquals(session.classify(input, scores), prediction.getLabel());
+		assertArrayEquals(scores, prediction.getScores(), 1e-12);
+	}
+
+	@Test
+	public void testMatchesSession() throws Exception {
+		try (InferenceServer server = new InferenceServer(this.network, 4, 200)) {
+			List<CompletableFuture<Prediction>> results = new ArrayList<>();
+
+			for (int i = 0; i < 25; i++) {
+				results.add(server.submit(input(i)));
+			}
+
+			for (int i = 0; i < 25; i++) {
+				this.assertMatchesSession(input(i), results.get(i).get(5, TimeUnit.SECONDS));
+			}
+		}
+	}
+
+	@Test
+	public void testCoalescesUpToMaxBatchSize() throws Exception {
+		try (InferenceServer server = new InferenceServer(this.network, 4, FOREVER_MICROS)) {
+			List<CompletableFuture<Prediction>> results = new ArrayList<>();
+
+			for (int i = 0; i < 12; i++) {
+				results.add(server.submit(input(i)));
+			}
+
+			for (CompletableFuture<Prediction> result : results) {
+				result.get(5, TimeUnit.SECONDS);
+			}
+
+			// Only full batches can have run within the window
+			assertEquals(4, server.getMeanBatchSize(), 0);
+			assertEquals(12, server.getLatencies().getCount());
+		}
+	}
+
+	@Test
+	public void testFlushesAfterWaitWindow() throws Exception {
+		long waitMicros = TimeUnit.MILLISECONDS.toMicros(50);
+
+		try (InferenceServer server = new InferenceServer(this.network, 16, waitMicros)) {
+			List<CompletableFuture<Prediction>> results = new ArrayList<>();
+
+			for (int i = 0; i < 3; i++) {
+				results.add(server.submit(input(i)));
+			}
+
+			for (int i = 0; i < 3; i++) {
+				this.assertMatchesSession(input(i), results.get(i).get(5, TimeUnit.SECONDS));
+			}
+
+			// The batch never filled, so the first request waited out the whole window
+			assertTrue(server.getMeanBatchSize() <= 3);
+			assertTrue(server.getLatencies().percentile(100) >= TimeUnit.MICROSECONDS.toNanos(waitMicros));
+		}
+	}
+
+	@Test
+	public void testSubmitCopiesInput() throws Exception {
+		try (InferenceServer server = new InferenceServer(this.network, 2, FOREVER_MICROS)) {
+			double[] input = input(1);
+			CompletableFuture<Prediction> first = server.submit(input);
+
+			// Overwritten before the batch can run, which needs a second request
+			System.arraycopy(input(2), 0, input, 0, input.length);
+			CompletableFuture<Prediction> second = server.submit(input);
+
+			this.assertMatchesSession(input(1), first.get(5, TimeUnit.SECONDS));
+			this.assertMatchesSession(input(2), second.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testCloseFailsPendingRequests() throws Exception {
+		InferenceServer server = new InferenceServer(this.network, 4, FOREVER_MICROS);
+		CompletableFuture<Prediction> pending = server.submit(input(0));
+		server.close();
+
+		// close waits for the worker, which fails what it has not run
+		assertTrue(pending.isDone());
+
+		try {
+			pending.get();
+			fail("Pending requests fail on close");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		try {
+			server.submit(input(1));
+			fail("Requests after close are rejected");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	@Test(expected = NetworkInputException.class)
+	public void testWrongInputSize() throws Exception {
+		try (InferenceServer server = new InferenceServer(this.network, 4, 100)) {
+			server.submit(new double[5]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeWait() {
+		new InferenceServer(this.network, 4, -1);
+	}
+
+	@Test
+	public void testLatencyPercentiles() {
+		LatencyRecorder recorder = new LatencyRecorder(100);
+		assertEquals(0, recorder.percentile(50));
+
+		// Recorded out of order, as concurrent requests complete
+		for (int i = 0; i < 100; i++) {
+			recorder.record((i * 37) % 100 + 1);
+		}
+
+		assertEquals(100, recorder.getCount());
+		assertEquals(50, recorder.percentile(50));
+		assertEquals(99, recorder.percentile(99));
+		assertEquals(100, recorder.percentile(100));
+		assertEquals(1, recorder.percentile(0));
+	}
+
+	@Test
+	public void testLatencyPercentilesOverRecentSamples() {
+		LatencyRecorder recorder = new LatencyRecorder(10);
+
+		for (int i = 1; i <= 30; i++) {
+			recorder.record(i);
+		}
+
+		// Only 21 to 30 are kept, while the count covers every request
+		assertEquals(30, recorder.getCount());
+		assertEquals(25, recorder.percentile(50));
+		assertEquals(30, recorder.percentile(99));
+		assertEquals(21, recorder.percentile(0));
+
+		recorder.reset();
+		assertEquals(0, recorder.getCount());
+		assertEquals(0, recorder.percentile(99));
+	}
+}
@@ -0,0 +1,135 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import Matrices.Gemm;
+import Matrices.Matrix;
+
+public class TestInitializers {
+
+	// Past the parallel threshold, and ending part way through a chunk
+	private static final int LENGTH = RandomFill.PARALLEL_THRESHOLD + RandomFill.CHUNK_SIZE * 3 + 123;
+
+	/**
+	 * Fills the array on a pool of the given size
+	 */
+	private static double[] fill(int threads, long seed) {
+		ForkJoinPool pool = Gemm.getPool();
+		ForkJoinPool workers = new ForkJoinPool(threads);
+		double[] data = new double[LENGTH + 7];
+
+		try {
+			Gemm.setPool(workers);
+			RandomFill.gaussian(data, 7, LENGTH, 0.5, new SplittableRandom(seed));
+		} finally {
+			Gemm.setPool(pool);
+			workers.shutdown();
+		}
+
+		return data;
+	}
+
+	@Test
+	public void testSameSeedSameValuesOnAnyThreads() {
+		// Reference drawn one chunk after another on this thread, each from the next split of the stream
+		SplittableRandom random = new SplittableRandom(99);
+		double[] expected = new double[LENGTH + 7];
+
+		for (int from = 0; from < LENGTH; from += RandomFill.CHUNK_SIZE) {
+			SplittableRandom chunk = random.split();
+
+			for (int i = from; i < Math.min(from + RandomFill.CHUNK_SIZE, LENGTH); i++) {
+				expected[7 + i] = 0.5 * chunk.nextGaussian();
+			}
+		}
+
+		assertArrayEquals(expected, fill(1, 99), 0);
+		assertArrayEquals(expected, fill(4, 99), 0);
+		assertArrayEquals(expected, fill(7, 99), 0);
+		assertFalse(fill(4, 100)[7] == expected[7]);
+	}
+
+	@Test
+	public void testSameSeedSameNetwork() {
+		Network first = Network.builder(784).add(new Dense(512)).add(new ReLU()).add(new Dense(10)).add(new Sigmoid()).build(new He(), 42);
+		Network second = Network.builder(784).add(new Dense(512)).add(new ReLU()).add(new Dense(10)).add(new Sigmoid()).build(new He(), 42);
+
+		for (int i = 0; i < first.numLayers - 1; i++) {
+			assertArrayEquals(first.weights.get(i).getData(), second.weights.get(i).getData(), 0);
+			assertArrayEquals(first.biases.get(i).getData(), second.biases.get(i).getData(), 0);
+		}
+	}
+
+	@Test
+	public void testFillView() {
+		Matrix packed = new Matrix(30, 20);
+		Matrix view = new Matrix(20, 30).transposeView();
+
+		Initializer.fill(packed, 1, new SplittableRandom(5));
+		Initializer.fill(view, 1, new SplittableRandom(5));
+
+		for (int i = 0; i < 30; i++) {
+			for (int j = 0; j < 20; j++) {
+				assertEquals(packed.getEntry(i, j), view.getEntry(i, j), 0);
+			}
+		}
+	}
+
+	/**
+	 * Initializes a layer and checks the sample mean and deviation of its weights and biases
+	 */
+	private static void assertSpread(Initializer initializer, int fanIn, int fanOut, double weightDeviation, double biasDeviation) {
+		Matrix weights = new Matrix(fanOut, fanIn);
+		Matrix biases = new Matrix(fanOut, 1);
+		biases.fill(1);
+		initializer.initialize(weights, biases, new SplittableRandom(11));
+
+		assertEquals(weightDeviation, initializer.weightDeviation(fanIn, fanOut), 1e-15);
+		assertDeviation(weightDeviation, weights.getData());
+
+		if (biasDeviation == 0) {
+			for (double b : biases.getData()) {
+				assertEquals(0, b, 0);
+			}
+		} else {
+			assertDeviation(biasDeviation, biases.getData());
+		}
+	}
+
+	private static void assertDeviation(double deviation, double[] samples) {
+		double sum = 0;
+		double squares = 0;
+
+		for (double x : samples) {
+			sum += x;
+			squares += x * x;
+		}
+
+		double mean = sum / samples.length;
+		double sampled = Math.sqrt(squares / samples.length - mean * mean);
+
+		// Several standard errors of the mean and the deviation for these sample counts
+		assertEquals(0, mean, 5 * deviation / Math.sqrt(samples.length));
+		assertEquals(deviation, sampled, 5 * deviation / Math.sqrt(2 * samples.length));
+	}
+
+	@Test
+	public void testXavierSpread() {
+		assertSpread(new Xavier(), 784, 256, Math.sqrt(2.0 / (784 + 256)), 0);
+	}
+
+	@Test
+	public void testHeSpread() {
+		assertSpread(new He(), 784, 256, Math.sqrt(2.0 / 784), 0);
+	}
+
+	@Test
+	public void testGaussianSpread() {
+		assertSpread(new Gaussian(0.5), 300, 4000, 0.5, 0.5);
+	}
+}
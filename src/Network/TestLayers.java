@@ -0,0 +1,287 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+
+public class TestLayers {
+
+	private static final double EPSILON = 1e-12;
+
+	private final Random random = new Random(31);
+
+	@Test
+	public void testSoftmaxCrossEntropyMatchesFiniteDifferences() throws Exception {
+		Network network = Network.builder(3)
+				.add(new Dense(4)).add(new Tanh())
+				.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+				.build(19);
+
+		double[] x = this.randomArray(3);
+		double[] y = { 0, 1, 0 };
+		Pair<ArrayList<Matrix>, ArrayList<Matrix>> gradients = network.backpropagate(x, y);
+
+		// The fused output error a - y is the gradient of the last biases
+		Matrix a = new ExecutionPlan(network, 1).forward(x);
+
+		for (int i = 0; i < y.length; i++) {
+			assertEquals(a.getEntry(i, 0) - y[i], gradients.getSecond().get(1).getEntry(i, 0), EPSILON);
+		}
+
+		Matrix[] masks = new Matrix[network.numLayers];
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			this.assertMatchesFiniteDifferences(network, masks, network.weights.get(i), gradients.getFirst().get(i), x, y);
+			this.assertMatchesFiniteDifferences(network, masks, network.biases.get(i), gradients.getSecond().get(i), x, y);
+		}
+	}
+
+	@Test
+	public void testBatchedSoftmaxCrossEntropyIsSumOfSamples() throws Exception {
+		Network network = Network.builder(3)
+				.add(new Dense(4)).add(new ReLU())
+				.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+				.build(new He(), 19);
+
+		List<Pair<double[], double[]>> samples = new ArrayList<>();
+
+		for (int s = 0; s < 4; s++) {
+			double[] y = new double[3];
+			y[s % 3] = 1;
+			samples.add(new Pair<>(this.randomArray(3), y));
+		}
+
+		BatchWorkspace ws = network.workspace(samples.size());
+		Network.packBatch(samples, ws.inputs, ws.expectations);
+		network.backpropagateBatch(ws.inputs, ws.expectations, ws);
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			Matrix sumW = new Matrix(network.weights.get(i), false);
+			Matrix sumB = new Matrix(network.biases.get(i), false);
+
+			for (Pair<double[], double[]> sample : samples) {
+				Pair<ArrayList<Matrix>, ArrayList<Matrix>> gradients = network.backpropagate(sample.getFirst(), sample.getSecond());
+				Matrix.axpy(1, gradients.getFirst().get(i), sumW);
+				Matrix.axpy(1, gradients.getSecond().get(i), sumB);
+			}
+
+			assertArrayEquals(sumW.getData(), ws.nablaW.get(i).getData(), EPSILON);
+			assertArrayEquals(sumB.getData(), ws.nablaB.get(i).getData(), EPSILON);
+		}
+	}
+
+	@Test
+	public void testDropoutGradientMatchesFiniteDifferences() throws Exception {
+		Network network = Network.builder(3)
+				.add(new Dense(6)).add(new Sigmoid()).add(new Dropout(0.5))
+				.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+				.build(23);
+
+		double[] x = this.randomArray(3);
+		double[] y = { 0, 0, 1 };
+		BatchWorkspace ws = network.workspace(1);
+		Network.packBatch(Arrays.asList(new Pair<>(x, y)), ws.inputs, ws.expectations);
+		network.backpropagateBatch(ws.inputs, ws.expectations, ws);
+
+		// The step's mask, replayed by the reference forward pass
+		Matrix[] masks = new Matrix[network.numLayers];
+		masks[1] = new Matrix(ws.masks.get(1), true);
+		boolean dropped = false;
+		boolean kept = false;
+
+		for (int unit = 0; unit < 6; unit++) {
+			double m = masks[1].getEntry(unit, 0);
+			assertTrue(m == 0 || m == 2);
+			dropped |= m == 0;
+			kept |= m == 2;
+
+			// A dropped unit neither learns nor passes error back to its inputs
+			if (m == 0) {
+				assertEquals(0, ws.nablaB.get(0).getEntry(unit, 0), 0);
+
+				for (int input = 0; input < 3; input++) {
+					assertEquals(0, ws.nablaW.get(0).getEntry(unit, input), 0);
+				}
+			}
+		}
+
+		assertTrue("The seed should drop some units and keep others", dropped && kept);
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			this.assertMatchesFiniteDifferences(network, masks, network.weights.get(i), ws.nablaW.get(i), x, y);
+			this.assertMatchesFiniteDifferences(network, masks, network.biases.get(i), ws.nablaB.get(i), x, y);
+		}
+	}
+
+	@Test
+	public void testDropoutMask() {
+		double rate = 0.25;
+		Matrix mask = new Matrix(100, 100);
+		Dropout.sample(rate, new SplittableRandom(7), mask);
+
+		int kept = 0;
+		double sum = 0;
+
+		for (double m : mask.getData()) {
+			assertTrue(m == 0 || m == 1 / (1 - rate));
+			kept += m == 0 ? 0 : 1;
+			sum += m;
+		}
+
+		// Inverted dropout keeps the expected activation unchanged
+		assertEquals(1 - rate, kept / 10000.0, 0.02);
+		assertEquals(1, sum / 10000, 0.02);
+
+		// The same seed gives the same mask, in either precision
+		Matrix again = new Matrix(100, 100);
+		Dropout.sample(rate, new SplittableRandom(7), again);
+		assertArrayEquals(mask.getData(), again.getData(), 0);
+
+		FloatMatrix floatMask = new FloatMatrix(100, 100);
+		Dropout.sample(rate, new SplittableRandom(7), floatMask);
+
+		for (int i = 0; i < mask.getData().length; i++) {
+			assertEquals(mask.getData()[i], floatMask.getData()[i], 1e-6);
+		}
+	}
+
+	@Test
+	public void testDropoutApply() {
+		Matrix a = new Matrix(new double[][] { { 1, -2 }, { 3, 0.5 } });
+		Matrix mask = new Matrix(new double[][] { { 0, 2 }, { 2, 0 } });
+		Matrix r = new Matrix(2, 2);
+		Dropout.apply(a, mask, r);
+		assertArrayEquals(new double[] { 0, -4, 6, 0 }, r.getData(), 0);
+
+		FloatMatrix floatR = new FloatMatrix(2, 2);
+		Dropout.apply(new FloatMatrix(a), new FloatMatrix(mask), floatR);
+		assertArrayEquals(new float[] { 0, -4, 6, 0 }, floatR.getData(), 0);
+	}
+
+	@Test
+	public void testDropoutRates() {
+		assertEquals(0, new Dropout(0).getRate(), 0);
+
+		for (double rate : new double[] { -0.1, 1, Double.NaN }) {
+			try {
+				new Dropout(rate);
+				fail("Rate " + rate + " should be rejected");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testBuilderRejectsMisplacedLayers() {
+		// SoftmaxCrossEntropy must come last
+		assertRejected(() -> Network.builder(3).add(new Dense(4)).add(new SoftmaxCrossEntropy()).add(new Dense(2)));
+		assertRejected(() -> Network.builder(3).add(new Dense(4)).add(new SoftmaxCrossEntropy()).add(new Dropout(0.5)));
+
+		// Every Dense layer needs exactly one activation, and nothing else may come first
+		assertRejected(() -> Network.builder(3).add(new Dense(4)).add(new Dense(2)));
+		assertRejected(() -> Network.builder(3).add(new Sigmoid()));
+		assertRejected(() -> Network.builder(3).add(new Dense(4)).add(new Sigmoid()).add(new Tanh()));
+
+		// Dropout follows an activation, once
+		assertRejected(() -> Network.builder(3).add(new Dropout(0.5)));
+		assertRejected(() -> Network.builder(3).add(new Dense(4)).add(new Dropout(0.5)));
+		assertRejected(() -> Network.builder(3).add(new Dense(4)).add(new Sigmoid()).add(new Dropout(0.5)).add(new Dropout(0.5)));
+
+		// Convolutions need images, element-wise activations, and pooling right after them
+		assertRejected(() -> Network.builder(3).add(new Conv2D(2, 3)));
+		assertRejected(() -> Network.builder(1, 4, 4).add(new Conv2D(2, 3)).add(new Softmax()));
+		assertRejected(() -> Network.builder(3).add(new Dense(4)).add(new ReLU()).add(new MaxPool(2)));
+	}
+
+	@Test
+	public void testBuilderRejectsIncompleteNetworks() {
+		for (NetworkBuilder builder : new NetworkBuilder[] {
+				Network.builder(3),
+				Network.builder(3).add(new Dense(4)),
+				Network.builder(3).add(new Dense(4)).add(new Sigmoid()).add(new Dropout(0.5)) }) {
+			try {
+				builder.build(1);
+				fail("Incomplete networks and dropout on the output should be rejected");
+			} catch (IllegalStateException e) {
+				// Expected
+			}
+		}
+	}
+
+	private static void assertRejected(Runnable build) {
+		try {
+			build.run();
+			fail("Misplaced layer should be rejected");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Checks a gradient against central differences of the cross-entropy cost, one parameter at a time
+	 */
+	private void assertMatchesFiniteDifferences(Network network, Matrix[] masks, Matrix parameters, Matrix gradient, double[] x, double[] y)
+			throws Exception {
+
+		double[] data = parameters.getData();
+
+		for (int i = 0; i < data.length; i++) {
+			double old = data[i];
+			data[i] = old + 1e-6;
+			double plus = cost(network, masks, x, y);
+			data[i] = old - 1e-6;
+			double minus = cost(network, masks, x, y);
+			data[i] = old;
+
+			assertEquals((plus - minus) / 2e-6, gradient.getData()[i], 1e-7);
+		}
+	}
+
+	/**
+	 * Cross-entropy cost of one sample, -sum y * ln(a), with the given dropout masks applied to the layers' outputs
+	 */
+	private static double cost(Network network, Matrix[] masks, double[] x, double[] y) throws Exception {
+		Matrix a = new Matrix(x, true);
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			Matrix z = new Matrix(network.sizes[i + 1], 1);
+			Matrix.gemm(1, network.weights.get(i), a, 0, z);
+			Matrix.addColumnInto(z, z, network.biases.get(i));
+			network.layerActivations.get(i).forward(z, z);
+
+			if (masks[i + 1] != null) {
+				Dropout.apply(z, masks[i + 1], z);
+			}
+
+			a = z;
+		}
+
+		double sum = 0;
+
+		for (int i = 0; i < y.length; i++) {
+			sum -= y[i] * Math.log(a.getEntry(i, 0));
+		}
+
+		return sum;
+	}
+
+	private double[] randomArray(int length) {
+		double[] array = new double[length];
+
+		for (int i = 0; i < length; i++) {
+			array[i] = this.random.nextGaussian();
+		}
+
+		return array;
+	}
+}
@@ -0,0 +1,264 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+
+public class TestOptimizers {
+
+	private static final double EPSILON = 1e-12;
+	private static final double FLOAT_EPSILON = 1e-5;
+
+	private static final double[] PARAMETERS = { 0.5, -1.25, 2, 0.125 };
+
+	/**
+	 * Summed gradients of three steps over a batch of four samples
+	 */
+	private static final double[][] GRADIENTS = {
+			{ 0.8, -0.4, 1.2, 0 },
+			{ -0.2, 0.6, 0.4, -1 },
+			{ 1, 0.2, -0.8, 0.4 } };
+
+	private static final double SCALE = 0.25;
+	private static final double LEARNING_RATE = 0.1;
+	private static final double DECAY = 0.01;
+
+	@Test
+	public void testSGD() throws Exception {
+		double[] expected = PARAMETERS.clone();
+
+		for (double[] g : GRADIENTS) {
+			for (int i = 0; i < expected.length; i++) {
+				expected[i] -= LEARNING_RATE * (SCALE * g[i] + DECAY * expected[i]);
+			}
+		}
+
+		this.assertSteps(new SGD(0, DECAY), expected);
+	}
+
+	@Test
+	public void testSGDFirstStep() throws Exception {
+		// 0.5 - 0.1 * (0.25 * 0.8 + 0.01 * 0.5) and so on, worked out by hand
+		this.assertFirstStep(new SGD(0, DECAY), new double[] { 0.4795, -1.23875, 1.968, 0.124875 });
+	}
+
+	@Test
+	public void testMomentum() throws Exception {
+		double momentum = 0.9;
+		double[] expected = PARAMETERS.clone();
+		double[] v = new double[expected.length];
+
+		for (double[] g : GRADIENTS) {
+			for (int i = 0; i < expected.length; i++) {
+				v[i] = momentum * v[i] + SCALE * g[i] + DECAY * expected[i];
+				expected[i] -= LEARNING_RATE * v[i];
+			}
+		}
+
+		this.assertSteps(new SGD(momentum, DECAY), expected);
+	}
+
+	@Test
+	public void testNesterov() throws Exception {
+		double momentum = 0.9;
+		double[] expected = PARAMETERS.clone();
+		double[] v = new double[expected.length];
+
+		for (double[] g : GRADIENTS) {
+			for (int i = 0; i < expected.length; i++) {
+				double gi = SCALE * g[i] + DECAY * expected[i];
+				v[i] = momentum * v[i] + gi;
+				expected[i] -= LEARNING_RATE * (gi + momentum * v[i]);
+			}
+		}
+
+		this.assertSteps(new Nesterov(momentum, DECAY), expected);
+	}
+
+	@Test
+	public void testNesterovFirstStep() throws Exception {
+		// v = g, so the first step is eta * (1 + mu) * g: 0.5 - 0.1 * 1.9 * (0.2 + 0.005) and so on
+		this.assertFirstStep(new Nesterov(0.9, DECAY), new double[] { 0.46105, -1.228625, 1.9392, 0.1247625 });
+	}
+
+	@Test
+	public void testRMSProp() throws Exception {
+		double rho = 0.9;
+		double epsilon = 1e-8;
+		double[] expected = PARAMETERS.clone();
+		double[] s = new double[expected.length];
+
+		for (double[] g : GRADIENTS) {
+			for (int i = 0; i < expected.length; i++) {
+				double gi = SCALE * g[i] + DECAY * expected[i];
+				s[i] = rho * s[i] + (1 - rho) * gi * gi;
+				expected[i] -= LEARNING_RATE * gi / (Math.sqrt(s[i]) + epsilon);
+			}
+		}
+
+		this.assertSteps(new RMSProp(rho, epsilon, DECAY), expected);
+	}
+
+	@Test
+	public void testRMSPropFirstStep() throws Exception {
+		// s = (1 - rho) * g^2, so the first step is eta * sign(g) / sqrt(1 - rho) = 0.1 / sqrt(0.1) = 0.31622...
+		double step = LEARNING_RATE / Math.sqrt(0.1);
+		this.assertFirstStep(new RMSProp(0.9, 0, DECAY), new double[] { 0.5 - step, -1.25 + step, 2 - step, 0.125 - step });
+	}
+
+	@Test
+	public void testAdam() throws Exception {
+		double beta1 = 0.9;
+		double beta2 = 0.999;
+		double epsilon = 1e-8;
+		double[] expected = PARAMETERS.clone();
+		double[] m = new double[expected.length];
+		double[] v = new double[expected.length];
+
+		for (int t = 1; t <= GRADIENTS.length; t++) {
+			double[] g = GRADIENTS[t - 1];
+
+			for (int i = 0; i < expected.length; i++) {
+				double gi = SCALE * g[i] + DECAY * expected[i];
+				m[i] = beta1 * m[i] + (1 - beta1) * gi;
+				v[i] = beta2 * v[i] + (1 - beta2) * gi * gi;
+				double mHat = m[i] / (1 - Math.pow(beta1, t));
+				double vHat = v[i] / (1 - Math.pow(beta2, t));
+				expected[i] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + epsilon);
+			}
+		}
+
+		this.assertSteps(new Adam(beta1, beta2, epsilon, DECAY), expected);
+	}
+
+	@Test
+	public void testAdamFirstStep() throws Exception {
+		// The bias corrections make the first step exactly eta * sign(g)
+		this.assertFirstStep(new Adam(0.9, 0.999, 0, DECAY), new double[] { 0.4, -1.15, 1.9, 0.025 });
+	}
+
+	@Test
+	public void testDecayOnlyWhenAsked() throws Exception {
+		// Without a gradient a step is pure weight decay, pulling weights towards zero but never moving biases
+		for (Optimizer optimizer : optimizers()) {
+			Matrix weights = new Matrix(2, 2, PARAMETERS.clone());
+			Matrix biases = new Matrix(2, 2, PARAMETERS.clone());
+
+			optimizer.beginStep();
+			optimizer.update(0, weights, new Matrix(2, 2), SCALE, LEARNING_RATE, true);
+			optimizer.update(1, biases, new Matrix(2, 2), SCALE, LEARNING_RATE, false);
+
+			for (int i = 0; i < PARAMETERS.length; i++) {
+				assertEquals(PARAMETERS[i], biases.getData()[i], 0);
+				assertTrue(Math.signum(weights.getData()[i] - PARAMETERS[i]) == -Math.signum(PARAMETERS[i]));
+			}
+		}
+	}
+
+	@Test
+	public void testNetworkDecaysWeightsOnly() throws Exception {
+		// Network.applyGradients puts weights in the even slots with decay and biases in the odd ones without
+		Network network = new Network(new int[] { 3, 4, 2 }, 5);
+		network.setOptimizer(new SGD(0, DECAY));
+
+		Matrix[] weights = new Matrix[network.numLayers - 1];
+		Matrix[] biases = new Matrix[network.numLayers - 1];
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			weights[i] = new Matrix(network.weights.get(i), true);
+			biases[i] = new Matrix(network.biases.get(i), true);
+		}
+
+		BatchWorkspace ws = network.newWorkspace(1);
+		network.applyGradients(ws.nablaW, ws.nablaB, 1, LEARNING_RATE);
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			assertMatrixEquals(Matrix.scalarMultiply(1 - LEARNING_RATE * DECAY, weights[i]), network.weights.get(i), EPSILON);
+			assertMatrixEquals(biases[i], network.biases.get(i), 0);
+		}
+	}
+
+	@Test
+	public void testSlotsKeepSeparateState() throws Exception {
+		// Two slots stepped in turn must match two optimizers stepping one slot each
+		Optimizer shared = new Adam();
+		Optimizer first = new Adam();
+		Optimizer second = new Adam();
+		Matrix a = new Matrix(2, 2, PARAMETERS.clone());
+		Matrix b = new Matrix(1, 4, PARAMETERS.clone());
+		Matrix expectedA = new Matrix(2, 2, PARAMETERS.clone());
+		Matrix expectedB = new Matrix(1, 4, PARAMETERS.clone());
+
+		for (double[] g : GRADIENTS) {
+			shared.beginStep();
+			first.beginStep();
+			second.beginStep();
+			shared.update(0, a, new Matrix(2, 2, g.clone()), SCALE, LEARNING_RATE, true);
+			shared.update(1, b, Matrix.scalarMultiply(-1, new Matrix(1, 4, g.clone())), SCALE, LEARNING_RATE, true);
+			first.update(0, expectedA, new Matrix(2, 2, g.clone()), SCALE, LEARNING_RATE, true);
+			second.update(0, expectedB, Matrix.scalarMultiply(-1, new Matrix(1, 4, g.clone())), SCALE, LEARNING_RATE, true);
+		}
+
+		assertMatrixEquals(expectedA, a, 0);
+		assertMatrixEquals(expectedB, b, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSlotChangingSize() throws Exception {
+		Optimizer optimizer = new SGD(0.9, 0);
+		optimizer.beginStep();
+		optimizer.update(0, new Matrix(2, 2), new Matrix(2, 2), SCALE, LEARNING_RATE, true);
+		optimizer.update(0, new Matrix(3, 1), new Matrix(3, 1), SCALE, LEARNING_RATE, true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDecay() {
+		new SGD(0, -1);
+	}
+
+	private static Optimizer[] optimizers() {
+		return new Optimizer[] { new SGD(0, DECAY), new SGD(0.9, DECAY), new Nesterov(0.9, DECAY),
+				new RMSProp(0.9, 1e-8, DECAY), new Adam(0.9, 0.999, 1e-8, DECAY) };
+	}
+
+	/**
+	 * Runs every step of GRADIENTS through an optimizer's double and float kernels
+	 */
+	private void assertSteps(Optimizer optimizer, double[] expected) throws Exception {
+		this.assertSteps(optimizer, GRADIENTS, expected);
+	}
+
+	private void assertFirstStep(Optimizer optimizer, double[] expected) throws Exception {
+		this.assertSteps(optimizer, new double[][] { GRADIENTS[0] }, expected);
+	}
+
+	private void assertSteps(Optimizer optimizer, double[][] gradients, double[] expected) throws Exception {
+		Matrix p = new Matrix(2, 2, PARAMETERS.clone());
+		FloatMatrix floatP = new FloatMatrix(new Matrix(2, 2, PARAMETERS.clone()));
+
+		for (double[] g : gradients) {
+			optimizer.beginStep();
+			optimizer.update(0, p, new Matrix(2, 2, g.clone()), SCALE, LEARNING_RATE, true);
+			optimizer.update(0, floatP, new FloatMatrix(new Matrix(2, 2, g.clone())), SCALE, LEARNING_RATE, true);
+		}
+
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], p.getEntry(i / 2, i % 2), EPSILON);
+			assertEquals(expected[i], floatP.getEntry(i / 2, i % 2), FLOAT_EPSILON);
+		}
+	}
+
+	private static void assertMatrixEquals(Matrix expected, Matrix actual, double delta) {
+		assertEquals(expected.getRows(), actual.getRows());
+		assertEquals(expected.getCols(), actual.getCols());
+
+		for (int row = 0; row < expected.getRows(); row++) {
+			for (int col = 0; col < expected.getCols(); col++) {
+				assertEquals(expected.getEntry(row, col), actual.getEntry(row, col), delta);
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import Matrices.Matrix;
+
+public class TestParallelTrainer {
+
+	private static final int BATCH = 24;
+	private static final int STEPS = 5;
+
+	@Test
+	public void testParallelMatchesSerial() throws Exception {
+		Network serial = new Network(new int[] { 6, 8, 3 }, 5);
+		Network parallel = new Network(new int[] { 6, 8, 3 }, 5);
+
+		try (ParallelTrainer trainer = new ParallelTrainer(parallel, 3, false)) {
+			Random random = new Random(41);
+
+			for (int step = 0; step < STEPS; step++) {
+				Matrix inputs = randomMatrix(6, BATCH, random);
+				Matrix expectations = randomMatrix(3, BATCH, random);
+
+				serial.updateMiniBatch(inputs, expectations, 0.5);
+				trainer.updateMiniBatch(inputs, expectations, 0.5);
+			}
+		}
+
+		// Only the order in which the workers' sums are added differs
+		for (int i = 0; i < serial.numLayers - 1; i++) {
+			assertArrayEquals(serial.weights.get(i).getData(), parallel.weights.get(i).getData(), 1e-12);
+			assertArrayEquals(serial.biases.get(i).getData(), parallel.biases.get(i).getData(), 1e-12);
+		}
+	}
+
+	@Test
+	public void testDeterministicRunsAreIdentical() throws Exception {
+		Network first = this.trainDeterministic();
+		Network second = this.trainDeterministic();
+
+		for (int i = 0; i < first.numLayers - 1; i++) {
+			assertArrayEquals(first.weights.get(i).getData(), second.weights.get(i).getData(), 0);
+			assertArrayEquals(first.biases.get(i).getData(), second.biases.get(i).getData(), 0);
+		}
+	}
+
+	/**
+	 * Trains a network with dropout, so that the result also depends on which masks each worker draws
+	 */
+	private Network trainDeterministic() throws Exception {
+		Network network = Network.builder(6)
+				.add(new Dense(8)).add(new ReLU()).add(new Dropout(0.5))
+				.add(new Dense(3)).add(new SoftmaxCrossEntropy())
+				.build(5);
+
+		try (ParallelTrainer trainer = new ParallelTrainer(network, 3, true)) {
+			Random random = new Random(41);
+
+			for (int step = 0; step < STEPS; step++) {
+				trainer.updateMiniBatch(randomMatrix(6, BATCH, random), randomMatrix(3, BATCH, random), 0.5);
+			}
+		}
+
+		return network;
+	}
+
+	private static Matrix randomMatrix(int rows, int cols, Random random) {
+		Matrix m = new Matrix(rows, cols);
+
+		for (int i = 0; i < rows * cols; i++) {
+			m.getData()[i] = random.nextDouble();
+		}
+
+		return m;
+	}
+}
@@ -0,0 +1,153 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+
+public class TestPrecision {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final int SAMPLES = 32;
+
+	private final Matrix inputs = new Matrix(4, SAMPLES);
+	private final Matrix expectations = new Matrix(2, SAMPLES);
+
+	public TestPrecision() {
+		Random random = new Random(3);
+
+		// Class 0 when the first two inputs outweigh the last two
+		for (int col = 0; col < SAMPLES; col++) {
+			double balance = 0;
+
+			for (int row = 0; row < 4; row++) {
+				double x = random.nextDouble() * 2 - 1;
+				this.inputs.setEntry(row, col, x);
+				balance += row < 2 ? x : -x;
+			}
+
+			this.expectations.setEntry(balance > 0 ? 0 : 1, col, 1);
+		}
+	}
+
+	private static Network network() {
+		return Network.builder(4)
+				.add(new Dense(8)).add(new Tanh())
+				.add(new Dense(2)).add(new Sigmoid())
+				.build(new Xavier(), 7);
+	}
+
+	/**
+	 * Mean squared error of the network's double weights over the training set
+	 */
+	private double loss(Network network) throws Exception {
+		InferenceSession session = new InferenceSession(network);
+		double[] input = new double[4];
+		double[] scores = new double[2];
+		double loss = 0;
+
+		for (int col = 0; col < SAMPLES; col++) {
+			for (int row = 0; row < 4; row++) {
+				input[row] = this.inputs.getEntry(row, col);
+			}
+
+			session.classify(input, scores);
+
+			for (int row = 0; row < 2; row++) {
+				double error = scores[row] - this.expectations.getEntry(row, col);
+				loss += error * error;
+			}
+		}
+
+		return loss / SAMPLES;
+	}
+
+	private static void assertWidened(FloatMatrix expected, Matrix actual) {
+		for (int i = 0; i < expected.getRows(); i++) {
+			for (int j = 0; j < expected.getCols(); j++) {
+				assertEquals(expected.getEntry(i, j), actual.getEntry(i, j), 0);
+			}
+		}
+	}
+
+	private static void assertRounded(Matrix expected, FloatMatrix actual) {
+		for (int i = 0; i < expected.getRows(); i++) {
+			for (int j = 0; j < expected.getCols(); j++) {
+				assertEquals((float) expected.getEntry(i, j), actual.getEntry(i, j), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testFloatTrainingLearns() throws Exception {
+		Network network = network();
+		network.setPrecision(Precision.FLOAT);
+		double initial = this.loss(network);
+
+		for (int step = 0; step < 300; step++) {
+			network.updateMiniBatch(this.inputs, this.expectations, 0.5);
+
+			// The float copies are trained, and widened into the double weights after every call
+			for (int i = 0; i < network.numLayers - 1; i++) {
+				assertWidened(network.floatWeights.get(i), network.weights.get(i));
+				assertWidened(network.floatBiases.get(i), network.biases.get(i));
+			}
+		}
+
+		assertTrue(this.loss(network) < initial / 2);
+	}
+
+	@Test
+	public void testMixedTrainingKeepsCopiesInStep() throws Exception {
+		Network network = network();
+		network.setPrecision(Precision.MIXED);
+		double initial = this.loss(network);
+		boolean finer = false;
+
+		for (int step = 0; step < 300; step++) {
+			network.updateMiniBatch(this.inputs, this.expectations, 0.5);
+
+			for (int i = 0; i < network.numLayers - 1; i++) {
+				assertRounded(network.weights.get(i), network.floatWeights.get(i));
+				assertRounded(network.biases.get(i), network.floatBiases.get(i));
+
+				for (double w : network.weights.get(i).getData()) {
+					finer |= w != (float) w;
+				}
+			}
+		}
+
+		// The master weights hold more than the float copies do
+		assertTrue(finer);
+		assertTrue(this.loss(network) < initial / 2);
+	}
+
+	@Test
+	public void testFloatCheckpointRoundTrip() throws Exception {
+		Network network = network();
+		network.setPrecision(Precision.FLOAT);
+
+		for (int step = 0; step < 20; step++) {
+			network.updateMiniBatch(this.inputs, this.expectations, 0.5);
+		}
+
+		String path = this.folder.getRoot() + "/float.ckpt";
+		Checkpoint.write(network, path);
+		Network loaded = Checkpoint.read(path);
+
+		for (int i = 0; i < network.numLayers - 1; i++) {
+			assertWidened(network.floatWeights.get(i), loaded.weights.get(i));
+			assertWidened(network.floatBiases.get(i), loaded.biases.get(i));
+		}
+
+		assertEquals(this.loss(network), this.loss(loaded), 0);
+	}
+}
@@ -0,0 +1,87 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestTrainingMetrics {
+
+	private static final long END_OF_EPOCH_MILLIS = 50;
+
+	/**
+	 * Two batches per epoch, the end of each epoch only reported after a delay
+	 */
+	private static class SlowEndSource implements BatchSource {
+		private final Batch batch = new Batch(3, 2, 4);
+		private int served;
+
+		@Override
+		public Batch next() throws InterruptedException {
+			if (this.served++ < 2) {
+				return this.batch;
+			}
+
+			this.served = 0;
+			Thread.sleep(END_OF_EPOCH_MILLIS);
+			return null;
+		}
+
+		@Override
+		public int getInputSize() {
+			return 3;
+		}
+
+		@Override
+		public int getOutputSize() {
+			return 2;
+		}
+
+		@Override
+		public void close() {
+
+		}
+	}
+
+	@Test
+	public void testEndOfEpochWaitIsLoadTime() throws Exception {
+		Network network = new Network(new int[] { 3, 4, 2 }, 5);
+		List<StepStats> steps = new ArrayList<>();
+		List<EpochStats> epochs = new ArrayList<>();
+
+		network.addListener(new TrainingListener() {
+			@Override
+			public void epochCompleted(EpochStats epoch) {
+				epochs.add(epoch);
+			}
+
+			@Override
+			public void stepCompleted(StepStats step) {
+				steps.add(step);
+			}
+		});
+
+		network.train(new SlowEndSource(), 2, 0.1);
+
+		assertEquals(4, steps.size());
+		assertEquals(2, epochs.size());
+
+		for (int epoch = 0; epoch < 2; epoch++) {
+			long stepLoad = 0;
+
+			for (StepStats step : steps.subList(2 * epoch, 2 * epoch + 2)) {
+				assertEquals(epoch, step.getEpoch());
+				assertEquals(4, step.getBatchSize());
+				assertTrue(step.getNanos(Phase.LOAD) < END_OF_EPOCH_MILLIS * 1_000_000);
+				stepLoad += step.getNanos(Phase.LOAD);
+			}
+
+			EpochStats stats = epochs.get(epoch);
+			assertEquals(2, stats.getSteps());
+			assertEquals(8, stats.getSamples());
+			assertTrue(stats.getNanos(Phase.LOAD) - stepLoad >= END_OF_EPOCH_MILLIS * 1_000_000);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package Network;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestTrainingMonitor {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Three batches of four samples per epoch
+	 */
+	private static class FixedSource implements BatchSource {
+		private final Batch batch = new Batch(3, 2, 4);
+		private int served;
+
+		FixedSource() {
+			for (int col = 0; col < 4; col++) {
+				for (int row = 0; row < 3; row++) {
+					this.batch.getInputs().setEntry(row, col, (row + col) % 3 - 1);
+				}
+
+				this.batch.getExpectations().setEntry(col % 2, col, 1);
+			}
+		}
+
+		@Override
+		public Batch next() {
+			if (this.served++ < 3) {
+				return this.batch;
+			}
+
+			this.served = 0;
+			return null;
+		}
+
+		@Override
+		public int getInputSize() {
+			return 3;
+		}
+
+		@Override
+		public int getOutputSize() {
+			return 2;
+		}
+
+		@Override
+		public void close() {
+
+		}
+	}
+
+	/**
+	 * Epoch with round figures: 1.5 ms loading, 2 ms forward, 3 ms backward, 0.25 ms updating
+	 */
+	private static EpochStats epoch(int epoch, double loss, double accuracy) {
+		return new EpochStats(epoch, 10, 40, 8_000_000, new long[] { 1_500_000, 2_000_000, 3_000_000, 250_000 }, 1000, loss, accuracy);
+	}
+
+	private TrainingMonitor twoEpochs() {
+		TrainingMonitor monitor = new TrainingMonitor();
+		monitor.epochCompleted(epoch(0, 0.5, 0.75));
+		monitor.epochCompleted(epoch(1, 0.25, 0.875));
+
+		return monitor;
+	}
+
+	@Test
+	public void testCsv() throws Exception {
+		String path = this.folder.getRoot() + "/timeline.csv";
+		this.twoEpochs().writeCsv(path);
+
+		List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+		assertEquals(3, lines.size());
+		assertEquals("epoch,steps,samples,elapsed_ms,samples_per_second,load_ms,forward_ms,backward_ms,update_ms,allocated_bytes_per_step,loss,accuracy", lines.get(0));
+		assertEquals("0,10,40,8.000,5000.0,1.500,2.000,3.000,0.250,100.0,0.500000,0.750000", lines.get(1));
+		assertEquals("1,10,40,8.000,5000.0,1.500,2.000,3.000,0.250,100.0,0.250000,0.875000", lines.get(2));
+	}
+
+	@Test
+	public void testJson() throws Exception {
+		String path = this.folder.getRoot() + "/timeline.json";
+		this.twoEpochs().writeJson(path);
+
+		List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+		assertEquals(4, lines.size());
+		assertEquals("[", lines.get(0));
+		assertEquals("  {\"epoch\": 0, \"steps\": 10, \"samples\": 40, \"elapsedMs\": 8.000, \"samplesPerSecond\": 5000.0, "
+				+ "\"loadMs\": 1.500, \"forwardMs\": 2.000, \"backwardMs\": 3.000, \"updateMs\": 0.250, "
+				+ "\"allocatedBytesPerStep\": 100.0, \"loss\": 0.500000, \"accuracy\": 0.750000},", lines.get(1));
+
+		// No comma after the last element
+		assertTrue(lines.get(2).startsWith("  {\"epoch\": 1, "));
+		assertTrue(lines.get(2).endsWith("\"loss\": 0.250000, \"accuracy\": 0.875000}"));
+		assertEquals("]", lines.get(3));
+	}
+
+	@Test
+	public void testEmptyTimeline() throws Exception {
+		TrainingMonitor monitor = new TrainingMonitor();
+		String csv = this.folder.getRoot() + "/empty.csv";
+		String json = this.folder.getRoot() + "/empty.json";
+		monitor.writeCsv(csv);
+		monitor.writeJson(json);
+
+		assertEquals(1, Files.readAllLines(Paths.get(csv)).size());
+		assertEquals(List.of("[", "]"), Files.readAllLines(Paths.get(json)));
+		assertEquals(0, monitor.getEpochsCompleted());
+		assertTrue(Double.isNaN(monitor.getLoss()));
+		assertEquals(0, monitor.getSamplesPerSecond(), 0);
+	}
+
+	@Test
+	public void testRegistration() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("Network:type=TrainingMonitor,name=" + ObjectName.quote("registration"));
+		TrainingMonitor monitor = new TrainingMonitor();
+
+		monitor.register("registration");
+
+		try {
+			assertTrue(server.isRegistered(name));
+
+			try {
+				new TrainingMonitor().register("registration");
+				fail("Names are unique");
+			} catch (InstanceAlreadyExistsException e) {
+				// Expected
+			}
+		} finally {
+			monitor.unregister();
+		}
+
+		assertFalse(server.isRegistered(name));
+
+		// Unregistering twice does nothing, and the name is free again
+		monitor.unregister();
+		monitor.register("registration");
+		monitor.unregister();
+	}
+
+	@Test
+	public void testAttributesAfterTraining() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("Network:type=TrainingMonitor,name=" + ObjectName.quote("training"));
+		Network network = new Network(new int[] { 3, 4, 2 }, 5);
+		TrainingMonitor monitor = new TrainingMonitor();
+		network.addListener(monitor);
+		monitor.register("training");
+
+		try {
+			assertEquals(0, server.getAttribute(name, "EpochsCompleted"));
+
+			network.train(new FixedSource(), 3, 0.5);
+
+			List<EpochStats> timeline = monitor.getTimeline();
+			EpochStats last = timeline.get(2);
+			assertEquals(3, timeline.size());
+			assertEquals(3, server.getAttribute(name, "EpochsCompleted"));
+			assertEquals(9L, server.getAttribute(name, "StepsCompleted"));
+			assertEquals(12, last.getSamples());
+			assertEquals(last.getLoss(), (double) server.getAttribute(name, "Loss"), 0);
+			assertEquals(last.getAccuracy(), (double) server.getAttribute(name, "Accuracy"), 0);
+			assertEquals(last.getSamplesPerSecond(), (double) server.getAttribute(name, "SamplesPerSecond"), 0);
+			assertEquals(last.getNanos(Phase.FORWARD) / 1e6, (double) server.getAttribute(name, "ForwardMillis"), 0);
+			assertEquals(last.getNanos(Phase.UPDATE) / 1e6, (double) server.getAttribute(name, "UpdateMillis"), 0);
+			assertEquals(last.getAllocatedBytesPerStep(), (double) server.getAttribute(name, "AllocatedBytesPerStep"), 0);
+
+			// The same three batches again and again, so the loss falls from epoch to epoch
+			assertTrue(last.getLoss() < timeline.get(0).getLoss());
+			assertTrue((double) server.getAttribute(name, "SamplesPerSecond") > 0);
+			assertTrue((double) server.getAttribute(name, "BackwardMillis") > 0);
+		} finally {
+			monitor.unregister();
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package Network;
+
+/**
+ * Receives the measurements of a network's training as it runs, on the training thread
+ */
+public interface TrainingListener {
+
+	/**
+	 * Called after every epoch
+	 */
+	void epochCompleted(EpochStats epoch);
+
+	/**
+	 * Called after every step, doing nothing by default
+	 */
+	default void stepCompleted(StepStats step) {
+
+	}
+
+}
@@ -0,0 +1,263 @@
+package Network;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import Matrices.FloatMatrix;
+import Matrices.Matrix;
+
+/**
+ * Collects the timings, throughput, allocations, loss and accuracy of a network's training and hands them to its
+ * listeners. While no listener is attached every method returns straight away, so an unobserved network pays only
+ * for the checks.
+ */
+class TrainingMetrics {
+	private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+	private final CopyOnWriteArrayList<TrainingListener> listeners = new CopyOnWriteArrayList<>();
+	private volatile boolean enabled;
+
+	/**
+	 * Smallest probability the cross-entropy loss takes the log of, so a confidently wrong output costs about 27
+	 * instead of infinity
+	 */
+	private static final double MIN_PROBABILITY = 1e-12;
+
+	// Whether the loss is the cross-entropy of softmax outputs rather than the quadratic cost
+	private boolean crossEntropy;
+
+	// Current epoch
+	private int epoch;
+	private long epochStart;
+	private long epochSteps;
+	private long epochSamples;
+	private final long[] epochNanos = new long[Phase.values().length];
+	private long epochAllocated;
+	private double epochLoss;
+	private long epochCorrect;
+
+	// Current step
+	private long step;
+	private final long[] stepNanos = new long[Phase.values().length];
+	private long stepAllocationStart;
+	private double stepLoss;
+	private int stepCorrect;
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+			if (threads.isThreadAllocatedMemorySupported()) {
+				threads.setThreadAllocatedMemoryEnabled(true);
+				return threads;
+			}
+		}
+
+		return null;
+	}
+
+	void addListener(TrainingListener listener) {
+		this.listeners.add(listener);
+		this.enabled = true;
+	}
+
+	void removeListener(TrainingListener listener) {
+		this.listeners.remove(listener);
+		this.enabled = !this.listeners.isEmpty();
+	}
+
+	void setCrossEntropy(boolean crossEntropy) {
+		this.crossEntropy = crossEntropy;
+	}
+
+	boolean isEnabled() {
+		return this.enabled;
+	}
+
+	void beginEpoch(int epoch) {
+		if (!this.enabled) {
+			return;
+		}
+
+		this.epoch = epoch;
+		this.epochStart = System.nanoTime();
+		this.epochSteps = 0;
+		this.epochSamples = 0;
+		this.epochAllocated = THREADS == null ? -1 : 0;
+		this.epochLoss = 0;
+		this.epochCorrect = 0;
+		Arrays.fill(this.epochNanos, 0);
+		this.resetStep();
+	}
+
+	void beginStep() {
+		if (!this.enabled) {
+			return;
+		}
+
+		this.stepAllocationStart = allocatedBytes();
+	}
+
+	/**
+	 * Gets the time a phase starts at
+	 */
+	long start() {
+		return this.enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Adds the time since start to a phase of the current step
+	 * @return The current time, to start the next phase at
+	 */
+	long record(Phase phase, long start) {
+		if (!this.enabled) {
+			return 0;
+		}
+
+		long now = System.nanoTime();
+		this.stepNanos[phase.ordinal()] += now - start;
+
+		return now;
+	}
+
+	/**
+	 * Gets one output's share of the cost
+	 */
+	private double loss(double a, double y) {
+		if (this.crossEntropy) {
+			return y == 0 ? 0 : -y * Math.log(Math.max(a, MIN_PROBABILITY));
+		}
+
+		return 0.5 * (a - y) * (a - y);
+	}
+
+	/**
+	 * Adds the cost and the classifications of a batch of outputs, one sample per column
+	 */
+	void recordOutputs(Matrix outputs, Matrix expectations) {
+		if (!this.enabled) {
+			return;
+		}
+
+		double[] a = outputs.getData();
+		double[] y = expectations.getData();
+
+		for (int col = 0; col < outputs.getCols(); col++) {
+			int predicted = 0;
+			int expected = 0;
+
+			for (int row = 0; row < outputs.getRows(); row++) {
+				double ai = a[outputs.index(row, col)];
+				double yi = y[expectations.index(row, col)];
+				this.stepLoss += this.loss(ai, yi);
+
+				if (ai > a[outputs.index(predicted, col)]) {
+					predicted = row;
+				}
+
+				if (yi > y[expectations.index(expected, col)]) {
+					expected = row;
+				}
+			}
+
+			this.stepCorrect += predicted == expected ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Single precision counterpart of {@link #recordOutputs(Matrix, Matrix)}
+	 */
+	void recordOutputs(FloatMatrix outputs, FloatMatrix expectations) {
+		if (!this.enabled) {
+			return;
+		}
+
+		float[] a = outputs.getData();
+		float[] y = expectations.getData();
+
+		for (int col = 0; col < outputs.getCols(); col++) {
+			int predicted = 0;
+			int expected = 0;
+
+			for (int row = 0; row < outputs.getRows(); row++) {
+				double ai = a[outputs.index(row, col)];
+				double yi = y[expectations.index(row, col)];
+				this.stepLoss += this.loss(ai, yi);
+
+				if (ai > a[outputs.index(predicted, col)]) {
+					predicted = row;
+				}
+
+				if (yi > y[expectations.index(expected, col)]) {
+					expected = row;
+				}
+			}
+
+			this.stepCorrect += predicted == expected ? 1 : 0;
+		}
+	}
+
+	void endStep(int batchSize) {
+		if (!this.enabled) {
+			return;
+		}
+
+		long allocated = THREADS == null ? -1 : allocatedBytes() - this.stepAllocationStart;
+		StepStats stats = new StepStats(this.epoch, this.step++, batchSize, this.stepNanos.clone(), allocated,
+				this.stepLoss / batchSize, this.stepCorrect);
+
+		for (int i = 0; i < this.stepNanos.length; i++) {
+			this.epochNanos[i] += this.stepNanos[i];
+		}
+
+		if (allocated >= 0 && this.epochAllocated >= 0) {
+			this.epochAllocated += allocated;
+		}
+
+		this.epochSteps++;
+		this.epochSamples += batchSize;
+		this.epochLoss += this.stepLoss;
+		this.epochCorrect += this.stepCorrect;
+
+		this.resetStep();
+
+		for (TrainingListener listener : this.listeners) {
+			listener.stepCompleted(stats);
+		}
+	}
+
+	// Time booked before a step begins, such as the epoch's shuffle, counts towards that step
+	private void resetStep() {
+		Arrays.fill(this.stepNanos, 0);
+		this.stepLoss = 0;
+		this.stepCorrect = 0;
+	}
+
+	void endEpoch() {
+		if (!this.enabled) {
+			return;
+		}
+
+		// Time recorded after the last step, e.g. waiting for a batch source to report the end of the epoch
+		for (int i = 0; i < this.stepNanos.length; i++) {
+			this.epochNanos[i] += this.stepNanos[i];
+		}
+
+		this.resetStep();
+
+		long samples = Math.max(1, this.epochSamples);
+		EpochStats stats = new EpochStats(this.epoch, this.epochSteps, this.epochSamples, System.nanoTime() - this.epochStart,
+				this.epochNanos.clone(), this.epochAllocated, this.epochLoss / samples, (double) this.epochCorrect / samples);
+
+		for (TrainingListener listener : this.listeners) {
+			listener.epochCompleted(stats);
+		}
+	}
+
+	private static long allocatedBytes() {
+		return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
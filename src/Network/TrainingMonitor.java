@@ -0,0 +1,175 @@
+package Network;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Listener keeping the timeline of a training run's epochs. It publishes the latest epoch as a JMX MBean and
+ * writes the whole timeline out as CSV or JSON.
+ */
+public class TrainingMonitor implements TrainingListener, TrainingMonitorMBean {
+	private final ArrayList<EpochStats> timeline = new ArrayList<>();
+	private volatile EpochStats last;
+	private volatile long steps;
+	private ObjectName name;
+
+	@Override
+	public synchronized void epochCompleted(EpochStats epoch) {
+		this.timeline.add(epoch);
+		this.last = epoch;
+	}
+
+	@Override
+	public void stepCompleted(StepStats step) {
+		this.steps = step.getStep() + 1;
+	}
+
+	/**
+	 * Gets every epoch completed so far, oldest first
+	 */
+	public synchronized List<EpochStats> getTimeline() {
+		return new ArrayList<>(this.timeline);
+	}
+
+	/**
+	 * Registers the monitor with the platform MBean server as Network:type=TrainingMonitor,name=&lt;name&gt;
+	 * @param name Name of the training run
+	 * @throws JMException If the name is invalid or already taken
+	 */
+	public void register(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName("Network:type=TrainingMonitor,name=" + ObjectName.quote(name));
+
+		server.registerMBean(this, objectName);
+		this.name = objectName;
+	}
+
+	/**
+	 * Removes the monitor from the platform MBean server, if registered
+	 * @throws JMException If the monitor cannot be unregistered
+	 */
+	public void unregister() throws JMException {
+		if (this.name != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+			this.name = null;
+		}
+	}
+
+	/**
+	 * Writes the timeline as CSV, one epoch per row after a header row
+	 * @param path Path of the file, replaced if it exists
+	 * @throws IOException If the file cannot be written
+	 */
+	public void writeCsv(String path) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))) {
+			out.println("epoch,steps,samples,elapsed_ms,samples_per_second,load_ms,forward_ms,backward_ms,update_ms,allocated_bytes_per_step,loss,accuracy");
+
+			for (EpochStats epoch : this.getTimeline()) {
+				out.println(format(Locale.ROOT, "%d,%d,%d,%.3f,%.1f,%.3f,%.3f,%.3f,%.3f,%.1f,%.6f,%.6f",
+						epoch.getEpoch(), epoch.getSteps(), epoch.getSamples(), epoch.getElapsedNanos() / 1e6,
+						epoch.getSamplesPerSecond(), epoch.getNanos(Phase.LOAD) / 1e6, epoch.getNanos(Phase.FORWARD) / 1e6,
+						epoch.getNanos(Phase.BACKWARD) / 1e6, epoch.getNanos(Phase.UPDATE) / 1e6,
+						epoch.getAllocatedBytesPerStep(), epoch.getLoss(), epoch.getAccuracy()));
+			}
+		}
+	}
+
+	/**
+	 * Writes the timeline as a JSON array with one object per epoch
+	 * @param path Path of the file, replaced if it exists
+	 * @throws IOException If the file cannot be written
+	 */
+	public void writeJson(String path) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))) {
+			List<EpochStats> epochs = this.getTimeline();
+			out.println("[");
+
+			for (int i = 0; i < epochs.size(); i++) {
+				EpochStats epoch = epochs.get(i);
+
+				out.print(format(Locale.ROOT, "  {\"epoch\": %d, \"steps\": %d, \"samples\": %d, \"elapsedMs\": %.3f, "
+						+ "\"samplesPerSecond\": %.1f, \"loadMs\": %.3f, \"forwardMs\": %.3f, \"backwardMs\": %.3f, "
+						+ "\"updateMs\": %.3f, \"allocatedBytesPerStep\": %.1f, \"loss\": %.6f, \"accuracy\": %.6f}",
+						epoch.getEpoch(), epoch.getSteps(), epoch.getSamples(), epoch.getElapsedNanos() / 1e6,
+						epoch.getSamplesPerSecond(), epoch.getNanos(Phase.LOAD) / 1e6, epoch.getNanos(Phase.FORWARD) / 1e6,
+						epoch.getNanos(Phase.BACKWARD) / 1e6, epoch.getNanos(Phase.UPDATE) / 1e6,
+						epoch.getAllocatedBytesPerStep(), epoch.getLoss(), epoch.getAccuracy()));
+				out.println(i < epochs.size() - 1 ? "," : "");
+			}
+
+			out.println("]");
+		}
+	}
+
+	@Override
+	public synchronized int getEpochsCompleted() {
+		return this.timeline.size();
+	}
+
+	@Override
+	public long getStepsCompleted() {
+		return this.steps;
+	}
+
+	@Override
+	public double getLoss() {
+		EpochStats epoch = this.last;
+		return epoch == null ? Double.NaN : epoch.getLoss();
+	}
+
+	@Override
+	public double getAccuracy() {
+		EpochStats epoch = this.last;
+		return epoch == null ? Double.NaN : epoch.getAccuracy();
+	}
+
+	@Override
+	public double getSamplesPerSecond() {
+		EpochStats epoch = this.last;
+		return epoch == null ? 0 : epoch.getSamplesPerSecond();
+	}
+
+	@Override
+	public double getLoadMillis() {
+		return this.phaseMillis(Phase.LOAD);
+	}
+
+	@Override
+	public double getForwardMillis() {
+		return this.phaseMillis(Phase.FORWARD);
+	}
+
+	@Override
+	public double getBackwardMillis() {
+		return this.phaseMillis(Phase.BACKWARD);
+	}
+
+	@Override
+	public double getUpdateMillis() {
+		return this.phaseMillis(Phase.UPDATE);
+	}
+
+	@Override
+	public double getAllocatedBytesPerStep() {
+		EpochStats epoch = this.last;
+		return epoch == null ? 0 : epoch.getAllocatedBytesPerStep();
+	}
+
+	private double phaseMillis(Phase phase) {
+		EpochStats epoch = this.last;
+		return epoch == null ? 0 : epoch.getNanos(phase) / 1e6;
+	}
+}
@@ -0,0 +1,28 @@
+package Network;
+
+/**
+ * JMX view of a training run, as published by {@link TrainingMonitor}. Figures are those of the last completed epoch.
+ */
+public interface TrainingMonitorMBean {
+
+	int getEpochsCompleted();
+
+	long getStepsCompleted();
+
+	double getLoss();
+
+	double getAccuracy();
+
+	double getSamplesPerSecond();
+
+	double getLoadMillis();
+
+	double getForwardMillis();
+
+	double getBackwardMillis();
+
+	double getUpdateMillis();
+
+	double getAllocatedBytesPerStep();
+
+}
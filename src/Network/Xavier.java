@@ -0,0 +1,14 @@
+package Network;
+
+/**
+ * Xavier/Glorot initialization, keeping the variance of activations and gradients alike across sigmoid and tanh
+ * layers: weights from N(0, 2 / (fanIn + fanOut)) and zero biases
+ */
+public class Xavier implements Initializer {
+
+	@Override
+	public double weightDeviation(int fanIn, int fanOut) {
+		return Math.sqrt(2.0 / (fanIn + fanOut));
+	}
+
+}